@@ -0,0 +1,158 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.benchmarks;
+
+import org.jasig.cas.CentralAuthenticationServiceImpl;
+import org.jasig.cas.authentication.AcceptUsersAuthenticationHandler;
+import org.jasig.cas.authentication.Authentication;
+import org.jasig.cas.authentication.AuthenticationBuilder;
+import org.jasig.cas.authentication.BasicCredentialMetaData;
+import org.jasig.cas.authentication.CredentialMetaData;
+import org.jasig.cas.authentication.HandlerResult;
+import org.jasig.cas.authentication.PolicyBasedAuthenticationManager;
+import org.jasig.cas.authentication.UsernamePasswordCredential;
+import org.jasig.cas.authentication.principal.DefaultPrincipalFactory;
+import org.jasig.cas.authentication.principal.SimpleWebApplicationServiceImpl;
+import org.jasig.cas.logout.LogoutManager;
+import org.jasig.cas.logout.LogoutRequest;
+import org.jasig.cas.services.DefaultServicesManagerImpl;
+import org.jasig.cas.services.InMemoryServiceRegistryDaoImpl;
+import org.jasig.cas.services.RegexRegisteredService;
+import org.jasig.cas.services.RegisteredService;
+import org.jasig.cas.services.ServicesManager;
+import org.jasig.cas.ticket.TicketGrantingTicket;
+import org.jasig.cas.ticket.registry.TicketRegistry;
+import org.jasig.cas.ticket.support.NeverExpiresExpirationPolicy;
+import org.jasig.cas.util.DefaultUniqueTicketIdGenerator;
+import org.jasig.cas.util.UniqueTicketIdGenerator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the in-memory CAS components exercised by the benchmarks, so that every
+ * benchmark measures CAS code only: no network, database or servlet container is involved.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class BenchmarkSupport {
+
+    /** Username accepted by the stub authentication handler. */
+    public static final String USERNAME = "casuser";
+
+    /** Password accepted by the stub authentication handler. */
+    public static final String PASSWORD = "Mellon";
+
+    /**
+     * Instantiates a new benchmark support.
+     */
+    private BenchmarkSupport() {}
+
+    /**
+     * Gets the URL of the n-th registered service.
+     *
+     * @param n the service number
+     * @return the service URL
+     */
+    public static String getServiceUrl(final int n) {
+        return "https://app" + n + ".example.org/cas/login";
+    }
+
+    /**
+     * Creates a services manager backed by an in-memory registry holding the given number of
+     * regular expression services, evaluated in the order of their number.
+     *
+     * @param count the number of registered services
+     * @return the services manager
+     */
+    public static ServicesManager newServicesManager(final int count) {
+        final List<RegisteredService> services = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final RegexRegisteredService service = new RegexRegisteredService();
+            service.setId(i);
+            service.setName("app" + i);
+            service.setServiceId("^https://app" + i + "\\.example\\.org/.*");
+            service.setEvaluationOrder(i);
+            services.add(service);
+        }
+        final InMemoryServiceRegistryDaoImpl dao = new InMemoryServiceRegistryDaoImpl();
+        dao.setRegisteredServices(services);
+        return new DefaultServicesManagerImpl(dao);
+    }
+
+    /**
+     * Creates a central authentication service over the given registry, authenticating
+     * {@link #USERNAME} against a stub handler and never expiring tickets.
+     *
+     * @param ticketRegistry the ticket registry
+     * @param servicesManager the services manager
+     * @return the central authentication service
+     */
+    public static CentralAuthenticationServiceImpl newCentralAuthenticationService(
+            final TicketRegistry ticketRegistry, final ServicesManager servicesManager) {
+        final AcceptUsersAuthenticationHandler handler = new AcceptUsersAuthenticationHandler();
+        handler.setUsers(Collections.singletonMap(USERNAME, PASSWORD));
+        final Map<String, UniqueTicketIdGenerator> generators = Collections.<String, UniqueTicketIdGenerator>singletonMap(
+                SimpleWebApplicationServiceImpl.class.getName(), new DefaultUniqueTicketIdGenerator());
+        return new CentralAuthenticationServiceImpl(ticketRegistry, null, new PolicyBasedAuthenticationManager(handler),
+                new DefaultUniqueTicketIdGenerator(), generators, new NeverExpiresExpirationPolicy(),
+                new NeverExpiresExpirationPolicy(), servicesManager, new NoOpLogoutManager());
+    }
+
+    /**
+     * Creates the credential accepted by the stub authentication handler.
+     *
+     * @return the credential
+     */
+    public static UsernamePasswordCredential newCredential() {
+        return new UsernamePasswordCredential(USERNAME, PASSWORD);
+    }
+
+    /**
+     * Creates a successful authentication of {@link #USERNAME}.
+     *
+     * @return the authentication
+     */
+    public static Authentication newAuthentication() {
+        final CredentialMetaData metaData = new BasicCredentialMetaData(newCredential());
+        return new AuthenticationBuilder(new DefaultPrincipalFactory().createPrincipal(USERNAME))
+                .addCredential(metaData)
+                .addSuccess(AcceptUsersAuthenticationHandler.class.getSimpleName(),
+                        new HandlerResult(new AcceptUsersAuthenticationHandler(), metaData))
+                .build();
+    }
+
+    /**
+     * Logout manager that has no services to notify.
+     */
+    private static final class NoOpLogoutManager implements LogoutManager {
+        @Override
+        public List<LogoutRequest> performLogout(final TicketGrantingTicket ticket) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String createFrontChannelLogoutMessage(final LogoutRequest logoutRequest) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.benchmarks;
+
+import org.jasig.cas.CentralAuthenticationService;
+import org.jasig.cas.authentication.principal.Service;
+import org.jasig.cas.authentication.principal.SimpleWebApplicationServiceImpl;
+import org.jasig.cas.ticket.ServiceTicket;
+import org.jasig.cas.ticket.registry.DefaultTicketRegistry;
+import org.jasig.cas.validation.Assertion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks granting and validating service tickets through
+ * {@link org.jasig.cas.CentralAuthenticationServiceImpl} over the in-memory ticket registry.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CentralAuthenticationServiceBenchmark {
+
+    /** Number of services in the registry; the requesting service is the last one evaluated. */
+    @Param({"10", "100"})
+    private int services;
+
+    private CentralAuthenticationService centralAuthenticationService;
+
+    private Service service;
+
+    private String ticketGrantingTicketId;
+
+    /**
+     * Creates the central authentication service.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.centralAuthenticationService = BenchmarkSupport.newCentralAuthenticationService(
+                new DefaultTicketRegistry(), BenchmarkSupport.newServicesManager(this.services));
+        this.service = new SimpleWebApplicationServiceImpl(BenchmarkSupport.getServiceUrl(this.services - 1));
+    }
+
+    /**
+     * Creates a fresh ticket-granting ticket for each iteration, so that the set of services
+     * tracked by the ticket does not grow for the whole trial.
+     *
+     * @throws Exception if the ticket cannot be created
+     */
+    @Setup(Level.Iteration)
+    public void createTicketGrantingTicket() throws Exception {
+        this.ticketGrantingTicketId = this.centralAuthenticationService
+                .createTicketGrantingTicket(BenchmarkSupport.newCredential()).getId();
+    }
+
+    /**
+     * Grants a service ticket.
+     *
+     * @return the service ticket
+     * @throws Exception if the ticket cannot be granted
+     */
+    @Benchmark
+    public ServiceTicket grantServiceTicket() throws Exception {
+        return this.centralAuthenticationService.grantServiceTicket(this.ticketGrantingTicketId, this.service);
+    }
+
+    /**
+     * Grants and validates a service ticket, which also removes it from the registry.
+     *
+     * @return the assertion
+     * @throws Exception if the ticket cannot be granted or validated
+     */
+    @Benchmark
+    public Assertion grantAndValidateServiceTicket() throws Exception {
+        final ServiceTicket serviceTicket = this.centralAuthenticationService.grantServiceTicket(
+                this.ticketGrantingTicketId, this.service);
+        return this.centralAuthenticationService.validateServiceTicket(serviceTicket.getId(), this.service);
+    }
+}
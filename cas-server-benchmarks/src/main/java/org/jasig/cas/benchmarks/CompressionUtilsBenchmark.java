@@ -0,0 +1,111 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.benchmarks;
+
+import org.jasig.cas.util.CompressionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Benchmarks the {@link CompressionUtils} operations used to encode SAML and logout messages,
+ * applied to a message of typical size.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompressionUtilsBenchmark {
+
+    private static final String MESSAGE = "<samlp:LogoutRequest xmlns:samlp=\"urn:oasis:names:tc:SAML:2.0:protocol\" "
+            + "xmlns:saml=\"urn:oasis:names:tc:SAML:2.0:assertion\" ID=\"LR-1-3XUGbWsWdDd5bYgmOxhGvMEbNnJe1w4Z1Ex\" "
+            + "Version=\"2.0\" IssueInstant=\"2015-01-01T12:00:00Z\"><saml:NameID>@NOT_USED@</saml:NameID>"
+            + "<samlp:SessionIndex>ST-1-FBhCcOiUUmT7Q8nmEEBG-cas.example.org</samlp:SessionIndex>"
+            + "</samlp:LogoutRequest>";
+
+    private byte[] deflated;
+
+    private String base64;
+
+    /**
+     * Prepares the encoded message. The message is deflated without zlib wrapping,
+     * the way SAML redirect bindings carry it and {@link CompressionUtils#inflate(byte[])} expects it.
+     */
+    @Setup
+    public void setUp() {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(MESSAGE.getBytes(Charset.forName("UTF-8")));
+        deflater.finish();
+        final byte[] buffer = new byte[MESSAGE.length()];
+        this.deflated = Arrays.copyOf(buffer, deflater.deflate(buffer));
+        deflater.end();
+        this.base64 = CompressionUtils.encodeBase64(this.deflated);
+    }
+
+    /**
+     * Deflates and base64-encodes the message.
+     *
+     * @return the encoded message
+     */
+    @Benchmark
+    public String deflate() {
+        return CompressionUtils.deflate(MESSAGE);
+    }
+
+    /**
+     * Inflates the raw deflated message.
+     *
+     * @return the message
+     */
+    @Benchmark
+    public String inflate() {
+        return CompressionUtils.inflate(this.deflated);
+    }
+
+    /**
+     * Base64-decodes the encoded message.
+     *
+     * @return the deflated bytes
+     */
+    @Benchmark
+    public byte[] decodeBase64() {
+        return CompressionUtils.decodeBase64ToByteArray(this.base64);
+    }
+
+    /**
+     * Base64-encodes the deflated message.
+     *
+     * @return the encoded message
+     */
+    @Benchmark
+    public String encodeBase64() {
+        return CompressionUtils.encodeBase64(this.deflated);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.benchmarks;
+
+import org.jasig.cas.extension.clearpass.EncryptedMapDecorator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks storing and reading credentials through the ClearPass {@link EncryptedMapDecorator},
+ * which hashes keys and encrypts values.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EncryptedMapDecoratorBenchmark {
+
+    private static final String KEY = "TGT-1-FBhCcOiUUmT7Q8nmEEBGdJ5qWsbCdvSa7IQQ7dWMmBTn1ZQ3mm-cas.example.org";
+
+    private Map<String, String> map;
+
+    /**
+     * Creates the decorator and stores the credential read by {@link #get()}.
+     *
+     * @throws Exception if the decorator cannot be created
+     */
+    @Setup
+    public void setUp() throws Exception {
+        this.map = new EncryptedMapDecorator(new ConcurrentHashMap<String, String>());
+        this.map.put(KEY, BenchmarkSupport.PASSWORD);
+    }
+
+    /**
+     * Stores a credential.
+     *
+     * @return the previous credential
+     */
+    @Benchmark
+    public String put() {
+        return this.map.put(KEY, BenchmarkSupport.PASSWORD);
+    }
+
+    /**
+     * Reads a credential.
+     *
+     * @return the credential
+     */
+    @Benchmark
+    public String get() {
+        return this.map.get(KEY);
+    }
+}
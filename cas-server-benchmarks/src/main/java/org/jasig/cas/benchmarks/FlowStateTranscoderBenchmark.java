@@ -0,0 +1,105 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.benchmarks;
+
+import org.jasig.cas.authentication.principal.SimpleWebApplicationServiceImpl;
+import org.jasig.cas.web.flow.CompactFlowStateTranscoder;
+import org.jasig.spring.webflow.plugin.EncryptedTranscoder;
+import org.jasig.spring.webflow.plugin.Transcoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.webflow.core.collection.LocalAttributeMap;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding and decoding the login flow state kept in the {@code execution} parameter of the login form,
+ * with the {@link EncryptedTranscoder} of the client side flow execution repository and with the
+ * {@link CompactFlowStateTranscoder}. The size of the encoded state is logged when the benchmark is set up.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlowStateTranscoderBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlowStateTranscoderBenchmark.class);
+
+    /** Transcoder of the login flow state. */
+    @Param({"encrypted", "compact"})
+    private String transcoderType;
+
+    private Transcoder transcoder;
+
+    private LocalAttributeMap<Object> state;
+
+    private byte[] encodedState;
+
+    /**
+     * Creates the transcoder and the login flow state it encodes.
+     *
+     * @throws Exception if the transcoder cannot be created
+     */
+    @Setup
+    public void setUp() throws Exception {
+        this.transcoder = "compact".equals(this.transcoderType) ? new CompactFlowStateTranscoder()
+                : new EncryptedTranscoder();
+        this.state = new LocalAttributeMap<>();
+        this.state.put("credential", BenchmarkSupport.newCredential());
+        this.state.put("service", new SimpleWebApplicationServiceImpl(BenchmarkSupport.getServiceUrl(0)));
+        this.state.put("loginTicket", "LT-1-pbWx0VAYrcgZCNSZ0zXoYl6scbnbUi-cas.example.org");
+        this.state.put("warnCookieValue", Boolean.FALSE);
+        this.encodedState = this.transcoder.encode(this.state);
+        LOGGER.info("{} transcoder encodes the login flow state in {} bytes", this.transcoderType,
+                this.encodedState.length);
+    }
+
+    /**
+     * Encodes the login flow state, as done when the login form is rendered.
+     *
+     * @return the encoded state
+     * @throws IOException if the state cannot be encoded
+     */
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return this.transcoder.encode(this.state);
+    }
+
+    /**
+     * Decodes the login flow state, as done when the login form is posted.
+     *
+     * @return the state
+     * @throws IOException if the state cannot be decoded
+     */
+    @Benchmark
+    public Object decode() throws IOException {
+        return this.transcoder.decode(this.encodedState);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.benchmarks;
+
+import net.spy.memcached.CachedData;
+import org.jasig.cas.authentication.principal.SimpleWebApplicationServiceImpl;
+import org.jasig.cas.ticket.ServiceTicket;
+import org.jasig.cas.ticket.TicketGrantingTicket;
+import org.jasig.cas.ticket.TicketGrantingTicketImpl;
+import org.jasig.cas.ticket.registry.support.kryo.KryoTranscoder;
+import org.jasig.cas.ticket.support.NeverExpiresExpirationPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding and decoding tickets with the {@link KryoTranscoder} used by the
+ * memcached ticket registry.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KryoTranscoderBenchmark {
+
+    private KryoTranscoder transcoder;
+
+    private TicketGrantingTicket ticketGrantingTicket;
+
+    private ServiceTicket serviceTicket;
+
+    private CachedData encodedTicketGrantingTicket;
+
+    private CachedData encodedServiceTicket;
+
+    /**
+     * Creates the transcoder and the tickets it encodes.
+     */
+    @Setup
+    public void setUp() {
+        this.transcoder = new KryoTranscoder();
+        this.transcoder.initialize();
+        final NeverExpiresExpirationPolicy expirationPolicy = new NeverExpiresExpirationPolicy();
+        this.ticketGrantingTicket = new TicketGrantingTicketImpl("TGT-1-FBhCcOiUUmT7Q8nmEEBG-cas.example.org",
+                BenchmarkSupport.newAuthentication(), expirationPolicy);
+        this.serviceTicket = this.ticketGrantingTicket.grantServiceTicket("ST-1-Uw2GqAv5mEf6ebNdUhNq-cas.example.org",
+                new SimpleWebApplicationServiceImpl(BenchmarkSupport.getServiceUrl(0)), expirationPolicy, true);
+        this.encodedTicketGrantingTicket = this.transcoder.encode(this.ticketGrantingTicket);
+        this.encodedServiceTicket = this.transcoder.encode(this.serviceTicket);
+    }
+
+    /**
+     * Encodes a ticket-granting ticket.
+     *
+     * @return the encoded ticket
+     */
+    @Benchmark
+    public CachedData encodeTicketGrantingTicket() {
+        return this.transcoder.encode(this.ticketGrantingTicket);
+    }
+
+    /**
+     * Decodes a ticket-granting ticket.
+     *
+     * @return the ticket
+     */
+    @Benchmark
+    public Object decodeTicketGrantingTicket() {
+        return this.transcoder.decode(this.encodedTicketGrantingTicket);
+    }
+
+    /**
+     * Encodes a service ticket along with its ticket-granting ticket.
+     *
+     * @return the encoded ticket
+     */
+    @Benchmark
+    public CachedData encodeServiceTicket() {
+        return this.transcoder.encode(this.serviceTicket);
+    }
+
+    /**
+     * Decodes a service ticket along with its ticket-granting ticket.
+     *
+     * @return the ticket
+     */
+    @Benchmark
+    public Object decodeServiceTicket() {
+        return this.transcoder.decode(this.encodedServiceTicket);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.benchmarks;
+
+import org.jasig.cas.adaptors.jdbc.PasswordHashService;
+import org.jasig.cas.authentication.PreventedException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks salted, iterated password hashing with the {@link PasswordHashService}
+ * used by the JDBC query and encode handlers.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PasswordHashServiceBenchmark {
+
+    /** Digest algorithm. */
+    @Param({"SHA-256", "SHA-512"})
+    private String algorithm;
+
+    /** Number of hash iterations. */
+    @Param({"1", "1024"})
+    private int iterations;
+
+    private PasswordHashService hashService;
+
+    /**
+     * Creates the hash service, hashing on the calling thread.
+     */
+    @Setup
+    public void setUp() {
+        this.hashService = new PasswordHashService(this.algorithm, "static-salt", this.iterations);
+    }
+
+    /**
+     * Hashes a password.
+     *
+     * @return the hash
+     * @throws PreventedException if the hash cannot be computed
+     */
+    @Benchmark
+    public byte[] hash() throws PreventedException {
+        return this.hashService.hash(BenchmarkSupport.PASSWORD, "dynamic-salt", this.iterations);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.benchmarks;
+
+import org.jasig.cas.CentralAuthenticationService;
+import org.jasig.cas.authentication.principal.Service;
+import org.jasig.cas.authentication.principal.SimpleWebApplicationServiceImpl;
+import org.jasig.cas.services.ServicesManager;
+import org.jasig.cas.ticket.proxy.support.Cas10ProxyHandler;
+import org.jasig.cas.ticket.registry.DefaultTicketRegistry;
+import org.jasig.cas.web.ServiceValidateController;
+import org.jasig.cas.web.support.CasArgumentExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the <code>/serviceValidate</code> request pipeline of the {@link ServiceValidateController},
+ * from parameter extraction to the model handed to the view, for a freshly granted service ticket.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ServiceValidateControllerBenchmark {
+
+    private static final int SERVICES = 100;
+
+    private CentralAuthenticationService centralAuthenticationService;
+
+    private ServiceValidateController controller;
+
+    private Service service;
+
+    private String ticketGrantingTicketId;
+
+    /**
+     * Creates the controller.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        final ServicesManager servicesManager = BenchmarkSupport.newServicesManager(SERVICES);
+        this.centralAuthenticationService = BenchmarkSupport.newCentralAuthenticationService(
+                new DefaultTicketRegistry(), servicesManager);
+        this.service = new SimpleWebApplicationServiceImpl(BenchmarkSupport.getServiceUrl(SERVICES - 1));
+
+        final StaticApplicationContext context = new StaticApplicationContext();
+        context.refresh();
+        this.controller = new ServiceValidateController();
+        this.controller.setCentralAuthenticationService(this.centralAuthenticationService);
+        this.controller.setProxyHandler(new Cas10ProxyHandler());
+        this.controller.setApplicationContext(context);
+        this.controller.setArgumentExtractor(new CasArgumentExtractor());
+        this.controller.setServicesManager(servicesManager);
+    }
+
+    /**
+     * Creates a fresh ticket-granting ticket for each iteration.
+     *
+     * @throws Exception if the ticket cannot be created
+     */
+    @Setup(Level.Iteration)
+    public void createTicketGrantingTicket() throws Exception {
+        this.ticketGrantingTicketId = this.centralAuthenticationService
+                .createTicketGrantingTicket(BenchmarkSupport.newCredential()).getId();
+    }
+
+    /**
+     * Grants a service ticket and validates it through the controller.
+     *
+     * @return the model and view
+     * @throws Exception if the request cannot be handled
+     */
+    @Benchmark
+    public ModelAndView serviceValidate() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/serviceValidate");
+        request.addParameter("service", this.service.getId());
+        request.addParameter("ticket", this.centralAuthenticationService.grantServiceTicket(
+                this.ticketGrantingTicketId, this.service).getId());
+        return this.controller.handleRequest(request, new MockHttpServletResponse());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.benchmarks;
+
+import org.jasig.cas.authentication.principal.Service;
+import org.jasig.cas.authentication.principal.SimpleWebApplicationServiceImpl;
+import org.jasig.cas.services.RegisteredService;
+import org.jasig.cas.services.ServicesManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks matching a service against the registered services with
+ * {@link org.jasig.cas.services.DefaultServicesManagerImpl#findServiceBy(Service)}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ServicesManagerBenchmark {
+
+    /** Number of registered services. */
+    @Param({"10", "100", "1000"})
+    private int services;
+
+    private ServicesManager servicesManager;
+
+    private Service first;
+
+    private Service last;
+
+    private Service unknown;
+
+    /**
+     * Creates the services manager and the services looked up.
+     */
+    @Setup
+    public void setUp() {
+        this.servicesManager = BenchmarkSupport.newServicesManager(this.services);
+        this.first = new SimpleWebApplicationServiceImpl(BenchmarkSupport.getServiceUrl(0));
+        this.last = new SimpleWebApplicationServiceImpl(BenchmarkSupport.getServiceUrl(this.services - 1));
+        this.unknown = new SimpleWebApplicationServiceImpl("https://unknown.example.com/app");
+    }
+
+    /**
+     * Finds the service evaluated first.
+     *
+     * @return the registered service
+     */
+    @Benchmark
+    public RegisteredService findFirstService() {
+        return this.servicesManager.findServiceBy(this.first);
+    }
+
+    /**
+     * Finds the service evaluated last.
+     *
+     * @return the registered service
+     */
+    @Benchmark
+    public RegisteredService findLastService() {
+        return this.servicesManager.findServiceBy(this.last);
+    }
+
+    /**
+     * Looks up a service that matches no registered service.
+     *
+     * @return null
+     */
+    @Benchmark
+    public RegisteredService findUnknownService() {
+        return this.servicesManager.findServiceBy(this.unknown);
+    }
+}
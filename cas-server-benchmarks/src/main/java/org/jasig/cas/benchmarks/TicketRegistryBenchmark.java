@@ -0,0 +1,114 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.benchmarks;
+
+import org.jasig.cas.authentication.Authentication;
+import org.jasig.cas.ticket.Ticket;
+import org.jasig.cas.ticket.TicketGrantingTicket;
+import org.jasig.cas.ticket.TicketGrantingTicketImpl;
+import org.jasig.cas.ticket.registry.DefaultTicketRegistry;
+import org.jasig.cas.ticket.registry.TicketRegistry;
+import org.jasig.cas.ticket.support.NeverExpiresExpirationPolicy;
+import org.jasig.cas.util.DefaultUniqueTicketIdGenerator;
+import org.jasig.cas.util.UniqueTicketIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks adding, getting and deleting tickets in the {@link DefaultTicketRegistry}
+ * while it holds a given number of sessions.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TicketRegistryBenchmark {
+
+    /** Number of tickets held by the registry. */
+    @Param({"1000", "100000"})
+    private int tickets;
+
+    private final UniqueTicketIdGenerator idGenerator = new DefaultUniqueTicketIdGenerator();
+
+    private final NeverExpiresExpirationPolicy expirationPolicy = new NeverExpiresExpirationPolicy();
+
+    private Authentication authentication;
+
+    private TicketRegistry ticketRegistry;
+
+    private String[] ticketIds;
+
+    /**
+     * Fills the registry.
+     */
+    @Setup
+    public void setUp() {
+        this.authentication = BenchmarkSupport.newAuthentication();
+        this.ticketRegistry = new DefaultTicketRegistry();
+        this.ticketIds = new String[this.tickets];
+        for (int i = 0; i < this.tickets; i++) {
+            final Ticket ticket = newTicket();
+            this.ticketRegistry.addTicket(ticket);
+            this.ticketIds[i] = ticket.getId();
+        }
+    }
+
+    /**
+     * Gets a random ticket held by the registry.
+     *
+     * @return the ticket
+     */
+    @Benchmark
+    public Ticket getTicket() {
+        return this.ticketRegistry.getTicket(this.ticketIds[ThreadLocalRandom.current().nextInt(this.tickets)]);
+    }
+
+    /**
+     * Adds a new ticket and deletes it again, leaving the registry size unchanged.
+     *
+     * @return whether the ticket was deleted
+     */
+    @Benchmark
+    public boolean addAndDeleteTicket() {
+        final Ticket ticket = newTicket();
+        this.ticketRegistry.addTicket(ticket);
+        return this.ticketRegistry.deleteTicket(ticket.getId());
+    }
+
+    /**
+     * Creates a new ticket-granting ticket.
+     *
+     * @return the ticket
+     */
+    private Ticket newTicket() {
+        return new TicketGrantingTicketImpl(this.idGenerator.getNewTicketId(TicketGrantingTicket.PREFIX),
+                this.authentication, this.expirationPolicy);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.benchmarks;
+
+import org.jasig.cas.ticket.ServiceTicket;
+import org.jasig.cas.util.DefaultUniqueTicketIdGenerator;
+import org.jasig.cas.util.UniqueTicketIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks generating ticket ids with a {@link DefaultUniqueTicketIdGenerator} shared by
+ * an increasing number of threads, as it is shared by all request threads of a CAS server.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UniqueTicketIdGeneratorBenchmark {
+
+    private final UniqueTicketIdGenerator generator = new DefaultUniqueTicketIdGenerator();
+
+    /**
+     * Generates a ticket id on a single thread.
+     *
+     * @return the ticket id
+     */
+    @Benchmark
+    @Threads(1)
+    public String singleThread() {
+        return this.generator.getNewTicketId(ServiceTicket.PREFIX);
+    }
+
+    /**
+     * Generates a ticket id on each of eight threads.
+     *
+     * @return the ticket id
+     */
+    @Benchmark
+    @Threads(8)
+    public String eightThreads() {
+        return this.generator.getNewTicketId(ServiceTicket.PREFIX);
+    }
+
+    /**
+     * Generates a ticket id on each of sixty-four threads.
+     *
+     * @return the ticket id
+     */
+    @Benchmark
+    @Threads(64)
+    public String sixtyFourThreads() {
+        return this.generator.getNewTicketId(ServiceTicket.PREFIX);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.benchmarks;
+
+import org.jasig.cas.authentication.Authentication;
+import org.jasig.cas.authentication.AuthenticationBuilder;
+import org.jasig.cas.authentication.principal.DefaultPrincipalFactory;
+import org.jasig.cas.authentication.principal.SimpleWebApplicationServiceImpl;
+import org.jasig.cas.validation.ImmutableAssertion;
+import org.jasig.cas.web.view.Cas20StreamingResponseView;
+import org.jasig.cas.web.view.Cas30StreamingResponseView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks rendering successful CAS 2.0 and 3.0 validation responses with the streaming views.
+ * The JSP views they replace need a servlet container and cannot be rendered in-JVM.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ValidationResponseViewBenchmark {
+
+    private final Cas20StreamingResponseView cas20View = new Cas20StreamingResponseView();
+
+    private final Cas30StreamingResponseView cas30View = new Cas30StreamingResponseView();
+
+    private Map<String, Object> model;
+
+    /**
+     * Creates the views and the model holding an assertion with principal attributes.
+     */
+    @Setup
+    public void setUp() {
+        this.cas20View.setSuccessResponse(true);
+        this.cas30View.setSuccessResponse(true);
+
+        final Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("mail", "casuser@example.org");
+        attributes.put("memberOf", Arrays.asList("staff", "faculty"));
+        final Authentication authentication = AuthenticationBuilder.newInstance(BenchmarkSupport.newAuthentication())
+                .setPrincipal(new DefaultPrincipalFactory().createPrincipal(BenchmarkSupport.USERNAME, attributes))
+                .build();
+        this.model = new HashMap<>();
+        this.model.put("assertion", new ImmutableAssertion(authentication, Collections.singletonList(authentication),
+                new SimpleWebApplicationServiceImpl(BenchmarkSupport.getServiceUrl(0)), true));
+    }
+
+    /**
+     * Renders a CAS 2.0 response.
+     *
+     * @return the response
+     * @throws Exception if the response cannot be rendered
+     */
+    @Benchmark
+    public MockHttpServletResponse renderCas20() throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        this.cas20View.render(this.model, new MockHttpServletRequest(), response);
+        return response;
+    }
+
+    /**
+     * Renders a CAS 3.0 response releasing attributes.
+     *
+     * @return the response
+     * @throws Exception if the response cannot be rendered
+     */
+    @Benchmark
+    public MockHttpServletResponse renderCas30() throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        this.cas30View.render(this.model, new MockHttpServletRequest(), response);
+        return response;
+    }
+}
@@ -41,6 +41,9 @@ public interface CasProtocolConstants {
     /** Constant representing the renew parameter in the request. */
     String PARAMETER_RENEW = "renew";
 
+    /** Constant representing the format parameter in the request, selecting the validation response format. */
+    String PARAMETER_FORMAT = "format";
+
     /** Constant representing an invalid request for validation. */
     String ERROR_CODE_INVALID_REQUEST = "INVALID_REQUEST";
     
@@ -23,6 +23,7 @@ import org.jasig.cas.authentication.AuthenticationException;
 import org.jasig.cas.authentication.Credential;
 import org.jasig.cas.authentication.principal.Service;
 import org.jasig.cas.logout.LogoutRequest;
+import org.jasig.cas.services.RegisteredService;
 import org.jasig.cas.ticket.TicketException;
 import org.jasig.cas.ticket.InvalidTicketException;
 import org.jasig.cas.ticket.ServiceTicket;
@@ -151,6 +152,25 @@ public interface CentralAuthenticationService {
      */
     Assertion validateServiceTicket(@NotNull final String serviceTicketId, @NotNull final Service service) throws TicketException;
 
+    /**
+     * Validate a ServiceTicket for a particular Service whose registered service
+     * the caller has already resolved, so that it is not looked up again.
+     * The registered service must match the service.
+     *
+     * @param serviceTicketId Proof of prior authentication.
+     * @param service Service wishing to validate a prior authentication.
+     * @param registeredService Registered service found for the service, or null if none was found.
+     *
+     * @return Non-null ticket validation assertion.
+     *
+     * @throws org.jasig.cas.ticket.TicketException if there was an error validating the ticket.
+     * @throws org.jasig.cas.services.UnauthorizedServiceException if the registered service is null,
+     * disabled or does not match the service.
+     * @since 4.1.0
+     */
+    Assertion validateServiceTicket(@NotNull String serviceTicketId, @NotNull Service service,
+                                    RegisteredService registeredService) throws TicketException;
+
     /**
      * Destroy a TicketGrantingTicket and perform back channel logout. This has the effect of invalidating any
      * Ticket that was derived from the TicketGrantingTicket being destroyed. May throw an
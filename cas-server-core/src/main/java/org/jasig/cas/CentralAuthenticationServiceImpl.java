@@ -36,8 +36,10 @@ import org.jasig.cas.authentication.principal.PrincipalFactory;
 import org.jasig.cas.authentication.principal.Service;
 import org.jasig.cas.logout.LogoutManager;
 import org.jasig.cas.logout.LogoutRequest;
+import org.jasig.cas.monitor.Timed;
 import org.jasig.cas.services.AttributeReleasePolicy;
 import org.jasig.cas.services.RegisteredService;
+import org.jasig.cas.services.ReleasedAttributesCache;
 import org.jasig.cas.services.ServiceContext;
 import org.jasig.cas.services.ServicesManager;
 import org.jasig.cas.services.UnauthorizedProxyingException;
@@ -58,7 +60,6 @@ import org.jasig.cas.util.DefaultUniqueTicketIdGenerator;
 import org.jasig.cas.util.UniqueTicketIdGenerator;
 import org.jasig.cas.validation.Assertion;
 import org.jasig.cas.validation.ImmutableAssertion;
-import org.perf4j.aop.Profiled;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
@@ -162,6 +163,9 @@ public final class CentralAuthenticationServiceImpl implements CentralAuthentica
     @NotNull
     private PrincipalFactory principalFactory = new DefaultPrincipalFactory();
 
+    /** Optional cache of attributes released to services, shared by ticket granting and validation. **/
+    private ReleasedAttributesCache releasedAttributesCache;
+
     /** Default instance for the ticket id generator. */
     @NotNull
     private final UniqueTicketIdGenerator defaultServiceTicketIdGenerator
@@ -216,7 +220,7 @@ public final class CentralAuthenticationServiceImpl implements CentralAuthentica
             action="TICKET_GRANTING_TICKET_DESTROYED",
             actionResolverName="DESTROY_TICKET_GRANTING_TICKET_RESOLVER",
             resourceResolverName="DESTROY_TICKET_GRANTING_TICKET_RESOURCE_RESOLVER")
-    @Profiled(tag = "DESTROY_TICKET_GRANTING_TICKET", logFailuresSeparately = false)
+    @Timed("DESTROY_TICKET_GRANTING_TICKET")
     @Transactional(readOnly = false)
     @Override
     public List<LogoutRequest> destroyTicketGrantingTicket(@NotNull final String ticketGrantingTicketId) {
@@ -237,7 +241,7 @@ public final class CentralAuthenticationServiceImpl implements CentralAuthentica
         action="SERVICE_TICKET",
         actionResolverName="GRANT_SERVICE_TICKET_RESOLVER",
         resourceResolverName="GRANT_SERVICE_TICKET_RESOURCE_RESOLVER")
-    @Profiled(tag="GRANT_SERVICE_TICKET", logFailuresSeparately = false)
+    @Timed("GRANT_SERVICE_TICKET")
     @Transactional(readOnly = false)
     @Override
     public ServiceTicket grantServiceTicket(
@@ -287,7 +291,7 @@ public final class CentralAuthenticationServiceImpl implements CentralAuthentica
         final List<Authentication> authentications = ticketGrantingTicket.getChainedAuthentications();
         final Principal principal = authentications.get(authentications.size() - 1).getPrincipal();
 
-        final Map<String, Object> principalAttrs = registeredService.getAttributeReleasePolicy().getAttributes(principal);
+        final Map<String, Object> principalAttrs = getReleasedAttributes(registeredService, principal);
         if (!registeredService.getAccessStrategy().doPrincipalAttributesAllowServiceAccess(principalAttrs)) {
             logger.warn("ServiceManagement: Cannot grant service ticket because Service [{}] is not authorized for use by [{}].",
                     service.getId(), principal);
@@ -344,7 +348,7 @@ public final class CentralAuthenticationServiceImpl implements CentralAuthentica
         action="SERVICE_TICKET",
         actionResolverName="GRANT_SERVICE_TICKET_RESOLVER",
         resourceResolverName="GRANT_SERVICE_TICKET_RESOURCE_RESOLVER")
-    @Profiled(tag = "GRANT_SERVICE_TICKET", logFailuresSeparately = false)
+    @Timed("GRANT_SERVICE_TICKET")
     @Transactional(readOnly = false)
     @Override
     public ServiceTicket grantServiceTicket(final String ticketGrantingTicketId,
@@ -360,7 +364,7 @@ public final class CentralAuthenticationServiceImpl implements CentralAuthentica
         action="PROXY_GRANTING_TICKET",
         actionResolverName="GRANT_PROXY_GRANTING_TICKET_RESOLVER",
         resourceResolverName="GRANT_PROXY_GRANTING_TICKET_RESOURCE_RESOLVER")
-    @Profiled(tag="GRANT_PROXY_GRANTING_TICKET", logFailuresSeparately = false)
+    @Timed("GRANT_PROXY_GRANTING_TICKET")
     @Transactional(readOnly = false)
     @Override
     public TicketGrantingTicket delegateTicketGrantingTicket(final String serviceTicketId, final Credential... credentials)
@@ -400,11 +404,43 @@ public final class CentralAuthenticationServiceImpl implements CentralAuthentica
         action="SERVICE_TICKET_VALIDATE",
         actionResolverName="VALIDATE_SERVICE_TICKET_RESOLVER",
         resourceResolverName="VALIDATE_SERVICE_TICKET_RESOURCE_RESOLVER")
-    @Profiled(tag="VALIDATE_SERVICE_TICKET", logFailuresSeparately = false)
+    @Timed("VALIDATE_SERVICE_TICKET")
     @Transactional(readOnly = false)
     @Override
     public Assertion validateServiceTicket(final String serviceTicketId, final Service service) throws TicketException {
-        final RegisteredService registeredService = this.servicesManager.findServiceBy(service);
+        return validateServiceTicketFor(serviceTicketId, service, this.servicesManager.findServiceBy(service));
+    }
+
+    @Audit(
+        action="SERVICE_TICKET_VALIDATE",
+        actionResolverName="VALIDATE_SERVICE_TICKET_RESOLVER",
+        resourceResolverName="VALIDATE_SERVICE_TICKET_RESOURCE_RESOLVER")
+    @Timed("VALIDATE_SERVICE_TICKET")
+    @Transactional(readOnly = false)
+    @Override
+    public Assertion validateServiceTicket(final String serviceTicketId, final Service service,
+                                           final RegisteredService registeredService) throws TicketException {
+        if (registeredService != null && !registeredService.matches(service)) {
+            final String msg = String.format("ServiceManagement: Unauthorized Service Access. "
+                    + "Registered service [%s] does not match service [%s].", registeredService.getServiceId(), service.getId());
+            logger.warn(msg);
+            throw new UnauthorizedServiceException(UnauthorizedServiceException.CODE_UNAUTHZ_SERVICE, msg);
+        }
+        return validateServiceTicketFor(serviceTicketId, service, registeredService);
+    }
+
+    /**
+     * Validates a service ticket for the service and its registered service. Shared by both
+     * validation entry points so that a validation is audited and timed once.
+     *
+     * @param serviceTicketId the service ticket id
+     * @param service the service
+     * @param registeredService the registered service found for the service, or null if none was found
+     * @return the assertion
+     * @throws TicketException if the ticket could not be validated
+     */
+    private Assertion validateServiceTicketFor(final String serviceTicketId, final Service service,
+                                               final RegisteredService registeredService) throws TicketException {
         verifyRegisteredServiceProperties(registeredService, service);
 
         final ServiceTicket serviceTicket =  this.serviceTicketRegistry.getTicket(serviceTicketId, ServiceTicket.class);
@@ -433,12 +469,9 @@ public final class CentralAuthenticationServiceImpl implements CentralAuthentica
                     root, new ServiceContext(serviceTicket.getService(), registeredService));
             final Principal principal = authentication.getPrincipal();
 
-            final AttributeReleasePolicy attributePolicy = registeredService.getAttributeReleasePolicy();
-            logger.debug("Attribute policy [{}] is associated with service [{}]", attributePolicy, registeredService);
-            
-            @SuppressWarnings("unchecked")
-            final Map<String, Object> attributesToRelease = attributePolicy != null
-                    ? attributePolicy.getAttributes(principal) : Collections.EMPTY_MAP;
+            logger.debug("Attribute policy [{}] is associated with service [{}]",
+                    registeredService.getAttributeReleasePolicy(), registeredService);
+            final Map<String, Object> attributesToRelease = getReleasedAttributes(registeredService, principal);
             
             final String principalId = registeredService.getUsernameAttributeProvider().resolveUsername(principal, service);
             final Principal modifiedPrincipal = this.principalFactory.createPrincipal(principalId, attributesToRelease);
@@ -461,7 +494,7 @@ public final class CentralAuthenticationServiceImpl implements CentralAuthentica
         action="TICKET_GRANTING_TICKET",
         actionResolverName="CREATE_TICKET_GRANTING_TICKET_RESOLVER",
         resourceResolverName="CREATE_TICKET_GRANTING_TICKET_RESOURCE_RESOLVER")
-    @Profiled(tag = "CREATE_TICKET_GRANTING_TICKET", logFailuresSeparately = false)
+    @Timed("CREATE_TICKET_GRANTING_TICKET")
     @Transactional(readOnly = false)
     @Override
     public TicketGrantingTicket createTicketGrantingTicket(final Credential... credentials)
@@ -559,6 +592,33 @@ public final class CentralAuthenticationServiceImpl implements CentralAuthentica
         this.principalFactory = principalFactory;
     }
 
+    /**
+     * Sets the cache of attributes released to services. By default no cache is used
+     * and attributes are released by the attribute release policy on every call.
+     *
+     * @param releasedAttributesCache the released attributes cache
+     */
+    public void setReleasedAttributesCache(final ReleasedAttributesCache releasedAttributesCache) {
+        this.releasedAttributesCache = releasedAttributesCache;
+    }
+
+    /**
+     * Gets the attributes the registered service releases for the principal,
+     * through the released attributes cache when one is configured.
+     *
+     * @param registeredService the registered service
+     * @param principal the principal
+     * @return the released attributes
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getReleasedAttributes(final RegisteredService registeredService, final Principal principal) {
+        if (this.releasedAttributesCache != null) {
+            return this.releasedAttributesCache.getAttributes(registeredService, principal);
+        }
+        final AttributeReleasePolicy attributePolicy = registeredService.getAttributeReleasePolicy();
+        return attributePolicy != null ? attributePolicy.getAttributes(principal) : Collections.EMPTY_MAP;
+    }
+
    
     /**
      * Gets the authentication satisfied by policy.
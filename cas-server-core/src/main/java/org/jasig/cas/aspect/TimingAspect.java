@@ -0,0 +1,75 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.aspect;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.jasig.cas.monitor.MetricsRegistry;
+import org.jasig.cas.monitor.Timed;
+
+/**
+ * Records the latency of methods annotated with {@link Timed} in the {@link MetricsRegistry}.
+ *
+ * <p>The aspect is woven into the CAS classes at compile time, so timing costs neither a proxy nor
+ * a log statement per invocation. Being a singleton, the aspect is configured via its
+ * <code>aspectOf()</code> factory method.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+@Aspect
+public class TimingAspect {
+
+    private volatile MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    public MetricsRegistry getMetricsRegistry() {
+        return this.metricsRegistry;
+    }
+
+    /**
+     * Sets the registry the latencies are recorded in. Defaults to a registry of its own.
+     *
+     * @param metricsRegistry the metrics registry
+     */
+    public void setMetricsRegistry(final MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * Times the invocation of the annotated method.
+     *
+     * @param proceedingJoinPoint the proceeding join point
+     * @param timed the annotation of the method
+     * @return the result of the method
+     * @throws Throwable the exception thrown by the method
+     */
+    @Around("execution(* *(..)) && @annotation(timed)")
+    public Object time(final ProceedingJoinPoint proceedingJoinPoint, final Timed timed) throws Throwable {
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final Object result = proceedingJoinPoint.proceed();
+            failed = false;
+            return result;
+        } finally {
+            this.metricsRegistry.record(timed.value(), System.nanoTime() - start, failed);
+        }
+    }
+}
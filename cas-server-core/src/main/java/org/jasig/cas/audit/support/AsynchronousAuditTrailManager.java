@@ -0,0 +1,486 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.audit.support;
+
+import com.github.inspektr.audit.AuditActionContext;
+import com.github.inspektr.audit.AuditTrailManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit trail manager that records audit records off the calling thread. Records are queued in a bounded
+ * lock-free {@link RingBuffer} and written by a single writer thread in batches of up to
+ * {@link #setBatchSize(int) batchSize} records, using a single call to the delegate when it is a
+ * {@link BatchAuditTrailManager}.
+ *
+ * <p>When the queue is full, the {@link OverflowPolicy} decides whether the caller waits for room, the record
+ * is dropped, or it is appended to a local spill file. Batches the delegate fails to write are appended to the
+ * spill file as well, when one is configured. The spill file holds principals and IP addresses, so it has no
+ * default location and is created readable by its owner only. Queued records are written when the manager is
+ * destroyed. Queue depth, lag and counts of records written, dropped and spilled are exposed for monitoring.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class AsynchronousAuditTrailManager implements AuditTrailManager, InitializingBean, DisposableBean {
+
+    /**
+     * What to do with a record when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /** Wait until there is room in the queue. */
+        BLOCK,
+        /** Discard the record. */
+        DROP,
+        /** Append the record to the spill file. */
+        SPILL
+    }
+
+    /** Default capacity of the queue. */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /** Default maximum number of records written at once. */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long FULL_WAIT = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final long SHUTDOWN_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    private static final String SPILL_FIELD_SEPARATOR = "\t";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String SPILL_FILE_PERMISSIONS = "rw-------";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @NotNull
+    private final AuditTrailManager delegate;
+
+    private final RingBuffer<QueuedRecord> queue;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final AtomicLong writtenCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final AtomicLong spilledCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private final Object spillLock = new Object();
+
+    private final Object shutdownLock = new Object();
+
+    @Min(1)
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    @NotNull
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    private File spillFile;
+
+    private Writer spillWriter;
+
+    private volatile boolean running = true;
+
+    private volatile boolean idle;
+
+    private volatile Thread writer;
+
+    /**
+     * Instantiates a new asynchronous audit trail manager with a queue of {@value #DEFAULT_CAPACITY} records.
+     *
+     * @param delegate the audit trail manager records are written to
+     */
+    public AsynchronousAuditTrailManager(final AuditTrailManager delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instantiates a new asynchronous audit trail manager.
+     *
+     * @param delegate the audit trail manager records are written to
+     * @param capacity the capacity of the queue, rounded up to a power of two
+     */
+    public AsynchronousAuditTrailManager(final AuditTrailManager delegate, final int capacity) {
+        this.delegate = delegate;
+        this.queue = new RingBuffer<>(capacity);
+    }
+
+    @Override
+    public void record(final AuditActionContext auditActionContext) {
+        if (!this.running) {
+            write(auditActionContext);
+            return;
+        }
+        start();
+        final QueuedRecord record = new QueuedRecord(auditActionContext);
+        if (!this.queue.offer(record)) {
+            overflow(record);
+        } else if (!this.running) {
+            drainAfterShutdown();
+        } else if (this.idle) {
+            LockSupport.unpark(this.writer);
+        }
+    }
+
+    /**
+     * Handles a record that does not fit in the queue according to the overflow policy.
+     *
+     * @param record the record
+     */
+    private void overflow(final QueuedRecord record) {
+        switch (this.overflowPolicy) {
+            case DROP:
+                this.droppedCount.incrementAndGet();
+                logger.debug("Audit queue is full; dropped audit record {}", record.context);
+                break;
+            case SPILL:
+                spill(record.context);
+                break;
+            default:
+                while (!this.queue.offer(record)) {
+                    if (!this.running) {
+                        write(record.context);
+                        return;
+                    }
+                    LockSupport.unpark(this.writer);
+                    LockSupport.parkNanos(FULL_WAIT);
+                }
+        }
+    }
+
+    /**
+     * Starts the writer thread, once.
+     */
+    private void start() {
+        if (this.started.get() || !this.started.compareAndSet(false, true)) {
+            return;
+        }
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "audit-trail-writer");
+        thread.setDaemon(true);
+        this.writer = thread;
+        thread.start();
+    }
+
+    /**
+     * Writes queued records in batches until the manager is destroyed and the queue is empty.
+     */
+    private void drain() {
+        final List<QueuedRecord> batch = new ArrayList<>(this.batchSize);
+        while (true) {
+            batch.clear();
+            if (this.queue.drainTo(batch, this.batchSize) == 0) {
+                if (!this.running && this.queue.size() == 0) {
+                    return;
+                }
+                this.idle = true;
+                if (this.queue.size() == 0) {
+                    LockSupport.parkNanos(IDLE_WAIT);
+                }
+                this.idle = false;
+                continue;
+            }
+            write(batch);
+        }
+    }
+
+    /**
+     * Writes a batch of records to the delegate.
+     *
+     * @param batch the records
+     */
+    private void write(final List<QueuedRecord> batch) {
+        try {
+            if (this.delegate instanceof BatchAuditTrailManager) {
+                final List<AuditActionContext> contexts = new ArrayList<>(batch.size());
+                for (final QueuedRecord record : batch) {
+                    contexts.add(record.context);
+                }
+                ((BatchAuditTrailManager) this.delegate).record(contexts);
+            } else {
+                for (final QueuedRecord record : batch) {
+                    this.delegate.record(record.context);
+                }
+            }
+            this.writtenCount.addAndGet(batch.size());
+        } catch (final RuntimeException e) {
+            this.failedCount.addAndGet(batch.size());
+            if (this.spillFile == null) {
+                logger.error("Could not write {} audit records", batch.size(), e);
+                return;
+            }
+            logger.error("Could not write {} audit records; spilling them to {}", batch.size(), this.spillFile, e);
+            for (final QueuedRecord record : batch) {
+                spill(record.context);
+            }
+        }
+    }
+
+    /**
+     * Writes a record to the delegate on the calling thread.
+     *
+     * @param context the record
+     */
+    private void write(final AuditActionContext context) {
+        this.delegate.record(context);
+        this.writtenCount.incrementAndGet();
+    }
+
+    /**
+     * Appends a record to the spill file, one tab separated line per record.
+     *
+     * @param context the record
+     */
+    private void spill(final AuditActionContext context) {
+        final StringBuilder line = new StringBuilder()
+                .append(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(context.getWhenActionWasPerformed()))
+                .append(SPILL_FIELD_SEPARATOR).append(escape(context.getPrincipal()))
+                .append(SPILL_FIELD_SEPARATOR).append(escape(context.getActionPerformed()))
+                .append(SPILL_FIELD_SEPARATOR).append(escape(context.getResourceOperatedUpon()))
+                .append(SPILL_FIELD_SEPARATOR).append(escape(context.getApplicationCode()))
+                .append(SPILL_FIELD_SEPARATOR).append(escape(context.getClientIpAddress()))
+                .append(SPILL_FIELD_SEPARATOR).append(escape(context.getServerIpAddress()))
+                .append(System.lineSeparator());
+        synchronized (this.spillLock) {
+            if (this.spillFile == null) {
+                this.droppedCount.incrementAndGet();
+                logger.error("No spill file is configured; dropped audit record {}", context);
+                return;
+            }
+            try {
+                if (this.spillWriter == null) {
+                    this.spillWriter = Files.newBufferedWriter(createSpillFile(this.spillFile.toPath()), UTF8,
+                            StandardOpenOption.APPEND);
+                }
+                this.spillWriter.write(line.toString());
+                this.spillWriter.flush();
+                this.spilledCount.incrementAndGet();
+            } catch (final IOException e) {
+                this.droppedCount.incrementAndGet();
+                logger.error("Could not spill audit record {} to {}", context, this.spillFile, e);
+            }
+        }
+    }
+
+    /**
+     * Creates the spill file readable and writable by its owner only, if it does not exist yet.
+     *
+     * @param path the spill file
+     * @return the spill file
+     * @throws IOException if the file cannot be created
+     */
+    private Path createSpillFile(final Path path) throws IOException {
+        try {
+            if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Files.createFile(path, PosixFilePermissions.asFileAttribute(
+                        PosixFilePermissions.fromString(SPILL_FILE_PERMISSIONS)));
+            } else {
+                Files.createFile(path);
+            }
+        } catch (final FileAlreadyExistsException e) {
+            logger.debug("Appending audit records to existing spill file {}", path);
+        }
+        return path;
+    }
+
+    /**
+     * Replaces line and field separators in a value written to the spill file.
+     *
+     * @param value the value
+     * @return the escaped value
+     */
+    private static String escape(final String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Checks that a spill file is configured when records are spilled on overflow.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (this.overflowPolicy == OverflowPolicy.SPILL && this.spillFile == null) {
+            throw new IllegalStateException("A spill file must be configured when the overflow policy is SPILL");
+        }
+    }
+
+    /**
+     * Stops accepting records, and waits for the queued ones to be written. Records submitted
+     * afterwards are written on the calling thread.
+     *
+     * @throws Exception if the spill file cannot be closed
+     */
+    @Override
+    public void destroy() throws Exception {
+        this.running = false;
+        final Thread thread = this.writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        drainAfterShutdown();
+        if (thread != null && thread.isAlive()) {
+            logger.warn("Gave up waiting for {} queued audit records to be written", this.queue.size());
+        }
+        synchronized (this.spillLock) {
+            if (this.spillWriter != null) {
+                this.spillWriter.close();
+                this.spillWriter = null;
+            }
+        }
+    }
+
+    /**
+     * Writes records still queued once the manager is destroyed, on the calling thread, after the writer
+     * thread has exited. Also called by threads that queued a record while the writer was exiting, so
+     * that the record is not left behind.
+     */
+    private void drainAfterShutdown() {
+        synchronized (this.shutdownLock) {
+            final Thread thread = this.writer;
+            if (thread != null) {
+                try {
+                    thread.join(SHUTDOWN_TIMEOUT);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (thread.isAlive()) {
+                    return;
+                }
+            }
+            final List<QueuedRecord> remaining = new ArrayList<>();
+            this.queue.drainTo(remaining, this.queue.capacity());
+            if (!remaining.isEmpty()) {
+                write(remaining);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of records waiting to be written.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return this.queue.size();
+    }
+
+    /**
+     * Gets the time the oldest queued record has been waiting to be written.
+     *
+     * @return the lag in milliseconds, zero if the queue is empty
+     */
+    public long getLag() {
+        final QueuedRecord oldest = this.queue.peek();
+        return oldest == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.queuedAt);
+    }
+
+    public long getWrittenCount() {
+        return this.writtenCount.get();
+    }
+
+    public long getDroppedCount() {
+        return this.droppedCount.get();
+    }
+
+    public long getSpilledCount() {
+        return this.spilledCount.get();
+    }
+
+    public long getFailedCount() {
+        return this.failedCount.get();
+    }
+
+    /**
+     * Sets the maximum number of records handed to the delegate at once. Defaults to {@value #DEFAULT_BATCH_SIZE}.
+     *
+     * @param batchSize the batch size
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets what happens to records arriving while the queue is full. Defaults to {@link OverflowPolicy#BLOCK}.
+     *
+     * @param overflowPolicy the overflow policy
+     */
+    public void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Sets the file records are appended to under {@link OverflowPolicy#SPILL}, and when the delegate
+     * fails to write them. Required under {@link OverflowPolicy#SPILL}; there is no default. The file is
+     * created readable by its owner only.
+     *
+     * @param spillFile the spill file
+     */
+    public void setSpillFile(final File spillFile) {
+        this.spillFile = spillFile;
+    }
+
+    /**
+     * Record waiting in the queue along with the time it was queued.
+     */
+    private static final class QueuedRecord {
+        private final AuditActionContext context;
+
+        private final long queuedAt = System.nanoTime();
+
+        /**
+         * Instantiates a new queued record.
+         *
+         * @param context the audit record
+         */
+        QueuedRecord(final AuditActionContext context) {
+            this.context = context;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.audit.support;
+
+import com.github.inspektr.audit.AuditActionContext;
+import com.github.inspektr.audit.AuditTrailManager;
+
+import java.util.List;
+
+/**
+ * Audit trail manager that is able to record several audit records at once.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public interface BatchAuditTrailManager extends AuditTrailManager {
+
+    /**
+     * Records a batch of audit records.
+     *
+     * @param auditActionContexts the audit records, in the order they occurred
+     */
+    void record(List<AuditActionContext> auditActionContexts);
+}
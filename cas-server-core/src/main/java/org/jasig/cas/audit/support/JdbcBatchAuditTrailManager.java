@@ -0,0 +1,138 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.audit.support;
+
+import com.github.inspektr.audit.AuditActionContext;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.support.JdbcDaoSupport;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Audit trail manager that inserts audit records into the same table as Inspektr's
+ * {@code JdbcAuditTrailManager}, using a single JDBC batch per call. Records are written
+ * on the calling thread; wrap it in an {@link AsynchronousAuditTrailManager} to write
+ * them in batches off the request thread.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class JdbcBatchAuditTrailManager extends JdbcDaoSupport implements BatchAuditTrailManager {
+
+    private static final String INSERT_SQL_TEMPLATE = "INSERT INTO %s "
+            + "(AUD_USER, AUD_CLIENT_IP, AUD_SERVER_IP, AUD_RESOURCE, AUD_ACTION, APPLIC_CD, AUD_DATE) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int DEFAULT_COLUMN_LENGTH = 100;
+
+    private static final int USER_INDEX = 1;
+
+    private static final int CLIENT_IP_INDEX = 2;
+
+    private static final int SERVER_IP_INDEX = 3;
+
+    private static final int RESOURCE_INDEX = 4;
+
+    private static final int ACTION_INDEX = 5;
+
+    private static final int APPLICATION_CODE_INDEX = 6;
+
+    private static final int DATE_INDEX = 7;
+
+    @NotNull
+    private final TransactionTemplate transactionTemplate;
+
+    @NotNull
+    private String tableName = "COM_AUDIT_TRAIL";
+
+    @Min(1)
+    private int columnLength = DEFAULT_COLUMN_LENGTH;
+
+    /**
+     * Instantiates a new JDBC batch audit trail manager.
+     *
+     * @param transactionTemplate the transaction template each batch is inserted in
+     */
+    public JdbcBatchAuditTrailManager(final TransactionTemplate transactionTemplate) {
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void record(final AuditActionContext auditActionContext) {
+        record(Collections.singletonList(auditActionContext));
+    }
+
+    @Override
+    public void record(final List<AuditActionContext> auditActionContexts) {
+        if (auditActionContexts.isEmpty()) {
+            return;
+        }
+        final String sql = String.format(INSERT_SQL_TEMPLATE, this.tableName);
+        this.transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                getJdbcTemplate().batchUpdate(sql, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(final PreparedStatement ps, final int i) throws SQLException {
+                        final AuditActionContext context = auditActionContexts.get(i);
+                        ps.setString(USER_INDEX, truncate(context.getPrincipal()));
+                        ps.setString(CLIENT_IP_INDEX, context.getClientIpAddress());
+                        ps.setString(SERVER_IP_INDEX, context.getServerIpAddress());
+                        ps.setString(RESOURCE_INDEX, truncate(context.getResourceOperatedUpon()));
+                        ps.setString(ACTION_INDEX, truncate(context.getActionPerformed()));
+                        ps.setString(APPLICATION_CODE_INDEX, context.getApplicationCode());
+                        ps.setTimestamp(DATE_INDEX, new Timestamp(context.getWhenActionWasPerformed().getTime()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return auditActionContexts.size();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Truncates a value to the column length.
+     *
+     * @param value the value
+     * @return the truncated value
+     */
+    private String truncate(final String value) {
+        return value != null && value.length() > this.columnLength ? value.substring(0, this.columnLength) : value;
+    }
+
+    public void setTableName(final String tableName) {
+        this.tableName = tableName;
+    }
+
+    public void setColumnLength(final int columnLength) {
+        this.columnLength = columnLength;
+    }
+}
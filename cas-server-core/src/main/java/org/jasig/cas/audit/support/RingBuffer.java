@@ -0,0 +1,130 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.audit.support;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer for many producers and a single consumer.
+ *
+ * <p>Producers claim a slot by advancing the tail, then publish the element into it.
+ * The consumer takes elements in order and releases their slots by advancing the head.
+ * An element whose slot was claimed but not yet published is not visible to the consumer
+ * until it is published.</p>
+ *
+ * @author Apereo CAS Team
+ * @param <E> the type of elements
+ * @since 4.1.0
+ */
+final class RingBuffer<E> {
+
+    private final AtomicReferenceArray<E> buffer;
+
+    private final int capacity;
+
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Instantiates a new ring buffer.
+     *
+     * @param capacity the minimum capacity, rounded up to a power of two
+     */
+    RingBuffer(final int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    /**
+     * Adds an element, if there is room for it. May be called by any thread.
+     *
+     * @param element the element
+     * @return true if the element was added, false if the buffer is full
+     */
+    boolean offer(final E element) {
+        while (true) {
+            final long t = this.tail.get();
+            if (t - this.head.get() >= this.capacity) {
+                return false;
+            }
+            if (this.tail.compareAndSet(t, t + 1)) {
+                this.buffer.lazySet((int) t & this.mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the next element without removing it. Must only be called by the consumer.
+     *
+     * @return the next element, or null if there is none
+     */
+    E peek() {
+        return this.buffer.get((int) this.head.get() & this.mask);
+    }
+
+    /**
+     * Removes and adds elements to the given collection. Must only be called by the consumer.
+     *
+     * @param collection the collection to add elements to
+     * @param max the maximum number of elements to remove
+     * @return the number of elements removed
+     */
+    int drainTo(final Collection<? super E> collection, final int max) {
+        long h = this.head.get();
+        int count = 0;
+        while (count < max) {
+            final int index = (int) h & this.mask;
+            final E element = this.buffer.get(index);
+            if (element == null) {
+                break;
+            }
+            this.buffer.lazySet(index, null);
+            collection.add(element);
+            h++;
+            count++;
+        }
+        this.head.lazySet(h);
+        return count;
+    }
+
+    /**
+     * Gets the number of elements claimed and not yet removed.
+     *
+     * @return the size
+     */
+    int size() {
+        return (int) Math.max(0, this.tail.get() - this.head.get());
+    }
+
+    /**
+     * Gets the capacity.
+     *
+     * @return the capacity
+     */
+    int capacity() {
+        return this.capacity;
+    }
+}
@@ -22,7 +22,7 @@ import com.github.inspektr.audit.annotation.Audit;
 import org.jasig.cas.authentication.principal.NullPrincipal;
 import org.jasig.cas.authentication.principal.Principal;
 import org.jasig.cas.authentication.principal.PrincipalResolver;
-import org.perf4j.aop.Profiled;
+import org.jasig.cas.monitor.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
@@ -139,7 +139,7 @@ public class PolicyBasedAuthenticationManager implements AuthenticationManager {
         action="AUTHENTICATION",
         actionResolverName="AUTHENTICATION_RESOLVER",
         resourceResolverName="AUTHENTICATION_RESOURCE_RESOLVER")
-    @Profiled(tag = "AUTHENTICATE", logFailuresSeparately = false)
+    @Timed("AUTHENTICATE")
     public final Authentication authenticate(final Credential... credentials) throws AuthenticationException {
 
         final AuthenticationBuilder builder = authenticateInternal(credentials);
@@ -18,6 +18,8 @@
  */
 package org.jasig.cas.authentication.principal;
 
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
 import org.jasig.services.persondir.IPersonAttributeDao;
 import org.jasig.services.persondir.IPersonAttributes;
 import org.jasig.services.persondir.support.merger.IAttributeMerger;
@@ -33,15 +35,36 @@ import javax.cache.expiry.Duration;
 import javax.validation.constraints.NotNull;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Wrapper around an attribute repository where attributes cached for a configurable period.
+ *
+ * <p>Concurrent lookups of a principal that is not cached are coalesced into a single load from the
+ * attribute repository. Optionally, cached attributes are refreshed ahead of their expiration in the
+ * background while the current ones keep being served, and principals without attributes are
+ * remembered for a short time instead of querying the repository on every lookup. Load latency
+ * and hit counts are exposed via {@link #getLoadLatency()}, {@link #getHitCount()}
+ * and {@link #getMissCount()}.</p>
+ *
  * @author Misagh Moayyed
  * @since 4.1
  */
@@ -53,6 +76,11 @@ public final class CachingPrincipalAttributesRepository implements PrincipalAttr
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CachingPrincipalAttributesRepository.class);
 
+    /** Interval in milliseconds at which bookkeeping of expired principals is purged. */
+    private static final long PURGE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final int DEFAULT_REFRESH_THREADS = 2;
+
     private final IPersonAttributeDao attributeRepository;
 
     private final Cache<String, Map<String, Object>> cache;
@@ -66,6 +94,33 @@ public final class CachingPrincipalAttributesRepository implements PrincipalAttr
      */
     private IAttributeMerger mergingStrategy;
 
+    /** Time in milliseconds after which cached attributes are refreshed in the background. Zero disables refreshing. */
+    private long refreshAfter;
+
+    /** Time in milliseconds principals without attributes are remembered. Zero disables negative caching. */
+    private long negativeCacheTimeToLive;
+
+    /** Executor running background refreshes. Defaults to a shared pool of daemon threads. */
+    private transient Executor refreshExecutor;
+
+    /** Loads in progress, keyed by principal id. */
+    private transient ConcurrentMap<String, FutureTask<Map<String, Object>>> loads = new ConcurrentHashMap<>();
+
+    /** Time at which the attributes of a principal were last loaded, only tracked when refreshing. */
+    private transient ConcurrentMap<String, Long> loadTimes = new ConcurrentHashMap<>();
+
+    /** Time until which principals without attributes are remembered. */
+    private transient ConcurrentMap<String, Long> negativeEntries = new ConcurrentHashMap<>();
+
+    /** Load latency in nanoseconds, recorded without locking. */
+    private transient ConcurrentHistogram loadLatency = new ConcurrentHistogram(2);
+
+    private transient AtomicLong hitCount = new AtomicLong();
+
+    private transient AtomicLong missCount = new AtomicLong();
+
+    private transient volatile long nextPurge;
+
     /**
      * Init the caching repository, solely used for serialization purposes
      * and nothing else.
@@ -196,6 +251,58 @@ public final class CachingPrincipalAttributesRepository implements PrincipalAttr
         return mergingStrategy;
     }
 
+    /**
+     * Sets the time in milliseconds after which cached attributes are refreshed. Once that time has passed,
+     * the next lookup is still served the cached attributes while a reload runs in the background.
+     * Should be shorter than the cache expiration. Defaults to zero, which disables refreshing.
+     *
+     * @param refreshAfter the refresh time in milliseconds
+     */
+    public void setRefreshAfter(final long refreshAfter) {
+        this.refreshAfter = refreshAfter;
+    }
+
+    /**
+     * Sets the time in milliseconds a principal without attributes in the repository is remembered,
+     * during which it is not looked up again. Defaults to zero, which disables negative caching.
+     *
+     * @param negativeCacheTimeToLive the negative cache time to live in milliseconds
+     */
+    public void setNegativeCacheTimeToLive(final long negativeCacheTimeToLive) {
+        this.negativeCacheTimeToLive = negativeCacheTimeToLive;
+    }
+
+    public void setRefreshExecutor(final Executor refreshExecutor) {
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * Gets a snapshot of the latency, in nanoseconds, of loads from the attribute repository.
+     *
+     * @return the load latency histogram
+     */
+    public Histogram getLoadLatency() {
+        return this.loadLatency.copy();
+    }
+
+    /**
+     * Gets the number of lookups served from the cache, including principals known to have no attributes.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Gets the number of lookups that had to load attributes from the repository.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
     /**
      * Prep cache configuration.
      *
@@ -216,16 +323,17 @@ public final class CachingPrincipalAttributesRepository implements PrincipalAttr
      * @param id the principal id that controls the grouping of the attributes in the cache.
      * @param attributes principal attributes to add to the cache
      */
-   private void addPrincipalAttributesIntoCache(final String id, final Map<String, Object> attributes) {
-        synchronized (this.cache) {
-            if (attributes.isEmpty()) {
-
-                this.cache.remove(id);
-                LOGGER.debug("No attributes are provided, so removed principal id [{}] from the cache", id);
-            } else {
-                this.cache.put(id, attributes);
-                LOGGER.debug("Cached [{}] attributes for the principal id [{}]", attributes.size(), id);
+    private void addPrincipalAttributesIntoCache(final String id, final Map<String, Object> attributes) {
+        if (attributes.isEmpty()) {
+            this.cache.remove(id);
+            if (this.negativeCacheTimeToLive > 0) {
+                this.negativeEntries.put(id, System.currentTimeMillis() + this.negativeCacheTimeToLive);
             }
+            LOGGER.debug("No attributes are provided, so removed principal id [{}] from the cache", id);
+        } else {
+            this.cache.put(id, attributes);
+            this.negativeEntries.remove(id);
+            LOGGER.debug("Cached [{}] attributes for the principal id [{}]", attributes.size(), id);
         }
     }
 
@@ -234,9 +342,132 @@ public final class CachingPrincipalAttributesRepository implements PrincipalAttr
         final Map<String, Object> cachedAttributes = this.cache.get(p.getId());
         if (cachedAttributes != null) {
             LOGGER.debug("Found [{}] cached attributes for principal [{}]", cachedAttributes.size(), p.getId());
+            this.hitCount.incrementAndGet();
+            refreshIfNeeded(p);
             return cachedAttributes;
         }
+        final Long negativeUntil = this.negativeEntries.get(p.getId());
+        if (negativeUntil != null && negativeUntil > System.currentTimeMillis()) {
+            LOGGER.debug("Principal [{}] is known to have no attributes", p.getId());
+            this.hitCount.incrementAndGet();
+            return Collections.emptyMap();
+        }
+        this.missCount.incrementAndGet();
+        return load(p);
+    }
 
+    /**
+     * Loads the attributes of the principal, waiting for the load already in progress for
+     * the same principal if any, so that concurrent lookups query the repository once.
+     *
+     * @param p the principal
+     * @return the loaded attributes
+     */
+    private Map<String, Object> load(final Principal p) {
+        final String id = p.getId();
+        final FutureTask<Map<String, Object>> task = new FutureTask<>(new Callable<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call() throws Exception {
+                return loadAttributes(p);
+            }
+        });
+        final FutureTask<Map<String, Object>> existing = this.loads.putIfAbsent(id, task);
+        if (existing != null) {
+            LOGGER.debug("Waiting for attributes of principal [{}] being loaded", id);
+            return await(existing);
+        }
+        try {
+            task.run();
+            return await(task);
+        } finally {
+            this.loads.remove(id, task);
+        }
+    }
+
+    /**
+     * Reloads the attributes of the principal in the background if they were loaded
+     * longer ago than the refresh time. Only one refresh per principal is scheduled.
+     *
+     * @param p the principal
+     */
+    private void refreshIfNeeded(final Principal p) {
+        if (this.refreshAfter <= 0) {
+            return;
+        }
+        final String id = p.getId();
+        final long now = System.currentTimeMillis();
+        final Long loaded = this.loadTimes.get(id);
+        if (loaded == null) {
+            this.loadTimes.putIfAbsent(id, now);
+            return;
+        }
+        if (now - loaded < this.refreshAfter || this.loads.containsKey(id) || !this.loadTimes.replace(id, loaded, now)) {
+            return;
+        }
+        try {
+            getRefreshExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        load(p);
+                    } catch (final RuntimeException e) {
+                        LOGGER.warn("Could not refresh attributes of principal [{}]", id, e);
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            LOGGER.debug("Refresh of attributes of principal [{}] was rejected", id, e);
+        }
+    }
+
+    /**
+     * Waits for a load to complete.
+     *
+     * @param task the load
+     * @return the loaded attributes
+     */
+    private static Map<String, Object> await(final FutureTask<Map<String, Object>> task) {
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading principal attributes", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Loads the attributes of the principal from the repository, merges them and caches them.
+     *
+     * @param p the principal
+     * @return the attributes
+     */
+    private Map<String, Object> loadAttributes(final Principal p) {
+        final long start = System.nanoTime();
+        try {
+            final Map<String, Object> attributes = mergeAttributes(p);
+            final long now = System.currentTimeMillis();
+            if (this.refreshAfter > 0) {
+                this.loadTimes.put(p.getId(), now);
+            }
+            purgeExpired(now);
+            return attributes;
+        } finally {
+            this.loadLatency.recordValue(Math.max(0, System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Retrieves the attributes of the principal from the repository and merges them with those of the principal.
+     *
+     * @param p the principal
+     * @return the attributes
+     */
+    private Map<String, Object> mergeAttributes(final Principal p) {
         final Map<String, List<Object>> sourceAttributes = retrievePersonAttributesToPrincipalAttributes(p.getId());
         LOGGER.debug("Found [{}] attributes for principal [{}] from the attribute repository.",
                 sourceAttributes.size(), p.getId());
@@ -258,7 +489,42 @@ public final class CachingPrincipalAttributesRepository implements PrincipalAttr
         final Map<String, Object> finalAttributes = convertPersonAttributesToPrincipalAttributes(mergedAttributes);
         addPrincipalAttributesIntoCache(p.getId(), finalAttributes);
         return finalAttributes;
+    }
 
+    /**
+     * Purges the bookkeeping of principals whose attributes expired from the cache, at most once per {@link #PURGE_INTERVAL}.
+     *
+     * @param now the current time in milliseconds
+     */
+    private void purgeExpired(final long now) {
+        if (now < this.nextPurge) {
+            return;
+        }
+        this.nextPurge = now + PURGE_INTERVAL;
+        final Iterator<String> ids = this.loadTimes.keySet().iterator();
+        while (ids.hasNext()) {
+            if (!this.cache.containsKey(ids.next())) {
+                ids.remove();
+            }
+        }
+        final Iterator<Long> negatives = this.negativeEntries.values().iterator();
+        while (negatives.hasNext()) {
+            if (negatives.next() <= now) {
+                negatives.remove();
+            }
+        }
+    }
+
+    /**
+     * Gets the executor running background refreshes.
+     *
+     * @return the refresh executor
+     */
+    private Executor getRefreshExecutor() {
+        if (this.refreshExecutor == null) {
+            this.refreshExecutor = DefaultRefreshExecutor.EXECUTOR;
+        }
+        return this.refreshExecutor;
     }
 
     /***
@@ -325,9 +591,50 @@ public final class CachingPrincipalAttributesRepository implements PrincipalAttr
         this.cache.getCacheManager().close();
     }
 
+    /**
+     * Initializes the transient state of a deserialized repository, namely loads in progress,
+     * bookkeeping and statistics.
+     *
+     * @param in the stream to read the repository from
+     * @throws IOException if the repository cannot be read
+     * @throws ClassNotFoundException if a class of the serialized repository cannot be found
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.loads = new ConcurrentHashMap<>();
+        this.loadTimes = new ConcurrentHashMap<>();
+        this.negativeEntries = new ConcurrentHashMap<>();
+        this.loadLatency = new ConcurrentHistogram(2);
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+    }
+
     @Override
     protected void finalize() throws Throwable {
         close();
         super.finalize();
     }
+
+    /**
+     * Holder of the pool of daemon threads shared by repositories without a configured refresh executor.
+     */
+    private static final class DefaultRefreshExecutor {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(DEFAULT_REFRESH_THREADS,
+                new ThreadFactory() {
+                    private final AtomicLong count = new AtomicLong();
+
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread thread = new Thread(r, "principal-attributes-refresh-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        /**
+         * Not instantiated.
+         */
+        private DefaultRefreshExecutor() {
+        }
+    }
 }
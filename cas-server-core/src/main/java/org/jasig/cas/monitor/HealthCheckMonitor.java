@@ -18,23 +18,74 @@
  */
 package org.jasig.cas.monitor;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Simple health check monitor that reports the overall health as the greatest reported
  * {@link StatusCode} of an arbitrary number of individual checks.
  *
+ * <p>The individual checks run concurrently on a bounded executor, so the health check takes about as
+ * long as its slowest check rather than the sum of all of them. Checks that do not complete within
+ * {@link #setMaxWait(int) maxWait} are cancelled and reported with {@link StatusCode#WARN}.
+ * Optionally, the overall status is cached for {@link #setCacheDuration(long) cacheDuration}; once stale,
+ * the cached status keeps being reported while a fresh one is observed in the background, so that
+ * frequent probes, e.g. from load balancers, do not each run every check.</p>
+ *
  * @author Marvin S. Addison
  * @since 3.5.0
  */
 public class HealthCheckMonitor implements Monitor<HealthStatus> {
+
+    /** Default maximum time in milliseconds to wait for the individual checks. */
+    public static final int DEFAULT_MAX_WAIT = 3000;
+
+    private static final int DEFAULT_THREADS = 8;
+
+    private static final int DEFAULT_QUEUE_SIZE = 64;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HealthCheckMonitor.class);
+
     /** Individual monitors that comprise health check. */
     @NotNull
-    private Collection<Monitor> monitors = Collections.emptySet();
+    private Collection<? extends Monitor<?>> monitors = Collections.emptySet();
+
+    /** Maximum time in milliseconds to wait for the individual checks. */
+    @Min(0)
+    private int maxWait = DEFAULT_MAX_WAIT;
+
+    /** Time in milliseconds the overall status is cached. Zero disables caching. */
+    @Min(0)
+    private long cacheDuration;
+
+    /** Executor running the individual checks. Defaults to a shared, bounded pool of daemon threads. */
+    private ExecutorService executor;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile CachedStatus cachedStatus;
 
 
     /**
@@ -42,10 +93,39 @@ public class HealthCheckMonitor implements Monitor<HealthStatus> {
      *
      * @param monitors Collection of monitors responsible for observing various aspects of CAS.
      */
-    public void setMonitors(final Collection<Monitor> monitors) {
+    public void setMonitors(final Collection<? extends Monitor<?>> monitors) {
         this.monitors = monitors;
     }
 
+    /**
+     * Sets the maximum amount of time to wait for the individual checks, which all run at the same time.
+     * Defaults to {@value #DEFAULT_MAX_WAIT}.
+     *
+     * @param time Wait time in milliseconds.
+     */
+    public void setMaxWait(final int time) {
+        this.maxWait = time;
+    }
+
+    /**
+     * Sets the time the overall status is cached. Defaults to zero, which observes all monitors on every call.
+     *
+     * @param cacheDuration Cache duration in milliseconds.
+     */
+    public void setCacheDuration(final long cacheDuration) {
+        this.cacheDuration = cacheDuration;
+    }
+
+    /**
+     * Sets the executor service running the individual checks. It should be bounded, and
+     * have enough threads to run all checks at the same time.
+     *
+     * @param executorService Executor of individual checks.
+     */
+    public void setExecutor(final ExecutorService executorService) {
+        this.executor = executorService;
+    }
+
     /**
      * {@inheritDoc}
      **/
@@ -59,23 +139,208 @@ public class HealthCheckMonitor implements Monitor<HealthStatus> {
      **/
     @Override
     public HealthStatus observe() {
+        if (this.cacheDuration <= 0) {
+            return check();
+        }
+        final CachedStatus cached = this.cachedStatus;
+        if (cached == null) {
+            return initialize();
+        }
+        if (System.currentTimeMillis() - cached.observedAt >= this.cacheDuration) {
+            refreshInBackground();
+        }
+        return cached.status;
+    }
+
+    /**
+     * Observes all monitors, concurrently, and aggregates their statuses.
+     *
+     * @return Overall health status.
+     */
+    private HealthStatus check() {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.maxWait);
+        final List<Future<Status>> futures = new ArrayList<>(this.monitors.size());
+        for (final Monitor<?> monitor : this.monitors) {
+            futures.add(submit(monitor));
+        }
+
         final Map<String, Status> results = new LinkedHashMap<>(this.monitors.size());
         StatusCode code = StatusCode.UNKNOWN;
-        Status result;
-        for (final Monitor monitor : this.monitors) {
-            try {
-                result = monitor.observe();
-                final StatusCode resCode = result.getCode();
-                if (resCode.value() > code.value()) {
-                    code = resCode;
-                }
-            } catch (final Exception e) {
-                code = StatusCode.ERROR;
-                result = new Status(code, e.getClass().getSimpleName() + ": " + e.getMessage());
+        int i = 0;
+        for (final Monitor<?> monitor : this.monitors) {
+            final Status result = await(futures.get(i++), deadline);
+            if (result.getCode().value() > code.value()) {
+                code = result.getCode();
             }
             results.put(monitor.getName(), result);
         }
 
         return new HealthStatus(code, results);
     }
+
+    /**
+     * Submits a monitor for observation.
+     *
+     * @param monitor Monitor to observe.
+     *
+     * @return Pending status, or null if the executor rejected the monitor.
+     */
+    private Future<Status> submit(final Monitor<?> monitor) {
+        try {
+            return getExecutor().submit(new Callable<Status>() {
+                @Override
+                public Status call() throws Exception {
+                    return monitor.observe();
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            LOGGER.warn("Observation of monitor {} was rejected", monitor.getName());
+            return null;
+        }
+    }
+
+    /**
+     * Waits for the status of a monitor until the deadline of the health check.
+     *
+     * @param future Pending status.
+     * @param deadline Deadline, in {@link System#nanoTime()} terms.
+     *
+     * @return Status of the monitor.
+     */
+    private Status await(final Future<Status> future, final long deadline) {
+        if (future == null) {
+            return new Status(StatusCode.WARN, "Check not run: too many checks in progress.");
+        }
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (final InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return new Status(StatusCode.UNKNOWN, "Interrupted while waiting for check.");
+        } catch (final TimeoutException e) {
+            future.cancel(true);
+            return new Status(StatusCode.WARN, String.format("Check timed out.  Max wait is %s ms.", this.maxWait));
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            return new Status(StatusCode.ERROR, cause.getClass().getSimpleName() + ": " + cause.getMessage());
+        }
+    }
+
+    /**
+     * Observes the overall status for the first time, once, while other callers wait for it.
+     *
+     * @return Overall health status.
+     */
+    private synchronized HealthStatus initialize() {
+        if (this.cachedStatus == null) {
+            refresh();
+        }
+        return this.cachedStatus.status;
+    }
+
+    /**
+     * Observes and caches the overall status.
+     */
+    private void refresh() {
+        this.cachedStatus = new CachedStatus(check(), System.currentTimeMillis());
+    }
+
+    /**
+     * Refreshes the cached status in the background, unless a refresh is already in progress.
+     */
+    private void refreshInBackground() {
+        if (!this.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            DefaultExecutors.REFRESHER.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh();
+                    } finally {
+                        HealthCheckMonitor.this.refreshing.set(false);
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            this.refreshing.set(false);
+            LOGGER.debug("Refresh of health status was rejected", e);
+        }
+    }
+
+    /**
+     * Gets the executor running the individual checks.
+     *
+     * @return the executor
+     */
+    private ExecutorService getExecutor() {
+        if (this.executor == null) {
+            this.executor = DefaultExecutors.CHECKS;
+        }
+        return this.executor;
+    }
+
+    /**
+     * Overall status along with the time it was observed.
+     */
+    private static final class CachedStatus {
+        private final HealthStatus status;
+
+        private final long observedAt;
+
+        /**
+         * Instantiates a new cached status.
+         *
+         * @param status Overall health status.
+         * @param observedAt Time in milliseconds the status was observed.
+         */
+        CachedStatus(final HealthStatus status, final long observedAt) {
+            this.status = status;
+            this.observedAt = observedAt;
+        }
+    }
+
+    /**
+     * Holder of the daemon threads shared by health check monitors without a configured executor.
+     */
+    private static final class DefaultExecutors {
+        private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+            private final AtomicLong count = new AtomicLong();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "health-check-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+
+        /** Bounded pool running the individual checks; checks beyond its capacity are rejected. */
+        private static final ExecutorService CHECKS = newBoundedPool(DEFAULT_THREADS, DEFAULT_QUEUE_SIZE);
+
+        /** Single thread refreshing cached statuses, so that refreshes never wait for a check thread. */
+        private static final Executor REFRESHER = newBoundedPool(1, 1);
+
+        /**
+         * Not instantiated.
+         */
+        private DefaultExecutors() {
+        }
+
+        /**
+         * Creates a bounded pool of daemon threads that are released when idle.
+         *
+         * @param threads Number of threads.
+         * @param queueSize Number of tasks that may wait for a thread.
+         *
+         * @return the pool
+         */
+        private static ExecutorService newBoundedPool(final int threads, final int queueSize) {
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES,
+                    new ArrayBlockingQueue<Runnable>(queueSize), THREAD_FACTORY);
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.monitor;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-process registry of the latency of timed operations, such as those annotated with {@link Timed}.
+ *
+ * <p>Each operation is tracked by an {@link OperationTimer} created on first use. Recording is lock-free,
+ * and no log output is produced or parsed, so the registry is suitable for timing every login and
+ * ticket validation. Percentiles are available via JMX, when exported, and to the statistics page.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+@ManagedResource(objectName = "CAS:name=MetricsRegistry",
+        description = "Exposes the latency of timed CAS operations via JMX")
+public class MetricsRegistry {
+
+    private final ConcurrentMap<String, OperationTimer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the timer of an operation, creating it on first use.
+     *
+     * @param operation the operation name
+     * @return the operation timer
+     */
+    public OperationTimer timer(final String operation) {
+        final OperationTimer timer = this.timers.get(operation);
+        if (timer != null) {
+            return timer;
+        }
+        final OperationTimer created = new OperationTimer(operation);
+        final OperationTimer existing = this.timers.putIfAbsent(operation, created);
+        return existing != null ? existing : created;
+    }
+
+    /**
+     * Records an invocation of an operation.
+     *
+     * @param operation the operation name
+     * @param elapsedNanos the duration of the invocation in nanoseconds
+     * @param failed whether the invocation failed
+     */
+    public void record(final String operation, final long elapsedNanos, final boolean failed) {
+        timer(operation).record(elapsedNanos, failed);
+    }
+
+    /**
+     * Gets the timers of all operations recorded so far.
+     *
+     * @return the timers sorted by operation name
+     */
+    public SortedMap<String, OperationTimer> getTimers() {
+        return Collections.unmodifiableSortedMap(new TreeMap<String, OperationTimer>(this.timers));
+    }
+
+    /**
+     * Gets a summary of the latency of every operation.
+     *
+     * @return one line per operation, keyed by operation name
+     */
+    @ManagedAttribute(description = "Count, failures and p50/p99/p99.9/max latency in ms of each operation")
+    public Map<String, String> getSummary() {
+        final Map<String, String> summary = new TreeMap<>();
+        for (final OperationTimer timer : this.timers.values()) {
+            summary.put(timer.getName(), String.format(Locale.ENGLISH,
+                    "count=%d failures=%d p50=%.3f p99=%.3f p99.9=%.3f max=%.3f", timer.getCount(), timer.getFailureCount(), timer.getP50(),
+                    timer.getP99(), timer.getP999(), timer.getMax()));
+        }
+        return summary;
+    }
+
+    /**
+     * Gets the latency of an operation at the given percentile.
+     *
+     * @param operation the operation name
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency in milliseconds, or zero if the operation was never recorded.
+     */
+    @ManagedOperation(description = "Gets the latency in ms of an operation at the given percentile")
+    @ManagedOperationParameters({
+            @ManagedOperationParameter(name = "operation", description = "the operation name"),
+            @ManagedOperationParameter(name = "percentile", description = "the percentile, between 0 and 100")
+    })
+    public double getPercentile(final String operation, final double percentile) {
+        final OperationTimer timer = this.timers.get(operation);
+        return timer != null ? timer.getPercentile(percentile) : 0;
+    }
+
+    /**
+     * Clears the recorded latencies of all operations.
+     */
+    @ManagedOperation(description = "Clears the recorded latencies of all operations")
+    public void reset() {
+        for (final OperationTimer timer : this.timers.values()) {
+            timer.reset();
+        }
+    }
+}
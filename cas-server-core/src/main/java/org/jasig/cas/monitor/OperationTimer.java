@@ -0,0 +1,142 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.monitor;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histogram and failure counter of a single timed operation.
+ *
+ * <p>Latencies are recorded in microseconds into a lock-free HDR histogram with two significant digits,
+ * so recording neither allocates nor contends on a lock. Values are reported in milliseconds.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class OperationTimer {
+
+    private static final double MICROSECONDS_PER_MILLISECOND = 1000.0;
+
+    private static final double MEDIAN = 50;
+
+    private static final double P99 = 99;
+
+    private static final double P999 = 99.9;
+
+    private final String name;
+
+    private final ConcurrentHistogram latency = new ConcurrentHistogram(2);
+
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Instantiates a new operation timer.
+     *
+     * @param name the operation name
+     */
+    public OperationTimer(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records an invocation of the operation.
+     *
+     * @param elapsedNanos the duration of the invocation in nanoseconds
+     * @param failed whether the invocation failed
+     */
+    public void record(final long elapsedNanos, final boolean failed) {
+        this.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(Math.max(elapsedNanos, 0)));
+        if (failed) {
+            this.failures.incrementAndGet();
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public long getCount() {
+        return this.latency.getTotalCount();
+    }
+
+    public long getFailureCount() {
+        return this.failures.get();
+    }
+
+    /**
+     * Gets the latency at the given percentile.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency in milliseconds
+     */
+    public double getPercentile(final double percentile) {
+        return this.latency.getValueAtPercentile(percentile) / MICROSECONDS_PER_MILLISECOND;
+    }
+
+    public double getP50() {
+        return getPercentile(MEDIAN);
+    }
+
+    public double getP99() {
+        return getPercentile(P99);
+    }
+
+    public double getP999() {
+        return getPercentile(P999);
+    }
+
+    /**
+     * Gets the mean latency.
+     *
+     * @return the latency in milliseconds
+     */
+    public double getMean() {
+        return this.latency.getMean() / MICROSECONDS_PER_MILLISECOND;
+    }
+
+    /**
+     * Gets the maximum latency.
+     *
+     * @return the latency in milliseconds
+     */
+    public double getMax() {
+        return this.latency.getMaxValue() / MICROSECONDS_PER_MILLISECOND;
+    }
+
+    /**
+     * Gets a copy of the latency histogram in microseconds.
+     *
+     * @return the latency histogram
+     */
+    public Histogram getLatency() {
+        return this.latency.copy();
+    }
+
+    /**
+     * Clears the recorded latencies and failures.
+     */
+    public void reset() {
+        this.latency.reset();
+        this.failures.set(0);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.monitor;
+
+/**
+ * Number of tickets held by a ticket registry, by kind of ticket. Counts that a registry
+ * cannot report cheaply are {@link #UNKNOWN}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class TicketCounts {
+
+    /** Value of counts that are not known. */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private final int ticketGrantingTicketCount;
+
+    private final int proxyGrantingTicketCount;
+
+    private final int serviceTicketCount;
+
+    private final int proxyTicketCount;
+
+    private final int expiredTicketCount;
+
+    /**
+     * Instantiates new ticket counts.
+     *
+     * @param ticketGrantingTicketCount Number of ticket-granting tickets, including proxy-granting tickets.
+     * @param proxyGrantingTicketCount Number of proxy-granting tickets.
+     * @param serviceTicketCount Number of service tickets, including proxy tickets.
+     * @param proxyTicketCount Number of proxy tickets.
+     * @param expiredTicketCount Number of tickets of any kind that expired but are still held.
+     */
+    public TicketCounts(final int ticketGrantingTicketCount, final int proxyGrantingTicketCount,
+                        final int serviceTicketCount, final int proxyTicketCount, final int expiredTicketCount) {
+        this.ticketGrantingTicketCount = ticketGrantingTicketCount;
+        this.proxyGrantingTicketCount = proxyGrantingTicketCount;
+        this.serviceTicketCount = serviceTicketCount;
+        this.proxyTicketCount = proxyTicketCount;
+        this.expiredTicketCount = expiredTicketCount;
+    }
+
+    /**
+     * Gets the ticket counts of the given registry state. States that do not report counts by kind of
+     * ticket are asked for their session and service ticket counts; the other counts are unknown.
+     *
+     * @param state Ticket registry state.
+     * @return Ticket counts of the registry.
+     */
+    public static TicketCounts of(final TicketRegistryState state) {
+        if (state instanceof TicketCountsState) {
+            return ((TicketCountsState) state).ticketCounts();
+        }
+        return new TicketCounts(state.sessionCount(), UNKNOWN, state.serviceTicketCount(), UNKNOWN, UNKNOWN);
+    }
+
+    /**
+     * Gets the number of ticket-granting tickets, including proxy-granting tickets.
+     *
+     * @return Number of tickets or {@link #UNKNOWN}.
+     */
+    public int getTicketGrantingTicketCount() {
+        return this.ticketGrantingTicketCount;
+    }
+
+    /**
+     * Gets the number of proxy-granting tickets.
+     *
+     * @return Number of tickets or {@link #UNKNOWN}.
+     */
+    public int getProxyGrantingTicketCount() {
+        return this.proxyGrantingTicketCount;
+    }
+
+    /**
+     * Gets the number of service tickets, including proxy tickets.
+     *
+     * @return Number of tickets or {@link #UNKNOWN}.
+     */
+    public int getServiceTicketCount() {
+        return this.serviceTicketCount;
+    }
+
+    /**
+     * Gets the number of proxy tickets.
+     *
+     * @return Number of tickets or {@link #UNKNOWN}.
+     */
+    public int getProxyTicketCount() {
+        return this.proxyTicketCount;
+    }
+
+    /**
+     * Gets the number of tickets of any kind that expired but were not removed from the registry yet.
+     *
+     * @return Number of tickets or {@link #UNKNOWN}.
+     */
+    public int getExpiredTicketCount() {
+        return this.expiredTicketCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TGT=%s, PGT=%s, ST=%s, PT=%s, expired=%s", this.ticketGrantingTicketCount,
+                this.proxyGrantingTicketCount, this.serviceTicketCount, this.proxyTicketCount, this.expiredTicketCount);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.monitor;
+
+/**
+ * Ticket registry state that also reports the number of tickets by kind of ticket.
+ * Kept apart from {@link TicketRegistryState} so that existing implementations of that
+ * interface remain valid; use {@link TicketCounts#of(TicketRegistryState)} to read the counts
+ * of any registry state.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public interface TicketCountsState extends TicketRegistryState {
+
+    /**
+     * Gets the number of tickets stored in the ticket registry, by kind of ticket.
+     * Implementations are expected to answer without examining every ticket in the registry;
+     * counts that cannot be obtained cheaply are reported as {@link TicketCounts#UNKNOWN}.
+     *
+     * @return Ticket counts at time of invocation, or as recently observed.
+     */
+    TicketCounts ticketCounts();
+}
@@ -24,6 +24,7 @@ import org.jasig.cas.authentication.AuthenticationException;
 import org.jasig.cas.authentication.Credential;
 import org.jasig.cas.authentication.principal.Service;
 import org.jasig.cas.logout.LogoutRequest;
+import org.jasig.cas.services.RegisteredService;
 import org.jasig.cas.ticket.TicketException;
 import org.jasig.cas.ticket.InvalidTicketException;
 import org.jasig.cas.ticket.ServiceTicket;
@@ -132,6 +133,17 @@ public final class RemoteCentralAuthenticationService implements CentralAuthenti
         return this.centralAuthenticationService.validateServiceTicket(serviceTicketId, service);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>The registered service supplied by the remote caller is not trusted; the one
+     * registered for the service is looked up instead.</p>
+     */
+    @Override
+    public Assertion validateServiceTicket(final String serviceTicketId, final Service service,
+                                           final RegisteredService registeredService) throws TicketException {
+        return this.centralAuthenticationService.validateServiceTicket(serviceTicketId, service);
+    }
+
     /**
      * {@inheritDoc}
      * <p>Destroy a TicketGrantingTicket and perform back channel logout. This has the effect of invalidating any
@@ -0,0 +1,56 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.services;
+
+/**
+ * Secondary index of the registered services of a given type by a key derived from each service,
+ * maintained by an {@link IndexedServicesManager}. Indexes are identified by instance and are
+ * typically defined once as constants; the manager builds an index on first use and rebuilds it
+ * whenever services are loaded, saved or deleted.
+ *
+ * @author Apereo CAS Team
+ * @param <K> the type of the index key
+ * @param <T> the type of the indexed services
+ * @since 4.1.0
+ */
+public abstract class AbstractRegisteredServiceIndex<K, T extends RegisteredService> {
+
+    private final Class<T> type;
+
+    /**
+     * Instantiates a new index.
+     *
+     * @param type the type of the indexed services; services of other types are not indexed.
+     */
+    protected AbstractRegisteredServiceIndex(final Class<T> type) {
+        this.type = type;
+    }
+
+    public final Class<T> getType() {
+        return this.type;
+    }
+
+    /**
+     * Gets the key by which the service is indexed.
+     *
+     * @param service the service
+     * @return the key, or null if the service is not indexed.
+     */
+    public abstract K getKey(T service);
+}
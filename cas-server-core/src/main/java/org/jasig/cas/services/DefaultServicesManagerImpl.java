@@ -25,21 +25,28 @@ import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Default implementation of the {@link ServicesManager} interface. If there are
  * no services registered with the server, it considers the ServicecsManager
  * disabled and will not prevent any service from using CAS.
  *
+ * <p>Services are kept sorted in evaluation order along with secondary indexes, all of which
+ * are rebuilt whenever services are loaded, saved or deleted rather than on every lookup.</p>
+ *
  * @author Scott Battaglia
  * @since 3.1
  */
-public final class DefaultServicesManagerImpl implements ReloadableServicesManager {
+public final class DefaultServicesManagerImpl implements ReloadableServicesManager, IndexedServicesManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultServicesManagerImpl.class);
 
@@ -50,6 +57,9 @@ public final class DefaultServicesManagerImpl implements ReloadableServicesManag
     /** Map to store all services. */
     private ConcurrentHashMap<Long, RegisteredService> services = new ConcurrentHashMap<>();
 
+    /** Services in evaluation order along with their indexes. */
+    private volatile IndexedServices indexedServices = new IndexedServices(Collections.<RegisteredService>emptyList());
+
     /**
      * Instantiates a new default services manager impl.
      *
@@ -93,6 +103,7 @@ public final class DefaultServicesManagerImpl implements ReloadableServicesManag
 
         this.serviceRegistryDao.delete(r);
         this.services.remove(id);
+        reindex();
 
         return r;
     }
@@ -102,9 +113,7 @@ public final class DefaultServicesManagerImpl implements ReloadableServicesManag
      */
     @Override
     public RegisteredService findServiceBy(final Service service) {
-        final Collection<RegisteredService> c = convertToTreeSet();
-
-        for (final RegisteredService r : c) {
+        for (final RegisteredService r : this.indexedServices.orderedServices) {
             if (r.matches(service)) {
                 return r;
             }
@@ -134,7 +143,17 @@ public final class DefaultServicesManagerImpl implements ReloadableServicesManag
     }
 
     public Collection<RegisteredService> getAllServices() {
-        return Collections.unmodifiableCollection(convertToTreeSet());
+        return this.indexedServices.orderedServices;
+    }
+
+    @Override
+    public <T extends RegisteredService> Collection<T> getAllServicesOfType(final Class<T> type) {
+        return this.indexedServices.getServicesOfType(type);
+    }
+
+    @Override
+    public <K, T extends RegisteredService> T findServiceBy(final AbstractRegisteredServiceIndex<K, T> index, final K key) {
+        return this.indexedServices.getIndex(index).get(key);
     }
 
     @Override
@@ -149,15 +168,48 @@ public final class DefaultServicesManagerImpl implements ReloadableServicesManag
     public synchronized RegisteredService save(final RegisteredService registeredService) {
         final RegisteredService r = this.serviceRegistryDao.save(registeredService);
         this.services.put(r.getId(), r);
+        reindex();
         return r;
     }
 
     @Override
     public void reload() {
         LOGGER.info("Reloading registered services.");
+        if (this.serviceRegistryDao instanceof IncrementalServiceRegistryDao && loadChanges()) {
+            return;
+        }
         load();
     }
 
+    /**
+     * Merge the changes reported by an incremental DAO into the services already loaded.
+     * Services whose ids are no longer reported are removed.
+     *
+     * @return true if changes were merged, false if services must be loaded in full.
+     */
+    private synchronized boolean loadChanges() {
+        final RegisteredServiceChanges changes =
+                ((IncrementalServiceRegistryDao) this.serviceRegistryDao).loadChanges();
+        if (changes == null) {
+            return false;
+        }
+
+        for (final RegisteredService r : changes.getModifiedServices()) {
+            LOGGER.debug("Updating registered service {}", r.getServiceId());
+            this.services.put(r.getId(), r);
+        }
+        this.services.keySet().retainAll(changes.getServiceIds());
+        reindex();
+
+        if (!this.services.keySet().containsAll(changes.getServiceIds())) {
+            LOGGER.debug("Registered service changes are incomplete; loading all services.");
+            return false;
+        }
+        LOGGER.info("Merged {} modified services; {} services are loaded.",
+                changes.getModifiedServices().size(), this.services.size());
+        return true;
+    }
+
     /**
      * Load services that are provided by the DAO. 
      */
@@ -171,7 +223,83 @@ public final class DefaultServicesManagerImpl implements ReloadableServicesManag
         }
 
         this.services = localServices;
+        reindex();
         LOGGER.info("Loaded {} services.", this.services.size());
         
     }
+
+    /**
+     * Rebuild the ordered services and their indexes from the services map.
+     */
+    private void reindex() {
+        this.indexedServices = new IndexedServices(convertToTreeSet());
+    }
+
+    /**
+     * Immutable view of the services in evaluation order, with indexes built on first use.
+     */
+    private static final class IndexedServices {
+        private final Collection<RegisteredService> orderedServices;
+
+        private final ConcurrentMap<Class<?>, Collection<?>> servicesByType = new ConcurrentHashMap<>();
+
+        private final ConcurrentMap<AbstractRegisteredServiceIndex<?, ?>, Map<?, ?>> indexes = new ConcurrentHashMap<>();
+
+        /**
+         * Instantiates new indexed services.
+         *
+         * @param orderedServices the services in evaluation order
+         */
+        IndexedServices(final Collection<RegisteredService> orderedServices) {
+            this.orderedServices = Collections.unmodifiableList(new ArrayList<>(orderedServices));
+        }
+
+        /**
+         * Gets the services of the given type, in evaluation order.
+         *
+         * @param type the type of services
+         * @param <T> the type of services
+         * @return the services of the given type
+         */
+        @SuppressWarnings("unchecked")
+        <T extends RegisteredService> Collection<T> getServicesOfType(final Class<T> type) {
+            Collection<T> services = (Collection<T>) this.servicesByType.get(type);
+            if (services == null) {
+                final List<T> list = new ArrayList<>();
+                for (final RegisteredService r : this.orderedServices) {
+                    if (type.isInstance(r)) {
+                        list.add(type.cast(r));
+                    }
+                }
+                services = Collections.unmodifiableList(list);
+                this.servicesByType.putIfAbsent(type, services);
+            }
+            return services;
+        }
+
+        /**
+         * Gets the services mapped by their key in the given index, building the index if needed.
+         *
+         * @param index the index
+         * @param <K> the type of the index key
+         * @param <T> the type of the indexed services
+         * @return the services by key
+         */
+        @SuppressWarnings("unchecked")
+        <K, T extends RegisteredService> Map<K, T> getIndex(final AbstractRegisteredServiceIndex<K, T> index) {
+            Map<K, T> servicesByKey = (Map<K, T>) this.indexes.get(index);
+            if (servicesByKey == null) {
+                servicesByKey = new HashMap<>();
+                for (final T r : getServicesOfType(index.getType())) {
+                    final K key = index.getKey(r);
+                    if (key != null && !servicesByKey.containsKey(key)) {
+                        servicesByKey.put(key, r);
+                    }
+                }
+                servicesByKey = Collections.unmodifiableMap(servicesByKey);
+                this.indexes.putIfAbsent(index, servicesByKey);
+            }
+            return servicesByKey;
+        }
+    }
 }
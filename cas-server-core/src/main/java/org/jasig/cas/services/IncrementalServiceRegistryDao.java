@@ -0,0 +1,38 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.services;
+
+/**
+ * A {@link ServiceRegistryDao} that is able to report what changed in the data store
+ * since services were last retrieved, so that reloading the registry does not
+ * transfer and map every service definition again.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public interface IncrementalServiceRegistryDao extends ServiceRegistryDao {
+
+    /**
+     * Retrieve the services that were added or modified in the data store since the previous
+     * call to {@link #load()} or to this method, along with the ids of all services currently defined.
+     *
+     * @return the changes, or null if changes cannot be determined and services must be loaded in full.
+     */
+    RegisteredServiceChanges loadChanges();
+}
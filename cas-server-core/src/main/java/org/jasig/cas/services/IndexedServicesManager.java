@@ -0,0 +1,52 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.services;
+
+import java.util.Collection;
+
+/**
+ * Services manager that maintains secondary indexes of the registered services,
+ * so that services can be looked up without scanning all of them.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public interface IndexedServicesManager extends ServicesManager {
+
+    /**
+     * Retrieve the registered services of the given type, in evaluation order.
+     *
+     * @param type the type of services, including subtypes.
+     * @param <T> the type of services
+     * @return the services of the given type.
+     */
+    <T extends RegisteredService> Collection<T> getAllServicesOfType(Class<T> type);
+
+    /**
+     * Find a RegisteredService by its key in the given index. If several services share
+     * the same key, the first one in evaluation order is returned.
+     *
+     * @param index the index to search.
+     * @param key the key to match with.
+     * @param <K> the type of the index key
+     * @param <T> the type of the indexed services
+     * @return the RegisteredService indexed with the given key, or null if there is none.
+     */
+    <K, T extends RegisteredService> T findServiceBy(AbstractRegisteredServiceIndex<K, T> index, K key);
+}
@@ -18,23 +18,47 @@
  */
 package org.jasig.cas.services;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.jasig.cas.util.LockedOutputStream;
 import org.jasig.cas.util.JsonSerializer;
 import org.jasig.cas.util.services.RegisteredServiceJsonSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.util.Assert;
-import java.io.BufferedInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Implementation of <code>ServiceRegistryDao</code> that reads services definition from JSON
@@ -74,12 +98,18 @@ import java.util.concurrent.ConcurrentHashMap;
  }
  * </pre>
  *
+ * <p>Files are parsed in parallel when all services are loaded. The directory is then watched for
+ * changes so that {@link #loadChanges()} only re-reads the files reported as created, modified or deleted,
+ * and only re-parses those whose size, modification time and content hash actually changed. When all services
+ * are loaded, a file that fails to parse causes the services previously loaded to be kept; when changes are loaded,
+ * it does not prevent other files from loading and the last good definition read from it is kept.</p>
+ *
  * @author Dmitriy Kopylenko
  * @author Marvin S. Addison
  * @author Misagh Moayyed
  * @since 4.1.0
  */
-public class JsonServiceRegistryDao implements ServiceRegistryDao {
+public class JsonServiceRegistryDao implements IncrementalServiceRegistryDao, DisposableBean {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JsonServiceRegistryDao.class);
 
@@ -91,7 +121,12 @@ public class JsonServiceRegistryDao implements ServiceRegistryDao {
     /**
      * Map of service ID to registered service.
      */
-    private Map<Long, RegisteredService> serviceMap = new ConcurrentHashMap<>();
+    private volatile Map<Long, RegisteredService> serviceMap = new ConcurrentHashMap<>();
+
+    /**
+     * Map of service definition file to the state it was last read in.
+     */
+    private volatile Map<Path, ServiceFile> serviceFiles = new ConcurrentHashMap<>();
 
     /**
      * The Service registry directory.
@@ -103,6 +138,31 @@ public class JsonServiceRegistryDao implements ServiceRegistryDao {
      */
     private final JsonSerializer<RegisteredService> registeredServiceJsonSerializer;
 
+    /**
+     * Guards the updates of the service and file maps by loads, saves and deletes.
+     */
+    private final Object loadLock = new Object();
+
+    /**
+     * Watched directories by their watch key. Guarded by {@link #loadLock}.
+     */
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+    /**
+     * Watch service for the registry directory. Guarded by {@link #loadLock}.
+     */
+    private WatchService watchService;
+
+    /**
+     * Number of threads used to parse files when all services are loaded.
+     */
+    private int loadParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Pool parsing files when all services are loaded, created on first load. Guarded by {@link #loadLock}.
+     */
+    private ExecutorService loadExecutor;
+
     /**
      * Instantiates a new Json service registry dao.
      *
@@ -134,25 +194,40 @@ public class JsonServiceRegistryDao implements ServiceRegistryDao {
             ((AbstractRegisteredService) service).setId(System.nanoTime());
         }
         final File f = makeFile(service);
+        final ByteArrayOutputStream json = new ByteArrayOutputStream();
+        this.registeredServiceJsonSerializer.toJson(json, service);
+        final byte[] content = json.toByteArray();
         try (final LockedOutputStream out = new LockedOutputStream(new FileOutputStream(f));) {
-            this.registeredServiceJsonSerializer.toJson(out, service);
-            this.serviceMap.put(service.getId(), service);
-            LOGGER.debug("Saved service to [{}]", f.getCanonicalPath());
+            out.write(content);
         } catch (final IOException e) {
             throw new RuntimeException("IO error opening file stream.", e);
         }
+        try {
+            final ServiceFile file = new ServiceFile(Files.getLastModifiedTime(f.toPath()).toMillis(), content.length,
+                    DigestUtils.sha256(content), service);
+            synchronized (this.loadLock) {
+                this.serviceMap.put(service.getId(), service);
+                this.serviceFiles.put(f.toPath(), file);
+            }
+            LOGGER.debug("Saved service to [{}]", f.getCanonicalPath());
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
         return findServiceById(service.getId());
     }
 
     @Override
-    public final synchronized boolean delete(final RegisteredService service) {
+    public final boolean delete(final RegisteredService service) {
         try {
             final File f = makeFile(service);
             final boolean result = f.delete();
             if (!result) {
                 LOGGER.warn("Failed to delete service definition file [{}]", f.getCanonicalPath());
             } else {
-                serviceMap.remove(service.getId());
+                synchronized (this.loadLock) {
+                    this.serviceFiles.remove(f.toPath());
+                    this.serviceMap.remove(service.getId());
+                }
                 LOGGER.debug("Successfully deleted service definition file [{}]", f.getCanonicalPath());
             }
             return result;
@@ -162,25 +237,124 @@ public class JsonServiceRegistryDao implements ServiceRegistryDao {
     }
 
     @Override
-    public final synchronized List<RegisteredService> load() {
-        final Map<Long, RegisteredService> temp = new ConcurrentHashMap<>();
-        int errorCount = 0;
-        final Collection<File> c = FileUtils.listFiles(this.serviceRegistryDirectory, new String[] {FILE_EXTENSION}, true);
-        for (final File file : c) {
-            if (file.length() > 0) {
-                try (final BufferedInputStream in = new BufferedInputStream(new FileInputStream(file))) {
-                    final RegisteredService service = this.registeredServiceJsonSerializer.fromJson(in);
-                    temp.put(service.getId(), service);
-                } catch (final Exception e) {
-                    errorCount++;
-                    LOGGER.error("Error reading configuration file", e);
+    public final List<RegisteredService> load() {
+        synchronized (this.loadLock) {
+            watchDirectories();
+            final Collection<File> c = FileUtils.listFiles(this.serviceRegistryDirectory, new String[] {FILE_EXTENSION}, true);
+            final Map<Path, ServiceFile> files = new ConcurrentHashMap<>();
+            final Map<Path, Future<ServiceFile>> results = new HashMap<>();
+            int errorCount = 0;
+
+            if (this.loadExecutor == null) {
+                this.loadExecutor = Executors.newFixedThreadPool(Math.max(1, this.loadParallelism), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread thread = new Thread(r, "json-service-registry-load");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            final ExecutorService executor = this.loadExecutor;
+            try {
+                for (final File file : c) {
+                    final Path path = file.toPath();
+                    results.put(path, executor.submit(new Callable<ServiceFile>() {
+                        @Override
+                        public ServiceFile call() throws Exception {
+                            return readServiceFile(path, null, true);
+                        }
+                    }));
+                }
+                for (final Map.Entry<Path, Future<ServiceFile>> result : results.entrySet()) {
+                    final Path path = result.getKey();
+                    try {
+                        final ServiceFile file = result.getValue().get();
+                        if (file != null) {
+                            files.put(path, file);
+                        }
+                    } catch (final ExecutionException e) {
+                        errorCount++;
+                        LOGGER.error("Error reading configuration file {}", path, e.getCause());
+                    }
                 }
+            } catch (final InterruptedException e) {
+                for (final Future<ServiceFile> result : results.values()) {
+                    result.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                LOGGER.warn("Interrupted while loading services; keeping the services previously loaded");
+                return new ArrayList<>(this.serviceMap.values());
             }
-        }
-        if (errorCount == 0) {
+
+            if (errorCount > 0) {
+                LOGGER.warn("{} service definition files could not be read; keeping the services previously loaded",
+                        errorCount);
+                return new ArrayList<>(this.serviceMap.values());
+            }
+            final Map<Long, RegisteredService> temp = new ConcurrentHashMap<>();
+            for (final ServiceFile file : files.values()) {
+                temp.put(file.service.getId(), file.service);
+            }
+            this.serviceFiles = files;
             this.serviceMap = temp;
+            return new ArrayList<>(temp.values());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Only the files reported by the directory watch service are checked; all files are checked
+     * if the directory cannot be watched or events were lost. Files whose size and modification time
+     * are unchanged are not read, and files whose content hash is unchanged are not parsed again.</p>
+     */
+    @Override
+    public final RegisteredServiceChanges loadChanges() {
+        synchronized (this.loadLock) {
+            Set<Path> candidates = pollChangedFiles();
+            final boolean reported = candidates != null;
+            if (candidates == null) {
+                candidates = new HashSet<>(this.serviceFiles.keySet());
+                for (final File file : FileUtils.listFiles(this.serviceRegistryDirectory, new String[] {FILE_EXTENSION}, true)) {
+                    candidates.add(file.toPath());
+                }
+            }
+
+            final List<RegisteredService> modified = new ArrayList<>();
+            final Set<Long> removedIds = new HashSet<>();
+            for (final Path path : candidates) {
+                final ServiceFile previous = this.serviceFiles.get(path);
+                final ServiceFile current;
+                try {
+                    current = readServiceFile(path, previous, reported);
+                } catch (final Exception e) {
+                    LOGGER.error("Error reading configuration file {}", path, e);
+                    continue;
+                }
+
+                if (current == null) {
+                    this.serviceFiles.remove(path);
+                } else {
+                    this.serviceFiles.put(path, current);
+                    if (previous == null || current.service != previous.service) {
+                        LOGGER.debug("Reloaded service definition file [{}]", path);
+                        modified.add(current.service);
+                        this.serviceMap.put(current.service.getId(), current.service);
+                    }
+                }
+                if (previous != null && (current == null || current.service.getId() != previous.service.getId())) {
+                    removedIds.add(previous.service.getId());
+                }
+            }
+
+            if (!removedIds.isEmpty()) {
+                for (final ServiceFile file : this.serviceFiles.values()) {
+                    removedIds.remove(file.service.getId());
+                }
+                this.serviceMap.keySet().removeAll(removedIds);
+            }
+            return new RegisteredServiceChanges(modified, new HashSet<>(this.serviceMap.keySet()));
         }
-        return new ArrayList<RegisteredService>(this.serviceMap.values());
     }
 
     @Override
@@ -188,6 +362,31 @@ public class JsonServiceRegistryDao implements ServiceRegistryDao {
         return serviceMap.get(id);
     }
 
+    /**
+     * Sets the number of threads used to parse service definition files when all services are loaded.
+     * Defaults to the number of available processors.
+     *
+     * @param loadParallelism the number of threads
+     */
+    public final void setLoadParallelism(final int loadParallelism) {
+        this.loadParallelism = loadParallelism;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        synchronized (this.loadLock) {
+            if (this.loadExecutor != null) {
+                this.loadExecutor.shutdownNow();
+                this.loadExecutor = null;
+            }
+            if (this.watchService != null) {
+                this.watchService.close();
+                this.watchService = null;
+                this.watchedDirectories.clear();
+            }
+        }
+    }
+
     /**
      * Creates a JSON file for a registered service.
      * The file is named as <code>[SERVICE-NAME]-[SERVICE-ID]-.{@value #FILE_EXTENSION}</code>
@@ -207,4 +406,143 @@ public class JsonServiceRegistryDao implements ServiceRegistryDao {
             throw new IllegalArgumentException(e);
         }
     }
+
+    /**
+     * Reads a service definition file, unless it is unchanged since it was last read.
+     *
+     * @param path the service definition file
+     * @param previous the state the file was last read in, if any
+     * @param reported whether the file was reported as changed, in which case its content hash is
+     * checked even if its size and modification time are unchanged.
+     * @return the previous state if the file is unchanged, the new state if it changed,
+     * or null if the file no longer exists or is empty.
+     * @throws IOException if the file cannot be read
+     */
+    private ServiceFile readServiceFile(final Path path, final ServiceFile previous, final boolean reported)
+            throws IOException {
+        final long length;
+        final long lastModified;
+        final byte[] content;
+        try {
+            if (!Files.isRegularFile(path) || Files.size(path) == 0) {
+                return null;
+            }
+            length = Files.size(path);
+            lastModified = Files.getLastModifiedTime(path).toMillis();
+            if (!reported && previous != null && previous.length == length && previous.lastModified == lastModified) {
+                return previous;
+            }
+            content = Files.readAllBytes(path);
+        } catch (final NoSuchFileException e) {
+            return null;
+        }
+
+        final byte[] hash = DigestUtils.sha256(content);
+        if (previous != null && Arrays.equals(previous.hash, hash)) {
+            return new ServiceFile(lastModified, content.length, hash, previous.service);
+        }
+        final RegisteredService service = this.registeredServiceJsonSerializer.fromJson(new ByteArrayInputStream(content));
+        return new ServiceFile(lastModified, content.length, hash, service);
+    }
+
+    /**
+     * Starts watching the registry directory and its subdirectories, if not watched already,
+     * and discards pending events. Changes are then reported by {@link #pollChangedFiles()}.
+     */
+    private void watchDirectories() {
+        try {
+            if (this.watchService == null) {
+                this.watchService = FileSystems.getDefault().newWatchService();
+            }
+            Files.walkFileTree(this.serviceRegistryDirectory.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                    final WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                    watchedDirectories.put(key, dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+            WatchKey key = this.watchService.poll();
+            while (key != null) {
+                key.pollEvents();
+                key.reset();
+                key = this.watchService.poll();
+            }
+        } catch (final IOException e) {
+            LOGGER.warn("Unable to watch {} for changes; all files are checked on reload", this.serviceRegistryDirectory, e);
+            this.watchedDirectories.clear();
+            this.watchService = null;
+        }
+    }
+
+    /**
+     * Collects the service definition files changed since the directory was last polled.
+     *
+     * @return the changed files, or null if the directory is not watched or events were lost.
+     */
+    private Set<Path> pollChangedFiles() {
+        if (this.watchService == null) {
+            return null;
+        }
+
+        final Set<Path> changed = new HashSet<>();
+        boolean rescan = false;
+        WatchKey key = this.watchService.poll();
+        while (key != null) {
+            final Path dir = this.watchedDirectories.get(key);
+            for (final WatchEvent<?> event : key.pollEvents()) {
+                if (dir == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    rescan = true;
+                    continue;
+                }
+                final Path path = dir.resolve((Path) event.context());
+                if (Files.isDirectory(path)) {
+                    rescan = true;
+                } else if (path.getFileName().toString().endsWith('.' + FILE_EXTENSION)) {
+                    changed.add(path);
+                }
+            }
+            if (!key.reset()) {
+                this.watchedDirectories.remove(key);
+                rescan = true;
+            }
+            key = this.watchService.poll();
+        }
+
+        if (rescan) {
+            watchDirectories();
+            return null;
+        }
+        return changed;
+    }
+
+    /**
+     * State of a service definition file when it was last read.
+     */
+    private static final class ServiceFile {
+        private final long lastModified;
+
+        private final long length;
+
+        private final byte[] hash;
+
+        private final RegisteredService service;
+
+        /**
+         * Instantiates a new service file state.
+         *
+         * @param lastModified the modification time of the file
+         * @param length the size of the file
+         * @param hash the hash of the file content
+         * @param service the service defined in the file
+         */
+        ServiceFile(final long lastModified, final long length, final byte[] hash, final RegisteredService service) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.hash = hash;
+            this.service = service;
+        }
+    }
 }
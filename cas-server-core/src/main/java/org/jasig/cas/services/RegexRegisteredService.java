@@ -42,8 +42,14 @@ public class RegexRegisteredService extends AbstractRegisteredService {
 
     private transient Pattern servicePattern;
 
+    /**
+     * Sets the service id pattern, discarding the pattern compiled from the previous one.
+     *
+     * @param id the service id pattern
+     */
     public void setServiceId(final String id) {
         serviceId = id;
+        servicePattern = null;
     }
     
     @Override
@@ -0,0 +1,56 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.services;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Changes made to a service registry since it was last read, as reported by
+ * {@link IncrementalServiceRegistryDao#loadChanges()}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class RegisteredServiceChanges {
+
+    private final Collection<RegisteredService> modifiedServices;
+
+    private final Set<Long> serviceIds;
+
+    /**
+     * Instantiates a new set of changes.
+     *
+     * @param modifiedServices the services added or modified since the registry was last read
+     * @param serviceIds the ids of all services currently defined; services not listed were deleted
+     */
+    public RegisteredServiceChanges(final Collection<RegisteredService> modifiedServices, final Set<Long> serviceIds) {
+        this.modifiedServices = Collections.unmodifiableCollection(modifiedServices);
+        this.serviceIds = Collections.unmodifiableSet(serviceIds);
+    }
+
+    public Collection<RegisteredService> getModifiedServices() {
+        return this.modifiedServices;
+    }
+
+    public Set<Long> getServiceIds() {
+        return this.serviceIds;
+    }
+}
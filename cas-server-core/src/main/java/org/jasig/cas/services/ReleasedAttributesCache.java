@@ -0,0 +1,200 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.services;
+
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.jasig.cas.authentication.principal.Principal;
+
+import javax.validation.constraints.Min;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived cache of the attributes released by the attribute release policies of registered services,
+ * so that granting a service ticket, validating it, and repeated single sign-on to the same service
+ * release attributes once instead of fetching and filtering them every time.
+ *
+ * <p>The cache is opt-in; unless one is configured, attributes are released by the policy on every call.
+ * Results are keyed by the registered service id, the principal id and the version of the attribute release
+ * policy, which is the policy instance a service definition carries, so a reloaded service definition is
+ * never served a stale result. The principal attributes are not part of the key: attributes that changed
+ * in the principal or in the source the policy fetches them from may be released for up to the time to live
+ * after they changed. Released attributes are kept as immutable maps. The cache is bounded; when full,
+ * results are simply not cached.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class ReleasedAttributesCache {
+
+    /** Default time in seconds a result is kept. */
+    public static final int DEFAULT_TIME_TO_LIVE = 300;
+
+    /** Default maximum number of results kept. */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    private final ConcurrentMap<ReleaseKey, ReleasedAttributes> results = new ConcurrentHashMap<>();
+
+    @Min(0)
+    private long timeToLive = TimeUnit.SECONDS.toMillis(DEFAULT_TIME_TO_LIVE);
+
+    @Min(0)
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    /**
+     * Gets the attributes the registered service releases for the principal.
+     *
+     * @param registeredService the registered service
+     * @param principal the principal
+     * @return the immutable map of released attributes
+     */
+    public Map<String, Object> getAttributes(final RegisteredService registeredService, final Principal principal) {
+        final AttributeReleasePolicy policy = registeredService.getAttributeReleasePolicy();
+        if (policy == null) {
+            return Collections.emptyMap();
+        }
+        final long now = System.currentTimeMillis();
+        final ReleaseKey key = new ReleaseKey(registeredService.getId(), principal.getId(), policy);
+        final ReleasedAttributes cached = this.results.get(key);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.attributes;
+        }
+
+        final Map<String, Object> attributes = Collections.unmodifiableMap(
+                new LinkedHashMap<>(policy.getAttributes(principal)));
+        if (this.timeToLive > 0) {
+            if (this.results.size() >= this.maxSize) {
+                evictExpired(now);
+            }
+            if (this.results.size() < this.maxSize) {
+                this.results.put(key, new ReleasedAttributes(attributes, now + this.timeToLive));
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public void clear() {
+        this.results.clear();
+    }
+
+    /**
+     * Sets the time in seconds a result is kept. Defaults to {@value #DEFAULT_TIME_TO_LIVE}.
+     * Zero disables caching.
+     *
+     * @param seconds Time to live in seconds.
+     */
+    public void setTimeToLive(final long seconds) {
+        this.timeToLive = TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    /**
+     * Sets the maximum number of results kept. Defaults to {@value #DEFAULT_MAX_SIZE}.
+     *
+     * @param maxSize Maximum number of results.
+     */
+    public void setMaxSize(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Removes expired results.
+     *
+     * @param now Current time in milliseconds.
+     */
+    private void evictExpired(final long now) {
+        final Iterator<ReleasedAttributes> it = this.results.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAt <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Key of a release result.
+     */
+    private static final class ReleaseKey {
+        private final long registeredServiceId;
+
+        private final String principalId;
+
+        private final AttributeReleasePolicy policyVersion;
+
+        /**
+         * Instantiates a new release key.
+         *
+         * @param registeredServiceId the registered service id
+         * @param principalId the principal id
+         * @param policyVersion the attribute release policy instance, compared by identity
+         */
+        ReleaseKey(final long registeredServiceId, final String principalId, final AttributeReleasePolicy policyVersion) {
+            this.registeredServiceId = registeredServiceId;
+            this.principalId = principalId;
+            this.policyVersion = policyVersion;
+        }
+
+        @Override
+        public int hashCode() {
+            return new HashCodeBuilder(17, 31).append(this.registeredServiceId).append(this.principalId)
+                    .append(System.identityHashCode(this.policyVersion)).toHashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ReleaseKey)) {
+                return false;
+            }
+            final ReleaseKey that = (ReleaseKey) obj;
+            return this.registeredServiceId == that.registeredServiceId
+                    && this.policyVersion == that.policyVersion
+                    && this.principalId.equals(that.principalId);
+        }
+    }
+
+    /**
+     * Released attributes along with their expiration time.
+     */
+    private static final class ReleasedAttributes {
+        private final Map<String, Object> attributes;
+
+        private final long expiresAt;
+
+        /**
+         * Instantiates a new result.
+         *
+         * @param attributes the released attributes
+         * @param expiresAt Time in milliseconds after which the result is no longer served.
+         */
+        ReleasedAttributes(final Map<String, Object> attributes, final long expiresAt) {
+            this.attributes = attributes;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.ticket;
+
+/**
+ * Expiration policy that also determines the time at which a ticket expires, provided it is not used again.
+ * This allows registries and caches to schedule the removal of a ticket rather than polling it.
+ * Callers holding an arbitrary {@link ExpirationPolicy} should check for this interface, since not every
+ * policy implements it.
+ *
+ * @author Apereo CAS Team
+ * @see ExpirationPolicy
+ * @since 4.1.0
+ */
+public interface TimedExpirationPolicy extends ExpirationPolicy {
+
+    /** Expiration time of tickets that do not expire with time. */
+    long NEVER = Long.MAX_VALUE;
+
+    /**
+     * Determines the time at which a ticket expires according to the policy, provided it is not used again.
+     *
+     * @param ticketState The snapshot of the current ticket state
+     * @return the expiration time in milliseconds since the epoch; {@link #NEVER} if the ticket does not
+     * expire with time, or a time in the past if the ticket already expired for reasons other than time.
+     */
+    long getExpirationTime(TicketState ticketState);
+}
@@ -18,7 +18,8 @@
  */
 package org.jasig.cas.ticket.registry;
 
-import org.jasig.cas.monitor.TicketRegistryState;
+import org.jasig.cas.monitor.TicketCounts;
+import org.jasig.cas.monitor.TicketCountsState;
 import org.jasig.cas.ticket.Ticket;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,7 +32,7 @@ import org.springframework.util.Assert;
  * This is a published and supported CAS Server 3 API.
  * </p>
  */
-public abstract class AbstractTicketRegistry implements TicketRegistry, TicketRegistryState {
+public abstract class AbstractTicketRegistry implements TicketRegistry, TicketCountsState {
 
     /** The Commons Logging logger instance. */
     protected final Logger logger = LoggerFactory.getLogger(getClass());
@@ -75,4 +76,14 @@ public abstract class AbstractTicketRegistry implements TicketRegistry, TicketRe
                 this.getClass().getName(), Integer.MIN_VALUE);
       return Integer.MIN_VALUE;
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>Reports the session and service ticket counts of this registry; other counts are unknown.</p>
+     */
+    @Override
+    public TicketCounts ticketCounts() {
+        return new TicketCounts(sessionCount(), TicketCounts.UNKNOWN, serviceTicketCount(), TicketCounts.UNKNOWN,
+                TicketCounts.UNKNOWN);
+    }
 }
@@ -18,27 +18,59 @@
  */
 package org.jasig.cas.ticket.registry;
 
+import org.jasig.cas.monitor.TicketCounts;
 import org.jasig.cas.ticket.ServiceTicket;
 import org.jasig.cas.ticket.Ticket;
 import org.jasig.cas.ticket.TicketGrantingTicket;
 import org.springframework.util.Assert;
 
+import javax.validation.constraints.Min;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementation of the TicketRegistry that is backed by a ConcurrentHashMap.
  *
+ * <p>The number of tickets of each kind is maintained as tickets are added and deleted, so that
+ * {@link #sessionCount()}, {@link #serviceTicketCount()} and {@link #ticketCounts()} do not iterate
+ * over the registry. Whether a ticket expired depends on its expiration policy and the current time, so
+ * expired tickets are counted by examining the registry at most once per
+ * {@link #setExpiredTicketCountInterval(long) expiredTicketCountInterval}.</p>
+ *
  * @author Scott Battaglia
  * @since 3.0.0
  */
 public final class DefaultTicketRegistry extends AbstractTicketRegistry  {
 
+    /** Default interval in milliseconds at which expired tickets are counted. */
+    public static final long DEFAULT_EXPIRED_TICKET_COUNT_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
     /** A HashMap to contain the tickets. */
     private final Map<String, Ticket> cache;
 
+    private final AtomicInteger ticketGrantingTicketCount = new AtomicInteger();
+
+    private final AtomicInteger proxyGrantingTicketCount = new AtomicInteger();
+
+    private final AtomicInteger serviceTicketCount = new AtomicInteger();
+
+    private final AtomicInteger proxyTicketCount = new AtomicInteger();
+
+    private final AtomicBoolean countingExpiredTickets = new AtomicBoolean();
+
+    /** Minimum time in milliseconds between two counts of the expired tickets. */
+    @Min(0)
+    private long expiredTicketCountInterval = DEFAULT_EXPIRED_TICKET_COUNT_INTERVAL;
+
+    private volatile int expiredTicketCount = TicketCounts.UNKNOWN;
+
+    private volatile long expiredTicketsCountedAt;
+
     /**
      * Instantiates a new default ticket registry.
      */
@@ -72,7 +104,11 @@ public final class DefaultTicketRegistry extends AbstractTicketRegistry  {
         Assert.notNull(ticket, "ticket cannot be null");
 
         logger.debug("Added ticket [{}] to registry.", ticket.getId());
-        this.cache.put(ticket.getId(), ticket);
+        final Ticket previous = this.cache.put(ticket.getId(), ticket);
+        if (previous != null) {
+            count(previous, -1);
+        }
+        count(ticket, 1);
     }
 
     @Override
@@ -97,7 +133,12 @@ public final class DefaultTicketRegistry extends AbstractTicketRegistry  {
             return false;
         }
         logger.debug("Removing ticket [{}] from registry", ticketId);
-        return (this.cache.remove(ticketId) != null);
+        final Ticket removed = this.cache.remove(ticketId);
+        if (removed == null) {
+            return false;
+        }
+        count(removed, -1);
+        return true;
     }
 
     public Collection<Ticket> getTickets() {
@@ -106,23 +147,74 @@ public final class DefaultTicketRegistry extends AbstractTicketRegistry  {
 
     @Override
     public int sessionCount() {
-        int count = 0;
-        for (Ticket t : this.cache.values()) {
-            if (t instanceof TicketGrantingTicket) {
-                count++;
-            }
-        }
-        return count;
+        return this.ticketGrantingTicketCount.get();
     }
 
     @Override
     public int serviceTicketCount() {
-        int count = 0;
-        for (Ticket t : this.cache.values()) {
-            if (t instanceof ServiceTicket) {
-                count++;
+        return this.serviceTicketCount.get();
+    }
+
+    @Override
+    public TicketCounts ticketCounts() {
+        return new TicketCounts(this.ticketGrantingTicketCount.get(), this.proxyGrantingTicketCount.get(),
+                this.serviceTicketCount.get(), this.proxyTicketCount.get(), expiredTicketCount());
+    }
+
+    /**
+     * Sets the minimum time between two counts of the expired tickets, each of which examines every ticket.
+     * Defaults to {@value #DEFAULT_EXPIRED_TICKET_COUNT_INTERVAL}.
+     *
+     * @param expiredTicketCountInterval the interval in milliseconds
+     */
+    public void setExpiredTicketCountInterval(final long expiredTicketCountInterval) {
+        this.expiredTicketCountInterval = expiredTicketCountInterval;
+    }
+
+    /**
+     * Gets the number of expired tickets, as counted at most {@link #expiredTicketCountInterval} ago.
+     * While one caller counts, others get the previous count.
+     *
+     * @return the number of expired tickets, or {@link TicketCounts#UNKNOWN} until first counted
+     */
+    private int expiredTicketCount() {
+        final long now = System.currentTimeMillis();
+        if (now - this.expiredTicketsCountedAt >= this.expiredTicketCountInterval
+                && this.countingExpiredTickets.compareAndSet(false, true)) {
+            try {
+                int count = 0;
+                for (final Ticket ticket : this.cache.values()) {
+                    if (ticket.isExpired()) {
+                        count++;
+                    }
+                }
+                this.expiredTicketCount = count;
+                this.expiredTicketsCountedAt = now;
+            } finally {
+                this.countingExpiredTickets.set(false);
+            }
+        }
+        return this.expiredTicketCount;
+    }
+
+    /**
+     * Updates the number of tickets of the kind of the given ticket.
+     *
+     * @param ticket the ticket added or removed
+     * @param delta 1 if the ticket was added, -1 if it was removed
+     */
+    private void count(final Ticket ticket, final int delta) {
+        if (ticket instanceof TicketGrantingTicket) {
+            this.ticketGrantingTicketCount.addAndGet(delta);
+            if (ticket.getGrantingTicket() != null) {
+                this.proxyGrantingTicketCount.addAndGet(delta);
+            }
+        } else if (ticket instanceof ServiceTicket) {
+            this.serviceTicketCount.addAndGet(delta);
+            final TicketGrantingTicket grantingTicket = ticket.getGrantingTicket();
+            if (grantingTicket != null && grantingTicket.getGrantingTicket() != null) {
+                this.proxyTicketCount.addAndGet(delta);
             }
         }
-        return count;
     }
 }
@@ -0,0 +1,243 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.ticket.registry;
+
+import org.jasig.cas.monitor.TicketCounts;
+import org.jasig.cas.monitor.TicketRegistryState;
+import org.jasig.cas.ticket.Ticket;
+import org.springframework.util.Assert;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ticket registry decorator for clustered deployments that keeps the tickets issued by this node
+ * in memory, along with the tickets they reference.
+ *
+ * <p>Tickets are attributed to nodes by the suffix of their ids, see {@link TicketNodeResolver}.
+ * Every ticket is written through to the shared registry, as are updates to locally issued tickets,
+ * so that other nodes may still serve them should this node fail. Tickets issued by this node are served
+ * from memory without consulting the shared registry; tickets issued by other nodes, and local tickets
+ * no longer held in memory, e.g. after a restart, are looked up in the shared registry.</p>
+ *
+ * <p>Requests carrying a ticket id must therefore be routed to the node that issued the ticket, see
+ * {@link TicketNodeResolver}, so that tickets are consumed, updated and deleted on that node only,
+ * which keeps its copies current. A ticket deleted or updated through this registry is removed or
+ * updated in memory as well.</p>
+ *
+ * <p>The number of tickets held in memory is bounded; when full, the tickets held longest are evicted
+ * and remain available from the shared registry.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class NodeAffinityTicketRegistry extends AbstractDistributedTicketRegistry {
+
+    /** Default maximum number of tickets held in memory. */
+    public static final int DEFAULT_MAX_SIZE = 100000;
+
+    private final ConcurrentMap<String, Ticket> localTickets = new ConcurrentHashMap<>();
+
+    /** Ids of the tickets held in memory, in the order they were added. */
+    private final Queue<String> localTicketIds = new ConcurrentLinkedQueue<>();
+
+    /** Number of queued ticket ids, which may include ids of tickets since deleted. */
+    private final AtomicInteger localTicketIdCount = new AtomicInteger();
+
+    @NotNull
+    private final TicketRegistry sharedRegistry;
+
+    @NotNull
+    private final String node;
+
+    @NotNull
+    private TicketNodeResolver nodeResolver = new TicketNodeResolver();
+
+    @Min(0)
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    /**
+     * Instantiates a new node affinity ticket registry.
+     *
+     * @param sharedRegistry the registry shared by all nodes
+     * @param node the ticket id suffix of this node
+     */
+    public NodeAffinityTicketRegistry(final TicketRegistry sharedRegistry, final String node) {
+        Assert.notNull(sharedRegistry, "sharedRegistry cannot be null");
+        Assert.hasText(node, "node cannot be blank");
+        this.sharedRegistry = sharedRegistry;
+        this.node = node;
+    }
+
+    @Override
+    public void addTicket(final Ticket ticket) {
+        Assert.notNull(ticket, "ticket cannot be null");
+        this.sharedRegistry.addTicket(ticket);
+        if (isLocal(ticket.getId())) {
+            keepLocal(ticket);
+        }
+    }
+
+    @Override
+    public Ticket getTicket(final String ticketId) {
+        if (ticketId == null) {
+            return null;
+        }
+        final Ticket localTicket = isLocal(ticketId) ? this.localTickets.get(ticketId) : null;
+        if (localTicket == null) {
+            return this.sharedRegistry.getTicket(ticketId);
+        }
+        logger.debug("Ticket [{}] found in local memory.", ticketId);
+        return getProxiedTicketInstance(localTicket);
+    }
+
+    @Override
+    public boolean deleteTicket(final String ticketId) {
+        if (ticketId == null) {
+            return false;
+        }
+        final boolean removedLocally = this.localTickets.remove(ticketId) != null;
+        return this.sharedRegistry.deleteTicket(ticketId) || removedLocally;
+    }
+
+    @Override
+    public Collection<Ticket> getTickets() {
+        return this.sharedRegistry.getTickets();
+    }
+
+    @Override
+    public int sessionCount() {
+        if (this.sharedRegistry instanceof TicketRegistryState) {
+            return ((TicketRegistryState) this.sharedRegistry).sessionCount();
+        }
+        return super.sessionCount();
+    }
+
+    @Override
+    public int serviceTicketCount() {
+        if (this.sharedRegistry instanceof TicketRegistryState) {
+            return ((TicketRegistryState) this.sharedRegistry).serviceTicketCount();
+        }
+        return super.serviceTicketCount();
+    }
+
+    @Override
+    public TicketCounts ticketCounts() {
+        if (this.sharedRegistry instanceof TicketRegistryState) {
+            return TicketCounts.of((TicketRegistryState) this.sharedRegistry);
+        }
+        return super.ticketCounts();
+    }
+
+    /**
+     * Writes updates of locally held tickets through to the shared registry.
+     *
+     * @param ticket the updated ticket
+     */
+    @Override
+    protected void updateTicket(final Ticket ticket) {
+        if (isLocal(ticket.getId())) {
+            this.localTickets.replace(ticket.getId(), ticket);
+        }
+        if (this.sharedRegistry instanceof AbstractDistributedTicketRegistry) {
+            ((AbstractDistributedTicketRegistry) this.sharedRegistry).updateTicket(ticket);
+        } else {
+            this.sharedRegistry.addTicket(ticket);
+        }
+    }
+
+    /**
+     * Locally held tickets reference their granting tickets directly, so no callback is needed.
+     *
+     * @return false
+     */
+    @Override
+    protected boolean needsCallback() {
+        return false;
+    }
+
+    /**
+     * Gets the ticket id suffix of this node.
+     *
+     * @return the node suffix
+     */
+    public String getNode() {
+        return this.node;
+    }
+
+    /**
+     * Sets the resolver used to attribute ticket ids to nodes.
+     *
+     * @param nodeResolver the node resolver
+     */
+    public void setNodeResolver(final TicketNodeResolver nodeResolver) {
+        this.nodeResolver = nodeResolver;
+    }
+
+    /**
+     * Sets the maximum number of tickets held in memory. Defaults to {@value #DEFAULT_MAX_SIZE}.
+     *
+     * @param maxSize the maximum number of tickets
+     */
+    public void setMaxSize(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Determines whether the ticket was issued by this node.
+     *
+     * @param ticketId the ticket id
+     * @return true if the ticket id carries the suffix of this node
+     */
+    private boolean isLocal(final String ticketId) {
+        return this.nodeResolver.isIssuedBy(ticketId, this.node);
+    }
+
+    /**
+     * Holds the ticket in memory, evicting the tickets held longest once the local map is full.
+     *
+     * @param ticket the ticket
+     */
+    private void keepLocal(final Ticket ticket) {
+        if (this.maxSize == 0) {
+            return;
+        }
+        if (this.localTickets.put(ticket.getId(), ticket) != null) {
+            return;
+        }
+        this.localTicketIds.offer(ticket.getId());
+        int count = this.localTicketIdCount.incrementAndGet();
+        while (count > this.maxSize) {
+            final String evictedId = this.localTicketIds.poll();
+            if (evictedId == null) {
+                break;
+            }
+            count = this.localTicketIdCount.decrementAndGet();
+            if (this.localTickets.remove(evictedId) != null) {
+                logger.debug("Local memory is full; ticket [{}] is kept in the shared registry only.", evictedId);
+            }
+        }
+    }
+}
@@ -0,0 +1,673 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.ticket.registry;
+
+import org.apache.commons.lang3.SerializationException;
+import org.apache.commons.lang3.SerializationUtils;
+import org.jasig.cas.monitor.TicketCounts;
+import org.jasig.cas.ticket.ServiceTicket;
+import org.jasig.cas.ticket.Ticket;
+import org.jasig.cas.ticket.TicketGrantingTicket;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ticket registry that keeps serialized tickets outside of the Java heap, in direct byte buffers.
+ *
+ * <p>Holding millions of tickets in {@link DefaultTicketRegistry} keeps their object graphs, i.e. authentications,
+ * attributes and services, on the heap for as long as the tickets live, which makes for long old generation
+ * garbage collections. This registry only keeps an index of the ticket ids on the heap; each ticket is serialized
+ * into a block of a direct buffer slab when added or updated, and deserialized when retrieved.</p>
+ *
+ * <p>Slabs of {@link #DEFAULT_SLAB_SIZE} bytes are allocated as needed, up to the configured capacity. Each slab is
+ * carved into blocks of a single power of two size; blocks of deleted tickets are reused for tickets of the same
+ * size class. Adding a ticket fails with an {@link IllegalStateException} once the capacity is exhausted, so the
+ * capacity must account for the number of tickets that may be alive at once and the registry cleaner must be
+ * enabled.</p>
+ *
+ * <p>As tickets are copies of the stored ones, changes to them are written back through the ticket delegators of
+ * {@link AbstractDistributedTicketRegistry}.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class OffHeapTicketRegistry extends AbstractDistributedTicketRegistry implements DisposableBean {
+
+    /** Default size in bytes of the buffers tickets are stored into. */
+    public static final int DEFAULT_SLAB_SIZE = 16 * 1024 * 1024;
+
+    /** Default maximum number of bytes used to store tickets. */
+    public static final long DEFAULT_CAPACITY = 512L * 1024 * 1024;
+
+    /** Smallest block a ticket is stored into. */
+    private static final int MIN_BLOCK_SIZE = 256;
+
+    /** Number of bytes preceding each serialized ticket to record its length. */
+    private static final int LENGTH_SIZE = 4;
+
+    private static final byte TICKET_GRANTING_TICKET = 1;
+
+    private static final byte PROXY_GRANTING_TICKET = 2;
+
+    private static final byte SERVICE_TICKET = 3;
+
+    private static final byte PROXY_TICKET = 4;
+
+    private static final int NUMBER_OF_KINDS = 5;
+
+    private final Lock readLock;
+
+    private final Lock writeLock;
+
+    private final TicketIndex index = new TicketIndex();
+
+    private final Slabs slabs;
+
+    /** Number of tickets of each kind, guarded by the lock. */
+    private final int[] counts = new int[NUMBER_OF_KINDS];
+
+    /**
+     * Instantiates a new off-heap ticket registry with the default slab size and capacity.
+     */
+    public OffHeapTicketRegistry() {
+        this(DEFAULT_SLAB_SIZE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instantiates a new off-heap ticket registry.
+     *
+     * @param slabSize the size in bytes of each buffer, a power of two that bounds the size of a serialized ticket
+     * @param capacity the maximum number of bytes used to store tickets
+     */
+    public OffHeapTicketRegistry(final int slabSize, final long capacity) {
+        Assert.isTrue(slabSize >= MIN_BLOCK_SIZE && Integer.bitCount(slabSize) == 1,
+                "slabSize must be a power of two of at least " + MIN_BLOCK_SIZE);
+        Assert.isTrue(capacity >= slabSize, "capacity must be at least slabSize");
+        this.slabs = new Slabs(slabSize, (int) Math.min(Integer.MAX_VALUE, capacity / slabSize));
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+    }
+
+    @Override
+    public void addTicket(final Ticket ticket) {
+        Assert.notNull(ticket, "ticket cannot be null");
+        final byte[] data = SerializationUtils.serialize(ticket);
+        final byte kind = kindOf(ticket);
+
+        this.writeLock.lock();
+        try {
+            final int slot = this.index.slotOf(ticket.getId());
+            final long address = this.slabs.allocate(data.length);
+            this.slabs.write(address, data);
+            if (slot >= 0) {
+                this.slabs.free(this.index.addressAt(slot));
+                this.counts[this.index.kindAt(slot)]--;
+                this.index.set(slot, address, kind);
+            } else {
+                this.index.insert(ticket.getId(), address, kind);
+            }
+            this.counts[kind]++;
+        } finally {
+            this.writeLock.unlock();
+        }
+        logger.debug("Added ticket [{}] to registry in {} bytes.", ticket.getId(), data.length);
+    }
+
+    @Override
+    protected void updateTicket(final Ticket ticket) {
+        addTicket(ticket);
+    }
+
+    @Override
+    protected boolean needsCallback() {
+        return true;
+    }
+
+    @Override
+    public Ticket getTicket(final String ticketId) {
+        if (ticketId == null) {
+            return null;
+        }
+
+        final byte[] data;
+        this.readLock.lock();
+        try {
+            final int slot = this.index.slotOf(ticketId);
+            if (slot < 0) {
+                return null;
+            }
+            data = this.slabs.read(this.index.addressAt(slot));
+        } finally {
+            this.readLock.unlock();
+        }
+        return getProxiedTicketInstance(deserialize(ticketId, data));
+    }
+
+    @Override
+    public boolean deleteTicket(final String ticketId) {
+        if (ticketId == null) {
+            return false;
+        }
+
+        this.writeLock.lock();
+        try {
+            final int slot = this.index.slotOf(ticketId);
+            if (slot < 0) {
+                return false;
+            }
+            this.slabs.free(this.index.addressAt(slot));
+            this.counts[this.index.kindAt(slot)]--;
+            this.index.removeAt(slot);
+        } finally {
+            this.writeLock.unlock();
+        }
+        logger.debug("Removed ticket [{}] from registry.", ticketId);
+        return true;
+    }
+
+    @Override
+    public Collection<Ticket> getTickets() {
+        final List<String> ids;
+        final List<byte[]> data;
+        this.readLock.lock();
+        try {
+            ids = new ArrayList<>(this.index.size());
+            data = new ArrayList<>(this.index.size());
+            for (int slot = 0; slot < this.index.capacity(); slot++) {
+                if (this.index.kindAt(slot) > 0) {
+                    ids.add(this.index.keyAt(slot));
+                    data.add(this.slabs.read(this.index.addressAt(slot)));
+                }
+            }
+        } finally {
+            this.readLock.unlock();
+        }
+
+        final List<Ticket> tickets = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            final Ticket ticket = deserialize(ids.get(i), data.get(i));
+            if (ticket != null) {
+                tickets.add(getProxiedTicketInstance(ticket));
+            }
+        }
+        return tickets;
+    }
+
+    @Override
+    public int sessionCount() {
+        return count(TICKET_GRANTING_TICKET) + count(PROXY_GRANTING_TICKET);
+    }
+
+    @Override
+    public int serviceTicketCount() {
+        return count(SERVICE_TICKET) + count(PROXY_TICKET);
+    }
+
+    @Override
+    public TicketCounts ticketCounts() {
+        this.readLock.lock();
+        try {
+            return new TicketCounts(this.counts[TICKET_GRANTING_TICKET] + this.counts[PROXY_GRANTING_TICKET],
+                    this.counts[PROXY_GRANTING_TICKET], this.counts[SERVICE_TICKET] + this.counts[PROXY_TICKET],
+                    this.counts[PROXY_TICKET], TicketCounts.UNKNOWN);
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of bytes of the slabs allocated so far.
+     *
+     * @return the number of bytes allocated outside of the heap
+     */
+    public long getAllocatedBytes() {
+        this.readLock.lock();
+        try {
+            return this.slabs.allocatedBytes();
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    /**
+     * Releases the slabs. The registry must not be used afterwards.
+     */
+    @Override
+    public void destroy() {
+        this.writeLock.lock();
+        try {
+            this.index.clear();
+            this.slabs.clear();
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of tickets of a kind.
+     *
+     * @param kind the kind of tickets
+     * @return the number of tickets
+     */
+    private int count(final byte kind) {
+        this.readLock.lock();
+        try {
+            return this.counts[kind];
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    /**
+     * Deserializes a stored ticket.
+     *
+     * @param ticketId the ticket id
+     * @param data the serialized ticket
+     * @return the ticket, or null if it cannot be deserialized
+     */
+    private Ticket deserialize(final String ticketId, final byte[] data) {
+        try {
+            return SerializationUtils.deserialize(data);
+        } catch (final SerializationException e) {
+            logger.error("Failed deserializing ticket {}", ticketId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Determines the kind of a ticket.
+     *
+     * @param ticket the ticket
+     * @return the kind of the ticket
+     */
+    private static byte kindOf(final Ticket ticket) {
+        if (ticket instanceof TicketGrantingTicket) {
+            return ticket.getGrantingTicket() == null ? TICKET_GRANTING_TICKET : PROXY_GRANTING_TICKET;
+        }
+        if (ticket instanceof ServiceTicket) {
+            final TicketGrantingTicket grantingTicket = ticket.getGrantingTicket();
+            return grantingTicket != null && grantingTicket.getGrantingTicket() != null ? PROXY_TICKET : SERVICE_TICKET;
+        }
+        throw new IllegalArgumentException("Invalid ticket type " + ticket);
+    }
+
+    /**
+     * Open addressing hash table from ticket ids to the addresses of the stored tickets, using linear probing.
+     * Not thread-safe.
+     */
+    private static final class TicketIndex {
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private static final byte EMPTY = 0;
+
+        private static final byte DELETED = -1;
+
+        /** Inverse of the load factor the table is rebuilt with. */
+        private static final int REHASH_FACTOR = 4;
+
+        private String[] keys;
+
+        private long[] addresses;
+
+        /** Kind of the ticket in each slot, or EMPTY or DELETED. */
+        private byte[] kinds;
+
+        private int size;
+
+        private int deleted;
+
+        /**
+         * Instantiates a new empty index.
+         */
+        TicketIndex() {
+            clear();
+        }
+
+        /**
+         * Finds the slot of a ticket.
+         *
+         * @param id the ticket id
+         * @return the slot, or a negative value if the ticket is not indexed
+         */
+        int slotOf(final String id) {
+            final int mask = this.keys.length - 1;
+            for (int slot = hash(id) & mask;; slot = (slot + 1) & mask) {
+                if (this.kinds[slot] == EMPTY) {
+                    return -1;
+                }
+                if (this.kinds[slot] != DELETED && id.equals(this.keys[slot])) {
+                    return slot;
+                }
+            }
+        }
+
+        /**
+         * Indexes a ticket that is not indexed yet.
+         *
+         * @param id the ticket id
+         * @param address the address of the stored ticket
+         * @param kind the kind of the ticket
+         */
+        void insert(final String id, final long address, final byte kind) {
+            if ((this.size + this.deleted + 1) * 2 > this.keys.length) {
+                rehash();
+            }
+            final int mask = this.keys.length - 1;
+            int slot = hash(id) & mask;
+            while (this.kinds[slot] > 0) {
+                slot = (slot + 1) & mask;
+            }
+            if (this.kinds[slot] == DELETED) {
+                this.deleted--;
+            }
+            this.keys[slot] = id;
+            set(slot, address, kind);
+            this.size++;
+        }
+
+        /**
+         * Replaces the ticket indexed in a slot.
+         *
+         * @param slot the slot
+         * @param address the address of the stored ticket
+         * @param kind the kind of the ticket
+         */
+        void set(final int slot, final long address, final byte kind) {
+            this.addresses[slot] = address;
+            this.kinds[slot] = kind;
+        }
+
+        /**
+         * Removes the ticket indexed in a slot.
+         *
+         * @param slot the slot
+         */
+        void removeAt(final int slot) {
+            this.keys[slot] = null;
+            this.kinds[slot] = DELETED;
+            this.size--;
+            this.deleted++;
+        }
+
+        /**
+         * Gets the id of the ticket indexed in a slot.
+         *
+         * @param slot the slot
+         * @return the ticket id
+         */
+        String keyAt(final int slot) {
+            return this.keys[slot];
+        }
+
+        /**
+         * Gets the address of the ticket indexed in a slot.
+         *
+         * @param slot the slot
+         * @return the address of the stored ticket
+         */
+        long addressAt(final int slot) {
+            return this.addresses[slot];
+        }
+
+        /**
+         * Gets the kind of the ticket indexed in a slot.
+         *
+         * @param slot the slot
+         * @return the kind of the ticket, or a non-positive value if no ticket is indexed in the slot
+         */
+        byte kindAt(final int slot) {
+            return this.kinds[slot];
+        }
+
+        /**
+         * Gets the number of indexed tickets.
+         *
+         * @return the number of tickets
+         */
+        int size() {
+            return this.size;
+        }
+
+        /**
+         * Gets the number of slots.
+         *
+         * @return the number of slots
+         */
+        int capacity() {
+            return this.keys.length;
+        }
+
+        /**
+         * Removes all tickets.
+         */
+        void clear() {
+            this.keys = new String[INITIAL_CAPACITY];
+            this.addresses = new long[INITIAL_CAPACITY];
+            this.kinds = new byte[INITIAL_CAPACITY];
+            this.size = 0;
+            this.deleted = 0;
+        }
+
+        /**
+         * Rebuilds the table without deleted slots, growing it so that it is at most a quarter full.
+         */
+        private void rehash() {
+            final String[] oldKeys = this.keys;
+            final long[] oldAddresses = this.addresses;
+            final byte[] oldKinds = this.kinds;
+
+            int capacity = INITIAL_CAPACITY;
+            while (capacity < (this.size + 1) * REHASH_FACTOR) {
+                capacity <<= 1;
+            }
+            this.keys = new String[capacity];
+            this.addresses = new long[capacity];
+            this.kinds = new byte[capacity];
+            this.size = 0;
+            this.deleted = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKinds[slot] > 0) {
+                    insert(oldKeys[slot], oldAddresses[slot], oldKinds[slot]);
+                }
+            }
+        }
+
+        /**
+         * Spreads the hash code of a ticket id.
+         *
+         * @param id the ticket id
+         * @return the hash
+         */
+        private static int hash(final String id) {
+            final int h = id.hashCode();
+            return h ^ (h >>> (Integer.SIZE / 2));
+        }
+    }
+
+    /**
+     * Direct buffers carved into blocks of power of two sizes, each slab holding blocks of a single size.
+     * Addresses encode the slab in their upper and the offset in their lower 32 bits. Not thread-safe, except
+     * for concurrent reads.
+     */
+    private static final class Slabs {
+        private final int slabSize;
+
+        private final int maxSlabs;
+
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+
+        /** Size class of the blocks of each slab. */
+        private final List<Integer> slabSizeClasses = new ArrayList<>();
+
+        /** Free blocks of each size class. */
+        private final List<ArrayDeque<Long>> freeBlocks = new ArrayList<>();
+
+        /** Address of the next never used block of each size class, or -1 if its last slab is full. */
+        private final long[] nextBlocks;
+
+        /**
+         * Instantiates new slabs.
+         *
+         * @param slabSize the size of each slab in bytes
+         * @param maxSlabs the maximum number of slabs
+         */
+        Slabs(final int slabSize, final int maxSlabs) {
+            this.slabSize = slabSize;
+            this.maxSlabs = maxSlabs;
+            final int sizeClasses = sizeClass(slabSize) + 1;
+            this.nextBlocks = new long[sizeClasses];
+            for (int i = 0; i < sizeClasses; i++) {
+                this.freeBlocks.add(new ArrayDeque<Long>());
+            }
+            clear();
+        }
+
+        /**
+         * Allocates a block large enough for data of the given length.
+         *
+         * @param length the length of the data
+         * @return the address of the block
+         */
+        long allocate(final int length) {
+            Assert.isTrue(length <= this.slabSize - LENGTH_SIZE,
+                    "Serialized ticket of " + length + " bytes exceeds the slab size of " + this.slabSize);
+            final int sizeClass = sizeClass(length + LENGTH_SIZE);
+            final Long free = this.freeBlocks.get(sizeClass).poll();
+            if (free != null) {
+                return free;
+            }
+
+            final int blockSize = MIN_BLOCK_SIZE << sizeClass;
+            if (this.nextBlocks[sizeClass] < 0) {
+                if (this.buffers.size() >= this.maxSlabs) {
+                    throw new IllegalStateException("Off-heap ticket registry is full, with "
+                            + this.buffers.size() + " slabs of " + this.slabSize + " bytes in use");
+                }
+                this.buffers.add(ByteBuffer.allocateDirect(this.slabSize));
+                this.slabSizeClasses.add(sizeClass);
+                this.nextBlocks[sizeClass] = (long) (this.buffers.size() - 1) << Integer.SIZE;
+            }
+            final long address = this.nextBlocks[sizeClass];
+            final int nextOffset = offset(address) + blockSize;
+            this.nextBlocks[sizeClass] = nextOffset + blockSize <= this.slabSize ? address + blockSize : -1;
+            return address;
+        }
+
+        /**
+         * Makes a block available for reuse.
+         *
+         * @param address the address of the block
+         */
+        void free(final long address) {
+            this.freeBlocks.get(this.slabSizeClasses.get(slab(address))).push(address);
+        }
+
+        /**
+         * Writes data into a block.
+         *
+         * @param address the address of the block
+         * @param data the data
+         */
+        void write(final long address, final byte[] data) {
+            final ByteBuffer buffer = this.buffers.get(slab(address)).duplicate();
+            buffer.position(offset(address));
+            buffer.putInt(data.length);
+            buffer.put(data);
+        }
+
+        /**
+         * Reads the data of a block.
+         *
+         * @param address the address of the block
+         * @return the data
+         */
+        byte[] read(final long address) {
+            final ByteBuffer buffer = this.buffers.get(slab(address)).duplicate();
+            buffer.position(offset(address));
+            final byte[] data = new byte[buffer.getInt()];
+            buffer.get(data);
+            return data;
+        }
+
+        /**
+         * Gets the number of bytes of the slabs allocated so far.
+         *
+         * @return the number of bytes
+         */
+        long allocatedBytes() {
+            return (long) this.buffers.size() * this.slabSize;
+        }
+
+        /**
+         * Releases all slabs.
+         */
+        void clear() {
+            this.buffers.clear();
+            this.slabSizeClasses.clear();
+            for (int i = 0; i < this.nextBlocks.length; i++) {
+                this.nextBlocks[i] = -1;
+                this.freeBlocks.get(i).clear();
+            }
+        }
+
+        /**
+         * Determines the size class of the smallest block that holds the given number of bytes.
+         *
+         * @param bytes the number of bytes
+         * @return the size class, the block size being {@link #MIN_BLOCK_SIZE} shifted left by it
+         */
+        private static int sizeClass(final int bytes) {
+            int sizeClass = 0;
+            while (MIN_BLOCK_SIZE << sizeClass < bytes) {
+                sizeClass++;
+            }
+            return sizeClass;
+        }
+
+        /**
+         * Gets the slab of an address.
+         *
+         * @param address the address
+         * @return the index of the slab
+         */
+        private static int slab(final long address) {
+            return (int) (address >>> Integer.SIZE);
+        }
+
+        /**
+         * Gets the offset within its slab of an address.
+         *
+         * @param address the address
+         * @return the offset
+         */
+        private static int offset(final long address) {
+            return (int) address;
+        }
+    }
+}
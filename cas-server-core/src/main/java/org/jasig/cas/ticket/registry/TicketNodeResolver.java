@@ -0,0 +1,75 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.ticket.registry;
+
+/**
+ * Resolves the node that issued a ticket from the suffix of its id.
+ *
+ * <p>Ticket ids are of the form <code>PREFIX-SEQUENCE-RANDOM-SUFFIX</code>, where the optional suffix
+ * names the node that generated the id, e.g. when using the
+ * {@link org.jasig.cas.util.HostNameBasedUniqueTicketIdGenerator}. The suffix therefore serves as a
+ * routing key: a load balancer or servlet filter may resolve it from the ticket id carried by a
+ * request and route the request to the node that holds the ticket in memory.</p>
+ *
+ * <p>Instances are stateless and thread-safe.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class TicketNodeResolver {
+
+    /** Number of separators preceding the node suffix in a ticket id. */
+    private static final int SUFFIX_SEPARATOR_COUNT = 3;
+
+    private static final char SEPARATOR = '-';
+
+    /**
+     * Resolves the node that issued the ticket.
+     *
+     * @param ticketId the ticket id
+     * @return the node suffix of the ticket id, or null if the id carries none.
+     */
+    public String resolveNode(final String ticketId) {
+        if (ticketId == null) {
+            return null;
+        }
+        int index = -1;
+        for (int i = 0; i < SUFFIX_SEPARATOR_COUNT; i++) {
+            index = ticketId.indexOf(SEPARATOR, index + 1);
+            if (index < 0) {
+                return null;
+            }
+        }
+        return index + 1 < ticketId.length() ? ticketId.substring(index + 1) : null;
+    }
+
+    /**
+     * Determines whether the ticket was issued by the given node.
+     *
+     * @param ticketId the ticket id
+     * @param node the node suffix
+     * @return true if the ticket id carries the given node suffix.
+     */
+    public boolean isIssuedBy(final String ticketId, final String node) {
+        if (ticketId == null || node == null) {
+            return false;
+        }
+        return ticketId.endsWith(node) && node.equals(resolveNode(ticketId));
+    }
+}
@@ -0,0 +1,492 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.ticket.registry;
+
+import org.apache.commons.lang3.SerializationException;
+import org.apache.commons.lang3.SerializationUtils;
+import org.jasig.cas.monitor.TicketCounts;
+import org.jasig.cas.ticket.Ticket;
+import org.jasig.cas.ticket.TicketGrantingTicket;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Single node ticket registry that keeps tickets in memory and records every change to them in a write-ahead log
+ * on the local disk, so that tickets survive a restart of the server.
+ *
+ * <p>Each addition, update and deletion of a ticket is appended to the log before it is applied in memory. Every
+ * record carries a checksum; when the registry is created, the latest snapshot and the logs are replayed up to the
+ * first incomplete or corrupt record, as left behind by a crash in the middle of a write, and the log is truncated
+ * to that point. Records are numbered in the order they are logged, and the snapshot records the number of the last
+ * change it covers, so that log records already reflected in the snapshot are not replayed over it. The log is
+ * flushed to the operating system after each record, which is enough to survive a crash of the server process;
+ * {@link #setSyncOnWrite(boolean) syncOnWrite} additionally forces every record to the disk to survive the loss of
+ * power, at a considerable cost in throughput.</p>
+ *
+ * <p>{@link #snapshot()} writes the live tickets to a new snapshot that replaces the log, which would otherwise grow
+ * without bounds. It should be scheduled to run periodically, just like the registry cleaner. The log is rotated
+ * while the snapshot is written, so that tickets keep being added in the meantime.</p>
+ *
+ * <p>As replayed tickets are copies of one another, e.g. a service ticket holds its own copy of its ticket granting
+ * ticket, tickets are handed out through the ticket delegators of {@link AbstractDistributedTicketRegistry}, which
+ * look up the granting tickets in the registry and log changes made to the tickets.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class WriteAheadLogTicketRegistry extends AbstractDistributedTicketRegistry implements DisposableBean {
+
+    /** Name of the snapshot file. */
+    public static final String SNAPSHOT_FILE = "tickets.snapshot";
+
+    /** Name of the active log file. */
+    public static final String LOG_FILE = "tickets.log";
+
+    /** Name of the log file rotated while a snapshot is written. */
+    public static final String ROTATED_LOG_FILE = "tickets.log.1";
+
+    /** Name of the snapshot file being written. */
+    public static final String TEMPORARY_SNAPSHOT_FILE = "tickets.snapshot.tmp";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Number of bytes preceding the contents of a record, i.e. its length and checksum. */
+    private static final int HEADER_SIZE = 8;
+
+    /** Number of bytes of the contents of a record preceding its payload, i.e. its type and sequence number. */
+    private static final int PREFIX_SIZE = 9;
+
+    /** Upper bound of the length of a record, beyond which the record is deemed corrupt. */
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+    private static final byte ADD = 1;
+
+    private static final byte DELETE = 2;
+
+    /** Type of the first record of a snapshot, whose sequence number is that of the last change the snapshot covers. */
+    private static final byte SEQUENCE = 3;
+
+    private final File directory;
+
+    private final File logFile;
+
+    private final File rotatedLogFile;
+
+    private final File snapshotFile;
+
+    private final File temporarySnapshotFile;
+
+    /** Live tickets. */
+    private final DefaultTicketRegistry tickets = new DefaultTicketRegistry();
+
+    /** Guards the log and the order in which changes are applied to the live tickets. */
+    private final Lock writeLock = new ReentrantLock();
+
+    /** Serializes snapshots. */
+    private final Lock snapshotLock = new ReentrantLock();
+
+    private FileChannel log;
+
+    /** Sequence number of the last record appended to the log. Guarded by the write lock. */
+    private long sequence;
+
+    private boolean syncOnWrite;
+
+    /**
+     * Instantiates a new write-ahead log ticket registry, recovering the tickets recorded in the given directory.
+     *
+     * @param directory the directory the snapshot and log files are kept in; it is created if needed
+     * @throws IOException if the directory cannot be created or the files cannot be read or written
+     */
+    public WriteAheadLogTicketRegistry(final File directory) throws IOException {
+        Assert.notNull(directory, "directory cannot be null");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        this.directory = directory;
+        this.logFile = new File(directory, LOG_FILE);
+        this.rotatedLogFile = new File(directory, ROTATED_LOG_FILE);
+        this.snapshotFile = new File(directory, SNAPSHOT_FILE);
+        this.temporarySnapshotFile = new File(directory, TEMPORARY_SNAPSHOT_FILE);
+        recover();
+    }
+
+    /**
+     * Sets whether every record is forced to the disk before the change is applied. Defaults to false, which
+     * only survives a crash of the server process but not of the operating system.
+     *
+     * @param syncOnWrite true to force records to the disk
+     */
+    public void setSyncOnWrite(final boolean syncOnWrite) {
+        this.syncOnWrite = syncOnWrite;
+    }
+
+    @Override
+    public void addTicket(final Ticket ticket) {
+        Assert.notNull(ticket, "ticket cannot be null");
+
+        // serialized holding the lock, so that the last record of a ticket is its latest state
+        this.writeLock.lock();
+        try {
+            append(record(ADD, ++this.sequence, serialize(ticket)));
+            this.tickets.addTicket(ticket);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    protected void updateTicket(final Ticket ticket) {
+        addTicket(ticket);
+    }
+
+    @Override
+    protected boolean needsCallback() {
+        return true;
+    }
+
+    @Override
+    public Ticket getTicket(final String ticketId) {
+        return getProxiedTicketInstance(this.tickets.getTicket(ticketId));
+    }
+
+    @Override
+    public boolean deleteTicket(final String ticketId) {
+        if (ticketId == null) {
+            return false;
+        }
+
+        this.writeLock.lock();
+        try {
+            if (this.tickets.getTicket(ticketId) == null) {
+                return false;
+            }
+            append(record(DELETE, ++this.sequence, ticketId.getBytes(UTF8)));
+            return this.tickets.deleteTicket(ticketId);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<Ticket> getTickets() {
+        final Collection<Ticket> live = this.tickets.getTickets();
+        final List<Ticket> result = new ArrayList<>(live.size());
+        for (final Ticket ticket : live) {
+            result.add(getProxiedTicketInstance(ticket));
+        }
+        return result;
+    }
+
+    @Override
+    public int sessionCount() {
+        return this.tickets.sessionCount();
+    }
+
+    @Override
+    public int serviceTicketCount() {
+        return this.tickets.serviceTicketCount();
+    }
+
+    @Override
+    public TicketCounts ticketCounts() {
+        return this.tickets.ticketCounts();
+    }
+
+    /**
+     * Writes the live tickets to a new snapshot and discards the log recorded up to then.
+     *
+     * <p>The log is rotated, the live tickets are written to a temporary file that is then renamed over the
+     * previous snapshot, and the rotated log is deleted. The snapshot records the sequence number of the last
+     * change logged before the rotation, so that a crash at any point leaves files that replay to the same tickets.</p>
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void snapshot() throws IOException {
+        this.snapshotLock.lock();
+        try {
+            final List<Ticket> live;
+            final long covered;
+            final long start = System.currentTimeMillis();
+            this.writeLock.lock();
+            try {
+                rotateLog();
+                covered = this.sequence;
+                live = new ArrayList<>(this.tickets.getTickets());
+            } finally {
+                this.writeLock.unlock();
+            }
+
+            try (final FileOutputStream file = new FileOutputStream(this.temporarySnapshotFile);
+                 final OutputStream out = new BufferedOutputStream(file)) {
+                out.write(record(SEQUENCE, covered, new byte[0]));
+                for (final Ticket ticket : live) {
+                    out.write(record(ADD, covered, serialize(ticket)));
+                }
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(this.temporarySnapshotFile.toPath(), this.snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(this.rotatedLogFile.toPath());
+            logger.info("Wrote snapshot of {} tickets to {} in {} ms", live.size(), this.directory,
+                    System.currentTimeMillis() - start);
+        } finally {
+            this.snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Closes the log. The registry must not be used afterwards.
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    @Override
+    public void destroy() throws IOException {
+        this.writeLock.lock();
+        try {
+            if (this.log != null) {
+                this.log.force(false);
+                this.log.close();
+                this.log = null;
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replays the snapshot and the changes of the logs it does not cover, then writes a new snapshot if the logs
+     * recorded any change. The rotated log is only covered by the snapshot if the server crashed after the snapshot
+     * was renamed into place but before the rotated log was deleted.
+     *
+     * @throws IOException if the files cannot be read or written
+     */
+    private void recover() throws IOException {
+        final long start = System.currentTimeMillis();
+        Files.deleteIfExists(this.temporarySnapshotFile.toPath());
+        replay(this.snapshotFile, -1);
+        final long covered = this.sequence;
+        final boolean rotated = this.rotatedLogFile.exists();
+        replay(this.rotatedLogFile, covered);
+        final long logLength = replay(this.logFile, covered);
+
+        try (final RandomAccessFile file = new RandomAccessFile(this.logFile, "rw")) {
+            file.setLength(logLength);
+        }
+        this.log = openLog();
+        logger.info("Recovered {} tickets from {} in {} ms", this.tickets.getTickets().size(), this.directory,
+                System.currentTimeMillis() - start);
+
+        if (rotated || logLength > 0) {
+            snapshot();
+        }
+    }
+
+    /**
+     * Applies the records of a file to the live tickets, up to the first incomplete or corrupt record, skipping
+     * the records that are already covered.
+     *
+     * @param file the snapshot or log file
+     * @param covered the sequence number of the last change already applied
+     * @return the length of the valid records of the file
+     * @throws IOException if the file cannot be read
+     */
+    private long replay(final File file, final long covered) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        final long length = file.length();
+        long position = 0;
+        int applied = 0;
+        int skipped = 0;
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            final CRC32 crc = new CRC32();
+            while (position + HEADER_SIZE <= length) {
+                final int size = in.readInt();
+                final int checksum = in.readInt();
+                if (size < PREFIX_SIZE || size > MAX_RECORD_SIZE || position + HEADER_SIZE + size > length) {
+                    break;
+                }
+                final byte[] contents = new byte[size];
+                in.readFully(contents);
+                crc.reset();
+                crc.update(contents);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                final long recordSequence = ByteBuffer.wrap(contents, 1, PREFIX_SIZE - 1).getLong();
+                if (contents[0] != SEQUENCE && recordSequence <= covered) {
+                    skipped++;
+                } else {
+                    apply(contents);
+                    applied++;
+                }
+                this.sequence = Math.max(this.sequence, recordSequence);
+                position += HEADER_SIZE + size;
+            }
+        } catch (final EOFException e) {
+            logger.debug("Reached the end of {}", file, e);
+        }
+        if (position < length) {
+            logger.warn("Ignoring {} bytes of incomplete or corrupt records at the end of {}", length - position, file);
+        }
+        logger.debug("Replayed {} records from {}, skipping {} records covered by the snapshot", applied, file, skipped);
+        return position;
+    }
+
+    /**
+     * Applies a record to the live tickets.
+     *
+     * @param contents the type, sequence number and payload of the record
+     */
+    private void apply(final byte[] contents) {
+        final byte[] payload = new byte[contents.length - PREFIX_SIZE];
+        System.arraycopy(contents, PREFIX_SIZE, payload, 0, payload.length);
+        if (contents[0] == ADD) {
+            try {
+                final Ticket ticket = SerializationUtils.deserialize(payload);
+                this.tickets.addTicket(ticket);
+            } catch (final SerializationException e) {
+                logger.error("Failed deserializing a ticket of the log, skipping it", e);
+            }
+        } else if (contents[0] == DELETE) {
+            this.tickets.deleteTicket(new String(payload, UTF8));
+        } else if (contents[0] != SEQUENCE) {
+            logger.error("Skipping record of unknown type {}", contents[0]);
+        }
+    }
+
+    /**
+     * Appends a record to the log. Must be called holding the write lock.
+     *
+     * @param record the record
+     */
+    private void append(final byte[] record) {
+        Assert.state(this.log != null, "Ticket registry is closed");
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                this.log.write(buffer);
+            }
+            if (this.syncOnWrite) {
+                this.log.force(false);
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed writing to the ticket log " + this.logFile, e);
+        }
+    }
+
+    /**
+     * Renames the active log aside and opens a new one. Must be called holding the write lock.
+     * If the log rotated by a previous failed snapshot is still there, the active log is appended to it instead.
+     *
+     * @throws IOException if the log cannot be rotated
+     */
+    private void rotateLog() throws IOException {
+        this.log.force(false);
+        if (this.rotatedLogFile.exists()) {
+            try (final FileChannel rotated = new FileOutputStream(this.rotatedLogFile, true).getChannel()) {
+                long position = 0;
+                while (position < this.log.size()) {
+                    position += this.log.transferTo(position, this.log.size() - position, rotated);
+                }
+                rotated.force(false);
+            }
+            this.log.truncate(0);
+            return;
+        }
+        this.log.close();
+        try {
+            Files.move(this.logFile.toPath(), this.rotatedLogFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            this.log = openLog();
+        }
+    }
+
+    /**
+     * Opens the active log for appending.
+     *
+     * @return the log channel
+     * @throws IOException if the log cannot be opened
+     */
+    private FileChannel openLog() throws IOException {
+        return new FileOutputStream(this.logFile, true).getChannel();
+    }
+
+    /**
+     * Builds a record of the log.
+     *
+     * @param type the type of the record
+     * @param recordSequence the sequence number of the record
+     * @param payload the payload of the record
+     * @return the record, i.e. its length, checksum, type, sequence number and payload
+     */
+    private static byte[] record(final byte type, final long recordSequence, final byte[] payload) {
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + PREFIX_SIZE + payload.length);
+        buffer.putInt(PREFIX_SIZE + payload.length);
+        buffer.putInt(0);
+        buffer.put(type);
+        buffer.putLong(recordSequence);
+        buffer.put(payload);
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, PREFIX_SIZE + payload.length);
+        buffer.putInt(HEADER_SIZE / 2, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    /**
+     * Serializes a ticket while holding the monitor of its ticket granting ticket, which guards the services
+     * of the ticket granting ticket against concurrent changes.
+     *
+     * @param ticket the ticket
+     * @return the serialized ticket
+     */
+    private static byte[] serialize(final Ticket ticket) {
+        final TicketGrantingTicket grantingTicket = ticket instanceof TicketGrantingTicket
+                ? (TicketGrantingTicket) ticket : ticket.getGrantingTicket();
+        if (grantingTicket == null) {
+            return SerializationUtils.serialize(ticket);
+        }
+        synchronized (grantingTicket) {
+            return SerializationUtils.serialize(ticket);
+        }
+    }
+}
@@ -19,7 +19,10 @@
 
 package org.jasig.cas.ticket.support;
 
-import org.jasig.cas.ticket.ExpirationPolicy;
+import org.jasig.cas.ticket.TicketState;
+import org.jasig.cas.ticket.TimedExpirationPolicy;
+import org.jasig.cas.util.Clock;
+import org.jasig.cas.util.SystemClock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -33,14 +36,46 @@ import javax.servlet.http.HttpServletRequest;
  * and exposes a few internal helper methods to children can access
  * to objects like the request, etc.
  *
+ * <p>Policies read the current time from a {@link Clock}, which defaults to the system clock.
+ * By default, a ticket is considered expired once the current time reaches
+ * its {@link #getExpirationTime(TicketState) expiration time}.</p>
+ *
  * @author Misagh Moayyed mmoayyed@unicon.net
  * @since 4.1
  */
-public abstract class AbstractCasExpirationPolicy implements ExpirationPolicy {
+public abstract class AbstractCasExpirationPolicy implements TimedExpirationPolicy {
+
+    private static final long serialVersionUID = 8042104336580063690L;
 
     /** The Logger instance shared by all children of this class. */
     protected final Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    /** Source of the current time. Not serialized; deserialized policies use the system clock. */
+    private transient Clock clock;
+
+    @Override
+    public boolean isExpired(final TicketState ticketState) {
+        return currentTimeMillis() >= getExpirationTime(ticketState);
+    }
+
+    /**
+     * Sets the clock the current time is read from. Defaults to the system clock.
+     *
+     * @param clock the clock
+     */
+    public final void setClock(final Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the current time from the clock of this policy.
+     *
+     * @return the current time in milliseconds since the epoch
+     */
+    protected final long currentTimeMillis() {
+        return (this.clock != null ? this.clock : SystemClock.INSTANCE).currentTimeMillis();
+    }
+
     /**
      * Gets the http request based on the
      * {@link org.springframework.web.context.request.RequestContextHolder}.
@@ -50,4 +85,18 @@ public abstract class AbstractCasExpirationPolicy implements ExpirationPolicy {
         final ServletRequestAttributes attrs = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
         return attrs.getRequest();
     }
+
+    /**
+     * Adds a duration to a point in time, saturating at {@link #NEVER} rather than overflowing.
+     *
+     * @param time the point in time in milliseconds
+     * @param duration the duration in milliseconds
+     * @return the point in time the duration after the given one
+     */
+    protected static long plus(final long time, final long duration) {
+        if (duration > 0 && time > NEVER - duration) {
+            return NEVER;
+        }
+        return time + duration;
+    }
 }
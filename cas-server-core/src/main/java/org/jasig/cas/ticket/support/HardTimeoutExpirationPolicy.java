@@ -62,8 +62,10 @@ public final class HardTimeoutExpirationPolicy extends AbstractCasExpirationPoli
     }
 
     @Override
-    public boolean isExpired(final TicketState ticketState) {
-        return (ticketState == null)
-                || (System.currentTimeMillis() - ticketState.getCreationTime() >= this.timeToKillInMilliSeconds);
+    public long getExpirationTime(final TicketState ticketState) {
+        if (ticketState == null) {
+            return 0;
+        }
+        return plus(ticketState.getCreationTime(), this.timeToKillInMilliSeconds);
     }
 }
@@ -76,9 +76,10 @@ public final class MultiTimeUseOrTimeoutExpirationPolicy extends AbstractCasExpi
     }
 
     @Override
-    public boolean isExpired(final TicketState ticketState) {
-        return (ticketState == null)
-            || (ticketState.getCountOfUses() >= this.numberOfUses)
-            || (System.currentTimeMillis() - ticketState.getLastTimeUsed() >= this.timeToKillInMilliSeconds);
+    public long getExpirationTime(final TicketState ticketState) {
+        if (ticketState == null || ticketState.getCountOfUses() >= this.numberOfUses) {
+            return 0;
+        }
+        return plus(ticketState.getLastTimeUsed(), this.timeToKillInMilliSeconds);
     }
 }
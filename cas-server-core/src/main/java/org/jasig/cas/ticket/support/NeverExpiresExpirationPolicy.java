@@ -37,4 +37,9 @@ public final class NeverExpiresExpirationPolicy extends AbstractCasExpirationPol
     public boolean isExpired(final TicketState ticketState) {
         return false;
     }
+
+    @Override
+    public long getExpirationTime(final TicketState ticketState) {
+        return NEVER;
+    }
 }
@@ -21,6 +21,7 @@ package org.jasig.cas.ticket.support;
 import org.jasig.cas.authentication.RememberMeCredential;
 import org.jasig.cas.ticket.ExpirationPolicy;
 import org.jasig.cas.ticket.TicketState;
+import org.jasig.cas.ticket.TimedExpirationPolicy;
 
 import javax.validation.constraints.NotNull;
 
@@ -28,6 +29,10 @@ import javax.validation.constraints.NotNull;
  * Delegates to different expiration policies depending on whether remember me
  * is true or not.
  *
+ * <p>The expiration time is that of the delegate if it is a {@link TimedExpirationPolicy}.
+ * Otherwise it is only known once the delegate considers the ticket expired; until then
+ * {@link #NEVER} is reported.</p>
+ *
  * @author Scott Battaglia
  * @since 3.2.1
  *
@@ -45,14 +50,33 @@ public final class RememberMeDelegatingExpirationPolicy extends AbstractCasExpir
 
     @Override
     public boolean isExpired(final TicketState ticketState) {
+        return getExpirationPolicy(ticketState).isExpired(ticketState);
+    }
+
+    @Override
+    public long getExpirationTime(final TicketState ticketState) {
+        final ExpirationPolicy policy = getExpirationPolicy(ticketState);
+        if (policy instanceof TimedExpirationPolicy) {
+            return ((TimedExpirationPolicy) policy).getExpirationTime(ticketState);
+        }
+        return policy.isExpired(ticketState) ? currentTimeMillis() : NEVER;
+    }
+
+    /**
+     * Gets the policy that applies to the ticket, depending on whether the user asked to be remembered.
+     *
+     * @param ticketState the ticket state
+     * @return the remember me or the session expiration policy
+     */
+    private ExpirationPolicy getExpirationPolicy(final TicketState ticketState) {
         final Boolean b = (Boolean) ticketState.getAuthentication().getAttributes().
                 get(RememberMeCredential.AUTHENTICATION_ATTRIBUTE_REMEMBER_ME);
 
         if (b == null || b.equals(Boolean.FALSE)) {
-            return this.sessionExpirationPolicy.isExpired(ticketState);
+            return this.sessionExpirationPolicy;
         }
 
-        return this.rememberMeExpirationPolicy.isExpired(ticketState);
+        return this.rememberMeExpirationPolicy;
     }
 
     public void setRememberMeExpirationPolicy(
@@ -50,7 +50,7 @@ public final class ThrottledUseAndTimeoutExpirationPolicy extends AbstractCasExp
 
     @Override
     public boolean isExpired(final TicketState ticketState) {
-        final long currentTimeInMillis = System.currentTimeMillis();
+        final long currentTimeInMillis = currentTimeMillis();
         final long lastTimeTicketWasUsed = ticketState.getLastTimeUsed();
 
         if (ticketState.getCountOfUses() == 0
@@ -72,4 +72,14 @@ public final class ThrottledUseAndTimeoutExpirationPolicy extends AbstractCasExp
 
         return false;
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>Tickets used again within {@link #setTimeInBetweenUsesInMilliSeconds(long) timeInBetweenUsesInMilliSeconds}
+     * are considered expired only for that period, which is not reflected in the expiration time.</p>
+     */
+    @Override
+    public long getExpirationTime(final TicketState ticketState) {
+        return plus(ticketState.getLastTimeUsed(), this.timeToKillInMilliSeconds);
+    }
 }
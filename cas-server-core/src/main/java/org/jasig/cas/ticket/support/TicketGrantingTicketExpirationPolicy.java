@@ -118,7 +118,7 @@ public final class TicketGrantingTicketExpirationPolicy extends AbstractCasExpir
 
     @Override
     public boolean isExpired(final TicketState ticketState) {
-        final long currentSystemTimeInMillis = System.currentTimeMillis();
+        final long currentSystemTimeInMillis = currentTimeMillis();
 
         // Ticket has been used, check maxTimeToLive (hard window)
         if ((currentSystemTimeInMillis - ticketState.getCreationTime() >= maxTimeToLiveInMilliSeconds)) {
@@ -135,4 +135,9 @@ public final class TicketGrantingTicketExpirationPolicy extends AbstractCasExpir
         return false;
     }
 
+    @Override
+    public long getExpirationTime(final TicketState ticketState) {
+        return Math.min(plus(ticketState.getCreationTime(), this.maxTimeToLiveInMilliSeconds),
+                plus(ticketState.getLastTimeUsed(), this.timeToKillInMilliSeconds));
+    }
 }
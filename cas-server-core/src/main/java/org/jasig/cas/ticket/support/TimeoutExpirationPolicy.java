@@ -67,8 +67,10 @@ public final class TimeoutExpirationPolicy extends AbstractCasExpirationPolicy {
     }
 
     @Override
-    public boolean isExpired(final TicketState ticketState) {
-        return (ticketState == null)
-            || (System.currentTimeMillis() - ticketState.getLastTimeUsed() >= this.timeToKillInMilliSeconds);
+    public long getExpirationTime(final TicketState ticketState) {
+        if (ticketState == null) {
+            return 0;
+        }
+        return plus(ticketState.getLastTimeUsed(), this.timeToKillInMilliSeconds);
     }
 }
@@ -78,13 +78,11 @@ public final class DefaultLongNumericGenerator implements LongNumericGenerator {
     /**
      * Gets the next value.
      *
-     * @return the next value. If the count has reached {@link Long#MAX_VALUE}, 
-     * then {@link Long#MAX_VALUE} is returned. Otherwise, the next increment.
+     * @return the next value. If the count has reached {@link Long#MAX_VALUE},
+     * then {@link Long#MAX_VALUE} is returned and the count wraps to zero.
+     * Otherwise, the next increment. Takes a single atomic increment.
      */
     protected long getNextValue() {
-        if (this.count.compareAndSet(Long.MAX_VALUE, 0)) {
-            return Long.MAX_VALUE;
-        }
-        return this.count.getAndIncrement();
+        return this.count.getAndIncrement() & Long.MAX_VALUE;
     }
 }
@@ -18,12 +18,18 @@
  */
 package org.jasig.cas.util;
 
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 
 /**
  * Implementation of the RandomStringGenerator that allows you to define the
  * length of the random part.
  *
+ * <p>Each thread draws from its own {@link SecureRandom}, seeded from the platform source and
+ * replaced after producing {@value #RESEED_INTERVAL} bytes, so that concurrent callers do not
+ * contend on a single generator. Characters are picked from six random bits at a time, discarding
+ * values beyond the 62 character alphabet, so every character is equally likely.</p>
+ *
  * @author Scott Battaglia
 
  * @since 3.0.0
@@ -34,11 +40,34 @@ public final class DefaultRandomStringGenerator implements RandomStringGenerator
     protected static final int DEFAULT_MAX_RANDOM_LENGTH = 35;
 
     /** The array of printable characters to be used in our random string. */
-    private static final char[] PRINTABLE_CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ012345679"
+    private static final char[] PRINTABLE_CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789"
         .toCharArray();
 
-    /** An instance of secure random to ensure randomness is secure. */
-    private final SecureRandom randomizer = new SecureRandom();
+    /** Mask selecting the bits of a random byte used to pick a character. */
+    private static final int CHARACTER_MASK = 0x3F;
+
+    /** Number of bytes a thread's generator produces before it is replaced by a freshly seeded one. */
+    private static final long RESEED_INTERVAL = 1024 * 1024;
+
+    /** Algorithm of the per-thread generators. */
+    private static final String PRNG_ALGORITHM = "SHA1PRNG";
+
+    /** Number of bytes used to seed a per-thread generator. */
+    private static final int SEED_LENGTH = 32;
+
+    /** Number of random bytes a thread buffers to pick characters from. */
+    private static final int BUFFER_SIZE = 64;
+
+    /** Platform source of seeds for the per-thread generators. */
+    private static final SecureRandom SEED_SOURCE = new SecureRandom();
+
+    /** Per-thread generators. */
+    private static final ThreadLocal<RandomSource> RANDOM_SOURCE = new ThreadLocal<RandomSource>() {
+        @Override
+        protected RandomSource initialValue() {
+            return new RandomSource();
+        }
+    };
 
     /** The maximum length the random string can be. */
     private final int maximumRandomLength;
@@ -70,33 +99,96 @@ public final class DefaultRandomStringGenerator implements RandomStringGenerator
 
     @Override
     public String getNewString() {
-        final byte[] random = getNewStringAsBytes();
-
-        return convertBytesToString(random);
+        final RandomSource source = RANDOM_SOURCE.get();
+        final char[] output = source.characters(this.maximumRandomLength);
+        for (int i = 0; i < this.maximumRandomLength; i++) {
+            output[i] = PRINTABLE_CHARACTERS[source.nextCharacterIndex()];
+        }
+        return new String(output, 0, this.maximumRandomLength);
     }
 
     @Override
     public byte[] getNewStringAsBytes() {
         final byte[] random = new byte[this.maximumRandomLength];
-
-        this.randomizer.nextBytes(random);
-
+        RANDOM_SOURCE.get().nextBytes(random);
         return random;
     }
 
     /**
-     * Convert bytes to string, taking into account {@link #PRINTABLE_CHARACTERS}.
+     * Creates a generator seeded from the platform source.
      *
-     * @param random the random
-     * @return the string
+     * @return the generator
      */
-    private String convertBytesToString(final byte[] random) {
-        final char[] output = new char[random.length];
-        for (int i = 0; i < random.length; i++) {
-            final int index = Math.abs(random[i] % PRINTABLE_CHARACTERS.length);
-            output[i] = PRINTABLE_CHARACTERS[index];
+    private static SecureRandom newSecureRandom() {
+        final byte[] seed = new byte[SEED_LENGTH];
+        SEED_SOURCE.nextBytes(seed);
+        try {
+            final SecureRandom random = SecureRandom.getInstance(PRNG_ALGORITHM);
+            random.setSeed(seed);
+            return random;
+        } catch (final NoSuchAlgorithmException e) {
+            return new SecureRandom(seed);
         }
+    }
 
-        return new String(output);
+    /**
+     * Random bytes and scratch space owned by a single thread.
+     */
+    private static final class RandomSource {
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        private int position = BUFFER_SIZE;
+
+        private char[] characters = new char[DEFAULT_MAX_RANDOM_LENGTH];
+
+        private SecureRandom random;
+
+        private long remaining;
+
+        /**
+         * Gets the scratch buffer used to build a string.
+         *
+         * @param length the length of the string
+         * @return a buffer holding at least the given number of characters
+         */
+        char[] characters(final int length) {
+            if (this.characters.length < length) {
+                this.characters = new char[length];
+            }
+            return this.characters;
+        }
+
+        /**
+         * Picks the index of the next character, uniformly over the alphabet.
+         *
+         * @return the index of a character in {@link #PRINTABLE_CHARACTERS}
+         */
+        int nextCharacterIndex() {
+            while (true) {
+                if (this.position == this.buffer.length) {
+                    nextBytes(this.buffer);
+                    this.position = 0;
+                }
+                final int index = this.buffer[this.position++] & CHARACTER_MASK;
+                if (index < PRINTABLE_CHARACTERS.length) {
+                    return index;
+                }
+            }
+        }
+
+        /**
+         * Fills the array with random bytes, replacing the generator once it has produced
+         * {@link #RESEED_INTERVAL} bytes.
+         *
+         * @param bytes the array to fill
+         */
+        void nextBytes(final byte[] bytes) {
+            if (this.remaining <= 0) {
+                this.random = newSecureRandom();
+                this.remaining = RESEED_INTERVAL;
+            }
+            this.random.nextBytes(bytes);
+            this.remaining -= bytes.length;
+        }
     }
 }
@@ -123,4 +123,14 @@ public class DefaultUniqueTicketIdGenerator implements UniqueTicketIdGenerator {
 
         return buffer.toString();
     }
+
+    /**
+     * Gets the suffix appended to generated ids, which identifies the node that generated them.
+     *
+     * @return the suffix without its separator, or null if ids carry no suffix.
+     * @since 4.1.0
+     */
+    public final String getSuffix() {
+        return this.suffix != null ? this.suffix.substring(1) : null;
+    }
 }
@@ -221,6 +221,17 @@ public final class WebUtils {
         context.getFlowScope().put("loginTicket", ticket);
     }
 
+    /**
+     * Put signed login ticket into request scope, from which it is rendered in the login form.
+     * Signed login tickets are verified without being kept in the flow scope.
+     *
+     * @param context the context
+     * @param ticket the ticket
+     */
+    public static void putSignedLoginTicket(final RequestContext context, final String ticket) {
+        context.getRequestScope().put("loginTicket", ticket);
+    }
+
     /**
      * Gets the login ticket from flow scope.
      *
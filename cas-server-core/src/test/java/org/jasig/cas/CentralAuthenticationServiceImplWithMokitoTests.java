@@ -84,6 +84,7 @@ public class CentralAuthenticationServiceImplWithMokitoTests {
     private CentralAuthenticationService cas;
     private Authentication authentication;
     private TicketRegistry ticketRegMock;
+    private ServicesManager servicesManager;
 
     private static class VerifyServiceByIdMatcher extends ArgumentMatcher<Service> {
         private final String id;
@@ -145,6 +146,7 @@ public class CentralAuthenticationServiceImplWithMokitoTests {
         final RegisteredService mockRegSvc3 = createMockRegisteredService(service2.getId(), true, getServiceProxyPolicy(true)); 
         
         final ServicesManager smMock = mock(ServicesManager.class);
+        this.servicesManager = smMock;
         when(smMock.findServiceBy(argThat(new VerifyServiceByIdMatcher(service1.getId())))).thenReturn(mockRegSvc1);
         when(smMock.findServiceBy(argThat(new VerifyServiceByIdMatcher("test")))).thenReturn(mockRegSvc2);
         when(smMock.findServiceBy(argThat(new VerifyServiceByIdMatcher(service2.getId())))).thenReturn(mockRegSvc3);
@@ -207,6 +209,33 @@ public class CentralAuthenticationServiceImplWithMokitoTests {
         }
     }
     
+    @Test
+    public void verifyValidationWithResolvedRegisteredService() throws TicketException {
+        final Service svc = TestUtils.getService(SVC2_ID);
+        final ServiceTicket st = this.cas.grantServiceTicket(TGT2_ID, svc);
+        final RegisteredService registeredService = this.servicesManager.findServiceBy(svc);
+        verify(this.servicesManager, atLeastOnce()).findServiceBy(any(Service.class));
+
+        final Assertion assertion = this.cas.validateServiceTicket(st.getId(), svc, registeredService);
+        assertEquals(PRINCIPAL, assertion.getPrimaryAuthentication().getPrincipal().getId());
+        verifyNoMoreInteractions(this.servicesManager);
+    }
+
+    @Test(expected=UnauthorizedServiceException.class)
+    public void verifyValidationWithUnregisteredService() throws TicketException {
+        final Service svc = TestUtils.getService(SVC2_ID);
+        final ServiceTicket st = this.cas.grantServiceTicket(TGT2_ID, svc);
+        this.cas.validateServiceTicket(st.getId(), svc, null);
+    }
+
+    @Test(expected=UnauthorizedServiceException.class)
+    public void verifyValidationWithMismatchedRegisteredService() throws TicketException {
+        final Service svc = TestUtils.getService(SVC2_ID);
+        final ServiceTicket st = this.cas.grantServiceTicket(TGT2_ID, svc);
+        final RegisteredService other = this.servicesManager.findServiceBy(TestUtils.getService("test"));
+        this.cas.validateServiceTicket(st.getId(), svc, other);
+    }
+
     private TicketGrantingTicket createRootTicketGrantingTicket() {
         final TicketGrantingTicket tgtRootMock = mock(TicketGrantingTicket.class);
         when(tgtRootMock.isExpired()).thenReturn(false);
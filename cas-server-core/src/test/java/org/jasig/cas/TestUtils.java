@@ -34,6 +34,9 @@ import org.jasig.cas.authentication.principal.SimpleWebApplicationServiceImpl;
 import org.jasig.cas.services.AbstractRegisteredService;
 import org.jasig.cas.services.RegexMatchingRegisteredServiceProxyPolicy;
 import org.jasig.cas.services.RegisteredServiceImpl;
+import org.jasig.cas.ticket.TicketGrantingTicket;
+import org.jasig.cas.ticket.TicketGrantingTicketImpl;
+import org.jasig.cas.ticket.support.NeverExpiresExpirationPolicy;
 import org.jasig.cas.validation.Assertion;
 import org.jasig.cas.validation.ImmutableAssertion;
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -175,6 +178,10 @@ public final class TestUtils {
         return getAuthentication(getService());
     }
 
+    public static TicketGrantingTicket getTicketGrantingTicket(final String id) {
+        return new TicketGrantingTicketImpl(id, getAuthentication(), new NeverExpiresExpirationPolicy());
+    }
+
     public static Assertion getAssertion(final boolean fromNewLogin) {
         return getAssertion(fromNewLogin, CONST_NO_PRINCIPALS);
     }
@@ -0,0 +1,134 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.aspect;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.jasig.cas.CentralAuthenticationServiceImpl;
+import org.jasig.cas.TestUtils;
+import org.jasig.cas.authentication.PolicyBasedAuthenticationManager;
+import org.jasig.cas.authentication.UnresolvedPrincipalException;
+import org.jasig.cas.authentication.handler.support.SimpleTestUsernamePasswordAuthenticationHandler;
+import org.jasig.cas.logout.LogoutManager;
+import org.jasig.cas.monitor.MetricsRegistry;
+import org.jasig.cas.monitor.Timed;
+import org.jasig.cas.services.ServicesManager;
+import org.jasig.cas.services.UnauthorizedServiceException;
+import org.jasig.cas.ticket.InvalidTicketException;
+import org.jasig.cas.ticket.registry.DefaultTicketRegistry;
+import org.jasig.cas.ticket.support.NeverExpiresExpirationPolicy;
+import org.jasig.cas.util.DefaultUniqueTicketIdGenerator;
+import org.jasig.cas.util.UniqueTicketIdGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for {@link TimingAspect}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class TimingAspectTests {
+
+    private final TimingAspect aspect = new TimingAspect();
+
+    private MetricsRegistry registry;
+
+    @Before
+    public void setUp() {
+        this.registry = new MetricsRegistry();
+        this.aspect.setMetricsRegistry(this.registry);
+    }
+
+    @After
+    public void tearDown() {
+        TimingAspect.aspectOf().setMetricsRegistry(new MetricsRegistry());
+    }
+
+    @Test
+    public void verifyTimedInvocationRecorded() throws Throwable {
+        final ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.proceed()).thenReturn("result");
+
+        assertEquals("result", this.aspect.time(joinPoint, timed("SUCCEED")));
+        assertEquals(1, this.registry.timer("SUCCEED").getCount());
+        assertEquals(0, this.registry.timer("SUCCEED").getFailureCount());
+    }
+
+    @Test
+    public void verifyFailedInvocationRecorded() throws Throwable {
+        final ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.proceed()).thenThrow(new IllegalStateException());
+
+        try {
+            this.aspect.time(joinPoint, timed("FAIL"));
+            fail("Exception expected");
+        } catch (final IllegalStateException e) {
+            assertEquals(1, this.registry.timer("FAIL").getCount());
+            assertEquals(1, this.registry.timer("FAIL").getFailureCount());
+        }
+    }
+
+    @Test
+    public void verifyAspectWovenIntoAnnotatedMethods() throws Exception {
+        TimingAspect.aspectOf().setMetricsRegistry(this.registry);
+        final PolicyBasedAuthenticationManager manager = new PolicyBasedAuthenticationManager(
+                new SimpleTestUsernamePasswordAuthenticationHandler());
+        try {
+            manager.authenticate(TestUtils.getCredentialsWithSameUsernameAndPassword());
+            fail("Exception expected");
+        } catch (final UnresolvedPrincipalException e) {
+            assertEquals(1, this.registry.timer("AUTHENTICATE").getCount());
+            assertEquals(1, this.registry.timer("AUTHENTICATE").getFailureCount());
+        }
+    }
+
+    @Test
+    public void verifyInvocationTimedOncePerAnnotatedMethod() throws Exception {
+        TimingAspect.aspectOf().setMetricsRegistry(this.registry);
+        final CentralAuthenticationServiceImpl cas = new CentralAuthenticationServiceImpl(new DefaultTicketRegistry(), null,
+                new PolicyBasedAuthenticationManager(new SimpleTestUsernamePasswordAuthenticationHandler()),
+                new DefaultUniqueTicketIdGenerator(), Collections.<String, UniqueTicketIdGenerator>emptyMap(),
+                new NeverExpiresExpirationPolicy(), new NeverExpiresExpirationPolicy(),
+                mock(ServicesManager.class), mock(LogoutManager.class));
+        try {
+            cas.validateServiceTicket("ST-1", TestUtils.getService());
+            fail("Exception expected");
+        } catch (final UnauthorizedServiceException e) {
+            assertEquals(1, this.registry.timer("VALIDATE_SERVICE_TICKET").getCount());
+        }
+        try {
+            cas.grantServiceTicket("TGT-1", TestUtils.getService());
+            fail("Exception expected");
+        } catch (final InvalidTicketException e) {
+            assertEquals(2, this.registry.timer("GRANT_SERVICE_TICKET").getCount());
+        }
+    }
+
+    private static Timed timed(final String operation) {
+        final Timed timed = mock(Timed.class);
+        when(timed.value()).thenReturn(operation);
+        return timed;
+    }
+}
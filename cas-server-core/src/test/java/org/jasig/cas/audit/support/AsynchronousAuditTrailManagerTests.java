@@ -0,0 +1,196 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.audit.support;
+
+import com.github.inspektr.audit.AuditActionContext;
+import com.github.inspektr.audit.AuditPointRuntimeInfo;
+import com.github.inspektr.audit.AuditTrailManager;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link AsynchronousAuditTrailManager}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class AsynchronousAuditTrailManagerTests {
+
+    @Test
+    public void verifyRecordsWrittenInBatches() throws Exception {
+        final List<AuditActionContext> written = Collections.synchronizedList(new ArrayList<AuditActionContext>());
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        final BatchAuditTrailManager delegate = new BatchAuditTrailManager() {
+            @Override
+            public void record(final List<AuditActionContext> auditActionContexts) {
+                batchSizes.add(auditActionContexts.size());
+                written.addAll(auditActionContexts);
+            }
+
+            @Override
+            public void record(final AuditActionContext auditActionContext) {
+                record(Collections.singletonList(auditActionContext));
+            }
+        };
+        final AsynchronousAuditTrailManager manager = new AsynchronousAuditTrailManager(delegate, 64);
+        manager.setBatchSize(10);
+        final int total = 1000;
+        for (int i = 0; i < total; i++) {
+            manager.record(newContext("user" + i));
+        }
+        manager.destroy();
+        assertEquals(total, written.size());
+        for (int i = 0; i < total; i++) {
+            assertEquals("user" + i, written.get(i).getPrincipal());
+        }
+        for (final Integer size : batchSizes) {
+            assertTrue(size <= 10);
+        }
+        assertEquals(total, manager.getWrittenCount());
+        assertEquals(0, manager.getQueueDepth());
+        assertEquals(0, manager.getLag());
+    }
+
+    @Test
+    public void verifyRecordsWrittenOffCallingThread() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AuditTrailManager delegate = mock(AuditTrailManager.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                release.await(5, TimeUnit.SECONDS);
+                return null;
+            }
+        }).when(delegate).record(any(AuditActionContext.class));
+        final AsynchronousAuditTrailManager manager = new AsynchronousAuditTrailManager(delegate, 16);
+        manager.record(newContext("user"));
+        manager.record(newContext("user"));
+        assertTrue(manager.getQueueDepth() <= 2);
+        release.countDown();
+        manager.destroy();
+        verify(delegate, times(2)).record(any(AuditActionContext.class));
+    }
+
+    @Test
+    public void verifyOverflowDropAndSpill() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AuditTrailManager delegate = mock(AuditTrailManager.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                writing.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return null;
+            }
+        }).when(delegate).record(any(AuditActionContext.class));
+        final File spillFile = File.createTempFile("audit", ".log");
+        try {
+            final AsynchronousAuditTrailManager manager = new AsynchronousAuditTrailManager(delegate, 2);
+            manager.setOverflowPolicy(AsynchronousAuditTrailManager.OverflowPolicy.DROP);
+            manager.record(newContext("writing"));
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            manager.record(newContext("queued1"));
+            manager.record(newContext("queued2"));
+            manager.record(newContext("dropped"));
+            assertEquals(1, manager.getDroppedCount());
+
+            manager.setOverflowPolicy(AsynchronousAuditTrailManager.OverflowPolicy.SPILL);
+            manager.setSpillFile(spillFile);
+            manager.record(newContext("spilled"));
+            assertEquals(1, manager.getSpilledCount());
+
+            release.countDown();
+            manager.destroy();
+            assertEquals(3, manager.getWrittenCount());
+            final List<String> lines = Files.readAllLines(spillFile.toPath(), Charset.forName("UTF-8"));
+            assertEquals(1, lines.size());
+            assertTrue(lines.get(0).contains("\tspilled\t"));
+        } finally {
+            assertTrue(spillFile.delete());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void verifySpillFileRequiredToSpill() {
+        final AsynchronousAuditTrailManager manager = new AsynchronousAuditTrailManager(mock(AuditTrailManager.class));
+        manager.setOverflowPolicy(AsynchronousAuditTrailManager.OverflowPolicy.SPILL);
+        manager.afterPropertiesSet();
+    }
+
+    @Test
+    public void verifyFailedBatchSpilledToPrivateFile() throws Exception {
+        final AuditTrailManager delegate = mock(AuditTrailManager.class);
+        doThrow(new IllegalStateException("database unavailable")).when(delegate).record(any(AuditActionContext.class));
+        final Path directory = Files.createTempDirectory("audit");
+        final Path spillFile = directory.resolve("spill.log");
+        try {
+            final AsynchronousAuditTrailManager manager = new AsynchronousAuditTrailManager(delegate, 16);
+            manager.setSpillFile(spillFile.toFile());
+            manager.afterPropertiesSet();
+            manager.record(newContext("failed1"));
+            manager.record(newContext("failed2"));
+            manager.destroy();
+
+            assertEquals(0, manager.getWrittenCount());
+            assertEquals(2, manager.getSpilledCount());
+            final List<String> lines = Files.readAllLines(spillFile, Charset.forName("UTF-8"));
+            assertEquals(2, lines.size());
+            assertTrue(lines.get(0).contains("\tfailed1\t"));
+            if (spillFile.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(spillFile)));
+            }
+        } finally {
+            Files.deleteIfExists(spillFile);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void verifyRecordsAfterDestroyWritten() throws Exception {
+        final AuditTrailManager delegate = mock(AuditTrailManager.class);
+        final AsynchronousAuditTrailManager manager = new AsynchronousAuditTrailManager(delegate, 16);
+        manager.record(newContext("before"));
+        manager.destroy();
+        manager.record(newContext("after"));
+        verify(delegate, times(2)).record(any(AuditActionContext.class));
+        assertEquals(0, manager.getQueueDepth());
+    }
+
+    private static AuditActionContext newContext(final String principal) {
+        return new AuditActionContext(principal, "resource", "ACTION", "CAS", new Date(), "127.0.0.1", "127.0.0.1",
+                mock(AuditPointRuntimeInfo.class));
+    }
+}
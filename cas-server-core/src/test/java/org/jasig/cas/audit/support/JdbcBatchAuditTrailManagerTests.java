@@ -0,0 +1,69 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.audit.support;
+
+import com.github.inspektr.audit.AuditActionContext;
+import com.github.inspektr.audit.AuditPointRuntimeInfo;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link JdbcBatchAuditTrailManager}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class JdbcBatchAuditTrailManagerTests {
+
+    @Test
+    public void verifyRecordsInsertedInOneBatch() throws Exception {
+        final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        final JdbcBatchAuditTrailManager manager = new JdbcBatchAuditTrailManager(
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        manager.setJdbcTemplate(jdbcTemplate);
+        manager.setColumnLength(5);
+
+        manager.record(Arrays.asList(newContext("casuser"), newContext("user")));
+
+        final ArgumentCaptor<BatchPreparedStatementSetter> setter = ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("INSERT INTO COM_AUDIT_TRAIL "), setter.capture());
+        assertEquals(2, setter.getValue().getBatchSize());
+        final PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, 0);
+        verify(ps).setString(1, "casus");
+        setter.getValue().setValues(ps, 1);
+        verify(ps).setString(1, "user");
+    }
+
+    private static AuditActionContext newContext(final String principal) {
+        return new AuditActionContext(principal, "resource", "ACTION", "CAS", new Date(), "127.0.0.1", "127.0.0.1",
+                mock(AuditPointRuntimeInfo.class));
+    }
+}
@@ -18,6 +18,7 @@
  */
 package org.jasig.cas.authentication.principal;
 
+import org.apache.commons.lang3.SerializationUtils;
 import org.jasig.services.persondir.IPersonAttributeDao;
 import org.jasig.services.persondir.IPersonAttributes;
 import org.jasig.services.persondir.support.merger.MultivaluedAttributeMerger;
@@ -25,7 +26,10 @@ import org.jasig.services.persondir.support.merger.NoncollidingAttributeAdder;
 import org.jasig.services.persondir.support.merger.ReplacingAttributeAdder;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
+import javax.cache.Cache;
 import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -33,6 +37,11 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
@@ -133,4 +142,109 @@ public class CachingPrincipalAttributesRepositoryTests {
         assertTrue(values.contains("final@school.com"));
         ((Closeable) repository).close();
     }
+
+    @Test
+    public void verifyConcurrentLookupsLoadOnce() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IPersonAttributes person = this.dao.getPerson("uid");
+        final IPersonAttributeDao slowDao = mock(IPersonAttributeDao.class);
+        when(slowDao.getPerson(any(String.class))).thenAnswer(new Answer<IPersonAttributes>() {
+            @Override
+            public IPersonAttributes answer(final InvocationOnMock invocation) throws Throwable {
+                loading.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return person;
+            }
+        });
+        final CachingPrincipalAttributesRepository repository = new CachingPrincipalAttributesRepository(slowDao,
+                TimeUnit.SECONDS, 5);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Map<String, Object>>> results = new ArrayList<>();
+            results.add(executor.submit(new Lookup(repository)));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(new Lookup(repository)));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (final Future<Map<String, Object>> result : results) {
+                assertEquals(this.attributes.size(), result.get(5, TimeUnit.SECONDS).size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(slowDao, times(1)).getPerson("uid");
+        assertEquals(1, repository.getLoadLatency().getTotalCount());
+        assertEquals(4, repository.getHitCount() + repository.getMissCount());
+        repository.close();
+    }
+
+    @Test
+    public void verifyRefreshAheadServesCachedAttributes() throws Exception {
+        final CachingPrincipalAttributesRepository repository = new CachingPrincipalAttributesRepository(this.dao,
+                TimeUnit.SECONDS, 5);
+        repository.setRefreshAfter(100);
+        assertTrue(repository.getAttributes(this.principal).containsKey("mail"));
+        Thread.sleep(200);
+        this.attributes.remove("mail");
+        assertTrue(repository.getAttributes(this.principal).containsKey("mail"));
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (repository.getAttributes(this.principal).containsKey("mail") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertFalse(repository.getAttributes(this.principal).containsKey("mail"));
+        verify(this.dao, times(2)).getPerson("uid");
+        repository.close();
+    }
+
+    @Test
+    public void verifyNegativeCache() throws Exception {
+        final IPersonAttributeDao emptyDao = mock(IPersonAttributeDao.class);
+        final CachingPrincipalAttributesRepository repository = new CachingPrincipalAttributesRepository(emptyDao,
+                TimeUnit.SECONDS, 5);
+        repository.setNegativeCacheTimeToLive(TimeUnit.SECONDS.toMillis(5));
+        assertTrue(repository.getAttributes(this.principal).isEmpty());
+        assertTrue(repository.getAttributes(this.principal).isEmpty());
+        verify(emptyDao, times(1)).getPerson("uid");
+        assertEquals(1, repository.getHitCount());
+        assertEquals(1, repository.getMissCount());
+        repository.close();
+    }
+
+    private final class Lookup implements Callable<Map<String, Object>> {
+        private final PrincipalAttributesRepository repository;
+
+        Lookup(final PrincipalAttributesRepository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Map<String, Object> call() {
+            return this.repository.getAttributes(principal);
+        }
+    }
+
+    @Test
+    public void verifySerializedRepositoryServesAttributes() throws Exception {
+        final IPersonAttributes person = mock(IPersonAttributes.class, withSettings().serializable());
+        when(person.getAttributes()).thenReturn(this.attributes);
+        final IPersonAttributeDao serializableDao = mock(IPersonAttributeDao.class, withSettings().serializable());
+        when(serializableDao.getPerson(any(String.class))).thenReturn(person);
+
+        @SuppressWarnings("unchecked")
+        final Cache<String, Map<String, Object>> serializableCache = mock(Cache.class, withSettings().serializable());
+
+        final CachingPrincipalAttributesRepository repository =
+                new CachingPrincipalAttributesRepository(serializableDao, serializableCache);
+        repository.setNegativeCacheTimeToLive(1000);
+        assertEquals(this.attributes.size(), repository.getAttributes(this.principal).size());
+
+        final CachingPrincipalAttributesRepository copy =
+                SerializationUtils.deserialize(SerializationUtils.serialize(repository));
+        assertTrue(copy.getAttributes(this.principal).containsKey("a2"));
+        assertEquals(1, copy.getMissCount());
+        assertEquals(1, copy.getLoadLatency().getTotalCount());
+    }
 }
@@ -0,0 +1,49 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.mock;
+
+import org.jasig.cas.util.Clock;
+
+/**
+ * Clock whose time only changes when set or advanced by the test.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class MockClock implements Clock {
+
+    private long time;
+
+    public MockClock(final long time) {
+        this.time = time;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return this.time;
+    }
+
+    public void setTime(final long time) {
+        this.time = time;
+    }
+
+    public void advance(final long millis) {
+        this.time += millis;
+    }
+}
@@ -18,15 +18,17 @@
  */
 package org.jasig.cas.monitor;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jasig.cas.ticket.registry.DefaultTicketRegistry;
 import org.junit.Before;
 import org.junit.Test;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * Unit test for {@link HealthCheckMonitor} class.
@@ -50,7 +52,7 @@ public class HealthCheckMonitorTests {
 
     @Test
     public void verifyObserveOk() throws Exception {
-        final Set<Monitor> monitors = new HashSet<>();
+        final Set<Monitor<?>> monitors = new HashSet<>();
         monitors.add(new MemoryMonitor());
         monitors.add(newSessionMonitor());
         this.monitor.setMonitors(monitors);
@@ -59,7 +61,7 @@ public class HealthCheckMonitorTests {
 
     @Test
     public void verifyObserveWarn() throws Exception {
-        final Set<Monitor> monitors = new HashSet<>();
+        final Set<Monitor<?>> monitors = new HashSet<>();
         final MemoryMonitor memoryMonitor = new MemoryMonitor();
         memoryMonitor.setFreeMemoryWarnThreshold(100);
         monitors.add(memoryMonitor);
@@ -70,7 +72,7 @@ public class HealthCheckMonitorTests {
 
     @Test
     public void verifyThrowsUncheckedException() throws Exception {
-        final Monitor throwsUnchecked = new Monitor() {
+        final Monitor<Status> throwsUnchecked = new Monitor<Status>() {
             @Override
             public String getName() {
                 return "ThrowsUnchecked";
@@ -85,9 +87,82 @@ public class HealthCheckMonitorTests {
         assertEquals(StatusCode.ERROR, this.monitor.observe().getCode());
     }
 
+    @Test
+    public void verifyMonitorsObservedConcurrently() throws Exception {
+        this.monitor.setMonitors(Arrays.<Monitor<?>>asList(
+                new SleepingMonitor("one", 500), new SleepingMonitor("two", 500), new SleepingMonitor("three", 500)));
+        final long start = System.currentTimeMillis();
+        final HealthStatus status = this.monitor.observe();
+        assertTrue(System.currentTimeMillis() - start < 1200);
+        assertEquals(StatusCode.OK, status.getCode());
+        assertEquals(Arrays.asList("one", "two", "three"), Arrays.asList(status.getDetails().keySet().toArray()));
+    }
+
+    @Test
+    public void verifySlowMonitorTimesOut() throws Exception {
+        this.monitor.setMaxWait(200);
+        this.monitor.setMonitors(Arrays.<Monitor<?>>asList(new SleepingMonitor("fast", 0), new SleepingMonitor("slow", 5000)));
+        final long start = System.currentTimeMillis();
+        final HealthStatus status = this.monitor.observe();
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertEquals(StatusCode.WARN, status.getCode());
+        assertEquals(StatusCode.OK, status.getDetails().get("fast").getCode());
+        assertEquals(StatusCode.WARN, status.getDetails().get("slow").getCode());
+        assertTrue(status.getDetails().get("slow").getDescription().contains("timed out"));
+    }
+
+    @Test
+    public void verifyStatusCachedAndRefreshedInBackground() throws Exception {
+        final SleepingMonitor sleeping = new SleepingMonitor("sleeping", 100);
+        this.monitor.setCacheDuration(300);
+        this.monitor.setMonitors(Collections.<Monitor<?>>singleton(sleeping));
+
+        final HealthStatus first = this.monitor.observe();
+        assertSame(first, this.monitor.observe());
+        assertEquals(1, sleeping.observations.get());
+
+        Thread.sleep(400);
+        final long start = System.currentTimeMillis();
+        assertSame(first, this.monitor.observe());
+        assertTrue(System.currentTimeMillis() - start < 100);
+
+        Thread.sleep(300);
+        assertNotSame(first, this.monitor.observe());
+        assertEquals(2, sleeping.observations.get());
+    }
+
     private SessionMonitor newSessionMonitor() {
         final SessionMonitor sessionMonitor = new SessionMonitor();
         sessionMonitor.setTicketRegistry(new DefaultTicketRegistry());
         return sessionMonitor;
     }
+
+    private static class SleepingMonitor implements Monitor<Status> {
+        private final String name;
+
+        private final long sleep;
+
+        private final AtomicInteger observations = new AtomicInteger();
+
+        SleepingMonitor(final String name, final long sleep) {
+            this.name = name;
+            this.sleep = sleep;
+        }
+
+        @Override
+        public String getName() {
+            return this.name;
+        }
+
+        @Override
+        public Status observe() {
+            this.observations.incrementAndGet();
+            try {
+                Thread.sleep(this.sleep);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Status.OK;
+        }
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.monitor;
+
+import org.junit.Test;
+import org.springframework.jmx.export.annotation.AnnotationJmxAttributeSource;
+import org.springframework.jmx.export.metadata.ManagedOperationParameter;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link MetricsRegistry}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class MetricsRegistryTests {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Test
+    public void verifyPercentiles() {
+        for (int i = 1; i <= 1000; i++) {
+            this.registry.record("AUTHENTICATE", TimeUnit.MILLISECONDS.toNanos(i), i % 10 == 0);
+        }
+        final OperationTimer timer = this.registry.timer("AUTHENTICATE");
+        assertEquals(1000, timer.getCount());
+        assertEquals(100, timer.getFailureCount());
+        assertEquals(500, timer.getP50(), 5);
+        assertEquals(990, timer.getP99(), 10);
+        assertEquals(999, timer.getP999(), 10);
+        assertEquals(1000, timer.getMax(), 10);
+        assertEquals(990, this.registry.getPercentile("AUTHENTICATE", 99), 10);
+    }
+
+    @Test
+    public void verifyOperationsTrackedSeparately() {
+        this.registry.record("VALIDATE_SERVICE_TICKET", 1000, false);
+        this.registry.record("AUTHENTICATE", 1000, false);
+        this.registry.record("AUTHENTICATE", 1000, true);
+
+        assertSame(this.registry.timer("AUTHENTICATE"), this.registry.timer("AUTHENTICATE"));
+        assertArrayEquals(new Object[] {"AUTHENTICATE", "VALIDATE_SERVICE_TICKET"},
+                this.registry.getTimers().keySet().toArray());
+        assertEquals(2, this.registry.getTimers().get("AUTHENTICATE").getCount());
+        assertTrue(this.registry.getSummary().get("AUTHENTICATE").startsWith("count=2 failures=1 "));
+        assertEquals(0, this.registry.getPercentile("UNKNOWN", 50), 0);
+    }
+
+    @Test
+    public void verifyReset() {
+        this.registry.record("AUTHENTICATE", 1000, true);
+        this.registry.reset();
+        assertEquals(0, this.registry.timer("AUTHENTICATE").getCount());
+        assertEquals(0, this.registry.timer("AUTHENTICATE").getFailureCount());
+    }
+
+    @Test
+    public void verifyPercentileOperationParametersDescribed() throws Exception {
+        final ManagedOperationParameter[] parameters = new AnnotationJmxAttributeSource().getManagedOperationParameters(
+                MetricsRegistry.class.getMethod("getPercentile", String.class, double.class));
+        assertEquals(2, parameters.length);
+        assertEquals("operation", parameters[0].getName());
+        assertEquals("percentile", parameters[1].getName());
+    }
+}
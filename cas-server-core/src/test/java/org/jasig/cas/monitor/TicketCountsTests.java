@@ -0,0 +1,57 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.monitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for {@link TicketCounts}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class TicketCountsTests {
+
+    @Test
+    public void verifyCountsOfRegistryStateWithoutTicketCounts() {
+        final TicketRegistryState state = mock(TicketRegistryState.class);
+        when(state.sessionCount()).thenReturn(4);
+        when(state.serviceTicketCount()).thenReturn(7);
+
+        final TicketCounts counts = TicketCounts.of(state);
+        assertEquals(4, counts.getTicketGrantingTicketCount());
+        assertEquals(7, counts.getServiceTicketCount());
+        assertEquals(TicketCounts.UNKNOWN, counts.getProxyGrantingTicketCount());
+        assertEquals(TicketCounts.UNKNOWN, counts.getProxyTicketCount());
+        assertEquals(TicketCounts.UNKNOWN, counts.getExpiredTicketCount());
+    }
+
+    @Test
+    public void verifyCountsOfTicketCountsState() {
+        final TicketCounts expected = new TicketCounts(5, 1, 3, 2, 0);
+        final TicketCountsState state = mock(TicketCountsState.class);
+        when(state.ticketCounts()).thenReturn(expected);
+
+        assertSame(expected, TicketCounts.of(state));
+        verify(state, never()).sessionCount();
+    }
+}
@@ -24,10 +24,14 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
 /**
  *
@@ -211,6 +215,78 @@ public class DefaultServicesManagerImplTests  {
 
     }
 
+    @Test
+    public void verifyReloadMergesIncrementalChanges() {
+        final RegisteredServiceImpl r = newService(1, "first");
+        final RegisteredServiceImpl r2 = newService(2, "second");
+        final IncrementalServiceRegistryDao dao = mock(IncrementalServiceRegistryDao.class);
+        when(dao.load()).thenReturn(Arrays.<RegisteredService>asList(r, r2));
+
+        final DefaultServicesManagerImpl manager = new DefaultServicesManagerImpl(dao);
+        final RegisteredServiceImpl modified = newService(2, "modified");
+        final RegisteredServiceImpl added = newService(3, "added");
+        when(dao.loadChanges()).thenReturn(new RegisteredServiceChanges(
+                Arrays.<RegisteredService>asList(modified, added), new HashSet<>(Arrays.asList(2L, 3L))));
+        manager.reload();
+
+        verify(dao, times(1)).load();
+        assertNull(manager.findServiceBy(1));
+        assertEquals("modified", manager.findServiceBy(2).getName());
+        assertEquals("added", manager.findServiceBy(3).getName());
+    }
+
+    @Test
+    public void verifyReloadFallsBackToFullLoad() {
+        final IncrementalServiceRegistryDao dao = mock(IncrementalServiceRegistryDao.class);
+        when(dao.load()).thenReturn(Arrays.<RegisteredService>asList(newService(1, "first")));
+
+        final DefaultServicesManagerImpl manager = new DefaultServicesManagerImpl(dao);
+        when(dao.loadChanges()).thenReturn(null);
+        manager.reload();
+
+        when(dao.loadChanges()).thenReturn(new RegisteredServiceChanges(
+                Collections.<RegisteredService>emptyList(), new HashSet<>(Arrays.asList(1L, 2L))));
+        manager.reload();
+
+        verify(dao, times(3)).load();
+        assertNotNull(manager.findServiceBy(1));
+    }
+
+    @Test
+    public void verifyServicesByTypeAndIndex() {
+        final RegexRegisteredService r = new RegexRegisteredService();
+        r.setId(3000);
+        r.setName("regex");
+        r.setServiceId("^https://.+");
+        r.setEvaluationOrder(2);
+        this.defaultServicesManagerImpl.save(r);
+
+        final AbstractRegisteredServiceIndex<String, RegisteredService> byName =
+                new AbstractRegisteredServiceIndex<String, RegisteredService>(RegisteredService.class) {
+                    @Override
+                    public String getKey(final RegisteredService service) {
+                        return service.getName();
+                    }
+                };
+        assertEquals(Arrays.asList(r), new ArrayList<>(
+                this.defaultServicesManagerImpl.getAllServicesOfType(RegexRegisteredService.class)));
+        assertEquals(2, this.defaultServicesManagerImpl.getAllServicesOfType(RegisteredService.class).size());
+        assertSame(r, this.defaultServicesManagerImpl.findServiceBy(byName, "regex"));
+        assertNotNull(this.defaultServicesManagerImpl.findServiceBy(byName, "serviceName"));
+
+        this.defaultServicesManagerImpl.delete(r.getId());
+        assertNull(this.defaultServicesManagerImpl.findServiceBy(byName, "regex"));
+        assertTrue(this.defaultServicesManagerImpl.getAllServicesOfType(RegexRegisteredService.class).isEmpty());
+    }
+
+    private static RegisteredServiceImpl newService(final long id, final String name) {
+        final RegisteredServiceImpl r = new RegisteredServiceImpl();
+        r.setId(id);
+        r.setName(name);
+        r.setServiceId("test" + id);
+        return r;
+    }
+
     private static class SimpleService implements Service {
 
         /**
@@ -29,6 +29,8 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.springframework.core.io.ClassPathResource;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -315,5 +317,58 @@ public class JsonServiceRegistryDaoTests {
         this.dao.save(r);
         final List<RegisteredService> list = this.dao.load();
         assertEquals(list.size(), 1);
+        assertEquals(authz, this.dao.findServiceById(42).getAccessStrategy());
+    }
+
+    @Test
+    public void verifyLoadingChanges() throws Exception {
+        final File directory = Files.createTempDirectory("services").toFile();
+        final JsonServiceRegistryDao reader = new JsonServiceRegistryDao(directory);
+        final JsonServiceRegistryDao writer = new JsonServiceRegistryDao(directory);
+        try {
+            final RegisteredServiceImpl r = newService("verifyLoadingChanges1", 1);
+            final RegisteredServiceImpl r2 = newService("verifyLoadingChanges2", 2);
+            writer.save(r);
+            writer.save(r2);
+            assertEquals(2, reader.load().size());
+
+            r.setDescription("changed");
+            writer.save(r);
+            writer.delete(r2);
+            final RegisteredServiceImpl r3 = newService("verifyLoadingChanges3", 3);
+            writer.save(r3);
+            FileUtils.write(new File(directory, "broken.json"), "{");
+
+            final Set<Long> expectedIds = new HashSet<>(Arrays.asList(1L, 3L));
+            final Map<Long, RegisteredService> modified = new HashMap<>();
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            RegisteredServiceChanges changes = reader.loadChanges();
+            while (!expectedIds.equals(changes.getServiceIds()) || modified.size() < 2) {
+                for (final RegisteredService service : changes.getModifiedServices()) {
+                    modified.put(service.getId(), service);
+                }
+                assertTrue("Changes not detected in time", System.currentTimeMillis() < deadline);
+                Thread.sleep(50);
+                changes = reader.loadChanges();
+            }
+
+            assertEquals("changed", modified.get(1L).getDescription());
+            assertTrue(modified.containsKey(3L));
+            assertEquals("changed", reader.findServiceById(1).getDescription());
+            assertNull(reader.findServiceById(2));
+            assertEquals(2, reader.load().size());
+        } finally {
+            reader.destroy();
+            writer.destroy();
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    private static RegisteredServiceImpl newService(final String name, final long id) {
+        final RegisteredServiceImpl r = new RegisteredServiceImpl();
+        r.setName(name);
+        r.setServiceId("testId");
+        r.setId(id);
+        return r;
     }
 }
@@ -0,0 +1,114 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.services;
+
+import org.jasig.cas.authentication.principal.DefaultPrincipalFactory;
+import org.jasig.cas.authentication.principal.Principal;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link ReleasedAttributesCache}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class ReleasedAttributesCacheTests {
+
+    private final ReleasedAttributesCache cache = new ReleasedAttributesCache();
+
+    @Test
+    public void verifyAttributesReleasedOnce() {
+        final AttributeReleasePolicy policy = newPolicy();
+        final RegisteredService service = newService(1, policy);
+        final Principal principal = newPrincipal("casuser", "value1");
+
+        final Map<String, Object> first = this.cache.getAttributes(service, principal);
+        final Map<String, Object> second = this.cache.getAttributes(service, newPrincipal("casuser", "value1"));
+        assertSame(first, second);
+        verify(policy, times(1)).getAttributes(any(Principal.class));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void verifyReleasedAttributesImmutable() {
+        final ReturnAllowedAttributeReleasePolicy policy = new ReturnAllowedAttributeReleasePolicy();
+        policy.setAllowedAttributes(Arrays.asList("attr1"));
+        final Map<String, Object> attributes = this.cache.getAttributes(newService(1, policy), newPrincipal("casuser", "value1"));
+        assertEquals("value1", attributes.get("attr1"));
+        attributes.put("attr2", "value2");
+    }
+
+    @Test
+    public void verifyAttributesReleasedAgainWhenKeyChanges() {
+        final AttributeReleasePolicy policy = newPolicy();
+        this.cache.getAttributes(newService(1, policy), newPrincipal("casuser", "value1"));
+        this.cache.getAttributes(newService(1, policy), newPrincipal("other", "value1"));
+        this.cache.getAttributes(newService(2, policy), newPrincipal("other", "value1"));
+        verify(policy, times(3)).getAttributes(any(Principal.class));
+
+        final AttributeReleasePolicy reloaded = newPolicy();
+        this.cache.getAttributes(newService(2, reloaded), newPrincipal("other", "value1"));
+        verify(reloaded, times(1)).getAttributes(any(Principal.class));
+    }
+
+    @Test
+    public void verifyPrincipalAttributesNotPartOfKey() {
+        final AttributeReleasePolicy policy = newPolicy();
+        final RegisteredService service = newService(1, policy);
+        this.cache.getAttributes(service, newPrincipal("casuser", "value1"));
+        this.cache.getAttributes(service, newPrincipal("casuser", "value2"));
+        verify(policy, times(1)).getAttributes(any(Principal.class));
+    }
+
+    @Test
+    public void verifyNothingCachedWithoutTimeToLive() {
+        this.cache.setTimeToLive(0);
+        final AttributeReleasePolicy policy = newPolicy();
+        final RegisteredService service = newService(1, policy);
+        this.cache.getAttributes(service, newPrincipal("casuser", "value1"));
+        this.cache.getAttributes(service, newPrincipal("casuser", "value1"));
+        verify(policy, times(2)).getAttributes(any(Principal.class));
+    }
+
+    private static AttributeReleasePolicy newPolicy() {
+        final AttributeReleasePolicy policy = mock(AttributeReleasePolicy.class);
+        when(policy.getAttributes(any(Principal.class))).thenReturn(new HashMap<String, Object>());
+        return policy;
+    }
+
+    private static RegisteredService newService(final long id, final AttributeReleasePolicy policy) {
+        final RegexRegisteredService service = new RegexRegisteredService();
+        service.setId(id);
+        service.setServiceId("^https://.+");
+        service.setAttributeReleasePolicy(policy);
+        return service;
+    }
+
+    private static Principal newPrincipal(final String id, final String value) {
+        final Map<String, Object> attributes = new HashMap<>();
+        attributes.put("attr1", value);
+        return new DefaultPrincipalFactory().createPrincipal(id, attributes);
+    }
+}
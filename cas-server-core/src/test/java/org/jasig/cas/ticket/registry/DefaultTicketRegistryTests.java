@@ -18,6 +18,21 @@
  */
 package org.jasig.cas.ticket.registry;
 
+import org.jasig.cas.TestUtils;
+import org.jasig.cas.monitor.TicketCounts;
+import org.jasig.cas.ticket.ExpirationPolicy;
+import org.jasig.cas.ticket.ServiceTicket;
+import org.jasig.cas.ticket.Ticket;
+import org.jasig.cas.ticket.TicketGrantingTicket;
+import org.jasig.cas.ticket.TicketGrantingTicketImpl;
+import org.jasig.cas.ticket.support.HardTimeoutExpirationPolicy;
+import org.jasig.cas.ticket.support.NeverExpiresExpirationPolicy;
+import org.junit.Test;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 /**
@@ -36,4 +51,100 @@ public class DefaultTicketRegistryTests extends AbstractTicketRegistryTests {
     public void verifyOtherConstructor() {
         assertNotNull(new DefaultTicketRegistry(10, 10F, 5));
     }
+
+    @Test
+    public void verifyTicketCountsMatchRegistryContents() {
+        final DefaultTicketRegistry registry = new DefaultTicketRegistry();
+        registry.setExpiredTicketCountInterval(0);
+        final SecureRandom random = new SecureRandom();
+        final List<TicketGrantingTicket> ticketGrantingTickets = new ArrayList<>();
+        final List<String> ids = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            final ExpirationPolicy policy = random.nextInt(4) == 0
+                    ? new HardTimeoutExpirationPolicy(-1) : new NeverExpiresExpirationPolicy();
+            final int operation = random.nextInt(5);
+            final Ticket ticket;
+            if (operation == 0 || ids.isEmpty()) {
+                ticket = new TicketGrantingTicketImpl("TGT-" + i, TestUtils.getAuthentication(), policy);
+            } else if (operation == 1) {
+                ticket = new TicketGrantingTicketImpl("PGT-" + i, randomElement(random, ticketGrantingTickets),
+                        TestUtils.getAuthentication(), policy);
+            } else if (operation == 2) {
+                ticket = randomElement(random, ticketGrantingTickets).grantServiceTicket(
+                        "ST-" + i, TestUtils.getService(), policy, false);
+            } else if (operation == 3) {
+                registry.deleteTicket(ids.remove(random.nextInt(ids.size())));
+                continue;
+            } else {
+                // Replacing a ticket must not count it twice.
+                registry.addTicket(registry.getTicket(randomElement(random, ids)));
+                continue;
+            }
+            registry.addTicket(ticket);
+            ids.add(ticket.getId());
+            if (ticket instanceof TicketGrantingTicket) {
+                ticketGrantingTickets.add((TicketGrantingTicket) ticket);
+            }
+        }
+
+        final TicketCounts counts = registry.ticketCounts();
+        final TicketCounts scanned = scan(registry);
+        assertEquals(scanned.getTicketGrantingTicketCount(), counts.getTicketGrantingTicketCount());
+        assertEquals(scanned.getProxyGrantingTicketCount(), counts.getProxyGrantingTicketCount());
+        assertEquals(scanned.getServiceTicketCount(), counts.getServiceTicketCount());
+        assertEquals(scanned.getProxyTicketCount(), counts.getProxyTicketCount());
+        assertEquals(scanned.getExpiredTicketCount(), counts.getExpiredTicketCount());
+        assertEquals(scanned.getTicketGrantingTicketCount(), registry.sessionCount());
+        assertEquals(scanned.getServiceTicketCount(), registry.serviceTicketCount());
+        assertTrue(counts.getProxyTicketCount() > 0);
+    }
+
+    @Test
+    public void verifyExpiredTicketsCountedAtMostOncePerInterval() {
+        final DefaultTicketRegistry registry = new DefaultTicketRegistry();
+        registry.addTicket(new TicketGrantingTicketImpl("TGT-1", TestUtils.getAuthentication(),
+                new HardTimeoutExpirationPolicy(-1)));
+        assertEquals(1, registry.ticketCounts().getExpiredTicketCount());
+
+        registry.addTicket(new TicketGrantingTicketImpl("TGT-2", TestUtils.getAuthentication(),
+                new HardTimeoutExpirationPolicy(-1)));
+        assertEquals(1, registry.ticketCounts().getExpiredTicketCount());
+        assertEquals(2, registry.ticketCounts().getTicketGrantingTicketCount());
+
+        registry.setExpiredTicketCountInterval(0);
+        assertEquals(2, registry.ticketCounts().getExpiredTicketCount());
+    }
+
+    private static <T> T randomElement(final SecureRandom random, final List<T> list) {
+        return list.get(random.nextInt(list.size()));
+    }
+
+    /**
+     * Counts the tickets by examining every ticket of the registry.
+     */
+    private static TicketCounts scan(final TicketRegistry registry) {
+        int tgts = 0;
+        int pgts = 0;
+        int sts = 0;
+        int pts = 0;
+        int expired = 0;
+        for (final Ticket ticket : registry.getTickets()) {
+            if (ticket instanceof TicketGrantingTicket) {
+                tgts++;
+                if (!((TicketGrantingTicket) ticket).isRoot()) {
+                    pgts++;
+                }
+            } else if (ticket instanceof ServiceTicket) {
+                sts++;
+                if (!ticket.getGrantingTicket().isRoot()) {
+                    pts++;
+                }
+            }
+            if (ticket.isExpired()) {
+                expired++;
+            }
+        }
+        return new TicketCounts(tgts, pgts, sts, pts, expired);
+    }
 }
@@ -0,0 +1,222 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.ticket.registry;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.jasig.cas.TestUtils;
+import org.jasig.cas.authentication.principal.Service;
+import org.jasig.cas.ticket.ServiceTicket;
+import org.jasig.cas.ticket.Ticket;
+import org.jasig.cas.ticket.TicketGrantingTicket;
+import org.jasig.cas.ticket.support.MultiTimeUseOrTimeoutExpirationPolicy;
+import org.jasig.cas.ticket.support.NeverExpiresExpirationPolicy;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link NodeAffinityTicketRegistry}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class NodeAffinityTicketRegistryTests extends AbstractTicketRegistryTests {
+
+    private static final String LOCAL_ID = "TGT-1-abcdef-cas-01";
+
+    private static final String FOREIGN_ID = "TGT-1-abcdef-cas-02";
+
+    @Override
+    public TicketRegistry getNewTicketRegistry() throws Exception {
+        return new NodeAffinityTicketRegistry(new DefaultTicketRegistry(), "cas-01");
+    }
+
+    @Test
+    public void verifyLocalTicketServedFromMemory() {
+        final TicketRegistry shared = mock(TicketRegistry.class, delegatesTo(new DefaultTicketRegistry()));
+        final NodeAffinityTicketRegistry registry = new NodeAffinityTicketRegistry(shared, "cas-01");
+        registry.addTicket(TestUtils.getTicketGrantingTicket(LOCAL_ID));
+
+        assertEquals(LOCAL_ID, registry.getTicket(LOCAL_ID, TicketGrantingTicket.class).getId());
+        verify(shared).addTicket(any(TicketGrantingTicket.class));
+        verify(shared, never()).getTicket(LOCAL_ID);
+    }
+
+    @Test
+    public void verifyServiceTicketConsumedOnIssuingNode() {
+        final TicketRegistry shared = new SerializingTicketRegistry();
+        final NodeAffinityTicketRegistry issuingNode = new NodeAffinityTicketRegistry(shared, "cas-01");
+        final NodeAffinityTicketRegistry otherNode = new NodeAffinityTicketRegistry(shared, "cas-02");
+        final Service service = TestUtils.getService();
+        issuingNode.addTicket(TestUtils.getTicketGrantingTicket(LOCAL_ID));
+        final TicketGrantingTicket tgt = issuingNode.getTicket(LOCAL_ID, TicketGrantingTicket.class);
+        final ServiceTicket st = tgt.grantServiceTicket("ST-1-abcdef-cas-01", service,
+                new MultiTimeUseOrTimeoutExpirationPolicy(1, 60000), false);
+        issuingNode.addTicket(st);
+
+        final ServiceTicket validated = issuingNode.getTicket(st.getId(), ServiceTicket.class);
+        assertTrue(validated.isValidFor(service));
+        assertTrue(issuingNode.getTicket(st.getId()).isExpired());
+        assertTrue(otherNode.getTicket(st.getId()).isExpired());
+
+        assertTrue(issuingNode.deleteTicket(st.getId()));
+        assertNull(issuingNode.getTicket(st.getId()));
+        assertNull(otherNode.getTicket(st.getId()));
+    }
+
+    @Test
+    public void verifyLogoutOnIssuingNode() {
+        final TicketRegistry shared = new SerializingTicketRegistry();
+        final NodeAffinityTicketRegistry issuingNode = new NodeAffinityTicketRegistry(shared, "cas-01");
+        final NodeAffinityTicketRegistry otherNode = new NodeAffinityTicketRegistry(shared, "cas-02");
+        issuingNode.addTicket(TestUtils.getTicketGrantingTicket(LOCAL_ID));
+        assertFalse(otherNode.getTicket(LOCAL_ID).isExpired());
+
+        final TicketGrantingTicket tgt = issuingNode.getTicket(LOCAL_ID, TicketGrantingTicket.class);
+        tgt.markTicketExpired();
+        assertTrue(otherNode.getTicket(LOCAL_ID).isExpired());
+
+        assertTrue(issuingNode.deleteTicket(LOCAL_ID));
+        assertNull(issuingNode.getTicket(LOCAL_ID));
+        assertNull(otherNode.getTicket(LOCAL_ID));
+    }
+
+    @Test
+    public void verifyForeignTicketServedFromSharedRegistry() {
+        final TicketRegistry shared = mock(TicketRegistry.class, delegatesTo(new DefaultTicketRegistry()));
+        final NodeAffinityTicketRegistry registry = new NodeAffinityTicketRegistry(shared, "cas-01");
+        registry.addTicket(TestUtils.getTicketGrantingTicket(FOREIGN_ID));
+
+        assertEquals(FOREIGN_ID, registry.getTicket(FOREIGN_ID).getId());
+        verify(shared).getTicket(FOREIGN_ID);
+    }
+
+    @Test
+    public void verifyLocalTicketRecoveredFromSharedRegistry() {
+        final TicketRegistry shared = new DefaultTicketRegistry();
+        shared.addTicket(TestUtils.getTicketGrantingTicket(LOCAL_ID));
+
+        final NodeAffinityTicketRegistry registry = new NodeAffinityTicketRegistry(shared, "cas-01");
+        assertNotNull(registry.getTicket(LOCAL_ID));
+    }
+
+    @Test
+    public void verifyUpdatesWrittenThrough() {
+        final TicketRegistry shared = mock(TicketRegistry.class, delegatesTo(new DefaultTicketRegistry()));
+        final NodeAffinityTicketRegistry registry = new NodeAffinityTicketRegistry(shared, "cas-01");
+        registry.addTicket(TestUtils.getTicketGrantingTicket(LOCAL_ID));
+
+        final TicketGrantingTicket tgt = registry.getTicket(LOCAL_ID, TicketGrantingTicket.class);
+        final ServiceTicket st = tgt.grantServiceTicket("ST-1-abcdef-cas-01", TestUtils.getService(),
+                new NeverExpiresExpirationPolicy(), false);
+
+        verify(shared, times(2)).addTicket(any(TicketGrantingTicket.class));
+        assertEquals(1, shared.getTicket(LOCAL_ID).getCountOfUses());
+        assertNotNull(st);
+    }
+
+    @Test
+    public void verifyDeleteRemovesLocalAndSharedTicket() {
+        final TicketRegistry shared = new DefaultTicketRegistry();
+        final NodeAffinityTicketRegistry registry = new NodeAffinityTicketRegistry(shared, "cas-01");
+        registry.addTicket(TestUtils.getTicketGrantingTicket(LOCAL_ID));
+
+        assertTrue(registry.deleteTicket(LOCAL_ID));
+        assertNull(registry.getTicket(LOCAL_ID));
+        assertNull(shared.getTicket(LOCAL_ID));
+    }
+
+    @Test
+    public void verifyTicketsHeldLongestEvictedWhenFull() {
+        final TicketRegistry shared = mock(TicketRegistry.class, delegatesTo(new DefaultTicketRegistry()));
+        final NodeAffinityTicketRegistry registry = new NodeAffinityTicketRegistry(shared, "cas-01");
+        registry.setMaxSize(1);
+        registry.addTicket(TestUtils.getTicketGrantingTicket(LOCAL_ID));
+        registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-2-abcdef-cas-01"));
+
+        assertNotNull(registry.getTicket("TGT-2-abcdef-cas-01"));
+        verify(shared, never()).getTicket("TGT-2-abcdef-cas-01");
+        assertNotNull(registry.getTicket(LOCAL_ID));
+        verify(shared).getTicket(LOCAL_ID);
+    }
+
+    @Test
+    public void verifyDeletedTicketsNotCountedWhenFull() {
+        final TicketRegistry shared = mock(TicketRegistry.class, delegatesTo(new DefaultTicketRegistry()));
+        final NodeAffinityTicketRegistry registry = new NodeAffinityTicketRegistry(shared, "cas-01");
+        registry.setMaxSize(2);
+        registry.addTicket(TestUtils.getTicketGrantingTicket(LOCAL_ID));
+        registry.deleteTicket(LOCAL_ID);
+        registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-2-abcdef-cas-01"));
+        registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-3-abcdef-cas-01"));
+
+        assertNotNull(registry.getTicket("TGT-2-abcdef-cas-01"));
+        assertNotNull(registry.getTicket("TGT-3-abcdef-cas-01"));
+        verify(shared, never()).getTicket(anyString());
+    }
+
+    /**
+     * Shared registry handing out copies of the tickets, as registries storing them remotely do.
+     */
+    private static final class SerializingTicketRegistry extends AbstractDistributedTicketRegistry {
+        private final Map<String, byte[]> tickets = new ConcurrentHashMap<>();
+
+        @Override
+        public void addTicket(final Ticket ticket) {
+            this.tickets.put(ticket.getId(), SerializationUtils.serialize(ticket));
+        }
+
+        @Override
+        public Ticket getTicket(final String ticketId) {
+            final byte[] ticket = this.tickets.get(ticketId);
+            return ticket == null ? null : getProxiedTicketInstance((Ticket) SerializationUtils.deserialize(ticket));
+        }
+
+        @Override
+        public boolean deleteTicket(final String ticketId) {
+            return this.tickets.remove(ticketId) != null;
+        }
+
+        @Override
+        public Collection<Ticket> getTickets() {
+            final Collection<Ticket> copies = new ArrayList<>();
+            for (final byte[] ticket : this.tickets.values()) {
+                copies.add((Ticket) SerializationUtils.deserialize(ticket));
+            }
+            return copies;
+        }
+
+        @Override
+        protected void updateTicket(final Ticket ticket) {
+            addTicket(ticket);
+        }
+
+        @Override
+        protected boolean needsCallback() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.ticket.registry;
+
+import org.jasig.cas.TestUtils;
+import org.jasig.cas.monitor.TicketCounts;
+import org.jasig.cas.ticket.ServiceTicket;
+import org.jasig.cas.ticket.Ticket;
+import org.jasig.cas.ticket.TicketGrantingTicket;
+import org.jasig.cas.ticket.TicketGrantingTicketImpl;
+import org.jasig.cas.ticket.support.NeverExpiresExpirationPolicy;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test case to test the {@link OffHeapTicketRegistry} based on test cases to test all ticket registries.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class OffHeapTicketRegistryTests extends AbstractTicketRegistryTests {
+
+    private static final int SLAB_SIZE = 64 * 1024;
+
+    private OffHeapTicketRegistry registry;
+
+    @Override
+    public TicketRegistry getNewTicketRegistry() throws Exception {
+        this.registry = new OffHeapTicketRegistry(SLAB_SIZE, SLAB_SIZE * 64);
+        return this.registry;
+    }
+
+    @After
+    public void tearDown() {
+        this.registry.destroy();
+    }
+
+    @Test
+    public void verifyChangesToTicketsAreStored() {
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-1"));
+
+        final TicketGrantingTicket tgt = this.registry.getTicket("TGT-1", TicketGrantingTicket.class);
+        final ServiceTicket st = tgt.grantServiceTicket("ST-1", TestUtils.getService(),
+                new NeverExpiresExpirationPolicy(), false);
+        this.registry.addTicket(st);
+
+        final TicketGrantingTicket stored = this.registry.getTicket("TGT-1", TicketGrantingTicket.class);
+        assertEquals(1, stored.getCountOfUses());
+        assertEquals(1, stored.getServices().size());
+        assertEquals("TGT-1", this.registry.getTicket("ST-1").getGrantingTicket().getId());
+
+        stored.markTicketExpired();
+        assertTrue(this.registry.getTicket("TGT-1").isExpired());
+        assertTrue(this.registry.getTicket("ST-1").isExpired());
+    }
+
+    @Test
+    public void verifyBlocksOfDeletedTicketsAreReused() {
+        for (int i = 0; i < 1000; i++) {
+            this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-" + i));
+            if (i >= 10) {
+                assertTrue(this.registry.deleteTicket("TGT-" + (i - 10)));
+            }
+        }
+        assertEquals(10, this.registry.sessionCount());
+        assertEquals(10, this.registry.getTickets().size());
+        assertEquals(SLAB_SIZE, this.registry.getAllocatedBytes());
+    }
+
+    @Test
+    public void verifyIndexGrowsAndKeepsAllTickets() {
+        final OffHeapTicketRegistry large = new OffHeapTicketRegistry(SLAB_SIZE, SLAB_SIZE * 1024);
+        try {
+            for (int i = 0; i < 5000; i++) {
+                large.addTicket(TestUtils.getTicketGrantingTicket("TGT-" + i));
+            }
+            for (int i = 0; i < 5000; i += 2) {
+                assertTrue(large.deleteTicket("TGT-" + i));
+            }
+            for (int i = 0; i < 5000; i++) {
+                assertEquals(i % 2 == 1, large.getTicket("TGT-" + i) != null);
+            }
+            assertEquals(2500, large.getTickets().size());
+        } finally {
+            large.destroy();
+        }
+    }
+
+    @Test
+    public void verifyFullRegistryRejectsTickets() {
+        final OffHeapTicketRegistry small = new OffHeapTicketRegistry(SLAB_SIZE, SLAB_SIZE);
+        try {
+            int added = 0;
+            try {
+                while (true) {
+                    small.addTicket(TestUtils.getTicketGrantingTicket("TGT-" + added));
+                    added++;
+                }
+            } catch (final IllegalStateException e) {
+                assertTrue(added > 0);
+            }
+            assertEquals(added, small.sessionCount());
+            assertTrue(small.deleteTicket("TGT-0"));
+            small.addTicket(TestUtils.getTicketGrantingTicket("TGT-" + added));
+        } finally {
+            small.destroy();
+        }
+    }
+
+    @Test
+    public void verifyTicketCountsMatchRegistryContents() {
+        final TicketGrantingTicket tgt = TestUtils.getTicketGrantingTicket("TGT-1");
+        this.registry.addTicket(tgt);
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-2"));
+        final ServiceTicket st = tgt.grantServiceTicket("ST-1", TestUtils.getService(),
+                new NeverExpiresExpirationPolicy(), false);
+        this.registry.addTicket(st);
+        final TicketGrantingTicket pgt = st.grantTicketGrantingTicket("PGT-1", TestUtils.getAuthentication(),
+                new NeverExpiresExpirationPolicy());
+        this.registry.addTicket(pgt);
+        this.registry.addTicket(pgt.grantServiceTicket("PT-1", TestUtils.getService(),
+                new NeverExpiresExpirationPolicy(), false));
+        this.registry.updateTicket(tgt);
+        this.registry.deleteTicket("TGT-2");
+
+        final TicketCounts counts = this.registry.ticketCounts();
+        assertEquals(2, counts.getTicketGrantingTicketCount());
+        assertEquals(1, counts.getProxyGrantingTicketCount());
+        assertEquals(2, counts.getServiceTicketCount());
+        assertEquals(1, counts.getProxyTicketCount());
+        assertEquals(TicketCounts.UNKNOWN, counts.getExpiredTicketCount());
+        assertEquals(4, this.registry.getTickets().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyTicketLargerThanSlabIsRejected() {
+        final TicketGrantingTicket tgt = new TicketGrantingTicketImpl("TGT-1", TestUtils.getAuthentication(
+                TestUtils.getPrincipal("casuser", Collections.<String, Object>singletonMap("blob",
+                        new byte[SLAB_SIZE]))), new NeverExpiresExpirationPolicy());
+        this.registry.addTicket(tgt);
+    }
+
+    @Test
+    public void verifyConcurrentAccess() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Void>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = 0; i < 200; i++) {
+                            final String id = "TGT-" + thread + '-' + i;
+                            registry.addTicket(TestUtils.getTicketGrantingTicket(id));
+                            assertEquals(id, registry.getTicket(id).getId());
+                            if (i % 2 == 0) {
+                                assertTrue(registry.deleteTicket(id));
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(800, this.registry.sessionCount());
+        for (final Ticket ticket : this.registry.getTickets()) {
+            assertTrue(ticket.getId().matches("TGT-\\d-\\d*[13579]"));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.ticket.registry;
+
+import org.jasig.cas.util.DefaultUniqueTicketIdGenerator;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TicketNodeResolver}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class TicketNodeResolverTests {
+
+    private final TicketNodeResolver resolver = new TicketNodeResolver();
+
+    @Test
+    public void verifyNodeResolvedFromGeneratedId() {
+        final DefaultUniqueTicketIdGenerator generator = new DefaultUniqueTicketIdGenerator(20, "cas-01");
+        final String id = generator.getNewTicketId("ST");
+        assertEquals("cas-01", this.resolver.resolveNode(id));
+        assertTrue(this.resolver.isIssuedBy(id, generator.getSuffix()));
+        assertFalse(this.resolver.isIssuedBy(id, "01"));
+        assertFalse(this.resolver.isIssuedBy(id, "cas-02"));
+    }
+
+    @Test
+    public void verifyNoNodeWithoutSuffix() {
+        assertNull(this.resolver.resolveNode(new DefaultUniqueTicketIdGenerator().getNewTicketId("ST")));
+        assertNull(this.resolver.resolveNode("ST-1-abcdef-"));
+        assertNull(this.resolver.resolveNode("invalid"));
+        assertNull(this.resolver.resolveNode(null));
+        assertFalse(this.resolver.isIssuedBy("ST-1-abcdef", "abcdef"));
+    }
+}
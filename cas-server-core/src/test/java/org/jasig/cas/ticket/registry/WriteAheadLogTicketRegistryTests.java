@@ -0,0 +1,274 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.ticket.registry;
+
+import org.jasig.cas.TestUtils;
+import org.jasig.cas.monitor.TicketCounts;
+import org.jasig.cas.ticket.ServiceTicket;
+import org.jasig.cas.ticket.TicketGrantingTicket;
+import org.jasig.cas.ticket.support.NeverExpiresExpirationPolicy;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test case to test the {@link WriteAheadLogTicketRegistry} based on test cases to test all ticket registries.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class WriteAheadLogTicketRegistryTests extends AbstractTicketRegistryTests {
+
+    private final TemporaryFolder folder = new TemporaryFolder();
+
+    private WriteAheadLogTicketRegistry registry;
+
+    @Rule
+    public TemporaryFolder getFolder() {
+        return this.folder;
+    }
+
+    @Override
+    public TicketRegistry getNewTicketRegistry() throws Exception {
+        this.registry = new WriteAheadLogTicketRegistry(this.folder.getRoot());
+        return this.registry;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.registry.destroy();
+    }
+
+    @Test
+    public void verifyTicketsRecoveredAfterCrash() throws Exception {
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-1"));
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-2"));
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-3"));
+        assertTrue(this.registry.deleteTicket("TGT-2"));
+        assertFalse(this.registry.deleteTicket("TGT-4"));
+
+        final WriteAheadLogTicketRegistry recovered = crashAndRecover();
+        assertNotNull(recovered.getTicket("TGT-1"));
+        assertNull(recovered.getTicket("TGT-2"));
+        assertNotNull(recovered.getTicket("TGT-3"));
+        assertEquals(2, recovered.sessionCount());
+        assertEquals(2, recovered.getTickets().size());
+    }
+
+    @Test
+    public void verifyChangesToTicketsRecoveredAfterCrash() throws Exception {
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-1"));
+        final TicketGrantingTicket tgt = this.registry.getTicket("TGT-1", TicketGrantingTicket.class);
+        final ServiceTicket st = tgt.grantServiceTicket("ST-1", TestUtils.getService(),
+                new NeverExpiresExpirationPolicy(), false);
+        this.registry.addTicket(st);
+        final ServiceTicket storedSt = this.registry.getTicket("ST-1", ServiceTicket.class);
+        this.registry.addTicket(storedSt.grantTicketGrantingTicket("PGT-1", TestUtils.getAuthentication(),
+                new NeverExpiresExpirationPolicy()));
+        final TicketGrantingTicket storedPgt = this.registry.getTicket("PGT-1", TicketGrantingTicket.class);
+        this.registry.addTicket(storedPgt.grantServiceTicket("PT-1", TestUtils.getService(),
+                new NeverExpiresExpirationPolicy(), false));
+
+        final WriteAheadLogTicketRegistry recovered = crashAndRecover();
+        final TicketGrantingTicket stored = recovered.getTicket("TGT-1", TicketGrantingTicket.class);
+        assertEquals(1, stored.getCountOfUses());
+        assertEquals(1, stored.getServices().size());
+        assertEquals("TGT-1", recovered.getTicket("ST-1").getGrantingTicket().getId());
+        assertEquals("PGT-1", recovered.getTicket("PT-1").getGrantingTicket().getId());
+
+        stored.markTicketExpired();
+        assertTrue(recovered.getTicket("ST-1").isExpired());
+        assertTrue(crashAndRecover().getTicket("TGT-1").isExpired());
+    }
+
+    @Test
+    public void verifyTicketCountsRecoveredAfterCrash() throws Exception {
+        final TicketGrantingTicket tgt = TestUtils.getTicketGrantingTicket("TGT-1");
+        this.registry.addTicket(tgt);
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-2"));
+        final ServiceTicket st = tgt.grantServiceTicket("ST-1", TestUtils.getService(),
+                new NeverExpiresExpirationPolicy(), false);
+        this.registry.addTicket(st);
+        final TicketGrantingTicket pgt = st.grantTicketGrantingTicket("PGT-1", TestUtils.getAuthentication(),
+                new NeverExpiresExpirationPolicy());
+        this.registry.addTicket(pgt);
+        this.registry.addTicket(pgt.grantServiceTicket("PT-1", TestUtils.getService(),
+                new NeverExpiresExpirationPolicy(), false));
+        this.registry.updateTicket(tgt);
+        this.registry.deleteTicket("TGT-2");
+
+        final TicketCounts counts = crashAndRecover().ticketCounts();
+        assertEquals(2, counts.getTicketGrantingTicketCount());
+        assertEquals(1, counts.getProxyGrantingTicketCount());
+        assertEquals(2, counts.getServiceTicketCount());
+        assertEquals(1, counts.getProxyTicketCount());
+    }
+
+    @Test
+    public void verifyTornRecordIgnored() throws Exception {
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-1"));
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-2"));
+        final File log = file(WriteAheadLogTicketRegistry.LOG_FILE);
+        try (final RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.setLength(file.length() - 10);
+        }
+
+        WriteAheadLogTicketRegistry recovered = crashAndRecover();
+        assertNotNull(recovered.getTicket("TGT-1"));
+        assertNull(recovered.getTicket("TGT-2"));
+
+        recovered.addTicket(TestUtils.getTicketGrantingTicket("TGT-3"));
+        recovered = crashAndRecover();
+        assertNotNull(recovered.getTicket("TGT-1"));
+        assertNotNull(recovered.getTicket("TGT-3"));
+        assertEquals(2, recovered.sessionCount());
+    }
+
+    @Test
+    public void verifyCorruptRecordIgnored() throws Exception {
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-1"));
+        final File log = file(WriteAheadLogTicketRegistry.LOG_FILE);
+        final long length = log.length();
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-2"));
+        try (final RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.seek(length + 20);
+            file.write(~file.read());
+        }
+        append(log, new byte[] {0, 0, 0, 100, 1, 2, 3});
+
+        WriteAheadLogTicketRegistry recovered = crashAndRecover();
+        assertNotNull(recovered.getTicket("TGT-1"));
+        assertNull(recovered.getTicket("TGT-2"));
+
+        recovered.addTicket(TestUtils.getTicketGrantingTicket("TGT-3"));
+        recovered.deleteTicket("TGT-1");
+        recovered = crashAndRecover();
+        assertNull(recovered.getTicket("TGT-1"));
+        assertNotNull(recovered.getTicket("TGT-3"));
+    }
+
+    @Test
+    public void verifySnapshotReplacesLog() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-" + i));
+        }
+        for (int i = 0; i < 100; i += 2) {
+            this.registry.deleteTicket("TGT-" + i);
+        }
+        this.registry.snapshot();
+        assertEquals(0, file(WriteAheadLogTicketRegistry.LOG_FILE).length());
+        assertFalse(file(WriteAheadLogTicketRegistry.ROTATED_LOG_FILE).exists());
+        assertTrue(file(WriteAheadLogTicketRegistry.SNAPSHOT_FILE).exists());
+
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-100"));
+        final WriteAheadLogTicketRegistry recovered = crashAndRecover();
+        for (int i = 0; i <= 100; i++) {
+            assertEquals(i % 2 == 1 || i == 100, recovered.getTicket("TGT-" + i) != null);
+        }
+        assertEquals(51, recovered.sessionCount());
+    }
+
+    @Test
+    public void verifyCrashDuringSnapshotRecovered() throws Exception {
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-1"));
+        this.registry.snapshot();
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-2"));
+        this.registry.deleteTicket("TGT-1");
+        this.registry.destroy();
+
+        // the log was rotated and the new snapshot only partially written when the server crashed
+        Files.move(file(WriteAheadLogTicketRegistry.LOG_FILE).toPath(),
+                file(WriteAheadLogTicketRegistry.ROTATED_LOG_FILE).toPath());
+        append(file(WriteAheadLogTicketRegistry.TEMPORARY_SNAPSHOT_FILE), new byte[] {0, 0, 1});
+        append(file(WriteAheadLogTicketRegistry.LOG_FILE), new byte[0]);
+
+        this.registry = new WriteAheadLogTicketRegistry(this.folder.getRoot());
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-3"));
+        assertFalse(file(WriteAheadLogTicketRegistry.ROTATED_LOG_FILE).exists());
+        assertFalse(file(WriteAheadLogTicketRegistry.TEMPORARY_SNAPSHOT_FILE).exists());
+
+        final WriteAheadLogTicketRegistry recovered = crashAndRecover();
+        assertNull(recovered.getTicket("TGT-1"));
+        assertNotNull(recovered.getTicket("TGT-2"));
+        assertNotNull(recovered.getTicket("TGT-3"));
+        assertEquals(2, recovered.sessionCount());
+    }
+
+    @Test
+    public void verifyCrashAfterSnapshotRenamedRecovered() throws Exception {
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-1"));
+        final byte[] coveredRecords = Files.readAllBytes(file(WriteAheadLogTicketRegistry.LOG_FILE).toPath());
+        this.registry.deleteTicket("TGT-1");
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-2"));
+        this.registry.snapshot();
+        this.registry.destroy();
+
+        // the snapshot was renamed into place but the rotated log not deleted when the server crashed
+        append(file(WriteAheadLogTicketRegistry.ROTATED_LOG_FILE), coveredRecords);
+
+        this.registry = new WriteAheadLogTicketRegistry(this.folder.getRoot());
+        assertNull(this.registry.getTicket("TGT-1"));
+        assertNotNull(this.registry.getTicket("TGT-2"));
+        assertFalse(file(WriteAheadLogTicketRegistry.ROTATED_LOG_FILE).exists());
+
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-3"));
+        final WriteAheadLogTicketRegistry recovered = crashAndRecover();
+        assertNull(recovered.getTicket("TGT-1"));
+        assertNotNull(recovered.getTicket("TGT-2"));
+        assertNotNull(recovered.getTicket("TGT-3"));
+        assertEquals(2, recovered.sessionCount());
+    }
+
+    @Test
+    public void verifySyncOnWrite() throws Exception {
+        this.registry.setSyncOnWrite(true);
+        this.registry.addTicket(TestUtils.getTicketGrantingTicket("TGT-1"));
+        assertNotNull(crashAndRecover().getTicket("TGT-1"));
+    }
+
+    /**
+     * Simulates a crash by recovering the files of the registry without closing it first.
+     *
+     * @return the recovered registry
+     * @throws IOException if the files cannot be read
+     */
+    private WriteAheadLogTicketRegistry crashAndRecover() throws IOException {
+        this.registry = new WriteAheadLogTicketRegistry(this.folder.getRoot());
+        return this.registry;
+    }
+
+    private File file(final String name) {
+        return new File(this.folder.getRoot(), name);
+    }
+
+    private static void append(final File file, final byte[] bytes) throws IOException {
+        try (final FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(bytes);
+        }
+    }
+}
@@ -21,7 +21,8 @@ package org.jasig.cas.ticket.support;
 import static org.junit.Assert.*;
 
 import org.jasig.cas.TestUtils;
-import org.jasig.cas.ticket.ExpirationPolicy;
+import org.jasig.cas.mock.MockClock;
+import org.jasig.cas.ticket.TimedExpirationPolicy;
 import org.jasig.cas.ticket.TicketGrantingTicket;
 import org.jasig.cas.ticket.TicketGrantingTicketImpl;
 import org.junit.Before;
@@ -41,7 +42,7 @@ public class MultiTimeUseOrTimeoutExpirationPolicyTests {
 
     private static final int TIMEOUT_BUFFER = 50;
 
-    private ExpirationPolicy expirationPolicy;
+    private TimedExpirationPolicy expirationPolicy;
 
     private TicketGrantingTicket ticket;
 
@@ -77,4 +78,28 @@ public class MultiTimeUseOrTimeoutExpirationPolicyTests {
         }
         assertTrue(this.ticket.isExpired());
     }
+
+    @Test
+    public void verifyTicketExpiresAtExpirationTime() {
+        final MultiTimeUseOrTimeoutExpirationPolicy policy = new MultiTimeUseOrTimeoutExpirationPolicy(
+                NUMBER_OF_USES, TIMEOUT_MILLISECONDS);
+        final TicketGrantingTicketImpl t = new TicketGrantingTicketImpl("test", TestUtils.getAuthentication(), policy);
+        final long expirationTime = policy.getExpirationTime(t);
+        assertEquals(t.getLastTimeUsed() + TIMEOUT_MILLISECONDS, expirationTime);
+
+        final MockClock clock = new MockClock(expirationTime - 1);
+        policy.setClock(clock);
+        assertFalse(t.isExpired());
+        clock.advance(1);
+        assertTrue(t.isExpired());
+    }
+
+    @Test
+    public void verifyExpirationTimeOfTicketExpiredByCount() {
+        for (int i = 0; i < NUMBER_OF_USES; i++) {
+            this.ticket.grantServiceTicket("test", TestUtils.getService(), new NeverExpiresExpirationPolicy(), false);
+        }
+        assertTrue(this.expirationPolicy.getExpirationTime((TicketGrantingTicketImpl) this.ticket)
+                <= System.currentTimeMillis());
+    }
 }
@@ -23,7 +23,10 @@ import org.jasig.cas.authentication.Authentication;
 import org.jasig.cas.authentication.RememberMeCredential;
 import org.jasig.cas.authentication.principal.DefaultPrincipalFactory;
 import org.jasig.cas.authentication.principal.PrincipalFactory;
+import org.jasig.cas.mock.MockClock;
+import org.jasig.cas.ticket.ExpirationPolicy;
 import org.jasig.cas.ticket.TicketGrantingTicketImpl;
+import org.jasig.cas.ticket.TicketState;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -78,4 +81,36 @@ public final class RememberMeDelegatingExpirationPolicyTests {
 
     }
 
+    @Test
+    public void verifyExpirationTimeOfDelegatePolicy() {
+        final Authentication authentication = TestUtils.getAuthentication(
+                this.principalFactory.createPrincipal("test"),
+                Collections.<String, Object>singletonMap(
+                        RememberMeCredential.AUTHENTICATION_ATTRIBUTE_REMEMBER_ME, true));
+        this.p.setRememberMeExpirationPolicy(new NeverExpiresExpirationPolicy());
+        assertEquals(NeverExpiresExpirationPolicy.NEVER,
+                this.p.getExpirationTime(new TicketGrantingTicketImpl("111", authentication, this.p)));
+
+        final TicketGrantingTicketImpl t = new TicketGrantingTicketImpl("222", TestUtils.getAuthentication(), this.p);
+        assertEquals(t.getLastTimeUsed() + 20000, this.p.getExpirationTime(t));
+    }
+
+    @Test
+    public void verifyExpirationTimeOfUntimedDelegatePolicy() {
+        final MockClock clock = new MockClock(1000);
+        this.p.setClock(clock);
+        this.p.setSessionExpirationPolicy(new ExpirationPolicy() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public boolean isExpired(final TicketState ticketState) {
+                return ticketState.getCountOfUses() > 0;
+            }
+        });
+        final TicketGrantingTicketImpl t = new TicketGrantingTicketImpl("111", TestUtils.getAuthentication(), this.p);
+        assertEquals(RememberMeDelegatingExpirationPolicy.NEVER, this.p.getExpirationTime(t));
+
+        t.grantServiceTicket("55", TestUtils.getService(), this.p, false);
+        assertEquals(1000, this.p.getExpirationTime(t));
+    }
 }
@@ -21,6 +21,7 @@ package org.jasig.cas.ticket.support;
 import static org.junit.Assert.*;
 
 import org.jasig.cas.TestUtils;
+import org.jasig.cas.mock.MockClock;
 import org.jasig.cas.ticket.TicketGrantingTicket;
 import org.jasig.cas.ticket.TicketGrantingTicketImpl;
 import org.junit.Before;
@@ -74,4 +75,17 @@ public class ThrottledUseAndTimeoutExpirationPolicyTests  {
         this.ticket.grantServiceTicket("test", TestUtils.getService(), this.expirationPolicy, false);
         assertTrue(this.ticket.isExpired());
     }
+
+    @Test
+    public void verifyTicketExpiresAtExpirationTime() {
+        final TicketGrantingTicketImpl t = (TicketGrantingTicketImpl) this.ticket;
+        final long expirationTime = this.expirationPolicy.getExpirationTime(t);
+        assertEquals(t.getLastTimeUsed() + TIMEOUT, expirationTime);
+
+        final MockClock clock = new MockClock(expirationTime - 1);
+        this.expirationPolicy.setClock(clock);
+        assertFalse(t.isExpired());
+        clock.advance(1);
+        assertTrue(t.isExpired());
+    }
 }
@@ -20,11 +20,14 @@ package org.jasig.cas.ticket.support;
 
 import static org.junit.Assert.*;
 import org.jasig.cas.TestUtils;
+import org.jasig.cas.mock.MockClock;
 import org.jasig.cas.ticket.TicketGrantingTicket;
 import org.jasig.cas.ticket.TicketGrantingTicketImpl;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author William G. Thompson, Jr.
 
@@ -84,4 +87,30 @@ public class TicketGrantingTicketExpirationPolicyTests {
 
     }
 
+    @Test
+    public void verifyExpirationTimeIsEarliestOfHardAndSlidingTimeouts() {
+        final TicketGrantingTicketImpl t = (TicketGrantingTicketImpl) this.ticketGrantingTicket;
+        final MockClock clock = new MockClock(t.getCreationTime());
+        this.expirationPolicy.setClock(clock);
+        assertEquals(t.getLastTimeUsed() + SLIDING_TIMEOUT, this.expirationPolicy.getExpirationTime(t));
+
+        clock.advance(SLIDING_TIMEOUT - 1);
+        assertFalse(t.isExpired());
+        clock.advance(1);
+        assertTrue(t.isExpired());
+    }
+
+    @Test
+    public void verifyExpirationTimeIsCappedByHardTimeout() {
+        final TicketGrantingTicketExpirationPolicy policy = new TicketGrantingTicketExpirationPolicy(
+                HARD_TIMEOUT, HARD_TIMEOUT * 2, TimeUnit.MILLISECONDS);
+        final TicketGrantingTicketImpl t = new TicketGrantingTicketImpl("test", TestUtils.getAuthentication(), policy);
+        assertEquals(t.getCreationTime() + HARD_TIMEOUT, policy.getExpirationTime(t));
+
+        final MockClock clock = new MockClock(t.getCreationTime() + HARD_TIMEOUT - 1);
+        policy.setClock(clock);
+        assertFalse(t.isExpired());
+        clock.advance(1);
+        assertTrue(t.isExpired());
+    }
 }
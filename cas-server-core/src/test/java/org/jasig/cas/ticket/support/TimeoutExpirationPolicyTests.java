@@ -21,6 +21,7 @@ package org.jasig.cas.ticket.support;
 import static org.junit.Assert.*;
 
 import org.jasig.cas.TestUtils;
+import org.jasig.cas.mock.MockClock;
 import org.jasig.cas.ticket.ExpirationPolicy;
 import org.jasig.cas.ticket.Ticket;
 import org.jasig.cas.ticket.TicketGrantingTicketImpl;
@@ -65,4 +66,19 @@ public class TimeoutExpirationPolicyTests {
         // accurate??
         assertTrue(this.ticket.isExpired());
     }
+
+    @Test
+    public void verifyTicketExpiresAtExpirationTime() {
+        final TimeoutExpirationPolicy policy = new TimeoutExpirationPolicy(TIMEOUT);
+        final Ticket t = new TicketGrantingTicketImpl("test", TestUtils.getAuthentication(), policy);
+        final TicketGrantingTicketImpl state = (TicketGrantingTicketImpl) t;
+        final long expirationTime = policy.getExpirationTime(state);
+        assertEquals(state.getLastTimeUsed() + TIMEOUT, expirationTime);
+
+        final MockClock clock = new MockClock(expirationTime - 1);
+        policy.setClock(clock);
+        assertFalse(t.isExpired());
+        clock.advance(1);
+        assertTrue(t.isExpired());
+    }
 }
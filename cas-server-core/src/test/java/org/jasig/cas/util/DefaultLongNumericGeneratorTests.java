@@ -34,6 +34,14 @@ public class DefaultLongNumericGeneratorTests {
             .getNextLong());
     }
 
+    @Test
+    public void verifyWrapToZero() {
+        final DefaultLongNumericGenerator g = new DefaultLongNumericGenerator(Long.MAX_VALUE);
+        g.getNextLong();
+        assertEquals(0, g.getNextLong());
+        assertEquals(1, g.getNextLong());
+    }
+
     @Test
     public void verifyInitialValue() {
         assertEquals(10L, new DefaultLongNumericGenerator(10L)
@@ -22,6 +22,12 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 
 /**
  * @author Scott Battaglia
@@ -50,4 +56,51 @@ public class DefaultRandomStringGeneratorTests {
         assertNotSame(this.randomStringGenerator.getNewString(),
             this.randomStringGenerator.getNewString());
     }
+
+    @Test
+    public void verifyRandomStringIsAlphanumeric() {
+        final String random = this.randomStringGenerator.getNewString();
+        assertEquals(LENGTH, random.length());
+        assertTrue(random.matches("[a-zA-Z0-9]+"));
+        assertEquals(100, new DefaultRandomStringGenerator(100).getNewString().length());
+    }
+
+    @Test
+    public void verifyCharactersEquallyLikely() {
+        final int alphabetSize = 62;
+        final int expected = 4000;
+        final Map<Character, Integer> counts = new HashMap<>();
+        for (int i = 0; i < alphabetSize * expected / LENGTH; i++) {
+            for (final char c : this.randomStringGenerator.getNewString().toCharArray()) {
+                final Integer count = counts.get(c);
+                counts.put(c, count == null ? 1 : count + 1);
+            }
+        }
+        assertEquals(alphabetSize, counts.size());
+        for (final Integer count : counts.values()) {
+            assertTrue("Character count " + count + " deviates from " + expected, Math.abs(count - expected) < expected / 6);
+        }
+    }
+
+    @Test
+    public void verifyConcurrentGeneration() throws Exception {
+        final Set<String> strings = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final int perThread = 1000;
+        final Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < perThread; j++) {
+                        strings.add(randomStringGenerator.getNewString());
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(threads.length * perThread, strings.size());
+    }
 }
@@ -19,41 +19,51 @@
 package org.jasig.cas.extension.clearpass;
 
 import org.jasig.cas.util.CompressionUtils;
-import com.google.common.io.ByteSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.crypto.Cipher;
-import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 import javax.validation.constraints.NotNull;
-import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
 import java.security.spec.KeySpec;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Decorator for a map that will hash the key and encrypt the value.
  *
+ * <p>Cipher and digest engines are created once per thread and algorithm, shared by all instances,
+ * and values are handled as byte arrays until they are encoded for the decorated map. Values are encrypted
+ * with {@link #CIPHER_ALGORITHM} by default; {@link #GCM_CIPHER_ALGORITHM} may be used instead
+ * to authenticate values and bind each of them to the key it is stored under.</p>
+ *
  * @author Scott Battaglia
  * @since 1.0.6
  */
 public final class EncryptedMapDecorator implements Map<String, String> {
 
-    private static final String CIPHER_ALGORITHM = "AES/CBC/PKCS5Padding";
+    /** Default cipher algorithm. */
+    public static final String CIPHER_ALGORITHM = "AES/CBC/PKCS5Padding";
+
+    /** Authenticated cipher algorithm. */
+    public static final String GCM_CIPHER_ALGORITHM = "AES/GCM/NoPadding";
 
     private static final String SECRET_KEY_FACTORY_ALGORITHM = "PBKDF2WithHmacSHA1";
 
@@ -69,6 +79,16 @@ public final class EncryptedMapDecorator implements Map<String, String> {
     private static final int BYTE_BUFFER_CAPACITY_SIZE = 4;
     private static final int HEX_RIGHT_SHIFT_COEFFICIENT = 4;
     private static final int HEX_HIGH_BITS_BITWISE_FLAG = 0x0f;
+    private static final int GCM_IV_SIZE = 12;
+    private static final int GCM_TAG_LENGTH = 128;
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    /** Cipher engines of each thread by algorithm, shared by all instances. */
+    private static final ThreadLocal<Map<String, Cipher>> CIPHERS = new ThreadLocal<>();
+
+    /** Digest engines of each thread by algorithm, shared by all instances. */
+    private static final ThreadLocal<Map<String, MessageDigest>> DIGESTS = new ThreadLocal<>();
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -76,21 +96,19 @@ public final class EncryptedMapDecorator implements Map<String, String> {
     private final Map<String, String> decoratedMap;
 
     @NotNull
-    private final MessageDigest messageDigest;
+    private final String hashAlgorithm;
 
     @NotNull
-    private final ByteSource salt;
+    private final byte[] salt;
 
     @NotNull
     private final Key key;
 
-    @NotNull
-    private int ivSize;
-
     @NotNull
     private final String secretKeyAlgorithm;
 
-    private boolean cloneNotSupported;
+    @NotNull
+    private volatile CipherEngine cipherEngine;
 
     /**
      * Decorates a map using the default algorithm {@link #DEFAULT_HASH_ALGORITHM} and a
@@ -157,15 +175,28 @@ public final class EncryptedMapDecorator implements Map<String, String> {
         try {
             this.decoratedMap = decoratedMap;
             this.key = secretKey;
-            this.salt = ByteSource.wrap(salt);
+            this.salt = salt.clone();
             this.secretKeyAlgorithm = secretKeyAlgorithm;
-            this.messageDigest = MessageDigest.getInstance(hashAlgorithm);
-            this.ivSize = getIvSize();
+            MessageDigest.getInstance(hashAlgorithm);
+            this.hashAlgorithm = hashAlgorithm;
+            this.cipherEngine = new CipherEngine(CIPHER_ALGORITHM);
         } catch (final Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Sets the algorithm used to encrypt values, either {@link #CIPHER_ALGORITHM} (the default)
+     * or {@link #GCM_CIPHER_ALGORITHM}. With the latter, values are authenticated and bound
+     * to the key they are stored under. Values encrypted with one algorithm cannot be decrypted with the other.
+     *
+     * @param cipherAlgorithm the cipher algorithm
+     * @throws GeneralSecurityException if the algorithm is not supported
+     */
+    public void setCipherAlgorithm(final String cipherAlgorithm) throws GeneralSecurityException {
+        this.cipherEngine = new CipherEngine(cipherAlgorithm);
+    }
+
     /**
      * Gets the random salt.
      *
@@ -173,10 +204,9 @@ public final class EncryptedMapDecorator implements Map<String, String> {
      * @return the random salt
      */
     private static String getRandomSalt(final int size) {
-        final SecureRandom secureRandom = new SecureRandom();
         final byte[] bytes = new byte[size];
 
-        secureRandom.nextBytes(bytes);
+        SECURE_RANDOM.nextBytes(bytes);
 
         return getFormattedText(bytes);
     }
@@ -267,7 +297,7 @@ public final class EncryptedMapDecorator implements Map<String, String> {
         }
 
         final MessageDigest messageDigest = getMessageDigest();
-        messageDigest.update(consumeByteSourceOrNull(this.salt));
+        messageDigest.update(this.salt);
         messageDigest.update(key.toLowerCase().getBytes(Charset.defaultCharset()));
         final String hash = getFormattedText(messageDigest.digest());
 
@@ -288,16 +318,16 @@ public final class EncryptedMapDecorator implements Map<String, String> {
         }
 
         try {
-            final Cipher cipher = getCipherObject();
+            final CipherEngine engine = this.cipherEngine;
+            final Cipher cipher = engine.getCipher();
             final byte[] ivCiphertext = CompressionUtils.decodeBase64ToByteArray(value);
-            final int ivSize = byte2int(Arrays.copyOfRange(ivCiphertext, 0, INTEGER_LEN));
-            final byte[] ivValue = Arrays.copyOfRange(ivCiphertext, INTEGER_LEN, (INTEGER_LEN + ivSize));
-            final byte[] ciphertext = Arrays.copyOfRange(ivCiphertext, INTEGER_LEN + ivSize, ivCiphertext.length);
-            final IvParameterSpec ivSpec = new IvParameterSpec(ivValue);
-            
-            cipher.init(Cipher.DECRYPT_MODE, this.key, ivSpec);
+            final int ivSize = byte2int(ivCiphertext);
+            final int offset = INTEGER_LEN + ivSize;
+
+            cipher.init(Cipher.DECRYPT_MODE, this.key, engine.getParameterSpec(ivCiphertext, INTEGER_LEN, ivSize));
+            engine.updateAssociatedData(cipher, hashedKey);
 
-            final byte[] plaintext = cipher.doFinal(ciphertext);
+            final byte[] plaintext = cipher.doFinal(ivCiphertext, offset, ivCiphertext.length - offset);
 
             return new String(plaintext, Charset.defaultCharset());
         } catch (final Exception e) {
@@ -305,48 +335,6 @@ public final class EncryptedMapDecorator implements Map<String, String> {
         }
     }
 
-    /**
-     * Read the contents of the source into a byte array.
-     * @param source  the byte array source
-     * @return the byte[] read from the source or null
-     */
-    private byte[] consumeByteSourceOrNull(final ByteSource source) {
-        try {
-            if (source == null || source.isEmpty()) {
-                return null;
-            }
-            return source.read();
-        } catch (final IOException e) {
-            logger.warn("Could not consume the byte array source", e);
-            return null;
-        }
-    }
-
-    /**
-     * Gets the iv size.
-     *
-     * @return the iv size
-     * @throws NoSuchAlgorithmException the no such algorithm exception
-     * @throws NoSuchPaddingException the no such padding exception
-     */
-    private int getIvSize() throws NoSuchAlgorithmException, NoSuchPaddingException {
-        return getCipherObject().getBlockSize();
-    }
-
-    /**
-     * Generate iv.
-     *
-     * @param size the size
-     * @return the iv value
-     */
-    private static byte[] generateIV(final int size) {
-        final SecureRandom srand = new SecureRandom();
-        final byte[] ivValue = new byte[size];
-        srand.nextBytes(ivValue);
-        return ivValue;
-    }
-
-
     /**
      * Encrypt.
      *
@@ -370,20 +358,23 @@ public final class EncryptedMapDecorator implements Map<String, String> {
         }
 
         try {
-            final Cipher cipher = getCipherObject();
-            final byte[] ivValue = generateIV(this.ivSize);
-            final IvParameterSpec ivSpec = new IvParameterSpec(ivValue);
+            final CipherEngine engine = this.cipherEngine;
+            final Cipher cipher = engine.getCipher();
+            final byte[] ivValue = new byte[engine.getIvSize()];
+            SECURE_RANDOM.nextBytes(ivValue);
+
+            cipher.init(Cipher.ENCRYPT_MODE, this.key, engine.getParameterSpec(ivValue, 0, ivValue.length));
+            engine.updateAssociatedData(cipher, hashedKey);
 
-            cipher.init(Cipher.ENCRYPT_MODE, this.key, ivSpec);
-            
-            final byte[] ciphertext = cipher.doFinal(value.getBytes(Charset.defaultCharset()));
-            final byte[] ivCiphertext = new byte[INTEGER_LEN + this.ivSize + ciphertext.length];
+            final byte[] plaintext = value.getBytes(Charset.defaultCharset());
+            final int offset = INTEGER_LEN + ivValue.length;
+            final byte[] ivCiphertext = new byte[offset + cipher.getOutputSize(plaintext.length)];
+            ByteBuffer.wrap(ivCiphertext).putInt(ivValue.length).put(ivValue);
 
-            System.arraycopy(int2byte(this.ivSize), 0, ivCiphertext, 0, INTEGER_LEN);
-            System.arraycopy(ivValue, 0, ivCiphertext, INTEGER_LEN, this.ivSize);
-            System.arraycopy(ciphertext, 0, ivCiphertext, INTEGER_LEN + this.ivSize, ciphertext.length);
+            final int length = offset + cipher.doFinal(plaintext, 0, plaintext.length, ivCiphertext, offset);
 
-            return CompressionUtils.encodeBase64(ivCiphertext);
+            return CompressionUtils.encodeBase64(length == ivCiphertext.length ? ivCiphertext
+                    : Arrays.copyOf(ivCiphertext, length));
         } catch(final Exception e) {
             throw new RuntimeException(e);
         }
@@ -434,36 +425,27 @@ public final class EncryptedMapDecorator implements Map<String, String> {
     }
 
     /**
-     * Tries to clone the {@link MessageDigest} that was created during construction. If the clone fails
-     * that is remembered and from that point on new {@link MessageDigest} instances will be created on
-     * every call.
-     * <p>
-     * Adopted from the Spring EhCache Annotations project.
+     * Gets the {@link MessageDigest} of the current thread, reset and ready to use.
      *
-     * @return Generates a {@link MessageDigest} to use
+     * @return the {@link MessageDigest} to use
      */
     protected MessageDigest getMessageDigest() {
-        if (this.cloneNotSupported) {
-            final String algorithm = this.messageDigest.getAlgorithm();
+        Map<String, MessageDigest> digests = DIGESTS.get();
+        if (digests == null) {
+            digests = new HashMap<>();
+            DIGESTS.set(digests);
+        }
+        MessageDigest digest = digests.get(this.hashAlgorithm);
+        if (digest == null) {
             try {
-                return MessageDigest.getInstance(algorithm);
+                digest = MessageDigest.getInstance(this.hashAlgorithm);
             } catch (final NoSuchAlgorithmException e) {
-                throw new IllegalStateException("MessageDigest algorithm '" + algorithm + "' was supported when "
-                        + this.getClass().getSimpleName()
-                        + " was created but is not now. This should not be possible.", e);
+                throw new IllegalStateException(e);
             }
+            digests.put(this.hashAlgorithm, digest);
         }
-
-        try {
-            return (MessageDigest) this.messageDigest.clone();
-        } catch (final CloneNotSupportedException e) {
-            this.cloneNotSupported = true;
-            final String msg = String.format("Could not clone MessageDigest using algorithm '%s'. "
-                        + "MessageDigest.getInstance will be used from now on which will be much more expensive.",
-                        this.messageDigest.getAlgorithm());
-            logger.warn(msg, e);
-            return this.getMessageDigest();
-        }
+        digest.reset();
+        return digest;
     }
 
     /**
@@ -482,19 +464,6 @@ public final class EncryptedMapDecorator implements Map<String, String> {
         return buf.toString();
     }
 
-    /**
-     * Gets the cipher object for the {@link #CIPHER_ALGORITHM}.
-     *
-     * @return the cipher object
-     * @throws NoSuchAlgorithmException - if transformation is null, empty, in an invalid format, or if no Provider
-     * supports a CipherSpi implementation for the specified algorithm. 
-     * @throws NoSuchPaddingException - if transformation contains a padding scheme that is not available.
-     * @see Cipher#getInstance(String)
-     */
-    private Cipher getCipherObject() throws NoSuchAlgorithmException, NoSuchPaddingException {
-        return Cipher.getInstance(CIPHER_ALGORITHM);
-    }
-
     /**
      * Gets the secret key.
      *
@@ -516,4 +485,86 @@ public final class EncryptedMapDecorator implements Map<String, String> {
     public String getSecretKeyAlgorithm() {
         return secretKeyAlgorithm;
     }
+
+    /**
+     * Cipher algorithm along with its parameters.
+     */
+    private static final class CipherEngine {
+        private final String algorithm;
+
+        private final boolean authenticated;
+
+        private final int ivSize;
+
+        /**
+         * Instantiates a new cipher engine.
+         *
+         * @param algorithm the cipher algorithm
+         * @throws GeneralSecurityException if the algorithm is not supported
+         */
+        CipherEngine(final String algorithm) throws GeneralSecurityException {
+            this.algorithm = algorithm;
+            this.authenticated = algorithm.toUpperCase().contains("/GCM/");
+            this.ivSize = this.authenticated ? GCM_IV_SIZE : Cipher.getInstance(algorithm).getBlockSize();
+        }
+
+        /**
+         * Gets the cipher of the current thread.
+         *
+         * @return the cipher
+         */
+        Cipher getCipher() {
+            Map<String, Cipher> ciphers = CIPHERS.get();
+            if (ciphers == null) {
+                ciphers = new HashMap<>();
+                CIPHERS.set(ciphers);
+            }
+            Cipher cipher = ciphers.get(this.algorithm);
+            if (cipher == null) {
+                try {
+                    cipher = Cipher.getInstance(this.algorithm);
+                } catch (final GeneralSecurityException e) {
+                    throw new IllegalStateException(e);
+                }
+                ciphers.put(this.algorithm, cipher);
+            }
+            return cipher;
+        }
+
+        /**
+         * Gets the size of the initialization vector.
+         *
+         * @return the iv size
+         */
+        int getIvSize() {
+            return this.ivSize;
+        }
+
+        /**
+         * Gets the cipher parameters for an initialization vector.
+         *
+         * @param bytes the bytes holding the initialization vector
+         * @param offset the offset of the initialization vector
+         * @param length the length of the initialization vector
+         * @return the parameter spec
+         */
+        AlgorithmParameterSpec getParameterSpec(final byte[] bytes, final int offset, final int length) {
+            if (this.authenticated) {
+                return new GCMParameterSpec(GCM_TAG_LENGTH, bytes, offset, length);
+            }
+            return new IvParameterSpec(bytes, offset, length);
+        }
+
+        /**
+         * Binds the value to the hashed key it is stored under, if the cipher is authenticated.
+         *
+         * @param cipher the initialized cipher
+         * @param hashedKey the hashed key, may be null
+         */
+        void updateAssociatedData(final Cipher cipher, final String hashedKey) {
+            if (this.authenticated && hashedKey != null) {
+                cipher.updateAAD(hashedKey.getBytes(Charset.defaultCharset()));
+            }
+        }
+    }
 }
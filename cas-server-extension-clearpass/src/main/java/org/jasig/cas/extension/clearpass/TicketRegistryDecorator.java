@@ -23,6 +23,7 @@ import java.util.Map;
 
 import javax.validation.constraints.NotNull;
 
+import org.jasig.cas.monitor.TicketCounts;
 import org.jasig.cas.monitor.TicketRegistryState;
 import org.jasig.cas.ticket.Ticket;
 import org.jasig.cas.ticket.TicketGrantingTicket;
@@ -114,4 +115,14 @@ public final class TicketRegistryDecorator extends AbstractTicketRegistry {
                 this.ticketRegistry.getClass().getName());
         return super.serviceTicketCount();
     }
+
+    @Override
+    public TicketCounts ticketCounts() {
+        if (this.ticketRegistry instanceof TicketRegistryState) {
+            return TicketCounts.of((TicketRegistryState) this.ticketRegistry);
+        }
+        logger.debug("Ticket registry {} does not report the ticketCounts() operation of the registry state.",
+                this.ticketRegistry.getClass().getName());
+        return super.ticketCounts();
+    }
 }
@@ -19,9 +19,11 @@
 package org.jasig.cas.extension.clearpass;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import net.sf.ehcache.Cache;
@@ -119,4 +121,50 @@ public class EncryptedMapDecoratorTests {
         this.decorator.put("hello", null);
         assertNull(this.decorator.get("hello"));
     }
+
+    @Test
+    public void addItemsWithGcm() throws Exception {
+        this.decorator.setCipherAlgorithm(EncryptedMapDecorator.GCM_CIPHER_ALGORITHM);
+        final int totalItems = 100;
+
+        for (int i = 0; i < totalItems; i++) {
+            this.decorator.put("key" + i, "value" + i);
+        }
+        for (int i = 0; i < totalItems; i++) {
+            assertNull(this.map.get("key" + i));
+            assertEquals("value" + i, this.decorator.get("key" + i));
+        }
+        assertEquals("value0", this.decorator.remove("key0"));
+        assertNull(this.decorator.get("key0"));
+    }
+
+    @Test
+    public void encryptSameValueDifferently() {
+        this.decorator.put("key1", "value");
+        this.decorator.put("key2", "value");
+        assertNotEquals(this.map.get(this.decorator.constructHashedKey("key1")),
+                this.map.get(this.decorator.constructHashedKey("key2")));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void rejectGcmValueMovedToAnotherKey() throws Exception {
+        this.decorator.setCipherAlgorithm(EncryptedMapDecorator.GCM_CIPHER_ALGORITHM);
+        this.decorator.put("key1", "value");
+        this.map.put(this.decorator.constructHashedKey("key2"), this.map.get(this.decorator.constructHashedKey("key1")));
+        this.decorator.get("key2");
+    }
+
+    @Test
+    public void verifyInstancesWithDifferentKeysShareEngines() throws Exception {
+        final Map<String, String> other = new HashMap<>();
+        final EncryptedMapDecorator otherDecorator = new EncryptedMapDecorator(other);
+        for (int i = 0; i < 3; i++) {
+            this.decorator.put("key" + i, "value" + i);
+            otherDecorator.put("key" + i, "other" + i);
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals("value" + i, this.decorator.get("key" + i));
+            assertEquals("other" + i, otherDecorator.get("key" + i));
+        }
+    }
 }
@@ -21,7 +21,6 @@ package org.jasig.cas.ticket.registry;
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.Element;
 import net.sf.ehcache.config.CacheConfiguration;
-import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jasig.cas.ticket.ServiceTicket;
 import org.jasig.cas.ticket.Ticket;
@@ -176,11 +175,10 @@ public final class EhCacheTicketRegistry extends AbstractDistributedTicketRegist
     /**
      * Flag to indicate whether this registry instance should participate in reporting its state with
      * default value set to <code>true</code>.
-     * Based on the <a href="http://ehcache.org/apidocs/net/sf/ehcache/Ehcache.html#getKeysWithExpiryCheck()">EhCache documentation</a>,
-     * determining the number of service tickets and the total session count from the cache can be considered
-     * an expensive operation with the time taken as O(n), where n is the number of elements in the cache.
+     * The number of service tickets and the total session count are read from the size of the caches,
+     * which takes constant time but includes elements that expired and have not been evicted yet.
      *
-     * <p>Therefore, the flag provides a level of flexibility such that depending on the cache and environment
+     * <p>The flag provides a level of flexibility such that depending on the cache and environment
      * settings, reporting statistics
      * can be set to false and disabled.</p>
      *
@@ -222,21 +220,19 @@ public final class EhCacheTicketRegistry extends AbstractDistributedTicketRegist
 
     /**
      * {@inheritDoc}
-     * @see Cache#getKeysWithExpiryCheck()
+     * @see Cache#getSize()
      */
     @Override
     public int sessionCount() {
-        return BooleanUtils.toInteger(this.supportRegistryState, this.ticketGrantingTicketsCache
-                .getKeysWithExpiryCheck().size(), super.sessionCount());
+        return this.supportRegistryState ? this.ticketGrantingTicketsCache.getSize() : super.sessionCount();
     }
 
     /**
      * {@inheritDoc}
-     * @see Cache#getKeysWithExpiryCheck()
+     * @see Cache#getSize()
      */
     @Override
     public int serviceTicketCount() {
-        return BooleanUtils.toInteger(this.supportRegistryState, this.serviceTicketsCache.getKeysWithExpiryCheck()
-                .size(), super.serviceTicketCount());
+        return this.supportRegistryState ? this.serviceTicketsCache.getSize() : super.serviceTicketCount();
     }
 }
@@ -18,14 +18,19 @@
  */
 package org.jasig.cas.adaptors.jdbc;
 
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
 import org.jasig.cas.authentication.handler.support.AbstractUsernamePasswordAuthenticationHandler;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 import javax.sql.DataSource;
 import javax.validation.constraints.NotNull;
+import java.util.List;
 
 /**
  * Abstract class for database authentication handlers.
+ * Tracks the latency of the database calls made by each handler instance
+ * in a histogram exposed via {@link #getQueryLatency()}.
  *
  * @author Scott Battaglia
  * @since 3.0.0.3
@@ -39,6 +44,9 @@ public abstract class AbstractJdbcUsernamePasswordAuthenticationHandler extends
     @NotNull
     private DataSource dataSource;
 
+    /** Query latency in nanoseconds, recorded without locking. */
+    private final ConcurrentHistogram queryLatency = new ConcurrentHistogram(2);
+
     /**
      * Method to set the datasource and generate a JdbcTemplate.
      *
@@ -61,4 +69,39 @@ public abstract class AbstractJdbcUsernamePasswordAuthenticationHandler extends
     protected final DataSource getDataSource() {
         return this.dataSource;
     }
+
+    /**
+     * Execute the given authentication query and record its latency.
+     *
+     * @param <T> the type of the returned column
+     * @param query the compiled authentication query
+     * @param parameters the query parameters
+     * @return the values of the single returned column, one per row
+     */
+    protected final <T> List<T> executeQuery(final AuthenticationQuery<T> query, final Object... parameters) {
+        final long start = System.nanoTime();
+        try {
+            return query.execute(parameters);
+        } finally {
+            recordQueryLatency(start);
+        }
+    }
+
+    /**
+     * Record the latency of a database call that started at the given time.
+     *
+     * @param startNanos the value of {@link System#nanoTime()} when the call started
+     */
+    protected final void recordQueryLatency(final long startNanos) {
+        this.queryLatency.recordValue(Math.max(0, System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Gets a snapshot of the latency, in nanoseconds, of the database calls made by this handler.
+     *
+     * @return the query latency histogram
+     */
+    public final Histogram getQueryLatency() {
+        return this.queryLatency.copy();
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.adaptors.jdbc;
+
+import org.springframework.jdbc.IncorrectResultSetColumnCountException;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.object.MappingSqlQuery;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Authentication query that is compiled once and reused for every login.
+ *
+ * <p>The statement parameters are declared and the prepared statement factory is built
+ * when the query is created, so executing it only binds the credential values. The single
+ * column of each row is read directly as the required type, without building an intermediate
+ * map per row. Instances are thread-safe once constructed.</p>
+ *
+ * @author Apereo CAS Team
+ * @param <T> the type of the single column returned by the query
+ * @since 4.1.0
+ */
+public final class AuthenticationQuery<T> extends MappingSqlQuery<T> {
+
+    private final Class<T> requiredType;
+
+    /**
+     * Instantiates and compiles a new authentication query.
+     *
+     * @param dataSource the data source
+     * @param sql the sql statement whose parameters are all bound as strings
+     * @param requiredType the type of the single column returned by the query
+     * @param numberOfParameters the number of parameter placeholders in the statement
+     */
+    public AuthenticationQuery(final DataSource dataSource, final String sql, final Class<T> requiredType,
+                               final int numberOfParameters) {
+        super(dataSource, sql);
+        this.requiredType = requiredType;
+        for (int i = 0; i < numberOfParameters; i++) {
+            declareParameter(new SqlParameter(Types.VARCHAR));
+        }
+        compile();
+    }
+
+    @Override
+    protected T mapRow(final ResultSet rs, final int rowNum) throws SQLException {
+        if (rowNum == 0) {
+            final int columnCount = rs.getMetaData().getColumnCount();
+            if (columnCount != 1) {
+                throw new IncorrectResultSetColumnCountException(1, columnCount);
+            }
+        }
+        return this.requiredType.cast(JdbcUtils.getResultSetValue(rs, 1, this.requiredType));
+    }
+}
@@ -52,7 +52,9 @@ public class BindModeSearchDatabaseAuthenticationHandler extends AbstractJdbcUse
         try {
             final String username = credential.getUsername();
             final String password = getPasswordEncoder().encode(credential.getPassword());
+            final long start = System.nanoTime();
             final Connection c = this.getDataSource().getConnection(username, password);
+            recordQueryLatency(start);
             DataSourceUtils.releaseConnection(c, this.getDataSource());
             return createHandlerResult(credential, this.principalFactory.createPrincipal(username), null);
         } catch (final SQLException e) {
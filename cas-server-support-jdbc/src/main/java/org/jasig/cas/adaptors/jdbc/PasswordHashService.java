@@ -0,0 +1,212 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.adaptors.jdbc;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang3.StringUtils;
+import org.jasig.cas.authentication.PreventedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Thread-safe, reusable password hashing engine configured once per algorithm.
+ *
+ * <p>Hashes are computed the same way as Apache Shiro's
+ * {@link org.apache.shiro.crypto.hash.DefaultHashService}: the private (static) salt
+ * is prepended to the public (dynamic) salt, the digest of salt and source is taken and
+ * the result is re-digested for the remaining number of iterations. Digests are kept per
+ * thread so that no provider lookup happens on the login path, and the computed hash
+ * is compared with the value on record in constant time.</p>
+ *
+ * <p>Optionally, the number of hashes with an iteration count at or above a configured threshold
+ * that are computed concurrently may be capped. Such hashes are still computed on the calling thread,
+ * which waits for one of the running expensive hashes to complete when the cap is reached, so that
+ * a burst of logins cannot occupy every processor with hashing.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class PasswordHashService {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final String algorithmName;
+
+    private final byte[] privateSalt;
+
+    private final int defaultIterations;
+
+    private final ThreadLocal<MessageDigest> digests;
+
+    /** Permits for concurrent expensive hashes, or null if they are not capped. */
+    private final Semaphore expensiveHashPermits;
+
+    private final int expensiveIterationsThreshold;
+
+    /**
+     * Instantiates a new hash service that computes every hash on the calling thread.
+     *
+     * @param algorithmName the digest algorithm name (i.e. <code>SHA-512</code>)
+     * @param staticSalt the static/private salt, may be null
+     * @param defaultIterations the number of iterations used when none is provided per hash
+     */
+    public PasswordHashService(final String algorithmName, final String staticSalt, final int defaultIterations) {
+        this(algorithmName, staticSalt, defaultIterations, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Instantiates a new hash service that caps the number of expensive hashes computed concurrently.
+     *
+     * @param algorithmName the digest algorithm name (i.e. <code>SHA-512</code>)
+     * @param staticSalt the static/private salt, may be null
+     * @param defaultIterations the number of iterations used when none is provided per hash
+     * @param maxConcurrentHashes the maximum number of expensive hashes computed concurrently; zero disables the cap
+     * @param expensiveIterationsThreshold hashes with at least this many iterations are subject to the cap
+     */
+    public PasswordHashService(final String algorithmName, final String staticSalt, final int defaultIterations,
+                               final int maxConcurrentHashes, final int expensiveIterationsThreshold) {
+        try {
+            MessageDigest.getInstance(algorithmName);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported hash algorithm " + algorithmName, e);
+        }
+        this.algorithmName = algorithmName;
+        this.privateSalt = StringUtils.isNotBlank(staticSalt) ? staticSalt.getBytes(UTF8) : new byte[0];
+        this.defaultIterations = Math.max(1, defaultIterations);
+        this.expensiveIterationsThreshold = expensiveIterationsThreshold;
+        this.digests = new ThreadLocal<MessageDigest>() {
+            @Override
+            protected MessageDigest initialValue() {
+                try {
+                    return MessageDigest.getInstance(PasswordHashService.this.algorithmName);
+                } catch (final NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+
+        this.expensiveHashPermits = maxConcurrentHashes > 0 ? new Semaphore(maxConcurrentHashes, true) : null;
+    }
+
+    /**
+     * Compute the hash of the given source.
+     *
+     * @param source the source to hash, typically the encoded password
+     * @param salt the public/dynamic salt, may be null
+     * @param iterations the number of iterations; values below 1 select the default iteration count
+     * @return the raw hash bytes
+     * @throws PreventedException if interrupted while waiting to compute an expensive hash
+     */
+    public byte[] hash(final String source, final String salt, final int iterations) throws PreventedException {
+        final int numOfIterations = iterations < 1 ? this.defaultIterations : iterations;
+        final byte[] sourceBytes = source.getBytes(UTF8);
+        final byte[] saltBytes = combine(salt);
+
+        if (this.expensiveHashPermits == null || numOfIterations < this.expensiveIterationsThreshold) {
+            return digest(sourceBytes, saltBytes, numOfIterations);
+        }
+
+        try {
+            this.expensiveHashPermits.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PreventedException("Interrupted while waiting to compute the password hash", e);
+        }
+        try {
+            return digest(sourceBytes, saltBytes, numOfIterations);
+        } finally {
+            this.expensiveHashPermits.release();
+        }
+    }
+
+    /**
+     * Determine whether the hash of the given source matches the hex-encoded value on record.
+     * The comparison takes the same amount of time regardless of where the values differ.
+     *
+     * @param source the source to hash, typically the encoded password
+     * @param salt the public/dynamic salt, may be null
+     * @param iterations the number of iterations; values below 1 select the default iteration count
+     * @param hexHashOnRecord the hex-encoded hash on record
+     * @return true if the computed hash matches the value on record
+     * @throws PreventedException if interrupted while waiting to compute an expensive hash
+     */
+    public boolean matches(final String source, final String salt, final int iterations, final String hexHashOnRecord)
+            throws PreventedException {
+        if (hexHashOnRecord == null) {
+            return false;
+        }
+        final byte[] expected;
+        try {
+            expected = Hex.decodeHex(hexHashOnRecord.toCharArray());
+        } catch (final DecoderException e) {
+            logger.debug("Hash value on record is not a valid hex string", e);
+            return false;
+        }
+        return MessageDigest.isEqual(expected, hash(source, salt, iterations));
+    }
+
+    public String getAlgorithmName() {
+        return this.algorithmName;
+    }
+
+    /**
+     * Digest the source with the combined salt for the given number of iterations.
+     *
+     * @param source the source bytes
+     * @param salt the combined salt bytes
+     * @param iterations the number of iterations
+     * @return the hash bytes
+     */
+    private byte[] digest(final byte[] source, final byte[] salt, final int iterations) {
+        final MessageDigest digest = this.digests.get();
+        digest.reset();
+        digest.update(salt);
+        byte[] hashed = digest.digest(source);
+        for (int i = 1; i < iterations; i++) {
+            digest.reset();
+            hashed = digest.digest(hashed);
+        }
+        return hashed;
+    }
+
+    /**
+     * Prepend the private salt to the given public salt.
+     *
+     * @param publicSalt the public salt, may be null
+     * @return the combined salt bytes
+     */
+    private byte[] combine(final String publicSalt) {
+        if (StringUtils.isEmpty(publicSalt)) {
+            return this.privateSalt;
+        }
+        final byte[] publicSaltBytes = publicSalt.getBytes(UTF8);
+        final byte[] combined = new byte[this.privateSalt.length + publicSaltBytes.length];
+        System.arraycopy(this.privateSalt, 0, combined, 0, this.privateSalt.length);
+        System.arraycopy(publicSaltBytes, 0, combined, this.privateSalt.length, publicSaltBytes.length);
+        return combined;
+    }
+}
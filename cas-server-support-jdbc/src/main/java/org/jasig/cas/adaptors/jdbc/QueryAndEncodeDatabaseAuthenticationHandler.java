@@ -18,11 +18,7 @@
  */
 package org.jasig.cas.adaptors.jdbc;
 
-import org.apache.commons.lang3.StringUtils;
-import org.apache.shiro.crypto.hash.ConfigurableHashService;
-import org.apache.shiro.crypto.hash.DefaultHashService;
-import org.apache.shiro.crypto.hash.HashRequest;
-import org.apache.shiro.util.ByteSource;
+import org.apache.commons.codec.binary.Hex;
 import org.jasig.cas.authentication.HandlerResult;
 import org.jasig.cas.authentication.PreventedException;
 import org.jasig.cas.authentication.UsernamePasswordCredential;
@@ -50,6 +46,12 @@ import java.util.Map;
  * of private and public salts does nto meet your needs, a extension can be developed
  * to specify alternative methods of encoding and digestion of the encoded password.
  * </p>
+ * <p>
+ * Hashing is delegated to a {@link PasswordHashService} that is configured once for the handler
+ * and reused across logins. A service may be injected via {@link #setPasswordHashService(PasswordHashService)}
+ * in order to cap the number of expensive hashes computed concurrently; otherwise one is created from
+ * the algorithm, static salt and number of iterations configured on this handler when first needed.
+ * </p>
  * @author Misagh Moayyed
  * @author Charles Hasegawa (mailto:chasegawa@unicon.net)
  * @since 4.1.0
@@ -100,6 +102,11 @@ public class QueryAndEncodeDatabaseAuthenticationHandler extends AbstractJdbcUse
      */
     protected String staticSalt;
 
+    private PasswordHashService passwordHashService;
+
+    /** Hash service created from the configuration of this handler, discarded when the configuration changes. */
+    private volatile PasswordHashService defaultPasswordHashService;
+
     /**
      * Instantiates a new Query and encode database authentication handler.
      *
@@ -126,9 +133,10 @@ public class QueryAndEncodeDatabaseAuthenticationHandler extends AbstractJdbcUse
 
         try {
             final Map<String, Object> values = getJdbcTemplate().queryForMap(this.sql, username);
-            final String digestedPassword = digestEncodedPassword(encodedPsw, values);
+            final Object passwordOnRecord = values.get(this.passwordFieldName);
 
-            if (!values.get(this.passwordFieldName).equals(digestedPassword)) {
+            if (!getPasswordHashService().matches(encodedPsw, getDynamicSalt(values), getNumberOfIterations(values),
+                    passwordOnRecord != null ? passwordOnRecord.toString() : null)) {
                 throw new FailedLoginException("Password does not match value on record.");
             }
             return createHandlerResult(transformedCredential,
@@ -152,32 +160,56 @@ public class QueryAndEncodeDatabaseAuthenticationHandler extends AbstractJdbcUse
      * @param encodedPassword the encoded password
      * @param values the values retrieved from database
      * @return the digested password
+     * @throws PreventedException if the hash could not be computed
      */
-    protected String digestEncodedPassword(final String encodedPassword, final Map<String, Object> values) {
-        final ConfigurableHashService hashService = new DefaultHashService();
+    protected String digestEncodedPassword(final String encodedPassword, final Map<String, Object> values)
+            throws PreventedException {
+        return Hex.encodeHexString(getPasswordHashService().hash(encodedPassword, getDynamicSalt(values),
+                getNumberOfIterations(values)));
+    }
 
-        if (StringUtils.isNotBlank(this.staticSalt)) {
-            hashService.setPrivateSalt(ByteSource.Util.bytes(this.staticSalt));
+    /**
+     * Gets the hash service, creating one from the configuration of this handler unless one was provided.
+     *
+     * @return the password hash service
+     */
+    protected final PasswordHashService getPasswordHashService() {
+        if (this.passwordHashService != null) {
+            return this.passwordHashService;
+        }
+        PasswordHashService service = this.defaultPasswordHashService;
+        if (service == null) {
+            service = new PasswordHashService(this.algorithmName, this.staticSalt, (int) this.numberOfIterations);
+            this.defaultPasswordHashService = service;
         }
-        hashService.setHashAlgorithmName(this.algorithmName);
+        return service;
+    }
 
-        Long numOfIterations = this.numberOfIterations;
-        if (values.containsKey(this.numberOfIterationsFieldName)) {
-            final String longAsStr = values.get(this.numberOfIterationsFieldName).toString();
-            numOfIterations = Long.valueOf(longAsStr);
+    /**
+     * Gets the number of iterations from the retrieved values, falling back to the configured value.
+     *
+     * @param values the values retrieved from database
+     * @return the number of iterations
+     */
+    private int getNumberOfIterations(final Map<String, Object> values) {
+        final Object iterations = values.get(this.numberOfIterationsFieldName);
+        if (iterations != null) {
+            return Long.valueOf(iterations.toString()).intValue();
         }
+        return (int) this.numberOfIterations;
+    }
 
-        hashService.setHashIterations(numOfIterations.intValue());
+    /**
+     * Gets the dynamic salt from the retrieved values.
+     *
+     * @param values the values retrieved from database
+     * @return the dynamic salt
+     */
+    private String getDynamicSalt(final Map<String, Object> values) {
         if (!values.containsKey(this.saltFieldName)) {
             throw new RuntimeException("Specified field name for salt does not exist in the results");
         }
-
-        final String dynaSalt = values.get(this.saltFieldName).toString();
-        final HashRequest request = new HashRequest.Builder()
-                                    .setSalt(dynaSalt)
-                                    .setSource(encodedPassword)
-                                    .build();
-        return hashService.computeHash(request).toHex();
+        return values.get(this.saltFieldName).toString();
     }
 
     /**
@@ -199,6 +231,7 @@ public class QueryAndEncodeDatabaseAuthenticationHandler extends AbstractJdbcUse
      */
     public final void setStaticSalt(final String staticSalt) {
         this.staticSalt = staticSalt;
+        this.defaultPasswordHashService = null;
     }
 
     /**
@@ -235,6 +268,17 @@ public class QueryAndEncodeDatabaseAuthenticationHandler extends AbstractJdbcUse
      */
     public final void setNumberOfIterations(final long numberOfIterations) {
         this.numberOfIterations = numberOfIterations;
+        this.defaultPasswordHashService = null;
+    }
+
+    /**
+     * Sets the password hash service to use instead of one created from the configuration of this handler.
+     * The service must be configured with the same algorithm, static salt and number of iterations.
+     *
+     * @param passwordHashService the password hash service
+     */
+    public final void setPasswordHashService(final PasswordHashService passwordHashService) {
+        this.passwordHashService = passwordHashService;
     }
 
 }
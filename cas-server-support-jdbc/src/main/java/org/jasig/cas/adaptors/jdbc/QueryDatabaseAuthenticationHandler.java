@@ -22,18 +22,19 @@ import org.jasig.cas.authentication.HandlerResult;
 import org.jasig.cas.authentication.PreventedException;
 import org.jasig.cas.authentication.UsernamePasswordCredential;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.IncorrectResultSizeDataAccessException;
 
 import javax.security.auth.login.AccountNotFoundException;
 import javax.security.auth.login.FailedLoginException;
 import javax.validation.constraints.NotNull;
 import java.security.GeneralSecurityException;
+import java.util.List;
 
 /**
  * Class that if provided a query that returns a password (parameter of query
  * must be username) will compare that password to a translated version of the
  * password provided by the user. If they match, then authentication succeeds.
  * Default password translator is plaintext translator.
+ * The query is compiled once and the password column is read directly as a string.
  *
  * @author Scott Battaglia
  * @author Dmitriy Kopylenko
@@ -46,6 +47,8 @@ public class QueryDatabaseAuthenticationHandler extends AbstractJdbcUsernamePass
     @NotNull
     private String sql;
 
+    private volatile AuthenticationQuery<String> passwordQuery;
+
     /**
      * {@inheritDoc}
      */
@@ -55,20 +58,21 @@ public class QueryDatabaseAuthenticationHandler extends AbstractJdbcUsernamePass
 
         final String username = credential.getUsername();
         final String encryptedPassword = this.getPasswordEncoder().encode(credential.getPassword());
+        final List<String> dbPasswords;
         try {
-            final String dbPassword = getJdbcTemplate().queryForObject(this.sql, String.class, username);
-            if (!dbPassword.equals(encryptedPassword)) {
-                throw new FailedLoginException("Password does not match value on record.");
-            }
-        } catch (final IncorrectResultSizeDataAccessException e) {
-            if (e.getActualSize() == 0) {
-                throw new AccountNotFoundException(username + " not found with SQL query");
-            } else {
-                throw new FailedLoginException("Multiple records found for " + username);
-            }
+            dbPasswords = executeQuery(getPasswordQuery(), username);
         } catch (final DataAccessException e) {
             throw new PreventedException("SQL exception while executing query for " + username, e);
         }
+        if (dbPasswords.isEmpty()) {
+            throw new AccountNotFoundException(username + " not found with SQL query");
+        }
+        if (dbPasswords.size() > 1) {
+            throw new FailedLoginException("Multiple records found for " + username);
+        }
+        if (!encryptedPassword.equals(dbPasswords.get(0))) {
+            throw new FailedLoginException("Password does not match value on record.");
+        }
         return createHandlerResult(credential, this.principalFactory.createPrincipal(username), null);
     }
 
@@ -77,5 +81,25 @@ public class QueryDatabaseAuthenticationHandler extends AbstractJdbcUsernamePass
      */
     public void setSql(final String sql) {
         this.sql = sql;
+        this.passwordQuery = null;
+    }
+
+    /**
+     * Gets the compiled password query, compiling it on first use.
+     *
+     * @return the password query
+     */
+    private AuthenticationQuery<String> getPasswordQuery() {
+        AuthenticationQuery<String> query = this.passwordQuery;
+        if (query == null) {
+            synchronized (this) {
+                query = this.passwordQuery;
+                if (query == null) {
+                    query = new AuthenticationQuery<>(getDataSource(), this.sql, String.class, 1);
+                    this.passwordQuery = query;
+                }
+            }
+        }
+        return query;
     }
 }
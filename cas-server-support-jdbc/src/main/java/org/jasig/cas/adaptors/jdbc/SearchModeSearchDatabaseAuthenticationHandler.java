@@ -27,12 +27,14 @@ import org.springframework.dao.DataAccessException;
 import javax.security.auth.login.FailedLoginException;
 import javax.validation.constraints.NotNull;
 import java.security.GeneralSecurityException;
+import java.util.List;
 
 /**
  * Class that given a table, username field and password field will query a
  * database table with the provided encryption technique to see if the user
  * exists. This class defaults to a PasswordTranslator of
- * PlainTextPasswordTranslator.
+ * PlainTextPasswordTranslator. The count query is compiled once when
+ * the handler is initialized.
  *
  * @author Scott Battaglia
  * @author Dmitriy Kopylenko
@@ -57,6 +59,8 @@ public class SearchModeSearchDatabaseAuthenticationHandler extends AbstractJdbcU
 
     private String sql;
 
+    private AuthenticationQuery<Integer> countQuery;
+
     /**
      * {@inheritDoc}
      */
@@ -68,7 +72,8 @@ public class SearchModeSearchDatabaseAuthenticationHandler extends AbstractJdbcU
         final String encyptedPassword = getPasswordEncoder().encode(credential.getPassword());
         final int count;
         try {
-            count = getJdbcTemplate().queryForObject(this.sql, Integer.class, username, encyptedPassword);
+            final List<Integer> counts = executeQuery(this.countQuery, username, encyptedPassword);
+            count = counts.isEmpty() || counts.get(0) == null ? 0 : counts.get(0);
         } catch (final DataAccessException e) {
             throw new PreventedException("SQL exception while executing query for " + username, e);
         }
@@ -82,6 +87,7 @@ public class SearchModeSearchDatabaseAuthenticationHandler extends AbstractJdbcU
     public void afterPropertiesSet() throws Exception {
         this.sql = SQL_PREFIX + this.tableUsers + " WHERE " + this.fieldUser + " = ? AND " + this.fieldPassword
                 + " = ?";
+        this.countQuery = new AuthenticationQuery<>(getDataSource(), this.sql, Integer.class, 2);
     }
 
     /**
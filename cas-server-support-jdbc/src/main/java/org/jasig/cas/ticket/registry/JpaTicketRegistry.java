@@ -22,12 +22,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.persistence.EntityManager;
 import javax.persistence.LockModeType;
 import javax.persistence.PersistenceContext;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import org.jasig.cas.monitor.TicketCounts;
 import org.jasig.cas.ticket.ServiceTicket;
 import org.jasig.cas.ticket.ServiceTicketImpl;
 import org.jasig.cas.ticket.Ticket;
@@ -38,6 +41,12 @@ import org.springframework.transaction.annotation.Transactional;
  * JPA implementation of a CAS {@link TicketRegistry}. This implementation of
  * ticket registry is suitable for HA environments.
  *
+ * <p>Ticket counts are obtained with count queries whose results are kept for
+ * {@link #setTicketCountsCacheDuration(long) ticketCountsCacheDuration}, so that frequent
+ * monitoring does not query the database on every call. Expiration policies are stored
+ * serialized, so expired tickets cannot be counted by the database and are reported as
+ * {@link TicketCounts#UNKNOWN}.</p>
+ *
  * @author Scott Battaglia
  * @author Marvin S. Addison
  *
@@ -46,6 +55,9 @@ import org.springframework.transaction.annotation.Transactional;
  */
 public final class JpaTicketRegistry extends AbstractDistributedTicketRegistry {
 
+    /** Default time in milliseconds ticket counts are kept. */
+    public static final long DEFAULT_TICKET_COUNTS_CACHE_DURATION = TimeUnit.SECONDS.toMillis(10);
+
     @NotNull
     @PersistenceContext
     private EntityManager entityManager;
@@ -53,6 +65,13 @@ public final class JpaTicketRegistry extends AbstractDistributedTicketRegistry {
     @NotNull
     private String ticketGrantingTicketPrefix = "TGT";
 
+    @Min(0)
+    private long ticketCountsCacheDuration = DEFAULT_TICKET_COUNTS_CACHE_DURATION;
+
+    private volatile TicketCounts ticketCounts;
+
+    private volatile long ticketsCountedAt;
+
     @Override
     protected void updateTicket(final Ticket ticket) {
         entityManager.merge(ticket);
@@ -183,17 +202,54 @@ public final class JpaTicketRegistry extends AbstractDistributedTicketRegistry {
         return false;
     }
 
+    /**
+     * Sets the time ticket counts are kept before the database is queried again.
+     * Defaults to {@value #DEFAULT_TICKET_COUNTS_CACHE_DURATION}.
+     *
+     * @param ticketCountsCacheDuration the cache duration in milliseconds
+     */
+    public void setTicketCountsCacheDuration(final long ticketCountsCacheDuration) {
+        this.ticketCountsCacheDuration = ticketCountsCacheDuration;
+    }
+
     @Transactional(readOnly=true)
     @Override
     public int sessionCount() {
-        return countToInt(entityManager.createQuery(
-                "select count(t) from TicketGrantingTicketImpl t").getSingleResult());
+        return ticketCounts().getTicketGrantingTicketCount();
     }
 
     @Transactional(readOnly=true)
     @Override
     public int serviceTicketCount() {
-        return countToInt(entityManager.createQuery("select count(t) from ServiceTicketImpl t").getSingleResult());
+        return ticketCounts().getServiceTicketCount();
+    }
+
+    @Transactional(readOnly=true)
+    @Override
+    public TicketCounts ticketCounts() {
+        final long now = System.currentTimeMillis();
+        TicketCounts counts = this.ticketCounts;
+        if (counts == null || now - this.ticketsCountedAt >= this.ticketCountsCacheDuration) {
+            counts = new TicketCounts(
+                    count("select count(t) from TicketGrantingTicketImpl t"),
+                    count("select count(t) from TicketGrantingTicketImpl t where t.ticketGrantingTicket is not null"),
+                    count("select count(s) from ServiceTicketImpl s"),
+                    count("select count(s) from ServiceTicketImpl s where s.ticketGrantingTicket.ticketGrantingTicket is not null"),
+                    TicketCounts.UNKNOWN);
+            this.ticketCounts = counts;
+            this.ticketsCountedAt = now;
+        }
+        return counts;
+    }
+
+    /**
+     * Execute a count query.
+     *
+     * @param query the JPQL count query
+     * @return the count
+     */
+    private int count(final String query) {
+        return countToInt(entityManager.createQuery(query).getSingleResult());
     }
 
     /**
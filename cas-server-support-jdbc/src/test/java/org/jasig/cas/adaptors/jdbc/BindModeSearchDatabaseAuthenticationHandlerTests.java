@@ -0,0 +1,89 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.adaptors.jdbc;
+
+import org.jasig.cas.TestUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import javax.security.auth.login.FailedLoginException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * This is tests for {@link BindModeSearchDatabaseAuthenticationHandler}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class BindModeSearchDatabaseAuthenticationHandlerTests {
+
+    private DataSource dataSource;
+
+    private BindModeSearchDatabaseAuthenticationHandler handler;
+
+    @Before
+    public void setup() throws Exception {
+        this.dataSource = mock(DataSource.class);
+        when(this.dataSource.getConnection("user", "psw")).thenAnswer(new Answer<Connection>() {
+            @Override
+            public Connection answer(final InvocationOnMock invocation) {
+                return mock(Connection.class);
+            }
+        });
+        when(this.dataSource.getConnection("user", "bad")).thenThrow(new SQLException("Invalid credentials"));
+
+        this.handler = new BindModeSearchDatabaseAuthenticationHandler();
+        this.handler.setDataSource(this.dataSource);
+    }
+
+    @Test
+    public void verifyConnectionPerLogin() throws Exception {
+        authenticate("psw");
+        authenticate("psw");
+        verify(this.dataSource, times(2)).getConnection("user", "psw");
+        assertEquals(2, this.handler.getQueryLatency().getTotalCount());
+    }
+
+    @Test(expected = FailedLoginException.class)
+    public void verifyEveryLoginCheckedAgainstDatabase() throws Exception {
+        authenticate("psw");
+        authenticate("bad");
+    }
+
+    @Test
+    public void verifyConnectionReleasedAfterLogin() throws Exception {
+        final Connection connection = mock(Connection.class);
+        when(this.dataSource.getConnection("other", "psw")).thenReturn(connection);
+        assertNotNull(this.handler.authenticateUsernamePasswordInternal(
+                TestUtils.getCredentialsWithDifferentUsernameAndPassword("other", "psw")));
+        verify(connection).close();
+    }
+
+    private void authenticate(final String password) throws Exception {
+        assertNotNull(this.handler.authenticateUsernamePasswordInternal(
+                TestUtils.getCredentialsWithDifferentUsernameAndPassword("user", password)));
+    }
+}
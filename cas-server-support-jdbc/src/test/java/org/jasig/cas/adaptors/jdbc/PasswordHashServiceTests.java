@@ -0,0 +1,117 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.adaptors.jdbc;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.MessageDigestAlgorithms;
+import org.apache.shiro.crypto.hash.DefaultHashService;
+import org.apache.shiro.crypto.hash.HashRequest;
+import org.apache.shiro.util.ByteSource;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class PasswordHashServiceTests {
+    private static final String STATIC_SALT = "STATIC_SALT";
+
+    @Test
+    public void verifyHashMatchesShiroDefaultHashService() throws Exception {
+        for (final String alg : new String[] {MessageDigestAlgorithms.MD5, MessageDigestAlgorithms.SHA_256,
+                MessageDigestAlgorithms.SHA_512}) {
+            final PasswordHashService service = new PasswordHashService(alg, STATIC_SALT, 1);
+            for (final int iterations : new int[] {1, 5, 1000}) {
+                assertEquals(shiroHash(alg, STATIC_SALT, "password", "salt", iterations),
+                        Hex.encodeHexString(service.hash("password", "salt", iterations)));
+            }
+        }
+    }
+
+    @Test
+    public void verifyDefaultIterationsWithoutStaticSalt() throws Exception {
+        final PasswordHashService service = new PasswordHashService(MessageDigestAlgorithms.SHA_512, null, 7);
+        assertEquals(shiroHash(MessageDigestAlgorithms.SHA_512, null, "password", "salt", 7),
+                Hex.encodeHexString(service.hash("password", "salt", 0)));
+    }
+
+    @Test
+    public void verifyMatches() throws Exception {
+        final PasswordHashService service = new PasswordHashService(MessageDigestAlgorithms.SHA_512, STATIC_SALT, 1);
+        final String onRecord = shiroHash(MessageDigestAlgorithms.SHA_512, STATIC_SALT, "password", "salt", 5);
+
+        assertTrue(service.matches("password", "salt", 5, onRecord));
+        assertTrue(service.matches("password", "salt", 5, onRecord.toUpperCase()));
+        assertFalse(service.matches("password1", "salt", 5, onRecord));
+        assertFalse(service.matches("password", "salt", 4, onRecord));
+        assertFalse(service.matches("password", "salt", 5, "not-hex"));
+        assertFalse(service.matches("password", "salt", 5, null));
+    }
+
+    @Test
+    public void verifyCappedHashesFromConcurrentCallers() throws Exception {
+        final PasswordHashService service = new PasswordHashService(MessageDigestAlgorithms.SHA_256, STATIC_SALT, 1,
+                2, 100);
+        final ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                final String password = "password" + i;
+                final String onRecord = shiroHash(MessageDigestAlgorithms.SHA_256, STATIC_SALT, password, "salt", 500);
+                results.add(callers.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        return service.matches(password, "salt", 500, onRecord);
+                    }
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyUnknownAlgorithm() {
+        new PasswordHashService("NOT-AN-ALGORITHM", STATIC_SALT, 1);
+    }
+
+    private static String shiroHash(final String alg, final String staticSalt, final String psw,
+                                    final String salt, final int iterations) {
+        final DefaultHashService hash = new DefaultHashService();
+        if (staticSalt != null) {
+            hash.setPrivateSalt(ByteSource.Util.bytes(staticSalt));
+        }
+        hash.setHashIterations(iterations);
+        hash.setGeneratePublicSalt(false);
+        hash.setHashAlgorithmName(alg);
+        return hash.computeHash(new HashRequest.Builder().setSource(psw).setSalt(salt).build()).toHex();
+    }
+}
@@ -137,6 +137,18 @@ public class QueryDatabaseAuthenticationHandlerTests {
 
     }
 
+    @Test
+    public void verifyQueryLatencyRecorded() throws Exception {
+        final QueryDatabaseAuthenticationHandler q = new QueryDatabaseAuthenticationHandler();
+        q.setDataSource(this.dataSource);
+        q.setSql(SQL);
+        assertNotNull(q.authenticateUsernamePasswordInternal(
+                TestUtils.getCredentialsWithDifferentUsernameAndPassword("user3", "psw3")));
+        assertNotNull(q.authenticateUsernamePasswordInternal(
+                TestUtils.getCredentialsWithDifferentUsernameAndPassword("user4", "psw4")));
+        assertEquals(2, q.getQueryLatency().getTotalCount());
+    }
+
     public void verifySuccess() throws Exception {
         final QueryDatabaseAuthenticationHandler q = new QueryDatabaseAuthenticationHandler();
         q.setDataSource(this.dataSource);
@@ -22,6 +22,7 @@ import org.jasig.cas.TestUtils;
 import org.jasig.cas.authentication.principal.DefaultPrincipalFactory;
 import org.jasig.cas.authentication.principal.Principal;
 import org.jasig.cas.mock.MockService;
+import org.jasig.cas.monitor.TicketCounts;
 import org.jasig.cas.ticket.ExpirationPolicy;
 import org.jasig.cas.ticket.ServiceTicket;
 import org.jasig.cas.ticket.Ticket;
@@ -124,6 +125,47 @@ public class JpaTicketRegistryTests {
         assertNull(getTicketInTransaction(newSt.getId()));
     }
 
+    @Test
+    public void verifyTicketCountsMatchRegistryContents() throws Exception {
+        final TicketGrantingTicket tgt = newTGT();
+        addTicketInTransaction(tgt);
+        grantServiceTicketInTransaction(tgt);
+        grantServiceTicketInTransaction(tgt);
+        final TicketGrantingTicket pgt = new TicketGrantingTicketImpl(ID_GENERATOR.getNewTicketId("TGT"), tgt,
+                TestUtils.getAuthentication(), EXP_POLICY_TGT);
+        addTicketInTransaction(pgt);
+        grantServiceTicketInTransaction(pgt);
+        addTicketInTransaction(newTGT());
+
+        this.jpaTicketRegistry.setTicketCountsCacheDuration(0);
+        final TicketCounts counts = new TransactionTemplate(txManager).execute(new TransactionCallback<TicketCounts>() {
+            public TicketCounts doInTransaction(final TransactionStatus status) {
+                return jpaTicketRegistry.ticketCounts();
+            }
+        });
+
+        int tgts = 0;
+        int pgts = 0;
+        int sts = 0;
+        int pts = 0;
+        for (final Ticket ticket : this.jpaTicketRegistry.getTickets()) {
+            if (ticket instanceof TicketGrantingTicket) {
+                tgts++;
+                pgts += ticket.getGrantingTicket() != null ? 1 : 0;
+            } else {
+                sts++;
+                pts += ticket.getGrantingTicket().getGrantingTicket() != null ? 1 : 0;
+            }
+        }
+        assertEquals(3, tgts);
+        assertEquals(tgts, counts.getTicketGrantingTicketCount());
+        assertEquals(pgts, counts.getProxyGrantingTicketCount());
+        assertEquals(sts, counts.getServiceTicketCount());
+        assertEquals(pts, counts.getProxyTicketCount());
+        assertEquals(1, counts.getProxyTicketCount());
+        assertEquals(TicketCounts.UNKNOWN, counts.getExpiredTicketCount());
+    }
+
     @Test
     @IfProfileValue(name="cas.jpa.concurrent", value="true")
     public void verifyConcurrentServiceTicketGeneration() throws Exception {
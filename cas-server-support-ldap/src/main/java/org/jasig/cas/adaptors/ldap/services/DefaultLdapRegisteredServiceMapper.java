@@ -118,6 +118,15 @@ public final class DefaultLdapRegisteredServiceMapper implements LdapRegisteredS
         this.idAttribute = idAttribute;
     }
 
+    /**
+     * Gets the names of the LDAP attributes that are read to map entries to registered services.
+     *
+     * @return Registered service attribute names.
+     */
+    public String[] getAttributes() {
+        return new String[] {this.idAttribute, this.serviceDefinitionAttribute};
+    }
+
     public String getServiceDefinitionAttribute() {
         return serviceDefinitionAttribute;
     }
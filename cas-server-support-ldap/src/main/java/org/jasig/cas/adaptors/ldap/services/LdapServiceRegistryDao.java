@@ -18,8 +18,9 @@
  */
 package org.jasig.cas.adaptors.ldap.services;
 
+import org.jasig.cas.services.IncrementalServiceRegistryDao;
 import org.jasig.cas.services.RegisteredService;
-import org.jasig.cas.services.ServiceRegistryDao;
+import org.jasig.cas.services.RegisteredServiceChanges;
 import org.jasig.cas.util.LdapUtils;
 import org.ldaptive.AddOperation;
 import org.ldaptive.AddRequest;
@@ -41,23 +42,33 @@ import org.ldaptive.SearchFilter;
 import org.ldaptive.SearchOperation;
 import org.ldaptive.SearchRequest;
 import org.ldaptive.SearchResult;
+import org.ldaptive.io.GeneralizedTimeValueTranscoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
 import javax.validation.constraints.NotNull;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Implementation of the ServiceRegistryDao interface which stores the services in a LDAP Directory.
  *
+ * <p>Only the attributes required by the {@link LdapRegisteredServiceMapper} are read. Changes are
+ * synchronized incrementally based on the {@link #setModifyTimestampAttribute(String) modification timestamp}
+ * of service entries: only entries modified since the latest timestamp seen are read again, while deleted
+ * entries are detected by listing the ids of all entries. If the directory does not expose the timestamp,
+ * all services are loaded on every reload.</p>
+ *
  * @author Misagh Moayyed
  * @author Marvin S. Addison
  * @since 4.0.0
  */
-public final class LdapServiceRegistryDao implements ServiceRegistryDao {
+public final class LdapServiceRegistryDao implements IncrementalServiceRegistryDao {
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
@@ -73,9 +84,20 @@ public final class LdapServiceRegistryDao implements ServiceRegistryDao {
     @NotNull
     private String loadFilter;
 
+    @NotNull
+    private String changesFilter;
+
     @NotNull
     private SearchRequest searchRequest;
 
+    @NotNull
+    private String modifyTimestampAttribute = "modifyTimestamp";
+
+    @NotNull
+    private String[] loadAttributes;
+
+    /** Latest modification timestamp of the service entries read, or null if unknown. */
+    private volatile String lastModified;
 
     /**
      * Inits the dao with the search filter and load filters.
@@ -84,6 +106,16 @@ public final class LdapServiceRegistryDao implements ServiceRegistryDao {
     public void init() {
         this.searchFilter = '(' + this.ldapServiceMapper.getIdAttribute() +  "={0})";
         this.loadFilter = "(objectClass=" + this.ldapServiceMapper.getObjectClass() + ')';
+        this.changesFilter = "(&" + this.loadFilter + '(' + this.modifyTimestampAttribute + ">={0}))";
+
+        final String[] mapperAttributes;
+        if (this.ldapServiceMapper instanceof DefaultLdapRegisteredServiceMapper) {
+            mapperAttributes = ((DefaultLdapRegisteredServiceMapper) this.ldapServiceMapper).getAttributes();
+        } else {
+            mapperAttributes = ReturnAttributes.ALL_USER.value();
+        }
+        this.loadAttributes = Arrays.copyOf(mapperAttributes, mapperAttributes.length + 1);
+        this.loadAttributes[mapperAttributes.length] = this.modifyTimestampAttribute;
     }
 
     @Override
@@ -114,38 +146,30 @@ public final class LdapServiceRegistryDao implements ServiceRegistryDao {
      * @return the registered service
      */
     private RegisteredService update(final RegisteredService rs) {
-        Connection searchConnection = null;
+        Connection connection = null;
         try {
-            searchConnection = getConnection();
-            final Response<SearchResult> response = searchForServiceById(searchConnection, rs.getId());
+            connection = getConnection();
+            final Response<SearchResult> response = searchForServiceById(connection, rs.getId(),
+                    ReturnAttributes.NONE.value());
             if (hasResults(response)) {
                 final String currentDn = response.getResult().getEntry().getDn();
+                final ModifyOperation operation = new ModifyOperation(connection);
 
-                Connection modifyConnection = null;
-                try {
-                    modifyConnection = getConnection();
-                    final ModifyOperation operation = new ModifyOperation(searchConnection);
+                final List<AttributeModification> mods = new ArrayList<>();
 
-                    final List<AttributeModification> mods = new ArrayList<>();
-
-                    final LdapEntry entry = this.ldapServiceMapper.mapFromRegisteredService(this.searchRequest.getBaseDn(), rs);
-                    for (final LdapAttribute attr : entry.getAttributes()) {
-                        if (!attr.getName().equals(this.ldapServiceMapper.getIdAttribute())) {
-                            mods.add(new AttributeModification(AttributeModificationType.REPLACE, attr));
-                        }
+                final LdapEntry entry = this.ldapServiceMapper.mapFromRegisteredService(this.searchRequest.getBaseDn(), rs);
+                for (final LdapAttribute attr : entry.getAttributes()) {
+                    if (!attr.getName().equals(this.ldapServiceMapper.getIdAttribute())) {
+                        mods.add(new AttributeModification(AttributeModificationType.REPLACE, attr));
                     }
-                    final ModifyRequest request = new ModifyRequest(currentDn, mods.toArray(new AttributeModification[]{}));
-                    operation.execute(request);
-                }catch (final LdapException e) {
-                    logger.error(e.getMessage(), e);
-                } finally {
-                    LdapUtils.closeConnection(modifyConnection);
                 }
+                final ModifyRequest request = new ModifyRequest(currentDn, mods.toArray(new AttributeModification[]{}));
+                operation.execute(request);
             }
         } catch (final LdapException e) {
             logger.error(e.getMessage(), e);
         } finally {
-            LdapUtils.closeConnection(searchConnection);
+            LdapUtils.closeConnection(connection);
         }
         return rs;
     }
@@ -156,7 +180,8 @@ public final class LdapServiceRegistryDao implements ServiceRegistryDao {
         try {
             connection = getConnection();
 
-            final Response<SearchResult> response = searchForServiceById(connection, registeredService.getId());
+            final Response<SearchResult> response = searchForServiceById(connection, registeredService.getId(),
+                    ReturnAttributes.NONE.value());
             if (hasResults(response)) {
                 final LdapEntry entry = response.getResult().getEntry();
                 final DeleteOperation delete = new DeleteOperation(connection);
@@ -180,13 +205,27 @@ public final class LdapServiceRegistryDao implements ServiceRegistryDao {
         try {
             connection = getConnection();
             final Response<SearchResult> response =
-                    executeSearchOperation(connection, new SearchFilter(this.loadFilter));
+                    executeSearchOperation(connection, new SearchFilter(this.loadFilter), this.loadAttributes);
+            String latest = null;
             if (hasResults(response)) {
+                boolean timestamped = true;
                 for (final LdapEntry entry : response.getResult().getEntries()) {
                     final RegisteredService svc = this.ldapServiceMapper.mapToRegisteredService(entry);
                     list.add(svc);
+                    final String modified = LdapUtils.getString(entry, this.modifyTimestampAttribute);
+                    if (modified == null) {
+                        timestamped = false;
+                    } else if (timestamped) {
+                        latest = getLatest(latest, modified);
+                    }
+                }
+                if (!timestamped) {
+                    logger.debug("Service entries do not expose {}; changes cannot be loaded incrementally",
+                            this.modifyTimestampAttribute);
+                    latest = null;
                 }
             }
+            this.lastModified = latest;
         } catch (final LdapException e) {
             logger.error(e.getMessage(), e);
         } finally {
@@ -195,13 +234,87 @@ public final class LdapServiceRegistryDao implements ServiceRegistryDao {
         return list;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>Reads the entries whose modification timestamp is not older than the latest timestamp seen so far,
+     * then lists the ids of all entries to detect deletions.</p>
+     */
+    @Override
+    public RegisteredServiceChanges loadChanges() {
+        final String since = this.lastModified;
+        if (since == null) {
+            return null;
+        }
+
+        Connection connection = null;
+        try {
+            connection = getConnection();
+            final SearchFilter filter = new SearchFilter(this.changesFilter);
+            filter.setParameter(0, since);
+            final Response<SearchResult> response = executeSearchOperation(connection, filter, this.loadAttributes);
+
+            final List<RegisteredService> modified = new ArrayList<>();
+            String latest = since;
+            if (hasResults(response)) {
+                for (final LdapEntry entry : response.getResult().getEntries()) {
+                    final RegisteredService svc = this.ldapServiceMapper.mapToRegisteredService(entry);
+                    if (svc != null) {
+                        modified.add(svc);
+                    }
+                    latest = getLatest(latest, LdapUtils.getString(entry, this.modifyTimestampAttribute));
+                }
+            }
+
+            final Response<SearchResult> ids = executeSearchOperation(connection, new SearchFilter(this.loadFilter),
+                    this.ldapServiceMapper.getIdAttribute());
+            final Set<Long> serviceIds = new HashSet<>();
+            if (hasResults(ids)) {
+                for (final LdapEntry entry : ids.getResult().getEntries()) {
+                    final Long id = LdapUtils.getLong(entry, this.ldapServiceMapper.getIdAttribute());
+                    if (id == Long.MIN_VALUE) {
+                        logger.debug("Service entry {} has no numeric id; loading all services", entry.getDn());
+                        return null;
+                    }
+                    serviceIds.add(id);
+                }
+            }
+
+            this.lastModified = latest;
+            logger.debug("Loaded {} services modified since {}", modified.size(), since);
+            return new RegisteredServiceChanges(modified, serviceIds);
+        } catch (final LdapException e) {
+            logger.error(e.getMessage(), e);
+        } finally {
+            LdapUtils.closeConnection(connection);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the later of two generalized time values.
+     *
+     * @param current the current latest value, may be null
+     * @param candidate the candidate value, may be null
+     * @return the later value
+     */
+    private String getLatest(final String current, final String candidate) {
+        if (current == null) {
+            return candidate;
+        }
+        if (candidate == null) {
+            return current;
+        }
+        final GeneralizedTimeValueTranscoder transcoder = new GeneralizedTimeValueTranscoder();
+        return transcoder.decodeStringValue(candidate).after(transcoder.decodeStringValue(current)) ? candidate : current;
+    }
+
     @Override
     public RegisteredService findServiceById(final long id) {
         Connection connection = null;
         try {
             connection = getConnection();
 
-            final Response<SearchResult> response = searchForServiceById(connection, id);
+            final Response<SearchResult> response = searchForServiceById(connection, id, this.loadAttributes);
             if (hasResults(response)) {
                 return this.ldapServiceMapper.mapToRegisteredService(response.getResult().getEntry());
             }
@@ -219,15 +332,17 @@ public final class LdapServiceRegistryDao implements ServiceRegistryDao {
      *
      * @param connection the connection
      * @param id the id
+     * @param returnAttributes the attributes to read
      * @return the response
      * @throws LdapException the ldap exception
      */
-    private Response<SearchResult> searchForServiceById(final Connection connection, final long id)
+    private Response<SearchResult> searchForServiceById(final Connection connection, final long id,
+                                                        final String... returnAttributes)
             throws LdapException {
 
         final SearchFilter filter = new SearchFilter(this.searchFilter);
         filter.setParameter(0, id);
-        return executeSearchOperation(connection, filter);
+        return executeSearchOperation(connection, filter, returnAttributes);
     }
 
     /**
@@ -235,14 +350,16 @@ public final class LdapServiceRegistryDao implements ServiceRegistryDao {
      *
      * @param connection the connection
      * @param filter the filter
+     * @param returnAttributes the attributes to read
      * @return the response
      * @throws LdapException the ldap exception
      */
-    private Response<SearchResult> executeSearchOperation(final Connection connection, final SearchFilter filter)
+    private Response<SearchResult> executeSearchOperation(final Connection connection, final SearchFilter filter,
+                                                          final String... returnAttributes)
             throws LdapException {
 
         final SearchOperation searchOperation = new SearchOperation(connection);
-        final SearchRequest request = newRequest(filter);
+        final SearchRequest request = newRequest(filter, returnAttributes);
         logger.debug("Using search request {}", request.toString());
         return searchOperation.execute(request);
     }
@@ -259,6 +376,16 @@ public final class LdapServiceRegistryDao implements ServiceRegistryDao {
         this.searchRequest = request;
     }
 
+    /**
+     * Sets the operational attribute holding the time an entry was last modified,
+     * used to load changes incrementally. Defaults to <code>modifyTimestamp</code>.
+     *
+     * @param modifyTimestampAttribute the modification timestamp attribute name
+     */
+    public void setModifyTimestampAttribute(@NotNull final String modifyTimestampAttribute) {
+        this.modifyTimestampAttribute = modifyTimestampAttribute;
+    }
+
     /**
      * Checks to see if response has a result.
      *
@@ -280,9 +407,10 @@ public final class LdapServiceRegistryDao implements ServiceRegistryDao {
      * Builds a new request.
      *
      * @param filter the filter
+     * @param returnAttributes the attributes to read
      * @return the search request
      */
-    private SearchRequest newRequest(final SearchFilter filter) {
+    private SearchRequest newRequest(final SearchFilter filter, final String... returnAttributes) {
 
         final SearchRequest sr = new SearchRequest(this.searchRequest.getBaseDn(), filter);
         sr.setBinaryAttributes(ReturnAttributes.ALL_USER.value());
@@ -290,7 +418,7 @@ public final class LdapServiceRegistryDao implements ServiceRegistryDao {
         sr.setSearchEntryHandlers(this.searchRequest.getSearchEntryHandlers());
         sr.setSearchReferenceHandlers(this.searchRequest.getSearchReferenceHandlers());
         sr.setFollowReferrals(this.searchRequest.getFollowReferrals());
-        sr.setReturnAttributes(ReturnAttributes.ALL_USER.value());
+        sr.setReturnAttributes(returnAttributes);
         sr.setSearchScope(this.searchRequest.getSearchScope());
         sr.setSizeLimit(this.searchRequest.getSizeLimit());
         sr.setSortBehavior(this.searchRequest.getSortBehavior());
@@ -23,6 +23,7 @@ import com.google.common.collect.Maps;
 import org.jasig.cas.Message;
 import org.jasig.cas.authentication.handler.support.AbstractUsernamePasswordAuthenticationHandler;
 import org.jasig.cas.authentication.principal.Principal;
+import org.jasig.cas.authentication.support.AuthenticatedEntryCache;
 import org.jasig.cas.authentication.support.LdapPasswordPolicyConfiguration;
 import org.ldaptive.LdapAttribute;
 import org.ldaptive.LdapEntry;
@@ -39,9 +40,11 @@ import javax.security.auth.login.FailedLoginException;
 import javax.security.auth.login.LoginException;
 import javax.validation.constraints.NotNull;
 import java.security.GeneralSecurityException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -87,6 +90,9 @@ public class LdapAuthenticationHandler extends AbstractUsernamePasswordAuthentic
     /** Set of LDAP attributes fetch from an entry as part of the authentication process. */
     private String[] authenticatedEntryAttributes = ReturnAttributes.NONE.value();
 
+    /** Optional cache where authenticated entries are kept for subsequent attribute resolution. */
+    private AuthenticatedEntryCache entryCache;
+
     /**
      * Creates a new authentication handler that delegates to the given authenticator.
      *
@@ -162,16 +168,28 @@ public class LdapAuthenticationHandler extends AbstractUsernamePasswordAuthentic
         this.additionalAttributes = additionalAttributes;
     }
 
+    /**
+     * Sets the cache where entries read during authentication are kept so that attribute
+     * resolution for the same user can reuse them instead of searching the directory again.
+     * The attributes registered with the cache are read in addition to the principal attributes.
+     *
+     * @param entryCache Authenticated entry cache.
+     */
+    public void setEntryCache(final AuthenticatedEntryCache entryCache) {
+        this.entryCache = entryCache;
+    }
+
     @Override
     protected HandlerResult authenticateUsernamePasswordInternal(final UsernamePasswordCredential upc)
             throws GeneralSecurityException, PreventedException {
         final AuthenticationResponse response;
+        final String[] returnAttributes = getReturnAttributes();
         try {
             logger.debug("Attempting LDAP authentication for {}", upc);
             final String password = getPasswordEncoder().encode(upc.getPassword());
             final AuthenticationRequest request = new AuthenticationRequest(upc.getUsername(),
                     new org.ldaptive.Credential(password),
-                    this.authenticatedEntryAttributes);
+                    returnAttributes);
             response = this.authenticator.authenticate(request);
         } catch (final LdapException e) {
             throw new PreventedException("Unexpected LDAP error", e);
@@ -191,7 +209,14 @@ public class LdapAuthenticationHandler extends AbstractUsernamePasswordAuthentic
         }
         
         if (response.getResult()) {
-            return createHandlerResult(upc, createPrincipal(upc.getUsername(), response.getLdapEntry()), messageList);
+            final Principal principal = createPrincipal(upc.getUsername(), response.getLdapEntry());
+            if (this.entryCache != null && response.getLdapEntry() != null) {
+                this.entryCache.put(upc.getUsername(), response.getLdapEntry(), returnAttributes);
+                if (!principal.getId().equals(upc.getUsername())) {
+                    this.entryCache.put(principal.getId(), response.getLdapEntry(), returnAttributes);
+                }
+            }
+            return createHandlerResult(upc, principal, messageList);
         }
 
         if (AuthenticationResultCode.DN_RESOLUTION_FAILURE == response.getAuthenticationResultCode()) {
@@ -200,6 +225,23 @@ public class LdapAuthenticationHandler extends AbstractUsernamePasswordAuthentic
         throw new FailedLoginException("Invalid credentials");
     }
 
+    /**
+     * Gets the attributes to read from the authenticated entry, including those required
+     * by the consumers of the entry cache if one is configured.
+     *
+     * @return LDAP attribute names.
+     */
+    private String[] getReturnAttributes() {
+        if (this.entryCache == null || this.entryCache.getAttributes().length == 0) {
+            return this.authenticatedEntryAttributes;
+        }
+        final Set<String> attributes = new LinkedHashSet<>(Arrays.asList(this.entryCache.getAttributes()));
+        if (!Arrays.equals(ReturnAttributes.NONE.value(), this.authenticatedEntryAttributes)) {
+            attributes.addAll(Arrays.asList(this.authenticatedEntryAttributes));
+        }
+        return attributes.toArray(new String[attributes.size()]);
+    }
+
     /**
      * Examine account state to see if any errors are present.
      * If so, throws the relevant security exception.
@@ -0,0 +1,185 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.authentication.support;
+
+import org.ldaptive.LdapEntry;
+
+import javax.validation.constraints.Min;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived cache of the LDAP entries read while authenticating users, so that attribute
+ * resolution that immediately follows authentication can consume the entry instead of
+ * searching the directory again.
+ *
+ * <p>Consumers register the attributes they need via {@link #addAttributes(String...)}; the
+ * authentication handler requests those attributes in addition to its own. An entry is handed out
+ * at most once, only within its time to live, and only if it was read with all the attributes the
+ * consumer requires. The cache is bounded; when full, new entries are simply not cached and consumers
+ * fall back to searching the directory.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class AuthenticatedEntryCache {
+
+    /** Default time in seconds an entry is kept. */
+    public static final int DEFAULT_TIME_TO_LIVE = 10;
+
+    /** Default maximum number of entries kept. */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    private final ConcurrentMap<String, CachedEntry> entries = new ConcurrentHashMap<>();
+
+    private final Set<String> attributeNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    private volatile String[] attributes = new String[0];
+
+    @Min(0)
+    private long timeToLive = TimeUnit.SECONDS.toMillis(DEFAULT_TIME_TO_LIVE);
+
+    @Min(0)
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    /**
+     * Registers attributes that consumers of the cached entries require.
+     *
+     * @param names LDAP attribute names.
+     */
+    public synchronized void addAttributes(final String... names) {
+        for (final String name : names) {
+            this.attributeNames.add(name);
+        }
+        this.attributes = this.attributeNames.toArray(new String[this.attributeNames.size()]);
+    }
+
+    /**
+     * Gets the attributes that must be read with every cached entry.
+     *
+     * @return LDAP attribute names.
+     */
+    public String[] getAttributes() {
+        return this.attributes.clone();
+    }
+
+    /**
+     * Caches an entry read during authentication.
+     *
+     * @param key Key under which the entry is cached, typically the username.
+     * @param entry LDAP entry.
+     * @param returnedAttributes Attributes that were requested when the entry was read.
+     */
+    public void put(final String key, final LdapEntry entry, final String[] returnedAttributes) {
+        final long now = System.currentTimeMillis();
+        if (this.entries.size() >= this.maxSize) {
+            evictExpired(now);
+            if (this.entries.size() >= this.maxSize) {
+                return;
+            }
+        }
+        this.entries.put(key, new CachedEntry(entry, returnedAttributes, now + this.timeToLive));
+    }
+
+    /**
+     * Removes and returns the entry cached under the given key.
+     *
+     * @param key Key under which the entry is cached, typically the username.
+     * @param requiredAttributes Attributes the entry must have been read with.
+     *
+     * @return Cached LDAP entry, or null if none is cached, it expired or it lacks required attributes.
+     */
+    public LdapEntry take(final String key, final String[] requiredAttributes) {
+        final CachedEntry cached = this.entries.remove(key);
+        if (cached == null || cached.expiresAt <= System.currentTimeMillis()) {
+            return null;
+        }
+        for (final String name : requiredAttributes) {
+            if (!cached.returnedAttributes.contains(name.toLowerCase(Locale.ENGLISH))) {
+                return null;
+            }
+        }
+        return cached.entry;
+    }
+
+    /**
+     * Sets the time in seconds an entry is kept. Defaults to {@value #DEFAULT_TIME_TO_LIVE}.
+     *
+     * @param seconds Time to live in seconds.
+     */
+    public void setTimeToLive(final long seconds) {
+        this.timeToLive = TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    /**
+     * Sets the maximum number of entries kept. Defaults to {@value #DEFAULT_MAX_SIZE}.
+     *
+     * @param maxSize Maximum number of entries.
+     */
+    public void setMaxSize(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Removes expired entries.
+     *
+     * @param now Current time in milliseconds.
+     */
+    private void evictExpired(final long now) {
+        final Iterator<CachedEntry> it = this.entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAt <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Cached entry along with the attributes it was read with.
+     */
+    private static final class CachedEntry {
+        private final LdapEntry entry;
+
+        private final Set<String> returnedAttributes;
+
+        private final long expiresAt;
+
+        /**
+         * Instantiates a new cached entry.
+         *
+         * @param entry LDAP entry.
+         * @param returnedAttributes Attributes that were requested when the entry was read.
+         * @param expiresAt Time in milliseconds after which the entry is no longer handed out.
+         */
+        CachedEntry(final LdapEntry entry, final String[] returnedAttributes, final long expiresAt) {
+            this.entry = entry;
+            this.returnedAttributes = new HashSet<>(returnedAttributes.length);
+            for (final String name : returnedAttributes) {
+                this.returnedAttributes.add(name.toLowerCase(Locale.ENGLISH));
+            }
+            this.expiresAt = expiresAt;
+        }
+    }
+}
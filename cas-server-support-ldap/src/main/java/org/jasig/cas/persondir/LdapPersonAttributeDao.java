@@ -19,6 +19,7 @@
 package org.jasig.cas.persondir;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +28,7 @@ import javax.annotation.PostConstruct;
 import javax.naming.directory.SearchControls;
 import javax.validation.constraints.NotNull;
 
+import org.jasig.cas.authentication.support.AuthenticatedEntryCache;
 import org.jasig.cas.util.LdapUtils;
 import org.jasig.services.persondir.IPersonAttributes;
 import org.jasig.services.persondir.support.AbstractQueryPersonAttributeDao;
@@ -43,6 +45,7 @@ import org.ldaptive.SearchOperation;
 import org.ldaptive.SearchRequest;
 import org.ldaptive.SearchResult;
 import org.ldaptive.SearchScope;
+import org.ldaptive.pool.PooledConnectionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +53,10 @@ import org.slf4j.LoggerFactory;
  * Person directory <code>IPersonAttribute</code> implementation that queries an LDAP directory
  * with ldaptive components to populate person attributes.
  *
+ * <p>When configured with the same {@link AuthenticatedEntryCache} as the LDAP authentication handler,
+ * the entry read while authenticating a user is consumed directly and no additional search is performed
+ * to resolve the attributes of that user.</p>
+ *
  * @author Marvin S. Addison
  * @since 4.0.0
  */
@@ -80,6 +87,9 @@ public class LdapPersonAttributeDao extends AbstractQueryPersonAttributeDao<Sear
     /** LDAP attributes to fetch from search results. */
     private String[] attributes;
 
+    /** Optional cache of entries read during authentication. */
+    private AuthenticatedEntryCache entryCache;
+
     /**
      * Sets the base DN of the LDAP search for attributes.
      *
@@ -119,6 +129,15 @@ public class LdapPersonAttributeDao extends AbstractQueryPersonAttributeDao<Sear
         this.connectionFactory = connectionFactory;
     }
 
+    /**
+     * Sets the cache of entries read during authentication that are consumed instead of searching the directory.
+     *
+     * @param entryCache Authenticated entry cache shared with the LDAP authentication handler.
+     */
+    public void setEntryCache(final AuthenticatedEntryCache entryCache) {
+        this.entryCache = entryCache;
+    }
+
     /**
      * Initializes the object after properties are set.
      */
@@ -130,15 +149,32 @@ public class LdapPersonAttributeDao extends AbstractQueryPersonAttributeDao<Sear
             }
         }
         this.attributes = getResultAttributeMapping().keySet().toArray(new String[getResultAttributeMapping().size()]);
+        if (this.entryCache != null) {
+            this.entryCache.addAttributes(this.attributes);
+        }
+        if (!(this.connectionFactory instanceof PooledConnectionFactory)) {
+            logger.warn("{} is not a pooled connection factory; a new connection is opened for every search.",
+                    this.connectionFactory);
+        }
     }
 
     @Override
     protected List<IPersonAttributes> getPeopleForQuery(final SearchFilter filter, final String userName) {
+        if (this.entryCache != null && userName != null) {
+            final LdapEntry entry = this.entryCache.take(userName, this.attributes);
+            if (entry != null) {
+                logger.debug("Using entry [{}] read during authentication of {}", entry.getDn(), userName);
+                return Collections.singletonList(createPerson(entry, userName));
+            }
+        }
+
         Connection connection = null;
         try {
             try {
                 connection = this.connectionFactory.getConnection();
-                connection.open();
+                if (!connection.isOpen()) {
+                    connection.open();
+                }
             } catch (final LdapException e) {
                 throw new RuntimeException("Failed getting LDAP connection", e);
             }
@@ -151,15 +187,7 @@ public class LdapPersonAttributeDao extends AbstractQueryPersonAttributeDao<Sear
             final SearchResult result = response.getResult();
             final List<IPersonAttributes> peopleAttributes = new ArrayList<>(result.size());
             for (final LdapEntry entry : result.getEntries()) {
-                final IPersonAttributes person;
-                final String userNameAttribute = this.getConfiguredUserNameAttribute();
-                final Map<String, List<Object>> attributes = convertLdapEntryToMap(entry);
-                if (attributes.containsKey(userNameAttribute)) {
-                    person = new CaseInsensitiveAttributeNamedPersonImpl(userNameAttribute, attributes);
-                } else {
-                    person = new CaseInsensitiveNamedPersonImpl(userName , attributes);
-                }
-                peopleAttributes.add(person);
+                peopleAttributes.add(createPerson(entry, userName));
             }
 
             return peopleAttributes;
@@ -182,6 +210,23 @@ public class LdapPersonAttributeDao extends AbstractQueryPersonAttributeDao<Sear
         return query;
     }
 
+    /**
+     * Creates a person from an LDAP entry.
+     *
+     * @param entry LDAP entry.
+     * @param userName Username used to query for the person.
+     *
+     * @return Person attributes.
+     */
+    private IPersonAttributes createPerson(final LdapEntry entry, final String userName) {
+        final String userNameAttribute = this.getConfiguredUserNameAttribute();
+        final Map<String, List<Object>> attributes = convertLdapEntryToMap(entry);
+        if (attributes.containsKey(userNameAttribute)) {
+            return new CaseInsensitiveAttributeNamedPersonImpl(userNameAttribute, attributes);
+        }
+        return new CaseInsensitiveNamedPersonImpl(userName, attributes);
+    }
+
     /**
      * Creates a search request from a search filter.
      *
@@ -211,9 +256,11 @@ public class LdapPersonAttributeDao extends AbstractQueryPersonAttributeDao<Sear
     private Map<String, List<Object>> convertLdapEntryToMap(final LdapEntry entry) {
         final Map<String, List<Object>> attributeMap = new LinkedHashMap<>(entry.size());
         for (final LdapAttribute attr : entry.getAttributes()) {
-            attributeMap.put(attr.getName(), new ArrayList<Object>(attr.getStringValues()));
+            final List<Object> values = new ArrayList<>(attr.size());
+            values.addAll(attr.getStringValues());
+            attributeMap.put(attr.getName(), values);
         }
-        logger.debug("Converted ldap DN entry [{}] to attribute map {}", entry.getDn(), attributeMap.toString());
+        logger.debug("Converted ldap DN entry [{}] to attribute map {}", entry.getDn(), attributeMap);
         return attributeMap;
     }
 }
@@ -22,10 +22,12 @@ import org.jasig.cas.adaptors.ldap.AbstractLdapTests;
 import org.jasig.cas.services.AbstractRegisteredService;
 import org.jasig.cas.services.AnonymousRegisteredServiceUsernameAttributeProvider;
 import org.jasig.cas.services.DefaultRegisteredServiceUsernameProvider;
+import org.jasig.cas.services.IncrementalServiceRegistryDao;
 import org.jasig.cas.services.RefuseRegisteredServiceProxyPolicy;
 import org.jasig.cas.services.RegexMatchingRegisteredServiceProxyPolicy;
 import org.jasig.cas.services.RegexRegisteredService;
 import org.jasig.cas.services.RegisteredService;
+import org.jasig.cas.services.RegisteredServiceChanges;
 import org.jasig.cas.services.RegisteredServiceImpl;
 import org.jasig.cas.services.ReturnAllAttributeReleasePolicy;
 import org.jasig.cas.services.ReturnAllowedAttributeReleasePolicy;
@@ -38,8 +40,10 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -146,6 +150,31 @@ public class LdapServiceRegistryDaoTests extends AbstractLdapTests {
         assertEquals(0, this.dao.load().size());
     }
 
+    @Test
+    public void verifyLoadingChanges() {
+        final IncrementalServiceRegistryDao incrementalDao = (IncrementalServiceRegistryDao) this.dao;
+        final RegisteredService rs = this.dao.save(getRegisteredService());
+        final RegisteredService rs2 = this.dao.save(getRegexRegisteredService());
+        assertEquals(2, this.dao.load().size());
+
+        final AbstractRegisteredService modified = (AbstractRegisteredService) this.dao.findServiceById(rs.getId());
+        modified.setName("Modified Service Name");
+        this.dao.save(modified);
+        this.dao.delete(rs2);
+        final RegisteredService rs3 = this.dao.save(getRegexRegisteredService());
+
+        final RegisteredServiceChanges changes = incrementalDao.loadChanges();
+        assertNotNull(changes);
+        assertEquals(new HashSet<>(Arrays.asList(rs.getId(), rs3.getId())), changes.getServiceIds());
+        final Map<Long, RegisteredService> services = new HashMap<>();
+        for (final RegisteredService service : changes.getModifiedServices()) {
+            services.put(service.getId(), service);
+        }
+        assertEquals("Modified Service Name", services.get(rs.getId()).getName());
+        assertTrue(services.containsKey(rs3.getId()));
+        assertFalse(services.containsKey(rs2.getId()));
+    }
+
     private RegisteredService getRegisteredService() {
         final AbstractRegisteredService rs = new RegisteredServiceImpl();
         rs.setName("Service Name1");
@@ -19,17 +19,24 @@
 package org.jasig.cas.persondir;
 
 import org.jasig.cas.adaptors.ldap.AbstractLdapTests;
+import org.jasig.cas.authentication.support.AuthenticatedEntryCache;
 import org.jasig.services.persondir.IPersonAttributes;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.ldaptive.ConnectionFactory;
+import org.ldaptive.LdapAttribute;
 import org.ldaptive.LdapEntry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import javax.naming.directory.SearchControls;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
 /**
  * Unit test for {@link LdapPersonAttributeDao}.
@@ -60,6 +67,45 @@ public class LdapPersonAttributeDaoTests extends AbstractLdapTests {
         }
     }
 
+    @Test
+    public void verifyGetPersonFromAuthenticatedEntry() throws Exception {
+        final ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        final AuthenticatedEntryCache cache = new AuthenticatedEntryCache();
+        final LdapPersonAttributeDao dao = new LdapPersonAttributeDao();
+        dao.setConnectionFactory(connectionFactory);
+        dao.setBaseDN("ou=people,dc=example,dc=org");
+        dao.setSearchControls(new SearchControls());
+        dao.setSearchFilter("mail={0}");
+        dao.setEntryCache(cache);
+        final Map<String, String> mapping = new HashMap<>();
+        mapping.put("cn", "commonName");
+        mapping.put("mail", "mail");
+        dao.setResultAttributeMapping(mapping);
+        dao.initialize();
+
+        assertEquals(2, cache.getAttributes().length);
+        final LdapEntry entry = new LdapEntry("uid=cached,ou=people,dc=example,dc=org",
+                new LdapAttribute("cn", "Cached User"), new LdapAttribute("mail", "cached@example.org"));
+        cache.put("cached@example.org", entry, cache.getAttributes());
+
+        final IPersonAttributes actual = dao.getPerson("cached@example.org");
+        assertNotNull(actual);
+        assertEquals("Cached User", actual.getAttributeValue("commonName"));
+        verifyZeroInteractions(connectionFactory);
+        assertNull(cache.take("cached@example.org", cache.getAttributes()));
+    }
+
+    @Test
+    public void verifyAuthenticatedEntryMissingAttributesNotUsed() throws Exception {
+        final AuthenticatedEntryCache cache = new AuthenticatedEntryCache();
+        final LdapEntry entry = new LdapEntry("uid=cached,ou=people,dc=example,dc=org");
+        cache.put("cached", entry, new String[] {"cn"});
+        assertNull(cache.take("cached", new String[] {"cn", "mail"}));
+
+        cache.put("cached", entry, new String[] {"CN", "mail"});
+        assertSame(entry, cache.take("cached", new String[] {"cn"}));
+    }
+
     /**
      * Determines whether the given attribute maps are equal irrespective of value ordering.
      *
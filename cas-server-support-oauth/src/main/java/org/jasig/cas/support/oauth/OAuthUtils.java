@@ -19,6 +19,8 @@
 package org.jasig.cas.support.oauth;
 
 import org.apache.commons.lang3.StringUtils;
+import org.jasig.cas.services.AbstractRegisteredServiceIndex;
+import org.jasig.cas.services.IndexedServicesManager;
 import org.jasig.cas.services.RegisteredService;
 import org.jasig.cas.services.ServicesManager;
 import org.jasig.cas.support.oauth.services.OAuthRegisteredService;
@@ -44,6 +46,17 @@ public final class OAuthUtils {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OAuthUtils.class);
 
+    /**
+     * Index of {@link OAuthRegisteredService} instances by client id.
+     */
+    private static final AbstractRegisteredServiceIndex<String, OAuthRegisteredService> CLIENT_ID_INDEX =
+            new AbstractRegisteredServiceIndex<String, OAuthRegisteredService>(OAuthRegisteredService.class) {
+                @Override
+                public String getKey(final OAuthRegisteredService service) {
+                    return service.getClientId();
+                }
+            };
+
     /**
      * Instantiates a new OAuth utils.
      */
@@ -135,11 +148,15 @@ public final class OAuthUtils {
 
     /**
      * Locate the requested instance of {@link OAuthRegisteredService} by the given clientId.
+     * Services managers that maintain indexes are looked up by client id; others are scanned.
      * @param servicesManager the service registry DAO instance.
      * @param clientId the client id by which the {@link OAuthRegisteredService} is to be located.
      * @return null, or the located {@link OAuthRegisteredService} instance in the service registry.
      */
     public static OAuthRegisteredService getRegisteredOAuthService(final ServicesManager servicesManager, final String clientId) {
+        if (servicesManager instanceof IndexedServicesManager) {
+            return ((IndexedServicesManager) servicesManager).findServiceBy(CLIENT_ID_INDEX, clientId);
+        }
         final Iterator<RegisteredService> it = servicesManager.getAllServices().iterator();
         while (it.hasNext()) {
             final RegisteredService aService = it.next();
@@ -21,6 +21,8 @@ package org.jasig.cas.support.oauth.services;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.jasig.cas.services.RegexRegisteredService;
 
+import java.util.regex.Pattern;
+
 /**
  * An extension of the {@link RegexRegisteredService} that defines the
  * OAuth client id and secret for a given registered service.
@@ -37,6 +39,9 @@ public final class OAuthRegisteredService extends RegexRegisteredService {
 
     private Boolean bypassApprovalPrompt = Boolean.FALSE;
 
+    /** Redirect URI pattern compiled from the current service id. */
+    private transient volatile RedirectUriPattern redirectUriPattern;
+
     public String getClientId() {
         return this.clientId;
     }
@@ -61,6 +66,22 @@ public final class OAuthRegisteredService extends RegexRegisteredService {
         this.bypassApprovalPrompt = bypassApprovalPrompt;
     }
 
+    /**
+     * Determines whether the redirect URI matches the service id of this service in its entirety.
+     * The pattern is compiled once per service id rather than on every request.
+     *
+     * @param redirectUri the redirect URI
+     * @return true if the redirect URI matches the service id
+     */
+    public boolean matchesRedirectUri(final String redirectUri) {
+        RedirectUriPattern pattern = this.redirectUriPattern;
+        if (pattern == null || !pattern.serviceId.equals(getServiceId())) {
+            pattern = new RedirectUriPattern(getServiceId());
+            this.redirectUriPattern = pattern;
+        }
+        return pattern.pattern.matcher(redirectUri).matches();
+    }
+
     @Override
     public String toString() {
         final ToStringBuilder builder = new ToStringBuilder(this);
@@ -69,4 +90,23 @@ public final class OAuthRegisteredService extends RegexRegisteredService {
         builder.append("approvalPrompt", isBypassApprovalPrompt());
         return builder.toString();
     }
+
+    /**
+     * Redirect URI pattern along with the service id it was compiled from.
+     */
+    private static final class RedirectUriPattern {
+        private final String serviceId;
+
+        private final Pattern pattern;
+
+        /**
+         * Compiles the redirect URI pattern of a service id.
+         *
+         * @param serviceId the service id
+         */
+        RedirectUriPattern(final String serviceId) {
+            this.serviceId = serviceId;
+            this.pattern = Pattern.compile(serviceId);
+        }
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.support.oauth.token;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jasig.cas.authentication.principal.Principal;
+import org.jasig.cas.ticket.TicketGrantingTicket;
+import org.jasig.cas.util.DefaultUniqueTicketIdGenerator;
+import org.jasig.cas.util.UniqueTicketIdGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OAuth access token along with the profile of the user it was issued to.
+ * The profile is serialized once when the token is created, so that it can be served
+ * as is without looking up the ticket granting ticket the token was issued from.
+ * The token has its own random id, distinct from the id of the ticket granting ticket,
+ * and expires on its own.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class AccessToken implements Serializable {
+
+    private static final long serialVersionUID = -2578463624617402131L;
+
+    private static final String ID = "id";
+
+    private static final String ATTRIBUTES = "attributes";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory(new ObjectMapper());
+
+    /** Access tokens SHOULD begin with characters "AT-". */
+    private static final String PREFIX = "AT";
+
+    private static final UniqueTicketIdGenerator ID_GENERATOR = new DefaultUniqueTicketIdGenerator();
+
+    private final String id;
+
+    private final String ticketGrantingTicketId;
+
+    private final long expirationTime;
+
+    private final byte[] profile;
+
+    /**
+     * Instantiates a new access token.
+     *
+     * @param id the token id
+     * @param ticketGrantingTicketId the id of the ticket granting ticket the token was issued from
+     * @param expirationTime the time in milliseconds at which the token expires
+     * @param profile the JSON profile of the user
+     */
+    public AccessToken(final String id, final String ticketGrantingTicketId, final long expirationTime,
+            final byte[] profile) {
+        this.id = id;
+        this.ticketGrantingTicketId = ticketGrantingTicketId;
+        this.expirationTime = expirationTime;
+        this.profile = profile.clone();
+    }
+
+    /**
+     * Creates the access token issued from the given ticket granting ticket. The token gets
+     * a new random id, and expires the given number of seconds after the ticket was created.
+     *
+     * @param ticketGrantingTicket the ticket granting ticket
+     * @param timeout the lifetime of the token in seconds
+     * @return the access token
+     */
+    public static AccessToken fromTicketGrantingTicket(final TicketGrantingTicket ticketGrantingTicket, final long timeout) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final JsonGenerator jsonGenerator = JSON_FACTORY.createGenerator(out)) {
+            final Principal principal = ticketGrantingTicket.getAuthentication().getPrincipal();
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeStringField(ID, principal.getId());
+            jsonGenerator.writeArrayFieldStart(ATTRIBUTES);
+            final Map<String, Object> attributes = principal.getAttributes();
+            for (final Map.Entry<String, Object> entry : attributes.entrySet()) {
+                jsonGenerator.writeStartObject();
+                jsonGenerator.writeObjectField(entry.getKey(), entry.getValue());
+                jsonGenerator.writeEndObject();
+            }
+            jsonGenerator.writeEndArray();
+            jsonGenerator.writeEndObject();
+        } catch (final IOException e) {
+            throw new IllegalStateException("Unable to serialize profile", e);
+        }
+        return new AccessToken(ID_GENERATOR.getNewTicketId(PREFIX), ticketGrantingTicket.getId(),
+                ticketGrantingTicket.getCreationTime() + TimeUnit.SECONDS.toMillis(timeout), out.toByteArray());
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public String getTicketGrantingTicketId() {
+        return this.ticketGrantingTicketId;
+    }
+
+    public long getExpirationTime() {
+        return this.expirationTime;
+    }
+
+    /**
+     * Determines whether the token has expired.
+     *
+     * @return true if the token has expired
+     */
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= this.expirationTime;
+    }
+
+    /**
+     * Writes the JSON profile of the user the token was issued to.
+     *
+     * @param out the output stream
+     * @throws IOException if the profile cannot be written
+     */
+    public void writeProfile(final OutputStream out) throws IOException {
+        out.write(this.profile);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.support.oauth.token;
+
+/**
+ * Store of the OAuth access tokens that have been issued.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public interface AccessTokenRegistry {
+
+    /**
+     * Adds an access token to the registry.
+     *
+     * @param accessToken the access token
+     */
+    void addAccessToken(AccessToken accessToken);
+
+    /**
+     * Retrieves an access token from the registry.
+     *
+     * @param id the token id
+     * @return the access token, or null if it is unknown or has expired.
+     */
+    AccessToken getAccessToken(String id);
+
+    /**
+     * Removes an access token from the registry, if present.
+     *
+     * @param id the token id
+     */
+    void removeAccessToken(String id);
+
+    /**
+     * Removes the access tokens issued from a ticket granting ticket, once the ticket is destroyed.
+     *
+     * @param ticketGrantingTicketId the ticket granting ticket id
+     */
+    void removeAccessTokens(String ticketGrantingTicketId);
+}
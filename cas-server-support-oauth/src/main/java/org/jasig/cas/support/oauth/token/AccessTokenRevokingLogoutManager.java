@@ -0,0 +1,65 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.support.oauth.token;
+
+import org.jasig.cas.logout.LogoutManager;
+import org.jasig.cas.logout.LogoutRequest;
+import org.jasig.cas.ticket.TicketGrantingTicket;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+/**
+ * Logout manager that revokes the access tokens issued from a ticket granting ticket
+ * when the ticket is destroyed, before delegating the logout to another logout manager.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class AccessTokenRevokingLogoutManager implements LogoutManager {
+
+    @NotNull
+    private final LogoutManager logoutManager;
+
+    @NotNull
+    private final AccessTokenRegistry accessTokenRegistry;
+
+    /**
+     * Instantiates a new access token revoking logout manager.
+     *
+     * @param logoutManager the logout manager performing the logout
+     * @param accessTokenRegistry the access token registry
+     */
+    public AccessTokenRevokingLogoutManager(final LogoutManager logoutManager,
+            final AccessTokenRegistry accessTokenRegistry) {
+        this.logoutManager = logoutManager;
+        this.accessTokenRegistry = accessTokenRegistry;
+    }
+
+    @Override
+    public List<LogoutRequest> performLogout(final TicketGrantingTicket ticket) {
+        this.accessTokenRegistry.removeAccessTokens(ticket.getId());
+        return this.logoutManager.performLogout(ticket);
+    }
+
+    @Override
+    public String createFrontChannelLogoutMessage(final LogoutRequest logoutRequest) {
+        return this.logoutManager.createFrontChannelLogoutMessage(logoutRequest);
+    }
+}
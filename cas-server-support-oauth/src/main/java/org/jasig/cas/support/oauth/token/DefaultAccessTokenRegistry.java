@@ -0,0 +1,199 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.support.oauth.token;
+
+import javax.validation.constraints.Min;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Bounded in-memory access token registry. Lookups do not lock. Tokens are also kept ordered
+ * by expiration time, so that expired tokens are evicted from the head of that order as tokens
+ * are added and, when the registry is full, the token that expires soonest is evicted, without
+ * examining the other tokens.
+ *
+ * <p>Tokens are only known to the node they were added to. The tokens issued from a ticket
+ * granting ticket are indexed by the ticket id, so that they are removed along with the ticket,
+ * see {@link AccessTokenRevokingLogoutManager}.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class DefaultAccessTokenRegistry implements AccessTokenRegistry {
+
+    /** Default maximum number of tokens kept. */
+    public static final int DEFAULT_MAX_SIZE = 100000;
+
+    /** Orders tokens by expiration time, soonest first. */
+    private static final Comparator<AccessToken> EXPIRATION_ORDER = new Comparator<AccessToken>() {
+        @Override
+        public int compare(final AccessToken token1, final AccessToken token2) {
+            final int result = Long.compare(token1.getExpirationTime(), token2.getExpirationTime());
+            return result != 0 ? result : token1.getId().compareTo(token2.getId());
+        }
+    };
+
+    private final ConcurrentMap<String, AccessToken> accessTokens = new ConcurrentHashMap<>();
+
+    /** Tokens ordered by expiration time, soonest first. */
+    private final ConcurrentSkipListSet<AccessToken> expirationQueue = new ConcurrentSkipListSet<>(EXPIRATION_ORDER);
+
+    /** Ids of the tokens issued from each ticket granting ticket. Each set is guarded by its own monitor. */
+    private final ConcurrentMap<String, Set<String>> tokenIdsByTicketGrantingTicket = new ConcurrentHashMap<>();
+
+    @Min(1)
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    @Override
+    public void addAccessToken(final AccessToken accessToken) {
+        evictExpired();
+        while (this.accessTokens.size() >= this.maxSize) {
+            final AccessToken soonest = this.expirationQueue.pollFirst();
+            if (soonest == null) {
+                break;
+            }
+            remove(soonest);
+        }
+        final AccessToken previous = this.accessTokens.put(accessToken.getId(), accessToken);
+        if (previous != null) {
+            this.expirationQueue.remove(previous);
+        }
+        this.expirationQueue.add(accessToken);
+        index(accessToken);
+    }
+
+    @Override
+    public AccessToken getAccessToken(final String id) {
+        final AccessToken accessToken = this.accessTokens.get(id);
+        if (accessToken != null && accessToken.isExpired()) {
+            remove(accessToken);
+            return null;
+        }
+        return accessToken;
+    }
+
+    @Override
+    public void removeAccessToken(final String id) {
+        final AccessToken accessToken = this.accessTokens.get(id);
+        if (accessToken != null) {
+            remove(accessToken);
+        }
+    }
+
+    @Override
+    public void removeAccessTokens(final String ticketGrantingTicketId) {
+        final Set<String> ids = this.tokenIdsByTicketGrantingTicket.remove(ticketGrantingTicketId);
+        if (ids == null) {
+            return;
+        }
+        final List<String> removed;
+        synchronized (ids) {
+            removed = new ArrayList<>(ids);
+        }
+        for (final String id : removed) {
+            final AccessToken accessToken = this.accessTokens.remove(id);
+            if (accessToken != null) {
+                this.expirationQueue.remove(accessToken);
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum number of tokens kept. Defaults to {@value #DEFAULT_MAX_SIZE}.
+     *
+     * @param maxSize the maximum number of tokens
+     */
+    public void setMaxSize(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Evicts the expired tokens, which are at the head of the expiration order.
+     */
+    private void evictExpired() {
+        final long now = System.currentTimeMillis();
+        final Iterator<AccessToken> it = this.expirationQueue.iterator();
+        while (it.hasNext()) {
+            final AccessToken accessToken = it.next();
+            if (accessToken.getExpirationTime() > now) {
+                return;
+            }
+            remove(accessToken);
+        }
+    }
+
+    /**
+     * Removes a token from the registry, its expiration order and the index of its ticket granting ticket.
+     *
+     * @param accessToken the access token
+     */
+    private void remove(final AccessToken accessToken) {
+        this.accessTokens.remove(accessToken.getId(), accessToken);
+        this.expirationQueue.remove(accessToken);
+        final String ticketGrantingTicketId = accessToken.getTicketGrantingTicketId();
+        if (ticketGrantingTicketId == null) {
+            return;
+        }
+        final Set<String> ids = this.tokenIdsByTicketGrantingTicket.get(ticketGrantingTicketId);
+        if (ids != null) {
+            synchronized (ids) {
+                ids.remove(accessToken.getId());
+                if (ids.isEmpty()) {
+                    this.tokenIdsByTicketGrantingTicket.remove(ticketGrantingTicketId, ids);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes a token by the id of its ticket granting ticket.
+     *
+     * @param accessToken the access token
+     */
+    private void index(final AccessToken accessToken) {
+        final String ticketGrantingTicketId = accessToken.getTicketGrantingTicketId();
+        if (ticketGrantingTicketId == null) {
+            return;
+        }
+        while (true) {
+            Set<String> ids = this.tokenIdsByTicketGrantingTicket.get(ticketGrantingTicketId);
+            if (ids == null) {
+                final Set<String> created = new HashSet<>();
+                ids = this.tokenIdsByTicketGrantingTicket.putIfAbsent(ticketGrantingTicketId, created);
+                if (ids == null) {
+                    ids = created;
+                }
+            }
+            synchronized (ids) {
+                // the set is discarded once empty, in which case a new one is needed
+                if (this.tokenIdsByTicketGrantingTicket.get(ticketGrantingTicketId) == ids) {
+                    ids.add(accessToken.getId());
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -20,6 +20,8 @@ package org.jasig.cas.support.oauth.web;
 
 import org.apache.commons.lang3.StringUtils;
 import org.jasig.cas.services.ServicesManager;
+import org.jasig.cas.support.oauth.token.AccessTokenRegistry;
+import org.jasig.cas.support.oauth.token.DefaultAccessTokenRegistry;
 import org.jasig.cas.ticket.registry.TicketRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +56,10 @@ public abstract class BaseOAuthWrapperController extends AbstractController {
     @NotNull
     protected TicketRegistry ticketRegistry;
 
+    /** The access token registry. */
+    @NotNull
+    protected AccessTokenRegistry accessTokenRegistry = new DefaultAccessTokenRegistry();
+
     /** The timeout. */
     @NotNull
     protected long timeout;
@@ -105,6 +111,10 @@ public abstract class BaseOAuthWrapperController extends AbstractController {
         this.ticketRegistry = ticketRegistry;
     }
 
+    public void setAccessTokenRegistry(final AccessTokenRegistry accessTokenRegistry) {
+        this.accessTokenRegistry = accessTokenRegistry;
+    }
+
     public void setLoginUrl(final String loginUrl) {
         this.loginUrl = loginUrl;
     }
@@ -24,6 +24,8 @@ import org.jasig.cas.services.ServicesManager;
 import org.jasig.cas.support.oauth.OAuthConstants;
 import org.jasig.cas.support.oauth.OAuthUtils;
 import org.jasig.cas.support.oauth.services.OAuthRegisteredService;
+import org.jasig.cas.support.oauth.token.AccessToken;
+import org.jasig.cas.support.oauth.token.AccessTokenRegistry;
 import org.jasig.cas.ticket.ServiceTicket;
 import org.jasig.cas.ticket.TicketGrantingTicket;
 import org.jasig.cas.ticket.registry.TicketRegistry;
@@ -37,7 +39,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.util.concurrent.TimeUnit;
 
 /**
- * This controller returns an access token which is the CAS
+ * This controller returns an access token issued from the CAS
  * granting ticket according to the service and code (service ticket) given.
  *
  * @author Jerome Leleu
@@ -51,6 +53,8 @@ public final class OAuth20AccessTokenController extends AbstractController {
 
     private final TicketRegistry ticketRegistry;
 
+    private final AccessTokenRegistry accessTokenRegistry;
+
     private final long timeout;
 
     /**
@@ -58,12 +62,14 @@ public final class OAuth20AccessTokenController extends AbstractController {
      *
      * @param servicesManager the services manager
      * @param ticketRegistry the ticket registry
+     * @param accessTokenRegistry the access token registry
      * @param timeout the timeout
      */
     public OAuth20AccessTokenController(final ServicesManager servicesManager, final TicketRegistry ticketRegistry,
-            final long timeout) {
+            final AccessTokenRegistry accessTokenRegistry, final long timeout) {
         this.servicesManager = servicesManager;
         this.ticketRegistry = ticketRegistry;
+        this.accessTokenRegistry = accessTokenRegistry;
         this.timeout = timeout;
     }
 
@@ -96,12 +102,15 @@ public final class OAuth20AccessTokenController extends AbstractController {
         final TicketGrantingTicket ticketGrantingTicket = serviceTicket.getGrantingTicket();
         // remove service ticket
         ticketRegistry.deleteTicket(serviceTicket.getId());
+        // the profile is serialized once, and served from the access token registry
+        final AccessToken accessToken = AccessToken.fromTicketGrantingTicket(ticketGrantingTicket, timeout);
+        accessTokenRegistry.addAccessToken(accessToken);
 
         response.setContentType("text/plain");
-        final int expires = (int) (timeout - TimeUnit.MILLISECONDS
-                .toSeconds(System.currentTimeMillis() - ticketGrantingTicket.getCreationTime()));
+        final int expires = (int) TimeUnit.MILLISECONDS.toSeconds(accessToken.getExpirationTime()
+                - System.currentTimeMillis());
 
-        final String text = String.format("%s=%s&%s=%s", OAuthConstants.ACCESS_TOKEN, ticketGrantingTicket.getId(),
+        final String text = String.format("%s=%s&%s=%s", OAuthConstants.ACCESS_TOKEN, accessToken.getId(),
                                                     OAuthConstants.EXPIRES, expires);
         LOGGER.debug("text : {}", text);
         return OAuthUtils.writeText(response, text, HttpStatus.SC_OK);
@@ -149,7 +158,7 @@ public final class OAuth20AccessTokenController extends AbstractController {
         }
 
         final String serviceId = service.getServiceId();
-        if (!redirectUri.matches(serviceId)) {
+        if (!service.matchesRedirectUri(redirectUri)) {
             LOGGER.error("Unsupported {} : {} for serviceId : {}", OAuthConstants.REDIRECT_URI, redirectUri, serviceId);
             return false;
         }
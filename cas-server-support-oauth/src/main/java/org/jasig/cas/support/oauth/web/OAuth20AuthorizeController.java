@@ -90,7 +90,7 @@ public final class OAuth20AuthorizeController extends AbstractController {
         }
 
         final String serviceId = service.getServiceId();
-        if (!redirectUri.matches(serviceId)) {
+        if (!service.matchesRedirectUri(redirectUri)) {
             LOGGER.error("Unsupported {} : {} for serviceId : {}", OAuthConstants.REDIRECT_URI, redirectUri, serviceId);
             return new ModelAndView(OAuthConstants.ERROR_VIEW);
         }
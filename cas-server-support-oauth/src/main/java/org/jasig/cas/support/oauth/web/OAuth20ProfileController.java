@@ -22,22 +22,25 @@ import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.StringUtils;
-import org.jasig.cas.authentication.principal.Principal;
 import org.jasig.cas.support.oauth.OAuthConstants;
-import org.jasig.cas.ticket.TicketGrantingTicket;
-import org.jasig.cas.ticket.registry.TicketRegistry;
+import org.jasig.cas.support.oauth.token.AccessToken;
+import org.jasig.cas.support.oauth.token.AccessTokenRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.mvc.AbstractController;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.Map;
+import java.io.IOException;
 
 /**
  * This controller returns a profile for the authenticated user
- * (identifier + attributes), found with the access token (CAS granting
- * ticket).
+ * (identifier + attributes), found with the access token.
+ *
+ * <p>Profiles are served from the access token registry, where they are kept
+ * already serialized, without looking up the ticket granting ticket. Tokens expire
+ * on their own and are removed from the registry when their ticket granting ticket
+ * is destroyed.</p>
  *
  * @author Jerome Leleu
  * @since 3.5.0
@@ -46,21 +49,17 @@ public final class OAuth20ProfileController extends AbstractController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OAuth20ProfileController.class);
 
-    private static final String ID = "id";
-
-    private static final String ATTRIBUTES = "attributes";
-
-    private final TicketRegistry ticketRegistry;
+    private final AccessTokenRegistry accessTokenRegistry;
 
     private final JsonFactory jsonFactory = new JsonFactory(new ObjectMapper());
 
     /**
      * Instantiates a new o auth20 profile controller.
      *
-     * @param ticketRegistry the ticket registry
+     * @param accessTokenRegistry the access token registry
      */
-    public OAuth20ProfileController(final TicketRegistry ticketRegistry) {
-        this.ticketRegistry = ticketRegistry;
+    public OAuth20ProfileController(final AccessTokenRegistry accessTokenRegistry) {
+        this.accessTokenRegistry = accessTokenRegistry;
     }
 
     @Override
@@ -74,41 +73,40 @@ public final class OAuth20ProfileController extends AbstractController {
         }
         LOGGER.debug("{} : {}", OAuthConstants.ACCESS_TOKEN, accessToken);
 
-        try (final JsonGenerator jsonGenerator = this.jsonFactory.createJsonGenerator(response.getWriter())) {
+        try {
             response.setContentType("application/json");
             // accessToken is required
             if (StringUtils.isBlank(accessToken)) {
                 LOGGER.error("Missing {}", OAuthConstants.ACCESS_TOKEN);
-                jsonGenerator.writeStartObject();
-                jsonGenerator.writeStringField("error", OAuthConstants.MISSING_ACCESS_TOKEN);
-                jsonGenerator.writeEndObject();
+                writeError(response, OAuthConstants.MISSING_ACCESS_TOKEN);
                 return null;
             }
-            // get ticket granting ticket
-            final TicketGrantingTicket ticketGrantingTicket = (TicketGrantingTicket) this.ticketRegistry.getTicket(accessToken);
-            if (ticketGrantingTicket == null || ticketGrantingTicket.isExpired()) {
+            final AccessToken token = this.accessTokenRegistry.getAccessToken(accessToken);
+            if (token == null) {
                 LOGGER.error("expired accessToken : {}", accessToken);
-                jsonGenerator.writeStartObject();
-                jsonGenerator.writeStringField("error", OAuthConstants.EXPIRED_ACCESS_TOKEN);
-                jsonGenerator.writeEndObject();
+                writeError(response, OAuthConstants.EXPIRED_ACCESS_TOKEN);
                 return null;
             }
-            // generate profile : identifier + attributes
-            final Principal principal = ticketGrantingTicket.getAuthentication().getPrincipal();
-            jsonGenerator.writeStartObject();
-            jsonGenerator.writeStringField(ID, principal.getId());
-            jsonGenerator.writeArrayFieldStart(ATTRIBUTES);
-            final Map<String, Object> attributes = principal.getAttributes();
-            for (final Map.Entry<String, Object> entry : attributes.entrySet()) {
-                jsonGenerator.writeStartObject();
-                jsonGenerator.writeObjectField(entry.getKey(), entry.getValue());
-                jsonGenerator.writeEndObject();
-            }
-            jsonGenerator.writeEndArray();
-            jsonGenerator.writeEndObject();
+            // profile : identifier + attributes
+            token.writeProfile(response.getOutputStream());
             return null;
         } finally {
             response.flushBuffer();
         }
     }
+
+    /**
+     * Writes an error as JSON.
+     *
+     * @param response the response
+     * @param error the error code
+     * @throws IOException if the error cannot be written
+     */
+    private void writeError(final HttpServletResponse response, final String error) throws IOException {
+        try (final JsonGenerator jsonGenerator = this.jsonFactory.createGenerator(response.getWriter())) {
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeStringField("error", error);
+            jsonGenerator.writeEndObject();
+        }
+    }
 }
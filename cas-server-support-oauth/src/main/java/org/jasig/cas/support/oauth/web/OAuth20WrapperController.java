@@ -50,8 +50,8 @@ public final class OAuth20WrapperController extends BaseOAuthWrapperController i
     public void afterPropertiesSet() throws Exception {
         authorizeController = new OAuth20AuthorizeController(servicesManager, loginUrl);
         callbackAuthorizeController = new OAuth20CallbackAuthorizeController();
-        accessTokenController = new OAuth20AccessTokenController(servicesManager, ticketRegistry, timeout);
-        profileController = new OAuth20ProfileController(ticketRegistry);
+        accessTokenController = new OAuth20AccessTokenController(servicesManager, ticketRegistry, accessTokenRegistry, timeout);
+        profileController = new OAuth20ProfileController(accessTokenRegistry);
     }
 
     @Override
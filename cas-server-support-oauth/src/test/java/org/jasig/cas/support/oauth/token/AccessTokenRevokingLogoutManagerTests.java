@@ -0,0 +1,53 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.support.oauth.token;
+
+import org.jasig.cas.logout.LogoutManager;
+import org.jasig.cas.ticket.TicketGrantingTicket;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class tests the {@link AccessTokenRevokingLogoutManager} class.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class AccessTokenRevokingLogoutManagerTests {
+
+    private static final byte[] PROFILE = "{\"id\":\"1234\"}".getBytes();
+
+    @Test
+    public void verifyAccessTokensRevokedOnLogout() {
+        final DefaultAccessTokenRegistry registry = new DefaultAccessTokenRegistry();
+        final long expirationTime = System.currentTimeMillis() + 60000;
+        registry.addAccessToken(new AccessToken("AT-1", "TGT-1", expirationTime, PROFILE));
+        registry.addAccessToken(new AccessToken("AT-2", "TGT-2", expirationTime, PROFILE));
+        final LogoutManager delegate = mock(LogoutManager.class);
+        final TicketGrantingTicket ticket = mock(TicketGrantingTicket.class);
+        when(ticket.getId()).thenReturn("TGT-1");
+
+        new AccessTokenRevokingLogoutManager(delegate, registry).performLogout(ticket);
+        verify(delegate).performLogout(ticket);
+        assertNull(registry.getAccessToken("AT-1"));
+        assertNotNull(registry.getAccessToken("AT-2"));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.support.oauth.token;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the {@link DefaultAccessTokenRegistry} class.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class DefaultAccessTokenRegistryTests {
+
+    private static final byte[] PROFILE = "{\"id\":\"1234\"}".getBytes();
+
+    @Test
+    public void verifyExpiredTokenNotReturned() throws Exception {
+        final DefaultAccessTokenRegistry registry = new DefaultAccessTokenRegistry();
+        registry.addAccessToken(new AccessToken("AT-1", "TGT-1", System.currentTimeMillis() + 60000, PROFILE));
+        registry.addAccessToken(new AccessToken("AT-2", "TGT-2", System.currentTimeMillis() - 1, PROFILE));
+        final AccessToken token = registry.getAccessToken("AT-1");
+        assertNotNull(token);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        token.writeProfile(out);
+        assertArrayEquals(PROFILE, out.toByteArray());
+        assertNull(registry.getAccessToken("AT-2"));
+        assertNull(registry.getAccessToken("AT-3"));
+    }
+
+    @Test
+    public void verifyTokenExpiringSoonestEvictedWhenFull() throws Exception {
+        final DefaultAccessTokenRegistry registry = new DefaultAccessTokenRegistry();
+        registry.setMaxSize(2);
+        final long now = System.currentTimeMillis();
+        registry.addAccessToken(new AccessToken("AT-1", "TGT-1", now + 60000, PROFILE));
+        registry.addAccessToken(new AccessToken("AT-2", "TGT-2", now + 30000, PROFILE));
+        registry.addAccessToken(new AccessToken("AT-3", "TGT-3", now + 90000, PROFILE));
+        assertNotNull(registry.getAccessToken("AT-1"));
+        assertNull(registry.getAccessToken("AT-2"));
+        assertNotNull(registry.getAccessToken("AT-3"));
+    }
+
+    @Test
+    public void verifyExpiredTokensEvictedWhenFull() throws Exception {
+        final DefaultAccessTokenRegistry registry = new DefaultAccessTokenRegistry();
+        registry.setMaxSize(2);
+        final long now = System.currentTimeMillis();
+        registry.addAccessToken(new AccessToken("AT-1", "TGT-1", now - 1, PROFILE));
+        registry.addAccessToken(new AccessToken("AT-2", "TGT-2", now + 30000, PROFILE));
+        registry.addAccessToken(new AccessToken("AT-3", "TGT-3", now + 90000, PROFILE));
+        assertNotNull(registry.getAccessToken("AT-2"));
+        assertNotNull(registry.getAccessToken("AT-3"));
+    }
+
+    @Test
+    public void verifyTokensOfTicketGrantingTicketRemoved() throws Exception {
+        final DefaultAccessTokenRegistry registry = new DefaultAccessTokenRegistry();
+        final long expirationTime = System.currentTimeMillis() + 60000;
+        registry.addAccessToken(new AccessToken("AT-1", "TGT-1", expirationTime, PROFILE));
+        registry.addAccessToken(new AccessToken("AT-2", "TGT-1", expirationTime, PROFILE));
+        registry.addAccessToken(new AccessToken("AT-3", "TGT-2", expirationTime, PROFILE));
+        registry.removeAccessTokens("TGT-1");
+        assertNull(registry.getAccessToken("AT-1"));
+        assertNull(registry.getAccessToken("AT-2"));
+        assertNotNull(registry.getAccessToken("AT-3"));
+
+        registry.removeAccessToken("AT-3");
+        registry.addAccessToken(new AccessToken("AT-4", "TGT-2", expirationTime, PROFILE));
+        registry.removeAccessTokens("TGT-2");
+        assertNull(registry.getAccessToken("AT-3"));
+        assertNull(registry.getAccessToken("AT-4"));
+    }
+
+    @Test
+    public void verifyRemovedTokensNotCountedWhenFull() throws Exception {
+        final DefaultAccessTokenRegistry registry = new DefaultAccessTokenRegistry();
+        registry.setMaxSize(2);
+        final long now = System.currentTimeMillis();
+        registry.addAccessToken(new AccessToken("AT-1", "TGT-1", now + 30000, PROFILE));
+        registry.addAccessToken(new AccessToken("AT-2", "TGT-2", now + 60000, PROFILE));
+        registry.removeAccessTokens("TGT-1");
+        registry.addAccessToken(new AccessToken("AT-3", "TGT-3", now + 90000, PROFILE));
+        assertNotNull(registry.getAccessToken("AT-2"));
+        assertNotNull(registry.getAccessToken("AT-3"));
+    }
+}
@@ -19,19 +19,26 @@
 package org.jasig.cas.support.oauth.web;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
+import org.jasig.cas.authentication.Authentication;
+import org.jasig.cas.authentication.principal.Principal;
 import org.jasig.cas.services.RegisteredService;
 import org.jasig.cas.services.ServicesManager;
 import org.jasig.cas.support.oauth.OAuthConstants;
 import org.jasig.cas.support.oauth.services.OAuthRegisteredService;
+import org.jasig.cas.support.oauth.token.AccessToken;
+import org.jasig.cas.support.oauth.token.DefaultAccessTokenRegistry;
 import org.jasig.cas.ticket.ServiceTicket;
 import org.jasig.cas.ticket.TicketGrantingTicket;
 import org.jasig.cas.ticket.registry.TicketRegistry;
@@ -256,6 +263,12 @@ public final class OAuth20AccessTokenControllerTests {
         final int timeBefore = 10;
         when(ticketGrantingTicket.getCreationTime()).thenReturn(System.currentTimeMillis() - timeBefore * 1000);
         when(ticketGrantingTicket.getId()).thenReturn(TGT_ID);
+        final Authentication authentication = mock(Authentication.class);
+        final Principal principal = mock(Principal.class);
+        when(principal.getId()).thenReturn("1234");
+        when(principal.getAttributes()).thenReturn(Collections.<String, Object>emptyMap());
+        when(authentication.getPrincipal()).thenReturn(principal);
+        when(ticketGrantingTicket.getAuthentication()).thenReturn(authentication);
         when(serviceTicket.isExpired()).thenReturn(false);
         when(serviceTicket.getId()).thenReturn(CODE);
         when(serviceTicket.getGrantingTicket()).thenReturn(ticketGrantingTicket);
@@ -263,6 +276,8 @@ public final class OAuth20AccessTokenControllerTests {
         final OAuth20WrapperController oauth20WrapperController = new OAuth20WrapperController();
         oauth20WrapperController.setServicesManager(servicesManager);
         oauth20WrapperController.setTicketRegistry(ticketRegistry);
+        final DefaultAccessTokenRegistry accessTokenRegistry = new DefaultAccessTokenRegistry();
+        oauth20WrapperController.setAccessTokenRegistry(accessTokenRegistry);
         oauth20WrapperController.setTimeout(TIMEOUT);
         oauth20WrapperController.afterPropertiesSet();
         oauth20WrapperController.handleRequest(mockRequest, mockResponse);
@@ -270,7 +285,14 @@ public final class OAuth20AccessTokenControllerTests {
         assertEquals("text/plain", mockResponse.getContentType());
         assertEquals(200, mockResponse.getStatus());
         final String body = mockResponse.getContentAsString();
-        assertTrue(body.startsWith(OAuthConstants.ACCESS_TOKEN + "=" + TGT_ID + "&" + OAuthConstants.EXPIRES + "="));
+        assertTrue(body.startsWith(OAuthConstants.ACCESS_TOKEN + "=AT-"));
+        final String accessTokenId = StringUtils.substringBetween(body, OAuthConstants.ACCESS_TOKEN + "=",
+                "&" + OAuthConstants.EXPIRES + "=");
+        assertFalse(accessTokenId.contains(TGT_ID));
+        final AccessToken accessToken = accessTokenRegistry.getAccessToken(accessTokenId);
+        assertNotNull(accessToken);
+        assertFalse(accessToken.isExpired());
+        assertEquals(TGT_ID, accessToken.getTicketGrantingTicketId());
         // delta = 2 seconds
         final int delta = 2;
         final int timeLeft = Integer.parseInt(StringUtils.substringAfter(body, "&" + OAuthConstants.EXPIRES + "="));
@@ -23,6 +23,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.jasig.cas.authentication.Authentication;
 import org.jasig.cas.authentication.principal.Principal;
 import org.jasig.cas.support.oauth.OAuthConstants;
+import org.jasig.cas.support.oauth.token.AccessToken;
+import org.jasig.cas.support.oauth.token.DefaultAccessTokenRegistry;
 import org.jasig.cas.ticket.TicketGrantingTicket;
 import org.jasig.cas.ticket.registry.TicketRegistry;
 import org.junit.Test;
@@ -36,6 +38,9 @@ import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -74,15 +79,12 @@ public final class OAuth20ProfileControllerTests {
     }
 
     @Test
-    public void verifyNoTicketGrantingTicketImpl() throws Exception {
+    public void verifyUnknownAccessToken() throws Exception {
         final MockHttpServletRequest mockRequest = new MockHttpServletRequest("GET", CONTEXT
                 + OAuthConstants.PROFILE_URL);
-        mockRequest.setParameter(OAuthConstants.ACCESS_TOKEN, TGT_ID);
+        mockRequest.setParameter(OAuthConstants.ACCESS_TOKEN, "AT-1");
         final MockHttpServletResponse mockResponse = new MockHttpServletResponse();
         final OAuth20WrapperController oauth20WrapperController = new OAuth20WrapperController();
-        final TicketRegistry ticketRegistry = mock(TicketRegistry.class);
-        when(ticketRegistry.getTicket(TGT_ID)).thenReturn(null);
-        oauth20WrapperController.setTicketRegistry(ticketRegistry);
         oauth20WrapperController.afterPropertiesSet();
         oauth20WrapperController.handleRequest(mockRequest, mockResponse);
         assertEquals(200, mockResponse.getStatus());
@@ -91,53 +93,101 @@ public final class OAuth20ProfileControllerTests {
     }
 
     @Test
-    public void verifyExpiredTicketGrantingTicketImpl() throws Exception {
+    public void verifyExpiredAccessToken() throws Exception {
+        final DefaultAccessTokenRegistry accessTokenRegistry = new DefaultAccessTokenRegistry();
+        accessTokenRegistry.addAccessToken(AccessToken.fromTicketGrantingTicket(newTicketGrantingTicket(), 0));
         final MockHttpServletRequest mockRequest = new MockHttpServletRequest("GET", CONTEXT
                 + OAuthConstants.PROFILE_URL);
         mockRequest.setParameter(OAuthConstants.ACCESS_TOKEN, TGT_ID);
         final MockHttpServletResponse mockResponse = new MockHttpServletResponse();
         final OAuth20WrapperController oauth20WrapperController = new OAuth20WrapperController();
-        final TicketRegistry ticketRegistry = mock(TicketRegistry.class);
-        final TicketGrantingTicket ticketGrantingTicket = mock(TicketGrantingTicket.class);
-        when(ticketGrantingTicket.isExpired()).thenReturn(true);
-        when(ticketRegistry.getTicket(TGT_ID)).thenReturn(ticketGrantingTicket);
-        oauth20WrapperController.setTicketRegistry(ticketRegistry);
+        oauth20WrapperController.setAccessTokenRegistry(accessTokenRegistry);
         oauth20WrapperController.afterPropertiesSet();
         oauth20WrapperController.handleRequest(mockRequest, mockResponse);
         assertEquals(200, mockResponse.getStatus());
         assertEquals(CONTENT_TYPE, mockResponse.getContentType());
         assertEquals("{\"error\":\"" + OAuthConstants.EXPIRED_ACCESS_TOKEN + "\"}", mockResponse.getContentAsString());
     }
-    
+
     @Test
-    public void verifyOK() throws Exception {
+    public void verifyTicketGrantingTicketIdRejected() throws Exception {
+        final DefaultAccessTokenRegistry accessTokenRegistry = new DefaultAccessTokenRegistry();
+        accessTokenRegistry.addAccessToken(AccessToken.fromTicketGrantingTicket(newTicketGrantingTicket(), 7200));
         final MockHttpServletRequest mockRequest = new MockHttpServletRequest("GET", CONTEXT
                 + OAuthConstants.PROFILE_URL);
         mockRequest.setParameter(OAuthConstants.ACCESS_TOKEN, TGT_ID);
         final MockHttpServletResponse mockResponse = new MockHttpServletResponse();
         final OAuth20WrapperController oauth20WrapperController = new OAuth20WrapperController();
+        oauth20WrapperController.setAccessTokenRegistry(accessTokenRegistry);
+        oauth20WrapperController.afterPropertiesSet();
+        oauth20WrapperController.handleRequest(mockRequest, mockResponse);
+        assertEquals("{\"error\":\"" + OAuthConstants.EXPIRED_ACCESS_TOKEN + "\"}", mockResponse.getContentAsString());
+    }
+
+    @Test
+    public void verifyOK() throws Exception {
+        final MockHttpServletRequest mockRequest = new MockHttpServletRequest("GET", CONTEXT
+                + OAuthConstants.PROFILE_URL);
+        final DefaultAccessTokenRegistry accessTokenRegistry = new DefaultAccessTokenRegistry();
+        final AccessToken accessToken = AccessToken.fromTicketGrantingTicket(newTicketGrantingTicket(), 7200);
+        accessTokenRegistry.addAccessToken(accessToken);
+        mockRequest.setParameter(OAuthConstants.ACCESS_TOKEN, accessToken.getId());
+        final MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+        final OAuth20WrapperController oauth20WrapperController = new OAuth20WrapperController();
         final TicketRegistry ticketRegistry = mock(TicketRegistry.class);
-        final TicketGrantingTicket ticketGrantingTicket = mock(TicketGrantingTicket.class);
-        when(ticketGrantingTicket.isExpired()).thenReturn(false);
-        when(ticketRegistry.getTicket(TGT_ID)).thenReturn(ticketGrantingTicket);
-        final Authentication authentication = mock(Authentication.class);
-        final Principal principal = mock(Principal.class);
-        when(principal.getId()).thenReturn(ID);
-        final Map<String, Object> map = new HashMap<>();
-        map.put(NAME, VALUE);
-        final List<String> list = Arrays.asList(VALUE, VALUE);
-        map.put(NAME2, list);
-        when(principal.getAttributes()).thenReturn(map);
-        when(authentication.getPrincipal()).thenReturn(principal);
-        when(ticketGrantingTicket.getAuthentication()).thenReturn(authentication);
         oauth20WrapperController.setTicketRegistry(ticketRegistry);
+        oauth20WrapperController.setAccessTokenRegistry(accessTokenRegistry);
         oauth20WrapperController.afterPropertiesSet();
         oauth20WrapperController.handleRequest(mockRequest, mockResponse);
         assertEquals(200, mockResponse.getStatus());
         assertEquals(CONTENT_TYPE, mockResponse.getContentType());
+        verifyProfile(mockResponse);
+        verifyZeroInteractions(ticketRegistry);
+    }
 
-        final ObjectMapper mapper = new ObjectMapper();
+    @Test
+    public void verifyOKWithAuthorizationHeader() throws Exception {
+        final MockHttpServletRequest mockRequest = new MockHttpServletRequest("GET", CONTEXT
+                + OAuthConstants.PROFILE_URL);
+        final DefaultAccessTokenRegistry accessTokenRegistry = new DefaultAccessTokenRegistry();
+        final AccessToken accessToken = AccessToken.fromTicketGrantingTicket(newTicketGrantingTicket(), 7200);
+        accessTokenRegistry.addAccessToken(accessToken);
+        mockRequest.addHeader("Authorization", "bearer " + accessToken.getId());
+        final MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+        final OAuth20WrapperController oauth20WrapperController = new OAuth20WrapperController();
+        oauth20WrapperController.setAccessTokenRegistry(accessTokenRegistry);
+        oauth20WrapperController.afterPropertiesSet();
+        oauth20WrapperController.handleRequest(mockRequest, mockResponse);
+        assertEquals(200, mockResponse.getStatus());
+        assertEquals(CONTENT_TYPE, mockResponse.getContentType());
+        verifyProfile(mockResponse);
+    }
+
+    @Test
+    public void verifyProfileSerializedOnce() throws Exception {
+        final TicketGrantingTicket ticketGrantingTicket = newTicketGrantingTicket();
+        final DefaultAccessTokenRegistry accessTokenRegistry = new DefaultAccessTokenRegistry();
+        final AccessToken accessToken = AccessToken.fromTicketGrantingTicket(ticketGrantingTicket, 7200);
+        accessTokenRegistry.addAccessToken(accessToken);
+
+        final OAuth20WrapperController oauth20WrapperController = new OAuth20WrapperController();
+        oauth20WrapperController.setAccessTokenRegistry(accessTokenRegistry);
+        oauth20WrapperController.afterPropertiesSet();
+        for (int i = 0; i < 2; i++) {
+            final MockHttpServletRequest mockRequest = new MockHttpServletRequest("GET", CONTEXT
+                    + OAuthConstants.PROFILE_URL);
+            mockRequest.setParameter(OAuthConstants.ACCESS_TOKEN, accessToken.getId());
+            final MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+            oauth20WrapperController.handleRequest(mockRequest, mockResponse);
+            assertEquals(200, mockResponse.getStatus());
+            verifyProfile(mockResponse);
+        }
+        // the profile was serialized once, when the token was created
+        verify(ticketGrantingTicket.getAuthentication().getPrincipal(), times(1)).getAttributes();
+    }
 
+    private static void verifyProfile(final MockHttpServletResponse mockResponse) throws Exception {
+        final ObjectMapper mapper = new ObjectMapper();
         final String expected = "{\"id\":\"" + ID + "\",\"attributes\":[{\"" + NAME + "\":\"" + VALUE + "\"},{\"" + NAME2
                 + "\":[\"" + VALUE + "\",\"" + VALUE + "\"]}]}";
         final JsonNode expectedObj = mapper.readTree(expected);
@@ -150,18 +200,11 @@ public final class OAuth20ProfileControllerTests {
         assertEquals(expectedAttributes.findValue(NAME).asText(), receivedAttributes.findValue(NAME).asText());
         assertEquals(expectedAttributes.findValues(NAME2), receivedAttributes.findValues(NAME2));
     }
-    
-    @Test
-    public void verifyOKWithAuthorizationHeader() throws Exception {
-        final MockHttpServletRequest mockRequest = new MockHttpServletRequest("GET", CONTEXT
-                + OAuthConstants.PROFILE_URL);
-        mockRequest.addHeader("Authorization", "bearer " + TGT_ID);
-        final MockHttpServletResponse mockResponse = new MockHttpServletResponse();
-        final OAuth20WrapperController oauth20WrapperController = new OAuth20WrapperController();
-        final TicketRegistry ticketRegistry = mock(TicketRegistry.class);
+
+    private static TicketGrantingTicket newTicketGrantingTicket() {
         final TicketGrantingTicket ticketGrantingTicket = mock(TicketGrantingTicket.class);
-        when(ticketGrantingTicket.isExpired()).thenReturn(false);
-        when(ticketRegistry.getTicket(TGT_ID)).thenReturn(ticketGrantingTicket);
+        when(ticketGrantingTicket.getId()).thenReturn(TGT_ID);
+        when(ticketGrantingTicket.getCreationTime()).thenReturn(System.currentTimeMillis());
         final Authentication authentication = mock(Authentication.class);
         final Principal principal = mock(Principal.class);
         when(principal.getId()).thenReturn(ID);
@@ -172,24 +215,6 @@ public final class OAuth20ProfileControllerTests {
         when(principal.getAttributes()).thenReturn(map);
         when(authentication.getPrincipal()).thenReturn(principal);
         when(ticketGrantingTicket.getAuthentication()).thenReturn(authentication);
-        oauth20WrapperController.setTicketRegistry(ticketRegistry);
-        oauth20WrapperController.afterPropertiesSet();
-        oauth20WrapperController.handleRequest(mockRequest, mockResponse);
-        assertEquals(200, mockResponse.getStatus());
-        assertEquals(CONTENT_TYPE, mockResponse.getContentType());
-
-        final ObjectMapper mapper = new ObjectMapper();
-        final String expected = "{\"id\":\"" + ID + "\",\"attributes\":[{\"" + NAME + "\":\"" + VALUE + "\"},{\"" + NAME2
-                + "\":[\"" + VALUE + "\",\"" + VALUE + "\"]}]}";
-        final JsonNode expectedObj = mapper.readTree(expected);
-        final JsonNode receivedObj = mapper.readTree(mockResponse.getContentAsString());
-
-        assertEquals(expectedObj.get("id").asText(), receivedObj.get("id").asText());
-
-        final JsonNode expectedAttributes = expectedObj.get("attributes");
-        final JsonNode receivedAttributes = receivedObj.get("attributes");
-
-        assertEquals(expectedAttributes.findValue(NAME).asText(), receivedAttributes.findValue(NAME).asText());
-        assertEquals(expectedAttributes.findValues(NAME2), receivedAttributes.findValues(NAME2));
+        return ticketGrantingTicket;
     }
 }
@@ -33,6 +33,7 @@ import org.jasig.cas.ticket.TicketException;
 import org.jasig.cas.ticket.TicketGrantingTicket;
 import org.jasig.cas.ticket.TicketValidationException;
 import org.jasig.cas.ticket.proxy.ProxyHandler;
+import org.jasig.cas.validation.AbstractCasProtocolValidationSpecification;
 import org.jasig.cas.validation.Assertion;
 import org.jasig.cas.validation.Cas20ProtocolValidationSpecification;
 import org.jasig.cas.validation.ValidationSpecification;
@@ -81,7 +82,13 @@ public class ServiceValidateController extends DelegateController {
 
     /** The validation protocol we want to use. */
     @NotNull
-    private Class<?> validationSpecificationClass = Cas20ProtocolValidationSpecification.class;
+    private Class<?> validationSpecificationClass;
+
+    /** Prebuilt specification used when renew is not requested, null if the specification is built per request. */
+    private ValidationSpecification validationSpecification;
+
+    /** Prebuilt specification used when renew is requested, null if the specification is built per request. */
+    private ValidationSpecification renewValidationSpecification;
 
     /** The proxy handler we want to use with the controller. */
     @NotNull
@@ -99,6 +106,14 @@ public class ServiceValidateController extends DelegateController {
     @NotNull
     private ArgumentExtractor argumentExtractor;
 
+    /**
+     * Instantiates a new service validate controller validating
+     * with the {@link Cas20ProtocolValidationSpecification}.
+     */
+    public ServiceValidateController() {
+        setValidationSpecificationClass(Cas20ProtocolValidationSpecification.class);
+    }
+
     /**
      * Overrideable method to determine which credentials to use to grant a
      * proxy granting ticket. Default is to use the pgtUrl.
@@ -125,6 +140,9 @@ public class ServiceValidateController extends DelegateController {
 
     /**
      * Inits the binder with the required fields. <code>renew</code> is required.
+     * The binder is only used for validation specifications that do not extend
+     * {@link AbstractCasProtocolValidationSpecification}; for those, <code>renew</code>
+     * is read directly from the request.
      *
      * @param request the request
      * @param binder the binder
@@ -168,13 +186,11 @@ public class ServiceValidateController extends DelegateController {
                 }
             }
 
-            final Assertion assertion = this.centralAuthenticationService.validateServiceTicket(serviceTicketId, service);
-
-            final ValidationSpecification validationSpecification = this.getCommandClass();
-            final ServletRequestDataBinder binder = new ServletRequestDataBinder(validationSpecification, "validationSpecification");
-            initBinder(request, binder);
-            binder.bind(request);
+            final RegisteredService registeredService = this.servicesManager.findServiceBy(service);
+            final Assertion assertion = this.centralAuthenticationService.validateServiceTicket(serviceTicketId, service,
+                    registeredService);
 
+            final ValidationSpecification validationSpecification = getValidationSpecification(request);
             if (!validationSpecification.isSatisfiedBy(assertion)) {
                 logger.debug("Service ticket [{}] does not satisfy validation specification.", serviceTicketId);
                 return generateErrorView(CasProtocolConstants.ERROR_CODE_INVALID_TICKET,
@@ -270,11 +286,32 @@ public class ServiceValidateController extends DelegateController {
     }
     
     /**
-     * Gets the command class based on {@link #setValidationSpecificationClass(Class)}.
+     * Gets the validation specification the request is to satisfy. Specifications extending
+     * {@link AbstractCasProtocolValidationSpecification} are prebuilt, and the one matching the
+     * <code>renew</code> parameter is returned. Other specifications are instantiated and
+     * bound to the request.
      *
-     * @return the command class
+     * @param request the request
+     * @return the validation specification
      */
-    private ValidationSpecification getCommandClass() {
+    private ValidationSpecification getValidationSpecification(final HttpServletRequest request) {
+        if (this.validationSpecification != null) {
+            return isRenew(request.getParameter(CasProtocolConstants.PARAMETER_RENEW))
+                    ? this.renewValidationSpecification : this.validationSpecification;
+        }
+        final ValidationSpecification specification = newValidationSpecification();
+        final ServletRequestDataBinder binder = new ServletRequestDataBinder(specification, "validationSpecification");
+        initBinder(request, binder);
+        binder.bind(request);
+        return specification;
+    }
+
+    /**
+     * Instantiates the validation specification based on {@link #setValidationSpecificationClass(Class)}.
+     *
+     * @return the validation specification
+     */
+    private ValidationSpecification newValidationSpecification() {
         try {
             return (ValidationSpecification) this.validationSpecificationClass.newInstance();
         } catch (final Exception e) {
@@ -282,6 +319,18 @@ public class ServiceValidateController extends DelegateController {
         }
     }
 
+    /**
+     * Determines whether the value of the <code>renew</code> parameter requests renewed authentication,
+     * accepting the same values as data binding to a boolean does.
+     *
+     * @param renew the parameter value
+     * @return true if renew is requested
+     */
+    private static boolean isRenew(final String renew) {
+        return "true".equalsIgnoreCase(renew) || "on".equalsIgnoreCase(renew)
+                || "yes".equalsIgnoreCase(renew) || "1".equals(renew);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -304,11 +353,25 @@ public class ServiceValidateController extends DelegateController {
     }
 
     /**
+     * Sets the validation specification requests are to satisfy. Specifications extending
+     * {@link AbstractCasProtocolValidationSpecification} are built once, with and without renew;
+     * other specifications must have a default constructor and are built for every request.
+     *
      * @param validationSpecificationClass The authenticationSpecificationClass
      * to set.
      */
     public final void setValidationSpecificationClass(final Class<?> validationSpecificationClass) {
         this.validationSpecificationClass = validationSpecificationClass;
+        if (AbstractCasProtocolValidationSpecification.class.isAssignableFrom(validationSpecificationClass)) {
+            final AbstractCasProtocolValidationSpecification renewSpecification =
+                    (AbstractCasProtocolValidationSpecification) newValidationSpecification();
+            renewSpecification.setRenew(true);
+            this.validationSpecification = newValidationSpecification();
+            this.renewValidationSpecification = renewSpecification;
+        } else {
+            this.validationSpecification = null;
+            this.renewValidationSpecification = null;
+        }
     }
 
     /**
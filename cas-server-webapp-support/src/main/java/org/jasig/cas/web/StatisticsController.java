@@ -18,26 +18,39 @@
  */
 package org.jasig.cas.web;
 
-import org.apache.commons.collections.functors.TruePredicate;
-import org.jasig.cas.CentralAuthenticationService;
-import org.jasig.cas.ticket.ServiceTicket;
-import org.jasig.cas.ticket.Ticket;
-import org.perf4j.log4j.GraphingStatisticsAppender;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.jasig.cas.aspect.TimingAspect;
+import org.jasig.cas.monitor.MetricsRegistry;
+import org.jasig.cas.monitor.OperationTimer;
+import org.jasig.cas.monitor.TicketCounts;
+import org.jasig.cas.monitor.TicketRegistryState;
+import org.jasig.cas.web.support.CookieRetrievingCookieGenerator;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.mvc.AbstractController;
 import org.springframework.web.servlet.view.InternalResourceView;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Date;
 import java.util.LinkedList;
+import java.util.Locale;
 import java.util.Queue;
 
 /**
+ * Renders the statistics page, including the latency of timed operations recorded in the {@link MetricsRegistry}.
+ * Requesting <code>format=text</code> returns the operation latencies in plain text suitable for scraping
+ * by monitoring systems instead.
+ *
+ * <p>Ticket counts are read from the {@link TicketRegistryState} of the ticket registry, which maintains
+ * them without iterating over every ticket. Counts the registry cannot determine are reported as unknown.</p>
+ *
+ * <p>If the {@link #setTicketGrantingTicketCookieGenerator(CookieRetrievingCookieGenerator) ticket-granting cookie
+ * generator} is set, the plain text output also reports the number of cookies it rejected because their signature
+ * did not verify.</p>
+ *
  * @author Scott Battaglia
  * @since 3.3.5
  */
@@ -53,7 +66,15 @@ public final class StatisticsController extends AbstractController {
 
     private static final int NUMBER_OF_BYTES_IN_A_KILOBYTE = 1024;
 
-    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private static final String PARAMETER_FORMAT = "format";
+
+    private static final String FORMAT_TEXT = "text";
+
+    private static final String LATENCY_METRIC = "cas_operation_latency_milliseconds";
+
+    private static final String TICKETS_METRIC = "cas_registry_tickets";
+
+    private static final String REJECTED_COOKIES_METRIC = "cas_rejected_cookies_total";
 
     private final Date upTimeStartDate = new Date();
 
@@ -61,15 +82,20 @@ public final class StatisticsController extends AbstractController {
 
     private String viewPath = "/WEB-INF/view/jsp/monitoring/viewStatistics.jsp";
 
-    private final CentralAuthenticationService centralAuthenticationService;
+    private final TicketRegistryState ticketRegistryState;
+
+    @NotNull
+    private MetricsRegistry metricsRegistry = TimingAspect.aspectOf().getMetricsRegistry();
+
+    private CookieRetrievingCookieGenerator ticketGrantingTicketCookieGenerator;
 
     /**
      * Instantiates a new statistics controller.
      *
-     * @param centralAuthenticationService the CAS service layer
+     * @param ticketRegistryState the state of the ticket registry
      */
-    public StatisticsController(final CentralAuthenticationService centralAuthenticationService) {
-        this.centralAuthenticationService = centralAuthenticationService;
+    public StatisticsController(final TicketRegistryState ticketRegistryState) {
+        this.ticketRegistryState = ticketRegistryState;
     }
 
     public void setCasTicketSuffix(final String casTicketSuffix) {
@@ -80,9 +106,33 @@ public final class StatisticsController extends AbstractController {
         this.viewPath = viewPath;
     }
 
+    /**
+     * Sets the registry of the timed operations. Defaults to the registry of the {@link TimingAspect}.
+     *
+     * @param metricsRegistry the metrics registry
+     */
+    public void setMetricsRegistry(final MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * Sets the generator of the ticket-granting cookie, whose rejected cookies are reported. Optional.
+     *
+     * @param ticketGrantingTicketCookieGenerator the ticket-granting cookie generator
+     */
+    public void setTicketGrantingTicketCookieGenerator(
+            final CookieRetrievingCookieGenerator ticketGrantingTicketCookieGenerator) {
+        this.ticketGrantingTicketCookieGenerator = ticketGrantingTicketCookieGenerator;
+    }
+
     @Override
     protected ModelAndView handleRequestInternal(final HttpServletRequest httpServletRequest, final HttpServletResponse httpServletResponse)
                 throws Exception {
+        if (FORMAT_TEXT.equals(httpServletRequest.getParameter(PARAMETER_FORMAT))) {
+            writeMetrics(httpServletResponse);
+            return null;
+        }
+
         final ModelAndView modelAndView = new ModelAndView(new InternalResourceView(viewPath));
         modelAndView.addObject("startTime", this.upTimeStartDate);
         final double difference = System.currentTimeMillis() - this.upTimeStartDate.getTime();
@@ -100,43 +150,85 @@ public final class StatisticsController extends AbstractController {
         modelAndView.addObject("serverIpAddress", httpServletRequest.getLocalAddr());
         modelAndView.addObject("casTicketSuffix", this.casTicketSuffix);
 
-        int unexpiredTgts = 0;
-        int unexpiredSts = 0;
-        int expiredTgts = 0;
-        int expiredSts = 0;
-
-        try {
-            final Collection<Ticket> tickets = this.centralAuthenticationService.getTickets(TruePredicate.getInstance());
-
-            for (final Ticket ticket : tickets) {
-                if (ticket instanceof ServiceTicket) {
-                    if (ticket.isExpired()) {
-                        expiredSts++;
-                    } else {
-                        unexpiredSts++;
-                    }
-                } else {
-                    if (ticket.isExpired()) {
-                        expiredTgts++;
-                    } else {
-                        unexpiredTgts++;
-                    }
-                }
-            }
-        } catch (final UnsupportedOperationException e) {
-            logger.trace("The ticket registry doesn't support this information.");
+        final TicketCounts counts = TicketCounts.of(this.ticketRegistryState);
+        modelAndView.addObject("ticketGrantingTickets", knownOrNull(counts.getTicketGrantingTicketCount()));
+        modelAndView.addObject("proxyGrantingTickets", knownOrNull(counts.getProxyGrantingTicketCount()));
+        modelAndView.addObject("serviceTickets", knownOrNull(counts.getServiceTicketCount()));
+        modelAndView.addObject("proxyTickets", knownOrNull(counts.getProxyTicketCount()));
+        modelAndView.addObject("expiredTickets", knownOrNull(counts.getExpiredTicketCount()));
+        modelAndView.addObject("pageTitle", modelAndView.getViewName());
+        modelAndView.addObject("operationTimers", this.metricsRegistry.getTimers().values());
+
+        return modelAndView;
+    }
+
+    /**
+     * Writes the ticket counts, the latency of the timed operations and the number of rejected cookies
+     * in plain text, one metric per line.
+     *
+     * @param response the http response
+     * @throws IOException if the response cannot be written
+     */
+    private void writeMetrics(final HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain;charset=UTF-8");
+        final PrintWriter writer = response.getWriter();
+        final TicketCounts counts = TicketCounts.of(this.ticketRegistryState);
+        writer.println("# TYPE " + TICKETS_METRIC + " gauge");
+        writeCount(writer, "ticket_granting", counts.getTicketGrantingTicketCount());
+        writeCount(writer, "proxy_granting", counts.getProxyGrantingTicketCount());
+        writeCount(writer, "service", counts.getServiceTicketCount());
+        writeCount(writer, "proxy", counts.getProxyTicketCount());
+        writeCount(writer, "expired", counts.getExpiredTicketCount());
+        writer.println("# TYPE " + LATENCY_METRIC + " summary");
+        for (final OperationTimer timer : this.metricsRegistry.getTimers().values()) {
+            final String operation = "operation=\"" + timer.getName() + '"';
+            writeMetric(writer, LATENCY_METRIC + '{' + operation + ",quantile=\"0.5\"}", timer.getP50());
+            writeMetric(writer, LATENCY_METRIC + '{' + operation + ",quantile=\"0.99\"}", timer.getP99());
+            writeMetric(writer, LATENCY_METRIC + '{' + operation + ",quantile=\"0.999\"}", timer.getP999());
+            writer.println(LATENCY_METRIC + "_count{" + operation + "} " + timer.getCount());
+            writer.println("cas_operation_failures_total{" + operation + "} " + timer.getFailureCount());
+            writeMetric(writer, "cas_operation_latency_max_milliseconds{" + operation + '}', timer.getMax());
         }
+        if (this.ticketGrantingTicketCookieGenerator != null) {
+            writer.println("# TYPE " + REJECTED_COOKIES_METRIC + " counter");
+            writer.println(REJECTED_COOKIES_METRIC + "{cookie=\"" + this.ticketGrantingTicketCookieGenerator.getCookieName()
+                    + "\"} " + this.ticketGrantingTicketCookieGenerator.getRejectedCookieCount());
+        }
+        writer.flush();
+    }
 
-        final Collection<GraphingStatisticsAppender> appenders = GraphingStatisticsAppender.getAllGraphingStatisticsAppenders();
+    /**
+     * Writes a single metric line.
+     *
+     * @param writer the writer
+     * @param name the metric name and labels
+     * @param value the metric value
+     */
+    private static void writeMetric(final PrintWriter writer, final String name, final double value) {
+        writer.println(name + ' ' + String.format(Locale.ENGLISH, "%.3f", value));
+    }
 
-        modelAndView.addObject("unexpiredTgts", unexpiredTgts);
-        modelAndView.addObject("unexpiredSts", unexpiredSts);
-        modelAndView.addObject("expiredTgts", expiredTgts);
-        modelAndView.addObject("expiredSts", expiredSts);
-        modelAndView.addObject("pageTitle", modelAndView.getViewName());
-        modelAndView.addObject("graphingStatisticAppenders", appenders);
+    /**
+     * Writes the number of tickets of a kind, unless unknown.
+     *
+     * @param writer the writer
+     * @param type the kind of tickets
+     * @param count the number of tickets
+     */
+    private static void writeCount(final PrintWriter writer, final String type, final int count) {
+        if (count != TicketCounts.UNKNOWN) {
+            writer.println(TICKETS_METRIC + "{type=\"" + type + "\"} " + count);
+        }
+    }
 
-        return modelAndView;
+    /**
+     * Maps an unknown ticket count to null, for the view to report it as such.
+     *
+     * @param count the number of tickets
+     * @return the count, or null if unknown
+     */
+    private static Integer knownOrNull(final int count) {
+        return count == TicketCounts.UNKNOWN ? null : count;
     }
 
     /**
@@ -31,6 +31,7 @@ import org.jasig.cas.ticket.ServiceTicket;
 import org.jasig.cas.ticket.TicketCreationException;
 import org.jasig.cas.ticket.TicketGrantingTicket;
 import org.jasig.cas.ticket.registry.TicketRegistry;
+import org.jasig.cas.web.support.LoginTicketSigner;
 import org.jasig.cas.web.support.WebUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -80,6 +81,8 @@ public class AuthenticationViaFormAction {
     @NotNull
     private CookieGenerator warnCookieGenerator;
 
+    private LoginTicketSigner loginTicketSigner;
+
     /**
      * Handle the submission of credentials from the post.
      *
@@ -105,13 +108,17 @@ public class AuthenticationViaFormAction {
     /**
      * Tries to to determine if the login ticket in the request flow scope
      * matches the login ticket provided by the request. The comparison
-     * is case-sensitive.
+     * is case-sensitive. When a login ticket signer is set, the login ticket
+     * provided by the request is verified by the signer instead.
      *
      * @param context the context
      * @return true if valid
      * @since 4.1.0
      */
     protected boolean checkLoginTicketIfExists(final RequestContext context) {
+        if (this.loginTicketSigner != null) {
+            return this.loginTicketSigner.verify(WebUtils.getLoginTicketFromRequest(context));
+        }
         final String loginTicketFromFlowScope = WebUtils.getLoginTicketFromFlowScope(context);
         final String loginTicketFromRequest = WebUtils.getLoginTicketFromRequest(context);
 
@@ -271,6 +278,16 @@ public class AuthenticationViaFormAction {
         this.warnCookieGenerator = warnCookieGenerator;
     }
 
+    /**
+     * Sets the signer that verifies login tickets statelessly, instead of comparing them
+     * with the login ticket kept in the flow scope.
+     *
+     * @param loginTicketSigner the login ticket signer
+     */
+    public final void setLoginTicketSigner(final LoginTicketSigner loginTicketSigner) {
+        this.loginTicketSigner = loginTicketSigner;
+    }
+
      /**
      * Sets ticket registry.
      *
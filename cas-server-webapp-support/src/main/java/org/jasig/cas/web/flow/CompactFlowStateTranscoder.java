@@ -0,0 +1,422 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.web.flow;
+
+import org.jasig.cas.util.CompressionUtils;
+import org.jasig.spring.webflow.plugin.Transcoder;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Transcoder of the login flow state kept by the client side flow execution repository in the
+ * {@code execution} parameter of the login form.
+ *
+ * <p>The state is serialized with a compact variant of Java serialization that writes the name of each class,
+ * or its index in a dictionary of the classes commonly found in the login flow, instead of its full descriptor
+ * with the names and types of all its fields. Class descriptors make up most of a serialized flow execution, so
+ * the state is a fraction of the size produced by the default {@code EncryptedTranscoder}. It is then deflated and
+ * encrypted with AES in GCM mode, which also authenticates the state so that nothing but states produced with the
+ * same key is ever deserialized.</p>
+ *
+ * <p>Cipher, deflater and inflater instances are created once per thread and shared by all transcoders; the cipher
+ * is initialized with the key of the transcoder on each use. As class descriptors are not
+ * written, states can only be decoded by servers running the same version of the classes with the same dictionary;
+ * states of login forms rendered before an upgrade fail to decode, just as when the key changes.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class CompactFlowStateTranscoder implements Transcoder {
+
+    /** Classes commonly serialized with the login flow state, encoded as a single byte. */
+    public static final List<String> DEFAULT_CLASS_NAMES = Collections.unmodifiableList(Arrays.asList(
+            "org.jasig.spring.webflow.plugin.SerializedFlowExecutionState",
+            "org.springframework.webflow.engine.impl.FlowExecutionImpl",
+            "org.springframework.webflow.engine.impl.FlowSessionImpl",
+            "org.springframework.webflow.execution.FlowExecutionKey",
+            "org.springframework.webflow.core.collection.LocalAttributeMap",
+            "org.springframework.webflow.core.collection.LocalSharedAttributeMap",
+            "org.springframework.binding.collection.SharedMapDecorator",
+            "org.springframework.binding.message.Message",
+            "org.springframework.binding.message.Severity",
+            "org.springframework.core.enums.AbstractLabeledEnum",
+            "org.springframework.core.enums.StaticLabeledEnum",
+            "org.jasig.cas.authentication.UsernamePasswordCredential",
+            "org.jasig.cas.authentication.RememberMeUsernamePasswordCredential",
+            "org.jasig.cas.authentication.principal.AbstractWebApplicationService",
+            "org.jasig.cas.authentication.principal.SimpleWebApplicationServiceImpl",
+            "org.jasig.cas.authentication.principal.Response$ResponseType",
+            "java.util.HashMap",
+            "java.util.LinkedHashMap",
+            "java.util.ArrayList",
+            "java.util.LinkedList",
+            "java.util.Collections$UnmodifiableMap",
+            "java.lang.Boolean",
+            "java.lang.Integer",
+            "java.lang.Long",
+            "java.lang.Number",
+            "java.lang.Enum"));
+
+    private static final String KEY_ALGORITHM = "AES";
+
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+
+    private static final int DEFAULT_KEY_SIZE = 16;
+
+    private static final int MEDIUM_KEY_SIZE = 24;
+
+    private static final int LARGE_KEY_SIZE = 32;
+
+    private static final int IV_SIZE = 12;
+
+    private static final int TAG_LENGTH = 128;
+
+    /** Format of the encoded state, authenticated along with the state. */
+    private static final byte VERSION = 1;
+
+    /** Flag of the format byte set when the state is deflated. */
+    private static final byte COMPRESSED = 0x10;
+
+    /** Class descriptor written in full. */
+    private static final int FULL_DESCRIPTOR = 0;
+
+    /** Class descriptor written as the class name. */
+    private static final int NAMED_DESCRIPTOR = 1;
+
+    /** Offset of dictionary indexes in the byte written instead of the class descriptor. */
+    private static final int DICTIONARY_OFFSET = 2;
+
+    /** Largest value of the byte written instead of the class descriptor. */
+    private static final int MAX_DESCRIPTOR = 255;
+
+    private static final int MAX_DICTIONARY_SIZE = MAX_DESCRIPTOR - DICTIONARY_OFFSET + 1;
+
+    private static final int BUFFER_SIZE = 1024;
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    /** Ciphers of each thread, shared by all instances and initialized with the key of the instance on each use. */
+    private static final ThreadLocal<Cipher> CIPHERS = new ThreadLocal<>();
+
+    /** Deflaters of each thread, shared by all instances. */
+    private static final ThreadLocal<Deflater> DEFLATERS = new ThreadLocal<>();
+
+    /** Inflaters of each thread, shared by all instances. */
+    private static final ThreadLocal<Inflater> INFLATERS = new ThreadLocal<>();
+
+    private final SecretKeySpec key;
+
+    private String[] classNames;
+
+    private Map<String, Integer> classIndexes;
+
+    private boolean compression = true;
+
+    /**
+     * Instantiates a new transcoder with a random key. States can only be decoded by this instance,
+     * which does not suit clustered deployments.
+     */
+    public CompactFlowStateTranscoder() {
+        this(null);
+    }
+
+    /**
+     * Instantiates a new transcoder.
+     *
+     * @param encodedKey the base64 encoded AES key of 16, 24 or 32 bytes shared by all nodes,
+     * or null or empty to generate a random key
+     */
+    public CompactFlowStateTranscoder(final String encodedKey) {
+        final byte[] bytes;
+        if (StringUtils.hasText(encodedKey)) {
+            bytes = CompressionUtils.decodeBase64ToByteArray(encodedKey.trim());
+        } else {
+            bytes = new byte[DEFAULT_KEY_SIZE];
+            SECURE_RANDOM.nextBytes(bytes);
+        }
+        Assert.isTrue(bytes.length == DEFAULT_KEY_SIZE || bytes.length == MEDIUM_KEY_SIZE
+                || bytes.length == LARGE_KEY_SIZE, "The login flow state key must be of 16, 24 or 32 bytes");
+        this.key = new SecretKeySpec(bytes, KEY_ALGORITHM);
+        setClassNames(DEFAULT_CLASS_NAMES);
+    }
+
+    /**
+     * Sets the classes encoded as a single byte. All nodes must use the same list in the same order.
+     * Defaults to {@link #DEFAULT_CLASS_NAMES}.
+     *
+     * @param classNames the fully qualified class names
+     */
+    public void setClassNames(final List<String> classNames) {
+        Assert.isTrue(classNames.size() <= MAX_DICTIONARY_SIZE, "At most " + MAX_DICTIONARY_SIZE + " classes");
+        final Map<String, Integer> indexes = new HashMap<>(classNames.size() * 2);
+        for (int i = 0; i < classNames.size(); i++) {
+            indexes.put(classNames.get(i), i);
+        }
+        this.classNames = classNames.toArray(new String[classNames.size()]);
+        this.classIndexes = indexes;
+    }
+
+    /**
+     * Sets whether states are deflated before they are encrypted. Defaults to true.
+     *
+     * @param compression true to deflate states
+     */
+    public void setCompression(final boolean compression) {
+        this.compression = compression;
+    }
+
+    @Override
+    public byte[] encode(final Object o) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+        try (final ObjectOutputStream out = new CompactObjectOutputStream(bytes)) {
+            out.writeObject(o);
+        }
+        final byte format = this.compression ? VERSION | COMPRESSED : VERSION;
+        final byte[] plaintext = this.compression ? deflate(bytes.toByteArray()) : bytes.toByteArray();
+
+        final byte[] iv = new byte[IV_SIZE];
+        SECURE_RANDOM.nextBytes(iv);
+        try {
+            final Cipher cipher = getCipher();
+            cipher.init(Cipher.ENCRYPT_MODE, this.key, new GCMParameterSpec(TAG_LENGTH, iv));
+            cipher.updateAAD(new byte[] {format});
+            final byte[] encoded = new byte[1 + IV_SIZE + cipher.getOutputSize(plaintext.length)];
+            encoded[0] = format;
+            System.arraycopy(iv, 0, encoded, 1, IV_SIZE);
+            final int length = 1 + IV_SIZE + cipher.doFinal(plaintext, 0, plaintext.length, encoded, 1 + IV_SIZE);
+            return length == encoded.length ? encoded : Arrays.copyOf(encoded, length);
+        } catch (final GeneralSecurityException e) {
+            throw new IOException("Failed encrypting the login flow state", e);
+        }
+    }
+
+    @Override
+    public Object decode(final byte[] encoded) throws IOException {
+        if (encoded == null || encoded.length < 1 + IV_SIZE || (encoded[0] & ~COMPRESSED) != VERSION) {
+            throw new StreamCorruptedException("Invalid login flow state");
+        }
+        final byte[] plaintext;
+        try {
+            final Cipher cipher = getCipher();
+            cipher.init(Cipher.DECRYPT_MODE, this.key, new GCMParameterSpec(TAG_LENGTH, encoded, 1, IV_SIZE));
+            cipher.updateAAD(encoded, 0, 1);
+            plaintext = cipher.doFinal(encoded, 1 + IV_SIZE, encoded.length - 1 - IV_SIZE);
+        } catch (final GeneralSecurityException e) {
+            throw new IOException("Failed decrypting the login flow state", e);
+        }
+
+        final byte[] bytes = (encoded[0] & COMPRESSED) != 0 ? inflate(plaintext) : plaintext;
+        try (final ObjectInputStream in = new CompactObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        } catch (final ClassNotFoundException e) {
+            throw new IOException("Failed deserializing the login flow state", e);
+        }
+    }
+
+    /**
+     * Gets the cipher of the current thread.
+     *
+     * @return the cipher
+     */
+    private static Cipher getCipher() {
+        Cipher cipher = CIPHERS.get();
+        if (cipher == null) {
+            try {
+                cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+            } catch (final GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+            CIPHERS.set(cipher);
+        }
+        return cipher;
+    }
+
+    /**
+     * Deflates bytes with the deflater of the current thread.
+     *
+     * @param bytes the bytes
+     * @return the deflated bytes
+     */
+    private static byte[] deflate(final byte[] bytes) {
+        Deflater deflater = DEFLATERS.get();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            DEFLATERS.set(deflater);
+        }
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    /**
+     * Inflates bytes with the inflater of the current thread.
+     *
+     * @param bytes the deflated bytes
+     * @return the bytes
+     * @throws IOException if the bytes are not deflated
+     */
+    private static byte[] inflate(final byte[] bytes) throws IOException {
+        Inflater inflater = INFLATERS.get();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+            INFLATERS.set(inflater);
+        }
+        try {
+            // a trailing byte is required by inflaters that do not expect a zlib header
+            inflater.setInput(Arrays.copyOf(bytes, bytes.length + 1));
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 2);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                final int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new StreamCorruptedException("Truncated login flow state");
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } catch (final DataFormatException e) {
+            throw new IOException("Failed inflating the login flow state", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    /**
+     * Object output stream that writes class names, or their index in the dictionary, instead of class descriptors.
+     */
+    private final class CompactObjectOutputStream extends ObjectOutputStream {
+
+        /**
+         * Instantiates a new compact object output stream.
+         *
+         * @param out the stream to write to
+         * @throws IOException if the stream cannot be written to
+         */
+        CompactObjectOutputStream(final OutputStream out) throws IOException {
+            super(out);
+        }
+
+        @Override
+        protected void writeStreamHeader() {
+            // the format is identified by the transcoder
+        }
+
+        @Override
+        protected void writeClassDescriptor(final ObjectStreamClass desc) throws IOException {
+            final Class<?> type = desc.forClass();
+            if (type == null || type.isPrimitive() || type.isArray() || type.isInterface()
+                    || desc.getSerialVersionUID() == 0) {
+                write(FULL_DESCRIPTOR);
+                super.writeClassDescriptor(desc);
+                return;
+            }
+            final Integer index = classIndexes.get(desc.getName());
+            if (index != null) {
+                write(DICTIONARY_OFFSET + index);
+            } else {
+                write(NAMED_DESCRIPTOR);
+                writeUTF(desc.getName());
+            }
+        }
+    }
+
+    /**
+     * Object input stream that reads the class descriptors written by {@link CompactObjectOutputStream}
+     * from the classes loaded by this server.
+     */
+    private final class CompactObjectInputStream extends ObjectInputStream {
+
+        private final ClassLoader classLoader;
+
+        /**
+         * Instantiates a new compact object input stream.
+         *
+         * @param in the stream to read from
+         * @throws IOException if the stream cannot be read
+         */
+        CompactObjectInputStream(final InputStream in) throws IOException {
+            super(in);
+            final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+            this.classLoader = contextClassLoader != null ? contextClassLoader
+                    : CompactFlowStateTranscoder.class.getClassLoader();
+        }
+
+        @Override
+        protected void readStreamHeader() {
+            // the format is identified by the transcoder
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            final int type = read();
+            final String name;
+            if (type == FULL_DESCRIPTOR) {
+                return super.readClassDescriptor();
+            } else if (type == NAMED_DESCRIPTOR) {
+                name = readUTF();
+            } else if (type >= DICTIONARY_OFFSET && type - DICTIONARY_OFFSET < classNames.length) {
+                name = classNames[type - DICTIONARY_OFFSET];
+            } else {
+                throw new StreamCorruptedException("Invalid class descriptor " + type);
+            }
+            return ObjectStreamClass.lookupAny(Class.forName(name, false, this.classLoader));
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, this.classLoader);
+            } catch (final ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
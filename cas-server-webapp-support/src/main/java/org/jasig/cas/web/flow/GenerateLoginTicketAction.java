@@ -18,12 +18,13 @@
  */
 package org.jasig.cas.web.flow;
 
-import javax.validation.constraints.NotNull;
-
 import org.jasig.cas.util.UniqueTicketIdGenerator;
+import org.jasig.cas.web.support.LoginTicketSigner;
 import org.jasig.cas.web.support.WebUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
 import org.springframework.webflow.execution.RequestContext;
 
 
@@ -31,20 +32,27 @@ import org.springframework.webflow.execution.RequestContext;
  * Generates the login ticket parameter as described in section 3.5 of the
  * <a href="http://www.jasig.org/cas/protocol">CAS protocol</a>.
  *
+ * <p>Login tickets are either generated by the {@link #setTicketIdGenerator(UniqueTicketIdGenerator) ticketIdGenerator}
+ * and kept in the flow scope until the login form is submitted, or signed by the
+ * {@link #setLoginTicketSigner(LoginTicketSigner) loginTicketSigner}, one of which must be set. Signed login tickets
+ * are verified by the signer, so nothing is kept in the flow scope: a new one is put in the request scope each time
+ * the login form is {@link #render(RequestContext) rendered}, including after a binding error.</p>
+ *
  * @author Marvin S. Addison
  * @since 3.4.9
  *
  */
-public class GenerateLoginTicketAction {
+public class GenerateLoginTicketAction implements InitializingBean {
     /** 3.5.1 - Login tickets SHOULD begin with characters "LT-". */
     private static final String PREFIX = "LT";
 
     /** Logger instance. */
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    @NotNull
     private UniqueTicketIdGenerator ticketIdGenerator;
 
+    private LoginTicketSigner loginTicketSigner;
+
     /**
      * Generate the login ticket.
      *
@@ -52,13 +60,45 @@ public class GenerateLoginTicketAction {
      * @return <code>"generated"</code>
      */
     public final String generate(final RequestContext context) {
-        final String loginTicket = this.ticketIdGenerator.getNewTicketId(PREFIX);
-        logger.debug("Generated login ticket {}", loginTicket);
-        WebUtils.putLoginTicket(context, loginTicket);
+        if (this.loginTicketSigner == null) {
+            final String loginTicket = this.ticketIdGenerator.getNewTicketId(PREFIX);
+            logger.debug("Generated login ticket {}", loginTicket);
+            WebUtils.putLoginTicket(context, loginTicket);
+        }
         return "generated";
     }
 
+    /**
+     * Puts a new signed login ticket in the request scope while the login form is rendered.
+     * Does nothing unless a login ticket signer is set.
+     *
+     * @param context the context
+     */
+    public final void render(final RequestContext context) {
+        if (this.loginTicketSigner != null) {
+            final String loginTicket = this.loginTicketSigner.getNewTicketId(PREFIX);
+            logger.debug("Generated signed login ticket {}", loginTicket);
+            WebUtils.putSignedLoginTicket(context, loginTicket);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.state(this.ticketIdGenerator != null || this.loginTicketSigner != null,
+                "Either a ticketIdGenerator or a loginTicketSigner must be set to generate login tickets");
+    }
+
     public void setTicketIdGenerator(final UniqueTicketIdGenerator generator) {
         this.ticketIdGenerator = generator;
     }
+
+    /**
+     * Sets the signer of login tickets, which takes precedence over the ticket id generator.
+     * The same signer must be set on the {@link AuthenticationViaFormAction}.
+     *
+     * @param loginTicketSigner the login ticket signer
+     */
+    public void setLoginTicketSigner(final LoginTicketSigner loginTicketSigner) {
+        this.loginTicketSigner = loginTicketSigner;
+    }
 }
@@ -18,17 +18,27 @@
  */
 package org.jasig.cas.web.support;
 
+import org.apache.commons.codec.binary.Base64;
 import org.jasig.cas.authentication.RememberMeCredential;
+import org.jasig.cas.util.CompressionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.util.CookieGenerator;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Extends CookieGenerator to allow you to retrieve a value from a request.
@@ -37,6 +47,11 @@ import java.lang.reflect.Method;
  * <p>
  * Also has support for RememberMe Services
  *
+ * <p>When a {@link #setSigningKey(String) signing key} is set, cookie values are issued with a truncated
+ * HMAC-SHA256 of their contents appended, and values whose MAC does not verify are not retrieved. Forged,
+ * garbled or foreign cookies are then rejected before their value is looked up in the ticket registry.
+ * All nodes of a cluster must share the key.
+ *
  * @author Scott Battaglia
  * @author Misagh Moayyed
  * @since 3.1
@@ -46,12 +61,32 @@ public class CookieRetrievingCookieGenerator extends CookieGenerator {
 
     private static final int DEFAULT_REMEMBER_ME_MAX_AGE = 7889231;
 
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    /** Number of bytes of the MAC appended to the cookie value. */
+    private static final int SIGNATURE_SIZE = 16;
+
+    /** Number of characters of the base64 encoded signature. */
+    private static final int ENCODED_SIGNATURE_SIZE = 22;
+
+    private static final char SEPARATOR = '-';
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     
     /** The maximum age the cookie should be remembered for.
      * The default is three months ({@value} in seconds, according to Google) */
     private int rememberMeMaxAge = DEFAULT_REMEMBER_ME_MAX_AGE;
 
+    /** Key cookie values are signed with, or null if they are not signed. */
+    private SecretKeySpec signingKey;
+
+    /** MAC engines initialized with the signing key, one per thread. Replaced along with the key. */
+    private ThreadLocal<Mac> macs = new ThreadLocal<>();
+
+    private final AtomicLong rejectedCookieCount = new AtomicLong();
+
     /**
      * Instantiates a new cookie retrieving cookie generator.
      */
@@ -87,20 +122,105 @@ public class CookieRetrievingCookieGenerator extends CookieGenerator {
         }
     }
 
+    /**
+     * Creates the cookie, appending the signature to its value if a signing key is set.
+     *
+     * @param cookieValue the cookie value
+     * @return the cookie
+     */
+    @Override
+    protected Cookie createCookie(final String cookieValue) {
+        if (this.signingKey == null) {
+            return super.createCookie(cookieValue);
+        }
+        return super.createCookie(cookieValue + SEPARATOR + Base64.encodeBase64URLSafeString(sign(cookieValue)));
+    }
+
     /**
      * Retrieve cookie value.
      *
      * @param request the request
-     * @return the string
+     * @return the string, or null if there is no cookie or its signature does not verify
      */
     public String retrieveCookieValue(final HttpServletRequest request) {
         final Cookie cookie = org.springframework.web.util.WebUtils.getCookie(
                 request, getCookieName());
 
-        return cookie == null ? null : cookie.getValue();
+        if (cookie == null || this.signingKey == null) {
+            return cookie == null ? null : cookie.getValue();
+        }
+        final String value = verify(cookie.getValue());
+        if (value == null) {
+            this.rejectedCookieCount.incrementAndGet();
+            logger.debug("Rejected cookie {} whose signature does not verify", getCookieName());
+        }
+        return value;
+    }
+
+    /**
+     * Verifies the signature of a signed cookie value.
+     *
+     * @param signedValue the cookie value along with its signature
+     * @return the cookie value without its signature, or null if the signature does not verify
+     */
+    private String verify(final String signedValue) {
+        // the signature may contain the separator, but is of a fixed length
+        final int signatureStart = signedValue == null ? -1 : signedValue.length() - ENCODED_SIGNATURE_SIZE - 1;
+        if (signatureStart <= 0 || signedValue.charAt(signatureStart) != SEPARATOR) {
+            return null;
+        }
+        final String value = signedValue.substring(0, signatureStart);
+        final byte[] signature = Base64.decodeBase64(signedValue.substring(signatureStart + 1));
+        return MessageDigest.isEqual(sign(value), signature) ? value : null;
+    }
+
+    /**
+     * Computes the truncated MAC of a cookie value.
+     *
+     * @param value the cookie value
+     * @return the signature
+     */
+    private byte[] sign(final String value) {
+        Mac mac = this.macs.get();
+        if (mac == null) {
+            try {
+                mac = Mac.getInstance(MAC_ALGORITHM);
+                mac.init(this.signingKey);
+            } catch (final GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+            this.macs.set(mac);
+        }
+        return Arrays.copyOf(mac.doFinal(value.getBytes(UTF8)), SIGNATURE_SIZE);
     }
 
     public void setRememberMeMaxAge(final int maxAge) {
         this.rememberMeMaxAge = maxAge;
     }
+
+    /**
+     * Sets the key cookie values are signed with. Cookie values are not signed by default.
+     *
+     * @param encodedKey the base64 encoded key of at least 16 bytes shared by all nodes,
+     * or null or empty to not sign cookie values
+     */
+    public void setSigningKey(final String encodedKey) {
+        if (StringUtils.hasText(encodedKey)) {
+            final byte[] bytes = CompressionUtils.decodeBase64ToByteArray(encodedKey.trim());
+            Assert.isTrue(bytes.length >= SIGNATURE_SIZE, "The cookie signing key must be of at least 16 bytes");
+            this.signingKey = new SecretKeySpec(bytes, MAC_ALGORITHM);
+        } else {
+            this.signingKey = null;
+        }
+        this.macs = new ThreadLocal<>();
+    }
+
+    /**
+     * Gets the number of cookies rejected because their signature did not verify.
+     *
+     * @return the number of rejected cookies
+     */
+    public long getRejectedCookieCount() {
+        return this.rejectedCookieCount.get();
+    }
 }
@@ -0,0 +1,260 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.web.support;
+
+import org.apache.commons.codec.binary.Base64;
+import org.jasig.cas.util.Clock;
+import org.jasig.cas.util.CompressionUtils;
+import org.jasig.cas.util.SystemClock;
+import org.jasig.cas.util.UniqueTicketIdGenerator;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.validation.constraints.Min;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates login tickets that carry their creation time and an HMAC of their contents, so that they are verified
+ * without being stored in the flow scope, by any node sharing the key.
+ *
+ * <p>A login ticket reads {@code LT-<time>-<sequence>-<signature>}, where the signature is the truncated
+ * HMAC-SHA256 of the rest of the ticket. A ticket is valid for {@link #setTimeToLive(long) timeToLive} seconds
+ * after its creation, and only once: the tickets verified by this node are remembered until they expire, up to
+ * {@link #setMaxSize(int) maxSize} tickets beyond which the oldest are forgotten. As that memory is local, a ticket
+ * may be replayed once on each other node of a cluster within its time to live.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public final class LoginTicketSigner implements UniqueTicketIdGenerator {
+
+    /** Default time in seconds a login ticket is valid. */
+    public static final int DEFAULT_TIME_TO_LIVE = 1800;
+
+    /** Default maximum number of verified tickets remembered. */
+    public static final int DEFAULT_MAX_SIZE = 100000;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final int DEFAULT_KEY_SIZE = 32;
+
+    /** Number of bytes of the MAC kept in the ticket. */
+    private static final int SIGNATURE_SIZE = 16;
+
+    /** Number of characters of the base64 encoded signature. */
+    private static final int ENCODED_SIGNATURE_SIZE = 22;
+
+    private static final int RADIX = 36;
+
+    private static final char SEPARATOR = '-';
+
+    /** Time in milliseconds a ticket may be created ahead of the clock of the node verifying it. */
+    private static final long MAX_CLOCK_SKEW = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final SecretKeySpec key;
+
+    private final ThreadLocal<Mac> macs = new ThreadLocal<>();
+
+    /** Sequence distinguishing tickets created within the same millisecond, starting at a random value per node. */
+    private final AtomicLong sequence;
+
+    private final UsedTickets usedTickets = new UsedTickets();
+
+    @Min(1)
+    private long timeToLive = TimeUnit.SECONDS.toMillis(DEFAULT_TIME_TO_LIVE);
+
+    private Clock clock = SystemClock.INSTANCE;
+
+    /**
+     * Instantiates a new signer with a random key. Tickets can only be verified by this instance,
+     * which does not suit clustered deployments.
+     */
+    public LoginTicketSigner() {
+        this(null);
+    }
+
+    /**
+     * Instantiates a new signer.
+     *
+     * @param encodedKey the base64 encoded key of at least 16 bytes shared by all nodes,
+     * or null or empty to generate a random key
+     */
+    public LoginTicketSigner(final String encodedKey) {
+        final SecureRandom random = new SecureRandom();
+        final byte[] bytes;
+        if (StringUtils.hasText(encodedKey)) {
+            bytes = CompressionUtils.decodeBase64ToByteArray(encodedKey.trim());
+            Assert.isTrue(bytes.length >= SIGNATURE_SIZE, "The login ticket key must be of at least 16 bytes");
+        } else {
+            bytes = new byte[DEFAULT_KEY_SIZE];
+            random.nextBytes(bytes);
+        }
+        this.key = new SecretKeySpec(bytes, MAC_ALGORITHM);
+        this.sequence = new AtomicLong(random.nextLong() >>> 1);
+    }
+
+    /**
+     * Sets the time in seconds a login ticket is valid. Defaults to {@value #DEFAULT_TIME_TO_LIVE}.
+     *
+     * @param seconds the time to live in seconds
+     */
+    public void setTimeToLive(final long seconds) {
+        this.timeToLive = TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    /**
+     * Sets the maximum number of verified tickets remembered to reject replays.
+     * Defaults to {@value #DEFAULT_MAX_SIZE}.
+     *
+     * @param maxSize the maximum number of tickets
+     */
+    public void setMaxSize(final int maxSize) {
+        this.usedTickets.setMaxSize(maxSize);
+    }
+
+    /**
+     * Sets the clock tickets are dated and verified with. Defaults to the system clock.
+     *
+     * @param clock the clock
+     */
+    public void setClock(final Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public String getNewTicketId(final String prefix) {
+        final StringBuilder ticket = new StringBuilder(prefix).append(SEPARATOR)
+                .append(Long.toString(this.clock.currentTimeMillis(), RADIX)).append(SEPARATOR)
+                .append(Long.toString(this.sequence.getAndIncrement() & Long.MAX_VALUE, RADIX));
+        final String contents = ticket.toString();
+        return ticket.append(SEPARATOR).append(Base64.encodeBase64URLSafeString(sign(contents))).toString();
+    }
+
+    /**
+     * Verifies that a login ticket was signed with the key, has not expired and was not verified before.
+     *
+     * @param ticket the login ticket
+     * @return true if the ticket is valid
+     */
+    public boolean verify(final String ticket) {
+        // the signature may contain the separator, but is of a fixed length
+        final int signatureStart = ticket == null ? -1 : ticket.length() - ENCODED_SIGNATURE_SIZE - 1;
+        if (signatureStart <= 0 || ticket.charAt(signatureStart) != SEPARATOR) {
+            return false;
+        }
+        final int sequenceStart = signatureStart > 0 ? ticket.lastIndexOf(SEPARATOR, signatureStart - 1) : -1;
+        final int timeStart = sequenceStart > 0 ? ticket.lastIndexOf(SEPARATOR, sequenceStart - 1) : -1;
+        if (timeStart < 0) {
+            return false;
+        }
+
+        final String contents = ticket.substring(0, signatureStart);
+        final byte[] signature = Base64.decodeBase64(ticket.substring(signatureStart + 1));
+        if (!MessageDigest.isEqual(sign(contents), signature)) {
+            return false;
+        }
+
+        final long created;
+        try {
+            created = Long.parseLong(ticket.substring(timeStart + 1, sequenceStart), RADIX);
+        } catch (final NumberFormatException e) {
+            return false;
+        }
+        final long now = this.clock.currentTimeMillis();
+        final long expiresAt = created + this.timeToLive;
+        if (now >= expiresAt || created - now > MAX_CLOCK_SKEW) {
+            return false;
+        }
+        return this.usedTickets.use(contents, expiresAt, now);
+    }
+
+    /**
+     * Computes the truncated MAC of the contents of a ticket.
+     *
+     * @param contents the ticket without its signature
+     * @return the signature
+     */
+    private byte[] sign(final String contents) {
+        Mac mac = this.macs.get();
+        if (mac == null) {
+            try {
+                mac = Mac.getInstance(MAC_ALGORITHM);
+                mac.init(this.key);
+            } catch (final GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+            this.macs.set(mac);
+        }
+        return Arrays.copyOf(mac.doFinal(contents.getBytes(UTF8)), SIGNATURE_SIZE);
+    }
+
+    /**
+     * Bounded memory of the tickets verified so far, in the order they were verified, along with their expiration
+     * time. Synchronized.
+     */
+    private static final class UsedTickets extends LinkedHashMap<String, Long> {
+
+        private static final long serialVersionUID = -4630478254066624215L;
+
+        private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+        /**
+         * Sets the maximum number of tickets remembered.
+         *
+         * @param maxSize the maximum number of tickets
+         */
+        void setMaxSize(final int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Remembers a ticket, forgetting expired tickets.
+         *
+         * @param ticket the ticket without its signature
+         * @param expiresAt the expiration time of the ticket
+         * @param now the current time
+         * @return true if the ticket was not remembered yet
+         */
+        synchronized boolean use(final String ticket, final long expiresAt, final long now) {
+            final Iterator<Long> it = values().iterator();
+            while (it.hasNext() && it.next() <= now) {
+                it.remove();
+            }
+            return put(ticket, expiresAt) == null;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+            return size() > this.maxSize;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.web.view;
+
+import org.jasig.cas.CasProtocolConstants;
+import org.jasig.cas.authentication.Authentication;
+import org.jasig.cas.validation.Assertion;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.constraints.NotNull;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders the CAS 2.0 validation response by writing it straight to the response, instead of
+ * preparing a model for {@code casServiceValidationSuccess.jsp} and dispatching to it.
+ * The static parts of the document are precomputed and values are escaped as they are written.
+ *
+ * <p>The same view renders successful or failed validations depending on
+ * {@link #setSuccessResponse(boolean)}. Responses are written as XML by default; a request may
+ * ask for another {@link Format} via the {@value CasProtocolConstants#PARAMETER_FORMAT} parameter.</p>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class Cas20StreamingResponseView extends AbstractCasView {
+
+    /**
+     * Formats a validation response may be written in.
+     */
+    public enum Format {
+        /** CAS protocol XML document. */
+        XML(new XmlValidationResponseWriter()),
+        /** JSON document with the same structure as the XML document. */
+        JSON(new JsonValidationResponseWriter());
+
+        private final ValidationResponseWriter writer;
+
+        /**
+         * Instantiates a new format.
+         *
+         * @param writer the writer producing responses in this format
+         */
+        Format(final ValidationResponseWriter writer) {
+            this.writer = writer;
+        }
+    }
+
+    @NotNull
+    private Format format = Format.XML;
+
+    @Override
+    protected void renderMergedOutputModel(final Map<String, Object> model, final HttpServletRequest request,
+                                           final HttpServletResponse response) throws Exception {
+        final ValidationResponseWriter writer = getFormat(request).writer;
+        response.setContentType(writer.getContentType());
+        if (this.successResponse) {
+            final Assertion assertion = getAssertionFrom(model);
+            final Authentication authentication = assertion.getPrimaryAuthentication();
+            writer.writeSuccess(response.getWriter(), authentication.getPrincipal().getId(),
+                    (String) model.get(CasProtocolConstants.VALIDATION_CAS_MODEL_PROXY_GRANTING_TICKET_IOU),
+                    getProxies(assertion), getAttributes(assertion, authentication));
+        } else {
+            writer.writeFailure(response.getWriter(), (String) model.get("code"), (String) model.get("description"));
+        }
+    }
+
+    /**
+     * Gets the attributes to release in a successful response. The CAS 2.0 response releases none.
+     *
+     * @param assertion the assertion
+     * @param authentication the primary authentication of the assertion
+     * @return the attributes, keyed by name
+     */
+    protected Map<String, Object> getAttributes(final Assertion assertion, final Authentication authentication) {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Gets the authentications of the proxies listed in the response, consistent
+     * with {@link #getChainedAuthentications(Map)}.
+     *
+     * @param assertion the assertion
+     * @return the proxy authentications
+     */
+    private static List<Authentication> getProxies(final Assertion assertion) {
+        final List<Authentication> chainedAuthentications = assertion.getChainedAuthentications();
+        final int count = chainedAuthentications.size() - 2;
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        return chainedAuthentications.subList(0, count);
+    }
+
+    /**
+     * Gets the format requested via the {@value CasProtocolConstants#PARAMETER_FORMAT} parameter,
+     * falling back to the configured format when absent or unknown.
+     *
+     * @param request the request
+     * @return the response format
+     */
+    private Format getFormat(final HttpServletRequest request) {
+        final String requested = request.getParameter(CasProtocolConstants.PARAMETER_FORMAT);
+        if (requested != null) {
+            for (final Format candidate : Format.values()) {
+                if (candidate.name().equals(requested.toUpperCase(Locale.ENGLISH))) {
+                    return candidate;
+                }
+            }
+        }
+        return this.format;
+    }
+
+    /**
+     * Sets the format responses are written in unless the request asks for another. Defaults to XML.
+     *
+     * @param format the response format
+     */
+    public final void setFormat(final Format format) {
+        this.format = format;
+    }
+}
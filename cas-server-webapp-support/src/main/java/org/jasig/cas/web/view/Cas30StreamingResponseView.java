@@ -0,0 +1,68 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.web.view;
+
+import org.jasig.cas.CasProtocolConstants;
+import org.jasig.cas.authentication.Authentication;
+import org.jasig.cas.authentication.RememberMeCredential;
+import org.jasig.cas.validation.Assertion;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders the CAS 3.0 validation response by writing it straight to the response, releasing
+ * the principal attributes along with the authentication date, whether the assertion is backed
+ * by a new login and whether remember-me was used, as {@code casServiceValidationSuccess.jsp} does.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class Cas30StreamingResponseView extends Cas20StreamingResponseView {
+
+    @Override
+    protected Map<String, Object> getAttributes(final Assertion assertion, final Authentication authentication) {
+        final Map<String, Object> principalAttributes = authentication.getPrincipal().getAttributes();
+        if (principalAttributes.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final Map<String, Object> attributes = new LinkedHashMap<>(principalAttributes);
+        attributes.put(Cas30ResponseView.MODEL_ATTRIBUTE_NAME_FROM_NEW_LOGIN, assertion.isFromNewLogin());
+        attributes.put(CasProtocolConstants.VALIDATION_REMEMBER_ME_ATTRIBUTE_NAME,
+                isRememberMe(assertion, authentication));
+        attributes.put(Cas30ResponseView.MODEL_ATTRIBUTE_NAME_AUTHENTICATION_DATE, authentication.getAuthenticationDate());
+        return attributes;
+    }
+
+    /**
+     * Determines whether the assertion is backed by a new login that used remember-me.
+     *
+     * @param assertion the assertion
+     * @param authentication the primary authentication of the assertion
+     * @return true if remember-me was used
+     */
+    private static boolean isRememberMe(final Assertion assertion, final Authentication authentication) {
+        final Object rememberMe = authentication.getAttributes().get(RememberMeCredential.AUTHENTICATION_ATTRIBUTE_REMEMBER_ME);
+        final boolean used = rememberMe instanceof Collection
+                ? ((Collection<?>) rememberMe).contains(Boolean.TRUE) : Boolean.TRUE.equals(rememberMe);
+        return used && assertion.isFromNewLogin();
+    }
+}
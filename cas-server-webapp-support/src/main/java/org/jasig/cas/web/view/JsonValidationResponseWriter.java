@@ -0,0 +1,107 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.web.view;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.jasig.cas.authentication.Authentication;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the CAS validation responses as JSON, mirroring the structure of the XML document.
+ * For example:
+ * <pre>
+ * {"serviceResponse":{"authenticationSuccess":{"user":"casuser","proxyGrantingTicket":"PGTIOU-...",
+ *   "proxies":["https://proxy.example.org"],"attributes":{"mail":["casuser@example.org"]}}}}
+ * {"serviceResponse":{"authenticationFailure":{"code":"INVALID_TICKET","description":"..."}}}
+ * </pre>
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+final class JsonValidationResponseWriter extends ValidationResponseWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    @Override
+    String getContentType() {
+        return "application/json;charset=UTF-8";
+    }
+
+    @Override
+    void writeSuccess(final Writer out, final String user, final String proxyGrantingTicketIou,
+                      final List<Authentication> proxies, final Map<String, Object> attributes) throws IOException {
+        final JsonGenerator json = JSON_FACTORY.createGenerator(out);
+        json.writeStartObject();
+        json.writeObjectFieldStart("serviceResponse");
+        json.writeObjectFieldStart("authenticationSuccess");
+        json.writeStringField("user", user);
+        if (proxyGrantingTicketIou != null && !proxyGrantingTicketIou.isEmpty()) {
+            json.writeStringField("proxyGrantingTicket", proxyGrantingTicketIou);
+        }
+        if (!proxies.isEmpty()) {
+            json.writeArrayFieldStart("proxies");
+            for (final Authentication proxy : proxies) {
+                json.writeString(proxy.getPrincipal().getId());
+            }
+            json.writeEndArray();
+        }
+        if (!attributes.isEmpty()) {
+            json.writeObjectFieldStart("attributes");
+            for (final Map.Entry<String, Object> attribute : attributes.entrySet()) {
+                json.writeArrayFieldStart(attribute.getKey());
+                final Iterator<?> values = valuesOf(attribute.getValue());
+                while (values.hasNext()) {
+                    final Object value = values.next();
+                    if (value instanceof Boolean) {
+                        json.writeBoolean((Boolean) value);
+                    } else {
+                        json.writeString(String.valueOf(value));
+                    }
+                }
+                json.writeEndArray();
+            }
+            json.writeEndObject();
+        }
+        json.writeEndObject();
+        json.writeEndObject();
+        json.writeEndObject();
+        json.close();
+    }
+
+    @Override
+    void writeFailure(final Writer out, final String code, final String description) throws IOException {
+        final JsonGenerator json = JSON_FACTORY.createGenerator(out);
+        json.writeStartObject();
+        json.writeObjectFieldStart("serviceResponse");
+        json.writeObjectFieldStart("authenticationFailure");
+        json.writeStringField("code", code);
+        json.writeStringField("description", description);
+        json.writeEndObject();
+        json.writeEndObject();
+        json.writeEndObject();
+        json.close();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.web.view;
+
+import org.jasig.cas.authentication.Authentication;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes CAS validation responses straight to the response writer.
+ * Implementations are stateless and thread-safe.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+abstract class ValidationResponseWriter {
+
+    /**
+     * Gets the content type of the responses written.
+     *
+     * @return the content type, including the character set
+     */
+    abstract String getContentType();
+
+    /**
+     * Writes a successful validation response.
+     *
+     * @param out the response writer
+     * @param user the id of the authenticated principal
+     * @param proxyGrantingTicketIou the proxy granting ticket IOU, or null
+     * @param proxies the authentications of the proxies, in order
+     * @param attributes the attributes to release, whose values may be single or multi-valued
+     * @throws IOException if the response cannot be written
+     */
+    abstract void writeSuccess(Writer out, String user, String proxyGrantingTicketIou,
+                               List<Authentication> proxies, Map<String, Object> attributes) throws IOException;
+
+    /**
+     * Writes a failed validation response.
+     *
+     * @param out the response writer
+     * @param code the error code
+     * @param description the error description
+     * @throws IOException if the response cannot be written
+     */
+    abstract void writeFailure(Writer out, String code, String description) throws IOException;
+
+    /**
+     * Iterates over the values of an attribute, treating collections, arrays, maps, iterators
+     * and enumerations as multi-valued and anything else as a single value.
+     *
+     * @param value the attribute value
+     * @return an iterator over the values
+     */
+    static Iterator<?> valuesOf(final Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).iterator();
+        }
+        if (value instanceof Object[]) {
+            return Arrays.asList((Object[]) value).iterator();
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).entrySet().iterator();
+        }
+        if (value instanceof Iterator) {
+            return (Iterator<?>) value;
+        }
+        if (value instanceof Enumeration) {
+            return Collections.list((Enumeration<?>) value).iterator();
+        }
+        return Collections.singleton(value).iterator();
+    }
+}
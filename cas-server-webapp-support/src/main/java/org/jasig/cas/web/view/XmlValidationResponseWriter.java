@@ -0,0 +1,214 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.web.view;
+
+import org.jasig.cas.authentication.Authentication;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the CAS 2.0 and 3.0 XML validation responses, producing the same document as the
+ * {@code casServiceValidationSuccess.jsp} and {@code casServiceValidationFailure.jsp} views.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+final class XmlValidationResponseWriter extends ValidationResponseWriter {
+
+    private static final String SUCCESS_START = "<cas:serviceResponse xmlns:cas='http://www.yale.edu/tp/cas'>\n"
+            + "    <cas:authenticationSuccess>\n"
+            + "        <cas:user>";
+
+    private static final String USER_END = "</cas:user>\n";
+
+    private static final String PROXY_GRANTING_TICKET_START = "        <cas:proxyGrantingTicket>";
+
+    private static final String PROXY_GRANTING_TICKET_END = "</cas:proxyGrantingTicket>\n";
+
+    private static final String PROXIES_START = "        <cas:proxies>\n";
+
+    private static final String PROXY_START = "            <cas:proxy>";
+
+    private static final String PROXY_END = "</cas:proxy>\n";
+
+    private static final String PROXIES_END = "        </cas:proxies>\n";
+
+    private static final String ATTRIBUTES_START = "        <cas:attributes>\n";
+
+    private static final String ATTRIBUTE_START = "            <cas:";
+
+    private static final String ATTRIBUTE_CLOSE_START = "</cas:";
+
+    private static final String ATTRIBUTES_END = "        </cas:attributes>\n";
+
+    private static final String SUCCESS_END = "    </cas:authenticationSuccess>\n"
+            + "</cas:serviceResponse>\n";
+
+    private static final String FAILURE_START = "<cas:serviceResponse xmlns:cas='http://www.yale.edu/tp/cas'>\n"
+            + "    <cas:authenticationFailure code='";
+
+    private static final String FAILURE_CODE_END = "'>\n        ";
+
+    private static final String FAILURE_END = "\n    </cas:authenticationFailure>\n"
+            + "</cas:serviceResponse>\n";
+
+    @Override
+    String getContentType() {
+        return "application/xml;charset=UTF-8";
+    }
+
+    @Override
+    void writeSuccess(final Writer out, final String user, final String proxyGrantingTicketIou,
+                      final List<Authentication> proxies, final Map<String, Object> attributes) throws IOException {
+        out.write(SUCCESS_START);
+        escape(out, user);
+        out.write(USER_END);
+        if (proxyGrantingTicketIou != null && !proxyGrantingTicketIou.isEmpty()) {
+            out.write(PROXY_GRANTING_TICKET_START);
+            escape(out, proxyGrantingTicketIou);
+            out.write(PROXY_GRANTING_TICKET_END);
+        }
+        if (!proxies.isEmpty()) {
+            out.write(PROXIES_START);
+            for (final Authentication proxy : proxies) {
+                out.write(PROXY_START);
+                escape(out, proxy.getPrincipal().getId());
+                out.write(PROXY_END);
+            }
+            out.write(PROXIES_END);
+        }
+        if (!attributes.isEmpty()) {
+            out.write(ATTRIBUTES_START);
+            for (final Map.Entry<String, Object> attribute : attributes.entrySet()) {
+                final String name = escape(attribute.getKey());
+                final Iterator<?> values = valuesOf(attribute.getValue());
+                while (values.hasNext()) {
+                    out.write(ATTRIBUTE_START);
+                    out.write(name);
+                    out.write('>');
+                    escape(out, String.valueOf(values.next()));
+                    out.write(ATTRIBUTE_CLOSE_START);
+                    out.write(name);
+                    out.write(">\n");
+                }
+            }
+            out.write(ATTRIBUTES_END);
+        }
+        out.write(SUCCESS_END);
+    }
+
+    @Override
+    void writeFailure(final Writer out, final String code, final String description) throws IOException {
+        out.write(FAILURE_START);
+        escape(out, code);
+        out.write(FAILURE_CODE_END);
+        escape(out, description);
+        out.write(FAILURE_END);
+    }
+
+    /**
+     * Escapes a value the same way the JSTL {@code fn:escapeXml} function does.
+     *
+     * @param value the value
+     * @return the escaped value
+     */
+    private static String escape(final String value) {
+        if (!needsEscaping(value)) {
+            return value;
+        }
+        final StringBuilder builder = new StringBuilder(value.length() + value.length() / 2);
+        for (int i = 0; i < value.length(); i++) {
+            appendEscaped(builder, value.charAt(i));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes a value escaped the same way the JSTL {@code fn:escapeXml} function does.
+     *
+     * @param out the response writer
+     * @param value the value, written as an empty string if null
+     * @throws IOException if the value cannot be written
+     */
+    private static void escape(final Writer out, final String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (!needsEscaping(value)) {
+            out.write(value);
+            return;
+        }
+        out.write(escape(value));
+    }
+
+    /**
+     * Determines whether a value contains characters that must be escaped.
+     *
+     * @param value the value
+     * @return true if the value must be escaped
+     */
+    private static boolean needsEscaping(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            switch (value.charAt(i)) {
+                case '&':
+                case '<':
+                case '>':
+                case '\'':
+                case '"':
+                    return true;
+                default:
+                    break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends a character, escaped if needed.
+     *
+     * @param builder the builder
+     * @param c the character
+     */
+    private static void appendEscaped(final StringBuilder builder, final char c) {
+        switch (c) {
+            case '&':
+                builder.append("&amp;");
+                break;
+            case '<':
+                builder.append("&lt;");
+                break;
+            case '>':
+                builder.append("&gt;");
+                break;
+            case '\'':
+                builder.append("&#039;");
+                break;
+            case '"':
+                builder.append("&#034;");
+                break;
+            default:
+                builder.append(c);
+                break;
+        }
+    }
+}
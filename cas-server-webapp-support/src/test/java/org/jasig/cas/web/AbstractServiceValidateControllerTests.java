@@ -110,6 +110,26 @@ public abstract class AbstractServiceValidateControllerTests extends AbstractCen
                         new MockHttpServletResponse()).getViewName());
     }
 
+    @Test
+    public void verifyValidServiceTicketWithRenewParameter() throws Exception {
+        final TicketGrantingTicket tId = getCentralAuthenticationService()
+                .createTicketGrantingTicket(TestUtils.getCredentialsWithSameUsernameAndPassword());
+
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter("service", TestUtils.getService().getId());
+        request.addParameter("ticket", getCentralAuthenticationService().grantServiceTicket(tId.getId(),
+                TestUtils.getService()).getId());
+        request.addParameter("renew", "false");
+        assertEquals(ServiceValidateController.DEFAULT_SERVICE_SUCCESS_VIEW_NAME,
+                this.serviceValidateController.handleRequestInternal(request, new MockHttpServletResponse()).getViewName());
+
+        request.setParameter("ticket", getCentralAuthenticationService().grantServiceTicket(tId.getId(),
+                TestUtils.getService()).getId());
+        request.setParameter("renew", "1");
+        assertEquals(ServiceValidateController.DEFAULT_SERVICE_FAILURE_VIEW_NAME,
+                this.serviceValidateController.handleRequestInternal(request, new MockHttpServletResponse()).getViewName());
+    }
+
     @Test
     public void verifyValidServiceTicketInvalidSpec() throws Exception {
         assertEquals(ServiceValidateController.DEFAULT_SERVICE_FAILURE_VIEW_NAME,
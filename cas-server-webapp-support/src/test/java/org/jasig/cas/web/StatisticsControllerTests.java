@@ -0,0 +1,106 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.web;
+
+import org.jasig.cas.monitor.MetricsRegistry;
+import org.jasig.cas.monitor.TicketCounts;
+import org.jasig.cas.monitor.TicketCountsState;
+import org.jasig.cas.web.support.CookieRetrievingCookieGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.util.Collection;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for {@link StatisticsController}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class StatisticsControllerTests {
+
+    private StatisticsController controller;
+
+    @Before
+    public void setUp() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.record("AUTHENTICATE", 2000000, false);
+        registry.record("AUTHENTICATE", 4000000, true);
+
+        final TicketCountsState state = mock(TicketCountsState.class);
+        when(state.ticketCounts()).thenReturn(new TicketCounts(5, 1, 3, TicketCounts.UNKNOWN, 2));
+
+        this.controller = new StatisticsController(state);
+        this.controller.setMetricsRegistry(registry);
+    }
+
+    @Test
+    public void verifyOperationTimersInModel() throws Exception {
+        final ModelAndView modelAndView = this.controller.handleRequestInternal(
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+        assertEquals(1, ((Collection<?>) modelAndView.getModel().get("operationTimers")).size());
+    }
+
+    @Test
+    public void verifyTicketCountsInModel() throws Exception {
+        final ModelAndView modelAndView = this.controller.handleRequestInternal(
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+        assertEquals(5, modelAndView.getModel().get("ticketGrantingTickets"));
+        assertEquals(3, modelAndView.getModel().get("serviceTickets"));
+        assertEquals(2, modelAndView.getModel().get("expiredTickets"));
+        assertNull(modelAndView.getModel().get("proxyTickets"));
+    }
+
+    @Test
+    public void verifyPlainTextMetrics() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter("format", "text");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertNull(this.controller.handleRequestInternal(request, response));
+        assertTrue(response.getContentType().startsWith("text/plain"));
+        final String body = response.getContentAsString();
+        assertTrue(body.contains("cas_operation_latency_milliseconds_count{operation=\"AUTHENTICATE\"} 2\n"));
+        assertTrue(body.contains("cas_operation_failures_total{operation=\"AUTHENTICATE\"} 1\n"));
+        assertTrue(body.contains("cas_operation_latency_milliseconds{operation=\"AUTHENTICATE\",quantile=\"0.5\"} 2.0"));
+        assertTrue(body.contains("cas_registry_tickets{type=\"ticket_granting\"} 5\n"));
+        assertFalse(body.contains("cas_registry_tickets{type=\"proxy\"}"));
+        assertFalse(body.contains("cas_rejected_cookies_total"));
+    }
+
+    @Test
+    public void verifyRejectedCookiesInPlainTextMetrics() throws Exception {
+        final CookieRetrievingCookieGenerator generator = mock(CookieRetrievingCookieGenerator.class);
+        when(generator.getCookieName()).thenReturn("CASTGC");
+        when(generator.getRejectedCookieCount()).thenReturn(7L);
+        this.controller.setTicketGrantingTicketCookieGenerator(generator);
+
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter("format", "text");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        this.controller.handleRequestInternal(request, response);
+        assertTrue(response.getContentAsString().contains("cas_rejected_cookies_total{cookie=\"CASTGC\"} 7\n"));
+    }
+}
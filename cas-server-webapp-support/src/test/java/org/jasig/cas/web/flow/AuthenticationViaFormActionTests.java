@@ -22,6 +22,7 @@ import org.jasig.cas.AbstractCentralAuthenticationServiceTest;
 import org.jasig.cas.TestUtils;
 import org.jasig.cas.authentication.Credential;
 import org.jasig.cas.ticket.TicketGrantingTicket;
+import org.jasig.cas.web.support.LoginTicketSigner;
 import org.jasig.cas.web.support.WebUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -154,6 +155,66 @@ public class AuthenticationViaFormActionTests extends AbstractCentralAuthenticat
         assertEquals("error", this.action.submit(context, c, messageContext).getId());
     }
 
+    @Test
+    public void verifySignedLoginTicketAcceptedOnce() throws Exception {
+        final LoginTicketSigner signer = new LoginTicketSigner();
+        this.action.setLoginTicketSigner(signer);
+        final GenerateLoginTicketAction generateAction = new GenerateLoginTicketAction();
+        generateAction.setLoginTicketSigner(signer);
+
+        final MockRequestContext renderContext = new MockRequestContext();
+        assertEquals("generated", generateAction.generate(renderContext));
+        generateAction.render(renderContext);
+        assertFalse(renderContext.getFlowScope().contains("loginTicket"));
+        final String loginTicket = renderContext.getRequestScope().getString("loginTicket");
+        assertNotNull(loginTicket);
+
+        final Credential c = TestUtils.getCredentialsWithSameUsernameAndPassword();
+        final MessageContext messageContext = mock(MessageContext.class);
+        for (final String expected : new String[] {"success", "error"}) {
+            final MockHttpServletRequest request = new MockHttpServletRequest();
+            request.addParameter("lt", loginTicket);
+            final MockRequestContext context = new MockRequestContext();
+            context.setExternalContext(new ServletExternalContext(
+                    new MockServletContext(), request, new MockHttpServletResponse()));
+            putCredentialInRequestScope(context, c);
+            assertEquals(expected, this.action.submit(context, c, messageContext).getId());
+        }
+    }
+
+    @Test
+    public void verifySignedLoginTicketRenderedAfterBindingError() throws Exception {
+        final LoginTicketSigner signer = new LoginTicketSigner();
+        this.action.setLoginTicketSigner(signer);
+        final GenerateLoginTicketAction generateAction = new GenerateLoginTicketAction();
+        generateAction.setLoginTicketSigner(signer);
+
+        final MockRequestContext renderContext = new MockRequestContext();
+        assertEquals("generated", generateAction.generate(renderContext));
+        generateAction.render(renderContext);
+
+        // a binding error re-renders the login form in a new request without passing the generateLoginTicket state
+        final MockRequestContext context = new MockRequestContext(renderContext.getFlowExecutionContext());
+        assertNull(context.getRequestScope().getString("loginTicket"));
+        generateAction.render(context);
+        final String loginTicket = context.getRequestScope().getString("loginTicket");
+        assertNotNull(loginTicket);
+        assertFalse(context.getFlowScope().contains("loginTicket"));
+
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter("lt", loginTicket);
+        context.setExternalContext(new ServletExternalContext(
+                new MockServletContext(), request, new MockHttpServletResponse()));
+        final Credential c = TestUtils.getCredentialsWithSameUsernameAndPassword();
+        putCredentialInRequestScope(context, c);
+        assertEquals("success", this.action.submit(context, c, mock(MessageContext.class)).getId());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void verifyLoginTicketGeneratorRequired() {
+        new GenerateLoginTicketAction().afterPropertiesSet();
+    }
+
     @Test
     public void verifyRenewWithServiceAndSameCredentials() throws Exception {
         final Credential c = TestUtils.getCredentialsWithSameUsernameAndPassword();
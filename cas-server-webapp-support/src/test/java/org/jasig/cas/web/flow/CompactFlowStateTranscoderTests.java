@@ -0,0 +1,205 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.web.flow;
+
+import org.jasig.cas.TestUtils;
+import org.jasig.cas.util.CompressionUtils;
+import org.junit.Test;
+import org.springframework.webflow.core.collection.LocalAttributeMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CompactFlowStateTranscoder}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class CompactFlowStateTranscoderTests {
+
+    private final CompactFlowStateTranscoder transcoder = new CompactFlowStateTranscoder();
+
+    @Test
+    public void verifyRoundTrip() throws Exception {
+        final LocalAttributeMap<Object> state = newLoginFlowState();
+        assertEquals(state, this.transcoder.decode(this.transcoder.encode(state)));
+    }
+
+    @Test
+    public void verifyRoundTripWithoutCompression() throws Exception {
+        this.transcoder.setCompression(false);
+        final LocalAttributeMap<Object> state = newLoginFlowState();
+        assertEquals(state, this.transcoder.decode(this.transcoder.encode(state)));
+    }
+
+    @Test
+    public void verifyRoundTripOfClassesOutsideDictionary() throws Exception {
+        final TreeMap<String, Object> state = new TreeMap<>();
+        state.put("array", new int[] {1, 2, 3});
+        state.put("strings", new String[] {"a", "b"});
+        state.put("enum", TimeUnit.SECONDS);
+        state.put("nested", new Nested("value", Collections.singletonList(TestUtils.getService())));
+        state.put("empty", Collections.emptyList());
+
+        final Object decoded = this.transcoder.decode(this.transcoder.encode(state));
+        assertTrue(decoded instanceof TreeMap);
+        final Map<?, ?> decodedState = (Map<?, ?>) decoded;
+        assertArrayEquals(new int[] {1, 2, 3}, (int[]) decodedState.get("array"));
+        assertArrayEquals(new String[] {"a", "b"}, (String[]) decodedState.get("strings"));
+        assertSame(TimeUnit.SECONDS, decodedState.get("enum"));
+        assertEquals(state.get("nested"), decodedState.get("nested"));
+        assertEquals(Collections.emptyList(), decodedState.get("empty"));
+    }
+
+    @Test
+    public void verifyEncodedStatesDiffer() throws Exception {
+        final LocalAttributeMap<Object> state = newLoginFlowState();
+        assertFalse(Arrays.equals(this.transcoder.encode(state), this.transcoder.encode(state)));
+    }
+
+    @Test
+    public void verifySharedKey() throws Exception {
+        final String key = newKey();
+        final LocalAttributeMap<Object> state = newLoginFlowState();
+        assertEquals(state, new CompactFlowStateTranscoder(key).decode(new CompactFlowStateTranscoder(key).encode(state)));
+    }
+
+    @Test(expected = IOException.class)
+    public void verifyStateOfOtherKeyRejected() throws Exception {
+        new CompactFlowStateTranscoder(newKey()).decode(this.transcoder.encode(newLoginFlowState()));
+    }
+
+    @Test
+    public void verifyTamperedStateRejected() throws Exception {
+        final byte[] encoded = this.transcoder.encode(newLoginFlowState());
+        for (final int position : new int[] {0, 1, encoded.length / 2, encoded.length - 1}) {
+            final byte[] tampered = encoded.clone();
+            tampered[position] ^= 1;
+            try {
+                this.transcoder.decode(tampered);
+                fail("Tampered state decoded");
+            } catch (final IOException e) {
+                assertNotNull(e.getMessage());
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void verifyTruncatedStateRejected() throws Exception {
+        this.transcoder.decode(Arrays.copyOf(this.transcoder.encode(newLoginFlowState()), 10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyInvalidKeyRejected() {
+        new CompactFlowStateTranscoder(CompressionUtils.encodeBase64(new byte[10]));
+    }
+
+    @Test
+    public void verifyStateSmallerThanJavaSerialization() throws Exception {
+        final LocalAttributeMap<Object> state = newLoginFlowState();
+        final ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(serialized))) {
+            out.writeObject(state);
+        }
+        assertTrue(this.transcoder.encode(state).length < serialized.size() / 2);
+    }
+
+    @Test
+    public void verifyConcurrentUse() throws Exception {
+        final LocalAttributeMap<Object> state = newLoginFlowState();
+        final List<Thread> threads = new ArrayList<>();
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        for (int t = 0; t < 4; t++) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 200; i++) {
+                            assertEquals(state, transcoder.decode(transcoder.encode(state)));
+                        }
+                    } catch (final Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(Collections.emptyList(), failures);
+    }
+
+    private static LocalAttributeMap<Object> newLoginFlowState() {
+        final LocalAttributeMap<Object> state = new LocalAttributeMap<>();
+        state.put("credential", TestUtils.getCredentialsWithSameUsernameAndPassword());
+        state.put("service", TestUtils.getService());
+        state.put("loginTicket", "LT-1-pbWx0VAYrcgZCNSZ0zXoYl6scbnbUi-cas01.example.org");
+        state.put("warnCookieValue", Boolean.FALSE);
+        return state;
+    }
+
+    private static String newKey() {
+        final byte[] key = new byte[16];
+        new SecureRandom().nextBytes(key);
+        return CompressionUtils.encodeBase64(key);
+    }
+
+    private static final class Nested implements Serializable {
+        private static final long serialVersionUID = 8296145347434573416L;
+
+        private final String value;
+
+        private final List<?> values;
+
+        Nested(final String value, final List<?> values) {
+            this.value = value;
+            this.values = values;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Nested)) {
+                return false;
+            }
+            final Nested other = (Nested) o;
+            return this.value.equals(other.value) && this.values.equals(other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.value.hashCode();
+        }
+    }
+}
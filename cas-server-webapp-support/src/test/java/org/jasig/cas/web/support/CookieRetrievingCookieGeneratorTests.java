@@ -27,6 +27,8 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import javax.servlet.http.Cookie;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  *
@@ -36,6 +38,8 @@ import static org.junit.Assert.assertEquals;
  */
 public final class CookieRetrievingCookieGeneratorTests {
 
+    private static final String SIGNING_KEY = "c2VjcmV0LXNpZ25pbmcta2V5LWZvci10ZXN0cw==";
+
     private CookieRetrievingCookieGenerator g;
 
     @Before
@@ -83,4 +87,65 @@ public final class CookieRetrievingCookieGeneratorTests {
 
         assertEquals("test", this.g.retrieveCookieValue(request));
     }
+
+    @Test
+    public void verifySignedCookieRetrieve() {
+        this.g.setSigningKey(SIGNING_KEY);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        this.g.addCookie(new MockHttpServletRequest(), response, "TGT-1-abc-cas");
+
+        final Cookie c = response.getCookie("test");
+        assertNotEquals("TGT-1-abc-cas", c.getValue());
+
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(c);
+        assertEquals("TGT-1-abc-cas", this.g.retrieveCookieValue(request));
+        assertEquals(0, this.g.getRejectedCookieCount());
+    }
+
+    @Test
+    public void verifySignedCookieWithRememberMe() {
+        this.g.setSigningKey(SIGNING_KEY);
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter(RememberMeCredential.REQUEST_PARAMETER_REMEMBER_ME, "true");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        this.g.addCookie(request, response, "TGT-1-abc-cas");
+
+        final MockHttpServletRequest next = new MockHttpServletRequest();
+        next.setCookies(response.getCookie("test"));
+        assertEquals("TGT-1-abc-cas", this.g.retrieveCookieValue(next));
+    }
+
+    @Test
+    public void verifyForgedCookieRejected() {
+        this.g.setSigningKey(SIGNING_KEY);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        this.g.addCookie(new MockHttpServletRequest(), response, "TGT-1-abc-cas");
+        final String signed = response.getCookie("test").getValue();
+
+        assertNull(retrieve("TGT-1-abc-cas"));
+        assertNull(retrieve(signed.replace("TGT-1-abc", "TGT-2-abc")));
+        assertNull(retrieve("TGT-1-abc-cas-" + signed.substring(signed.length() - 22).toUpperCase()));
+        assertNull(retrieve(""));
+        assertEquals(4, this.g.getRejectedCookieCount());
+    }
+
+    @Test
+    public void verifyCookieSignedWithOtherKeyRejected() {
+        this.g.setSigningKey(SIGNING_KEY);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        this.g.addCookie(new MockHttpServletRequest(), response, "TGT-1-abc-cas");
+
+        this.g.setSigningKey("b3RoZXItc2lnbmluZy1rZXktZm9yLXRlc3Rz");
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(response.getCookie("test"));
+        assertNull(this.g.retrieveCookieValue(request));
+        assertEquals(1, this.g.getRejectedCookieCount());
+    }
+
+    private String retrieve(final String value) {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie("test", value));
+        return this.g.retrieveCookieValue(request);
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.web.support;
+
+import org.jasig.cas.mock.MockClock;
+import org.jasig.cas.util.CompressionUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link LoginTicketSigner}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class LoginTicketSignerTests {
+
+    private static final String KEY = CompressionUtils.encodeBase64("0123456789abcdef0123456789abcdef".getBytes());
+
+    private final MockClock clock = new MockClock(1420070400000L);
+
+    private LoginTicketSigner signer;
+
+    @Before
+    public void setUp() {
+        this.signer = newSigner(KEY);
+    }
+
+    @Test
+    public void verifyTicketValidOnce() {
+        final String ticket = this.signer.getNewTicketId("LT");
+        assertTrue(ticket.startsWith("LT-"));
+        assertTrue(this.signer.verify(ticket));
+        assertFalse(this.signer.verify(ticket));
+    }
+
+    @Test
+    public void verifyTicketsAreUniqueAndValid() {
+        final Set<String> tickets = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            final String ticket = this.signer.getNewTicketId("LT");
+            assertTrue(tickets.add(ticket));
+            assertTrue(ticket, this.signer.verify(ticket));
+        }
+    }
+
+    @Test
+    public void verifyTicketVerifiedByNodeSharingKey() {
+        final String ticket = this.signer.getNewTicketId("LT");
+        assertTrue(newSigner(KEY).verify(ticket));
+        assertFalse(newSigner(CompressionUtils.encodeBase64("fedcba9876543210fedcba9876543210".getBytes()))
+                .verify(ticket));
+        assertFalse(new LoginTicketSigner().verify(ticket));
+    }
+
+    @Test
+    public void verifyExpiredTicketRejected() {
+        this.signer.setTimeToLive(60);
+        final String ticket = this.signer.getNewTicketId("LT");
+        this.clock.advance(TimeUnit.SECONDS.toMillis(60));
+        assertFalse(this.signer.verify(ticket));
+    }
+
+    @Test
+    public void verifyTicketAheadOfClockRejected() {
+        final String ticket = this.signer.getNewTicketId("LT");
+        this.clock.advance(-TimeUnit.MINUTES.toMillis(5));
+        assertFalse(this.signer.verify(ticket));
+    }
+
+    @Test
+    public void verifyTamperedTicketsRejected() {
+        final String ticket = this.signer.getNewTicketId("LT");
+        final int timeEnd = ticket.indexOf('-', 3);
+        assertFalse(this.signer.verify(ticket.substring(0, 3) + 'z' + ticket.substring(4)));
+        assertFalse(this.signer.verify(ticket.substring(0, timeEnd) + "0" + ticket.substring(timeEnd)));
+        assertFalse(this.signer.verify(ticket.substring(0, ticket.length() - 2)));
+        assertFalse(this.signer.verify(ticket.substring(0, ticket.lastIndexOf('-'))));
+        assertFalse(this.signer.verify("LT-1-2-3"));
+        assertFalse(this.signer.verify("LT"));
+        assertFalse(this.signer.verify(""));
+        assertFalse(this.signer.verify(null));
+        assertTrue(this.signer.verify(ticket));
+    }
+
+    @Test
+    public void verifyExpiredTicketsForgotten() {
+        this.signer.setTimeToLive(60);
+        this.signer.setMaxSize(10);
+        final String ticket = this.signer.getNewTicketId("LT");
+        assertTrue(this.signer.verify(ticket));
+        for (int i = 0; i < 9; i++) {
+            assertTrue(this.signer.verify(this.signer.getNewTicketId("LT")));
+        }
+        assertFalse(this.signer.verify(ticket));
+
+        this.clock.advance(TimeUnit.SECONDS.toMillis(61));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(this.signer.verify(this.signer.getNewTicketId("LT")));
+        }
+        assertFalse(this.signer.verify(ticket));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyShortKeyRejected() {
+        new LoginTicketSigner(CompressionUtils.encodeBase64(new byte[8]));
+    }
+
+    private LoginTicketSigner newSigner(final String key) {
+        final LoginTicketSigner newSigner = new LoginTicketSigner(key);
+        newSigner.setClock(this.clock);
+        return newSigner;
+    }
+}
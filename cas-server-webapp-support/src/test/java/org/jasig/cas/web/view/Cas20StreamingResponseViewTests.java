@@ -0,0 +1,128 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.web.view;
+
+import org.jasig.cas.CasProtocolConstants;
+import org.jasig.cas.TestUtils;
+import org.jasig.cas.authentication.Authentication;
+import org.jasig.cas.validation.ImmutableAssertion;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link Cas20StreamingResponseView}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class Cas20StreamingResponseViewTests {
+
+    private final Cas20StreamingResponseView view = new Cas20StreamingResponseView();
+
+    @Test
+    public void verifySuccessView() throws Exception {
+        final Map<String, Object> model = newModel("casuser");
+        model.put(CasProtocolConstants.VALIDATION_CAS_MODEL_PROXY_GRANTING_TICKET_IOU, "PGTIOU-1");
+        this.view.setSuccessResponse(true);
+
+        final MockHttpServletResponse response = render(model, new MockHttpServletRequest());
+        assertEquals("application/xml;charset=UTF-8", response.getContentType());
+        assertEquals("<cas:serviceResponse xmlns:cas='http://www.yale.edu/tp/cas'>\n"
+                + "    <cas:authenticationSuccess>\n"
+                + "        <cas:user>casuser</cas:user>\n"
+                + "        <cas:proxyGrantingTicket>PGTIOU-1</cas:proxyGrantingTicket>\n"
+                + "        <cas:proxies>\n"
+                + "            <cas:proxy>https://proxy.example.org</cas:proxy>\n"
+                + "        </cas:proxies>\n"
+                + "    </cas:authenticationSuccess>\n"
+                + "</cas:serviceResponse>\n", response.getContentAsString());
+    }
+
+    @Test
+    public void verifySuccessViewEscapesValues() throws Exception {
+        this.view.setSuccessResponse(true);
+        final MockHttpServletResponse response = render(newModel("<a href=\"x\">Tom & Jerry's</a>"),
+                new MockHttpServletRequest());
+        assertTrue(response.getContentAsString().contains(
+                "<cas:user>&lt;a href=&#034;x&#034;&gt;Tom &amp; Jerry&#039;s&lt;/a&gt;</cas:user>"));
+        assertFalse(response.getContentAsString().contains("proxyGrantingTicket"));
+    }
+
+    @Test
+    public void verifyFailureView() throws Exception {
+        final Map<String, Object> model = new HashMap<>();
+        model.put("code", CasProtocolConstants.ERROR_CODE_INVALID_TICKET);
+        model.put("description", "Ticket <ST-1> not recognized");
+
+        final MockHttpServletResponse response = render(model, new MockHttpServletRequest());
+        assertEquals("<cas:serviceResponse xmlns:cas='http://www.yale.edu/tp/cas'>\n"
+                + "    <cas:authenticationFailure code='INVALID_TICKET'>\n"
+                + "        Ticket &lt;ST-1&gt; not recognized\n"
+                + "    </cas:authenticationFailure>\n"
+                + "</cas:serviceResponse>\n", response.getContentAsString());
+    }
+
+    @Test
+    public void verifyJsonFormatRequested() throws Exception {
+        this.view.setSuccessResponse(true);
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter(CasProtocolConstants.PARAMETER_FORMAT, "json");
+
+        final MockHttpServletResponse response = render(newModel("casuser"), request);
+        assertEquals("application/json;charset=UTF-8", response.getContentType());
+        assertEquals("{\"serviceResponse\":{\"authenticationSuccess\":{\"user\":\"casuser\","
+                + "\"proxies\":[\"https://proxy.example.org\"]}}}", response.getContentAsString());
+    }
+
+    @Test
+    public void verifyJsonFailureView() throws Exception {
+        this.view.setFormat(Cas20StreamingResponseView.Format.JSON);
+        final Map<String, Object> model = new HashMap<>();
+        model.put("code", CasProtocolConstants.ERROR_CODE_INVALID_REQUEST);
+        model.put("description", "\"service\" is required");
+
+        final MockHttpServletResponse response = render(model, new MockHttpServletRequest());
+        assertEquals("{\"serviceResponse\":{\"authenticationFailure\":{\"code\":\"INVALID_REQUEST\","
+                + "\"description\":\"\\\"service\\\" is required\"}}}", response.getContentAsString());
+    }
+
+    private MockHttpServletResponse render(final Map<String, Object> model, final MockHttpServletRequest request)
+            throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        this.view.render(model, request, response);
+        return response;
+    }
+
+    private static Map<String, Object> newModel(final String user) {
+        final Authentication primary = TestUtils.getAuthentication(user);
+        final Map<String, Object> model = new HashMap<>();
+        model.put("assertion", new ImmutableAssertion(primary,
+                Arrays.asList(TestUtils.getAuthentication("https://proxy.example.org"),
+                        TestUtils.getAuthentication("https://service.example.org"), primary),
+                TestUtils.getService(), true));
+        return model;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.cas.web.view;
+
+import org.jasig.cas.CasProtocolConstants;
+import org.jasig.cas.TestUtils;
+import org.jasig.cas.authentication.Authentication;
+import org.jasig.cas.authentication.RememberMeCredential;
+import org.jasig.cas.validation.ImmutableAssertion;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link Cas30StreamingResponseView}.
+ *
+ * @author Apereo CAS Team
+ * @since 4.1.0
+ */
+public class Cas30StreamingResponseViewTests {
+
+    private final Cas30StreamingResponseView view = new Cas30StreamingResponseView();
+
+    @Test
+    public void verifyAttributesReleased() throws Exception {
+        final Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("mail", "casuser@example.org");
+        attributes.put("memberOf", Arrays.asList("staff", "faculty"));
+        final Authentication authentication = TestUtils.getAuthentication(TestUtils.getPrincipal("casuser", attributes),
+                Collections.<String, Object>singletonMap(RememberMeCredential.AUTHENTICATION_ATTRIBUTE_REMEMBER_ME, true));
+
+        final String content = render(newModel(authentication), new MockHttpServletRequest()).getContentAsString();
+        assertTrue(content.contains("        <cas:attributes>\n"
+                + "            <cas:mail>casuser@example.org</cas:mail>\n"
+                + "            <cas:memberOf>staff</cas:memberOf>\n"
+                + "            <cas:memberOf>faculty</cas:memberOf>\n"
+                + "            <cas:isFromNewLogin>true</cas:isFromNewLogin>\n"
+                + "            <cas:longTermAuthenticationRequestTokenUsed>true</cas:longTermAuthenticationRequestTokenUsed>\n"
+                + "            <cas:authenticationDate>" + authentication.getAuthenticationDate()
+                + "</cas:authenticationDate>\n"
+                + "        </cas:attributes>\n"));
+    }
+
+    @Test
+    public void verifyNoAttributesWithoutPrincipalAttributes() throws Exception {
+        final String content = render(newModel(TestUtils.getAuthentication("casuser")), new MockHttpServletRequest())
+                .getContentAsString();
+        assertTrue(content.contains("<cas:user>casuser</cas:user>"));
+        assertFalse(content.contains("<cas:attributes>"));
+    }
+
+    @Test
+    public void verifyJsonAttributesReleased() throws Exception {
+        final Authentication authentication = TestUtils.getAuthentication(TestUtils.getPrincipal("casuser",
+                Collections.<String, Object>singletonMap("memberOf", Arrays.asList("staff", "faculty"))));
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter(CasProtocolConstants.PARAMETER_FORMAT, "JSON");
+
+        final String content = render(newModel(authentication), request).getContentAsString();
+        assertTrue(content.startsWith("{\"serviceResponse\":{\"authenticationSuccess\":{\"user\":\"casuser\","
+                + "\"attributes\":{\"memberOf\":[\"staff\",\"faculty\"],\"isFromNewLogin\":[true],"
+                + "\"longTermAuthenticationRequestTokenUsed\":[false],\"authenticationDate\":[\""));
+    }
+
+    private MockHttpServletResponse render(final Map<String, Object> model, final MockHttpServletRequest request)
+            throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        this.view.setSuccessResponse(true);
+        this.view.render(model, request, response);
+        return response;
+    }
+
+    private static Map<String, Object> newModel(final Authentication authentication) {
+        final Map<String, Object> model = new HashMap<>();
+        model.put("assertion", new ImmutableAssertion(authentication, Collections.singletonList(authentication),
+                TestUtils.getService(), true));
+        return model;
+    }
+}
@@ -19,6 +19,7 @@
 
 --%>
 <%@include file="/WEB-INF/view/jsp/default/ui/includes/top.jsp"%>
+<%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
 
 <style type="text/css">
     table {
@@ -100,31 +101,55 @@
     </thead>
     <tbody>
         <tr>
-            <td>Unexpired TGTs</td>
-            <td>${unexpiredTgts}</td>
+            <td>Ticket Granting Tickets</td>
+            <td>${empty ticketGrantingTickets ? 'Unknown' : ticketGrantingTickets}</td>
         </tr>
         <tr>
-            <td>Unexpired STs</td>
-            <td>${unexpiredSts}</td>
+            <td>Proxy Granting Tickets</td>
+            <td>${empty proxyGrantingTickets ? 'Unknown' : proxyGrantingTickets}</td>
         </tr>
         <tr>
-            <td>Expired TGTs</td>
-            <td>${expiredTgts}</td>
+            <td>Service Tickets</td>
+            <td>${empty serviceTickets ? 'Unknown' : serviceTickets}</td>
         </tr>
         <tr>
-            <td>Expired STs</td>
-            <td>${expiredSts}</td>
+            <td>Proxy Tickets</td>
+            <td>${empty proxyTickets ? 'Unknown' : proxyTickets}</td>
+        </tr>
+        <tr>
+            <td>Expired Tickets</td>
+            <td>${empty expiredTickets ? 'Unknown' : expiredTickets}</td>
         </tr>
     </tbody>
 </table>
 
 <h2>Performance Statistics</h2>
 
-<c:forEach items="${graphingStatisticAppenders}" var="appender">
-<h3>${appender.name}</h3>
-
-<img src="${appender.chartGenerator.chartUrl}" alt="${appender.name}" />
-
+<table width="800">
+    <thead>
+        <tr>
+            <th>Operation</th>
+            <th>Count</th>
+            <th>Failures</th>
+            <th>p50 (ms)</th>
+            <th>p99 (ms)</th>
+            <th>p99.9 (ms)</th>
+            <th>Max (ms)</th>
+        </tr>
+    </thead>
+    <tbody>
+<c:forEach items="${operationTimers}" var="timer">
+        <tr>
+            <td>${timer.name}</td>
+            <td>${timer.count}</td>
+            <td>${timer.failureCount}</td>
+            <td><fmt:formatNumber value="${timer.p50}" maxFractionDigits="3" /></td>
+            <td><fmt:formatNumber value="${timer.p99}" maxFractionDigits="3" /></td>
+            <td><fmt:formatNumber value="${timer.p999}" maxFractionDigits="3" /></td>
+            <td><fmt:formatNumber value="${timer.max}" maxFractionDigits="3" /></td>
+        </tr>
 </c:forEach>
+    </tbody>
+</table>
 
 <%@include file="/WEB-INF/view/jsp/default/ui/includes/bottom.jsp" %>
\ No newline at end of file